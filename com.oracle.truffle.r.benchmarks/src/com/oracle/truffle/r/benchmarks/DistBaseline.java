@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 1995, 1996, 1997  Robert Gentleman and Ross Ihaka
+ * Copyright (c) 1995-2014, The R Core Team
+ * Copyright (c) 2002-2008, The R Foundation
+ * Copyright (c) 2016, 2021, Oracle and/or its affiliates
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.R-project.org/Licenses/
+ */
+package com.oracle.truffle.r.benchmarks;
+
+import static com.oracle.truffle.r.runtime.nmath.MathConstants.DBL_MIN;
+
+import com.oracle.truffle.r.library.stats.Cdist;
+import com.oracle.truffle.r.runtime.RRuntime;
+import com.oracle.truffle.r.runtime.data.RDoubleVector;
+import com.oracle.truffle.r.runtime.data.nodes.VectorAccess;
+import com.oracle.truffle.r.runtime.data.nodes.VectorAccess.RandomIterator;
+
+/**
+ * The computation of {@code dist} as it was before it was parallelized: a single thread reads
+ * {@code x} element by element through {@link VectorAccess}. The benchmark has no node to adopt
+ * the cached access, so the slow path access of the generic specialization is used. The warning
+ * of the binary method is left out, it needs a context.
+ */
+final class DistBaseline {
+
+    private DistBaseline() {
+    }
+
+    static void rdistance(RDoubleVector x, int nr, int nc, double[] d, boolean diag, Cdist.Method method, double p) {
+        VectorAccess xAccess = x.slowPathAccess();
+        RandomIterator xIter = xAccess.randomAccess(x);
+        int ij;
+        int dc = diag ? 0 : 1; /* diag=1: we do the diagonal */
+        ij = 0;
+        for (int j = 0; j <= nr; j++) {
+            for (int i = j + dc; i < nr; i++) {
+                d[ij++] = dist(method, xAccess, xIter, nr, nc, i, j, p);
+            }
+        }
+    }
+
+    private static double dist(Cdist.Method method, VectorAccess xAccess, RandomIterator xIter, int nr, int nc, int i1, int i2, double p) {
+        switch (method) {
+            case EUCLIDEAN:
+                return euclidean(xAccess, xIter, nr, nc, i1, i2);
+            case MAXIMUM:
+                return maximum(xAccess, xIter, nr, nc, i1, i2);
+            case MANHATTAN:
+                return manhattan(xAccess, xIter, nr, nc, i1, i2);
+            case CANBERRA:
+                return canberra(xAccess, xIter, nr, nc, i1, i2);
+            case BINARY:
+                return binary(xAccess, xIter, nr, nc, i1, i2);
+            case MINKOWSKI:
+                return minkowski(xAccess, xIter, nr, nc, i1, i2, p);
+            default:
+                throw new IllegalArgumentException(method.toString());
+        }
+    }
+
+    private static boolean bothNonNAN(double a, double b) {
+        return !RRuntime.isNAorNaN(a) && !RRuntime.isNAorNaN(b);
+    }
+
+    private static boolean bothFinite(double a, double b) {
+        return RRuntime.isFinite(a) && RRuntime.isFinite(b);
+    }
+
+    private static double euclidean(VectorAccess xAccess, RandomIterator xIter, int nr, int nc, final int i1in, final int i2in) {
+        int i1 = i1in;
+        int i2 = i2in;
+        double dev;
+        double dist;
+        int count;
+        int j;
+
+        count = 0;
+        dist = 0;
+        for (j = 0; j < nc; j++) {
+            if (bothNonNAN(xAccess.getDouble(xIter, i1), xAccess.getDouble(xIter, i2))) {
+                dev = (xAccess.getDouble(xIter, i1) - xAccess.getDouble(xIter, i2));
+                if (!RRuntime.isNAorNaN(dev)) {
+                    dist += dev * dev;
+                    count++;
+                }
+            }
+            i1 += nr;
+            i2 += nr;
+        }
+        if (count == 0) {
+            return RRuntime.DOUBLE_NA;
+        }
+        if (count != nc) {
+            dist /= ((double) count / nc);
+        }
+        return Math.sqrt(dist);
+    }
+
+    private static double maximum(VectorAccess xAccess, RandomIterator xIter, int nr, int nc, final int i1in, final int i2in) {
+        int i1 = i1in;
+        int i2 = i2in;
+        double dev;
+        double dist;
+        int count;
+        int j;
+
+        count = 0;
+        dist = -Double.MAX_VALUE;
+        for (j = 0; j < nc; j++) {
+            if (bothNonNAN(xAccess.getDouble(xIter, i1), xAccess.getDouble(xIter, i2))) {
+                dev = Math.abs(xAccess.getDouble(xIter, i1) - xAccess.getDouble(xIter, i2));
+                if (!RRuntime.isNAorNaN(dev)) {
+                    if (dev > dist) {
+                        dist = dev;
+                    }
+                    count++;
+                }
+            }
+            i1 += nr;
+            i2 += nr;
+        }
+        if (count == 0) {
+            return RRuntime.DOUBLE_NA;
+        }
+        return dist;
+    }
+
+    private static double manhattan(VectorAccess xAccess, RandomIterator xIter, int nr, int nc, final int i1in, final int i2in) {
+        int i1 = i1in;
+        int i2 = i2in;
+        double dev;
+        double dist;
+        int count;
+        int j;
+
+        count = 0;
+        dist = 0;
+        for (j = 0; j < nc; j++) {
+            if (bothNonNAN(xAccess.getDouble(xIter, i1), xAccess.getDouble(xIter, i2))) {
+                dev = Math.abs(xAccess.getDouble(xIter, i1) - xAccess.getDouble(xIter, i2));
+                if (!RRuntime.isNAorNaN(dev)) {
+                    dist += dev;
+                    count++;
+                }
+            }
+            i1 += nr;
+            i2 += nr;
+        }
+        if (count == 0) {
+            return RRuntime.DOUBLE_NA;
+        }
+        if (count != nc) {
+            dist /= ((double) count / nc);
+        }
+        return dist;
+    }
+
+    private static double canberra(VectorAccess xAccess, RandomIterator xIter, int nr, int nc, final int i1in, final int i2in) {
+        int i1 = i1in;
+        int i2 = i2in;
+        double dev;
+        double dist;
+        double sum;
+        double diff;
+        int count;
+        int j;
+
+        count = 0;
+        dist = 0;
+        for (j = 0; j < nc; j++) {
+            if (bothNonNAN(xAccess.getDouble(xIter, i1), xAccess.getDouble(xIter, i2))) {
+                sum = Math.abs(xAccess.getDouble(xIter, i1) + xAccess.getDouble(xIter, i2));
+                diff = Math.abs(xAccess.getDouble(xIter, i1) - xAccess.getDouble(xIter, i2));
+                if (sum > DBL_MIN || diff > DBL_MIN) {
+                    dev = diff / sum;
+                    if (!RRuntime.isNAorNaN(dev) ||
+                                    (!RRuntime.isFinite(diff) && diff == sum &&
+                                                    /* use Inf = lim x -> oo */ ((dev = 1.) != 0))) {
+                        dist += dev;
+                        count++;
+                    }
+                }
+            }
+            i1 += nr;
+            i2 += nr;
+        }
+        if (count == 0) {
+            return RRuntime.DOUBLE_NA;
+        }
+        if (count != nc) {
+            dist /= ((double) count / nc);
+        }
+        return dist;
+    }
+
+    private static double binary(VectorAccess xAccess, RandomIterator xIter, int nr, int nc, final int i1in, final int i2in) {
+        int i1 = i1in;
+        int i2 = i2in;
+        int total;
+        int count;
+        int dist;
+        int j;
+
+        total = 0;
+        count = 0;
+        dist = 0;
+
+        for (j = 0; j < nc; j++) {
+            if (bothNonNAN(xAccess.getDouble(xIter, i1), xAccess.getDouble(xIter, i2))) {
+                if (bothFinite(xAccess.getDouble(xIter, i1), xAccess.getDouble(xIter, i2))) {
+                    if (xAccess.getDouble(xIter, i1) != 0. || xAccess.getDouble(xIter, i2) != 0.) {
+                        count++;
+                        if (!(xAccess.getDouble(xIter, i1) != 0. && xAccess.getDouble(xIter, i2) != 0.)) {
+                            dist++;
+                        }
+                    }
+                    total++;
+                }
+            }
+            i1 += nr;
+            i2 += nr;
+        }
+
+        if (total == 0) {
+            return RRuntime.DOUBLE_NA;
+        }
+        if (count == 0) {
+            return 0;
+        }
+        return (double) dist / count;
+    }
+
+    private static double minkowski(VectorAccess xAccess, RandomIterator xIter, int nr, int nc, final int i1in, final int i2in, double p) {
+        int i1 = i1in;
+        int i2 = i2in;
+        double dev;
+        double dist;
+        int count;
+        int j;
+
+        count = 0;
+        dist = 0;
+        for (j = 0; j < nc; j++) {
+            if (bothNonNAN(xAccess.getDouble(xIter, i1), xAccess.getDouble(xIter, i2))) {
+                dev = (xAccess.getDouble(xIter, i1) - xAccess.getDouble(xIter, i2));
+                if (!RRuntime.isNAorNaN(dev)) {
+                    dist += Math.pow(Math.abs(dev), p);
+                    count++;
+                }
+            }
+            i1 += nr;
+            i2 += nr;
+        }
+        if (count == 0) {
+            return RRuntime.DOUBLE_NA;
+        }
+        if (count != nc) {
+            dist /= ((double) count / nc);
+        }
+        return Math.pow(dist, 1.0 / p);
+    }
+}
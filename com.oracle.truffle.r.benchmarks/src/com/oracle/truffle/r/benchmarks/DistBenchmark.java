@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2021, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.oracle.truffle.r.library.stats.Cdist;
+import com.oracle.truffle.r.runtime.data.RDataFactory;
+import com.oracle.truffle.r.runtime.data.RDoubleVector;
+
+/**
+ * Compares the computation of the distances of {@code dist} before it was parallelized
+ * ({@link DistBaseline}) with the sequential and the parallel computation of {@link Cdist}. Run it
+ * with {@code org.openjdk.jmh.Main} on the class path of this project, the parallel variant uses
+ * the common fork-join pool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DistBenchmark {
+
+    @Param({"1000", "4000"}) public int rows;
+
+    @Param({"50"}) public int cols;
+
+    @Param({"EUCLIDEAN", "MAXIMUM", "MANHATTAN", "CANBERRA", "BINARY", "MINKOWSKI"}) public Cdist.Method method;
+
+    private double[] x;
+    private RDoubleVector xVector;
+    private double[] distances;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        x = new double[rows * cols];
+        for (int i = 0; i < x.length; i++) {
+            // every tenth value is zero, so that the binary distance has something to count
+            x[i] = random.nextInt(10) == 0 ? 0 : random.nextGaussian();
+        }
+        xVector = RDataFactory.createDoubleVector(x, RDataFactory.COMPLETE_VECTOR);
+        distances = new double[rows * (rows - 1) / 2];
+    }
+
+    @Benchmark
+    public double[] baseline() {
+        DistBaseline.rdistance(xVector, rows, cols, distances, false, method, 3);
+        return distances;
+    }
+
+    @Benchmark
+    public double[] sequential() {
+        Cdist.rdistance(x, rows, cols, distances, false, method, 3, false);
+        return distances;
+    }
+
+    @Benchmark
+    public double[] parallel() {
+        Cdist.rdistance(x, rows, cols, distances, false, method, 3, true);
+        return distances;
+    }
+}
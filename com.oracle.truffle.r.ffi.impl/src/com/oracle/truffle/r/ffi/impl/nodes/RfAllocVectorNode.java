@@ -36,6 +36,15 @@ import com.oracle.truffle.r.runtime.gnur.SEXPTYPE;
 public abstract class RfAllocVectorNode extends FFIUpCallNode.Arg2 {
     protected static final int SEXPTYPE_COUNT = SEXPTYPE.values().length + 1;
 
+    /**
+     * Integer and double vectors of at least this length are allocated directly in native memory.
+     * Native code almost always fills the vector it has just allocated through {@code INTEGER} or
+     * {@code REAL}, which would otherwise allocate the native memory and copy the Java array into
+     * it. Short vectors are kept on the heap, they are cheap to copy and Java code reads them
+     * faster.
+     */
+    static final int NATIVE_ALLOCATION_MIN_LENGTH = 64;
+
     public abstract Object execute(int mode, long n);
 
     public static RfAllocVectorNode create() {
@@ -65,6 +74,13 @@ public abstract class RfAllocVectorNode extends FFIUpCallNode.Arg2 {
     }
 
     private static Object allocate(SEXPTYPE type, int ni) {
+        if (ni >= NATIVE_ALLOCATION_MIN_LENGTH) {
+            if (type == SEXPTYPE.INTSXP) {
+                return RDataFactory.createNativeIntVector(ni);
+            } else if (type == SEXPTYPE.REALSXP) {
+                return RDataFactory.createNativeDoubleVector(ni);
+            }
+        }
         return RDataFactory.createEmptyVectorFromSEXPType(type, ni);
     }
 }
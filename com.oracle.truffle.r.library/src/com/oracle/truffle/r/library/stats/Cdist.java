@@ -25,6 +25,10 @@ import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.missingValue
 import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.nullValue;
 import static com.oracle.truffle.r.runtime.nmath.MathConstants.DBL_MIN;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.r.runtime.data.nodes.attributes.GetFixedAttributeNode;
@@ -35,19 +39,25 @@ import com.oracle.truffle.r.nodes.builtin.RExternalBuiltinNode;
 import com.oracle.truffle.r.runtime.RError;
 import com.oracle.truffle.r.runtime.RError.Message;
 import com.oracle.truffle.r.runtime.RRuntime;
+import com.oracle.truffle.r.runtime.context.FastROptions;
+import com.oracle.truffle.r.runtime.context.RContext;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
 import com.oracle.truffle.r.runtime.data.RDoubleVector;
 import com.oracle.truffle.r.runtime.data.RList;
 import com.oracle.truffle.r.runtime.data.RStringVector;
-import com.oracle.truffle.r.runtime.data.nodes.VectorAccess;
-import com.oracle.truffle.r.runtime.data.nodes.VectorAccess.RandomIterator;
-import com.oracle.truffle.r.runtime.ops.na.NACheck;
+import com.oracle.truffle.r.runtime.data.nodes.GetReadonlyData;
 
+/**
+ * Implements {@code C_Cdist}. The lower triangle of the distance matrix is split into ranges of
+ * columns with roughly the same number of pairs, which are computed on the common fork-join pool
+ * when there is enough work, see {@link FastROptions#DistParallelThreshold}. Every distance is
+ * computed by the same code regardless of the split, so the result does not depend on the number
+ * of threads.
+ */
 public abstract class Cdist extends RExternalBuiltinNode.Arg4 {
 
-    private static final NACheck naCheck = NACheck.create();
-
     @Child private GetFixedAttributeNode getNamesAttrNode = GetFixedAttributeNode.createNames();
+    @Child private GetReadonlyData.Double getReadonlyDataNode = GetReadonlyData.Double.create();
 
     static {
         Casts casts = new Casts(Cdist.class);
@@ -57,10 +67,9 @@ public abstract class Cdist extends RExternalBuiltinNode.Arg4 {
         casts.arg(3).asDoubleVector().findFirst();
     }
 
-    @Specialization(guards = {"method == cachedMethod", "xAccess.supports(x)"})
+    @Specialization(guards = {"method == cachedMethod"})
     protected RDoubleVector cdist(RDoubleVector x, @SuppressWarnings("unused") int method, RList list, double p,
                     @Cached("method") @SuppressWarnings("unused") int cachedMethod,
-                    @Cached("x.access()") VectorAccess xAccess,
                     @Cached("getMethod(method)") Method methodObj,
                     @Cached("create()") SetAttributeNode setAttrNode,
                     @Cached("create()") SetClassAttributeNode setClassAttrNode,
@@ -71,12 +80,23 @@ public abstract class Cdist extends RExternalBuiltinNode.Arg4 {
         }
         int nr = getDimNode.nrows(x);
         int nc = getDimNode.ncols(x);
-        int n = nr * (nr - 1) / 2; /* avoid int overflow for N ~ 50,000 */
-        double[] ans = new double[n];
+        if (methodObj == Method.MINKOWSKI) {
+            if (!RRuntime.isFinite(p) || p <= 0) {
+                throw error(RError.Message.GENERIC, "distance(): invalid p");
+            }
+        }
+        long size = (long) nr * (nr - 1) / 2; /* avoid int overflow for N ~ 50,000 */
+        if (size > Integer.MAX_VALUE) {
+            throw error(RError.Message.GENERIC, "distance(): too many observations");
+        }
+        double[] ans = new double[(int) size];
 
-        RandomIterator xIter = xAccess.randomAccess(x);
-        rdistance(xAccess, xIter, nr, nc, ans, false, methodObj, p);
-        RDoubleVector result = RDataFactory.createDoubleVector(ans, naCheck.neverSeenNA());
+        double[] xData = getReadonlyDataNode.execute(x.materialize());
+        Distances distances = rdistance(xData, nr, nc, ans, false, methodObj, p, isParallel(size * nc));
+        for (long i = 0; i < distances.nonFinite; i++) {
+            RError.warning(RError.SHOW_CALLER2, RError.Message.GENERIC, "treating non-finite values as NA");
+        }
+        RDoubleVector result = RDataFactory.createDoubleVector(ans, !distances.seenNA);
 
         RStringVector names = (RStringVector) getNamesAttrNode.execute(list);
         if (names != null) {
@@ -99,7 +119,7 @@ public abstract class Cdist extends RExternalBuiltinNode.Arg4 {
                     @Cached("create()") SetAttributeNode setAttrNode,
                     @Cached("create()") SetClassAttributeNode setClassAttrNode,
                     @Cached("create()") GetDimAttributeNode getDimNode) {
-        return cdist(x, method, list, p, method, x.slowPathAccess(), getMethod(method), setAttrNode, setClassAttrNode, getDimNode);
+        return cdist(x, method, list, p, method, getMethod(method), setAttrNode, setClassAttrNode, getDimNode);
     }
 
     private static boolean bothNonNAN(double a, double b) {
@@ -117,22 +137,118 @@ public abstract class Cdist extends RExternalBuiltinNode.Arg4 {
         return Method.values()[method - 1];
     }
 
-    private void rdistance(VectorAccess xAccess, RandomIterator xIter, int nr, int nc, double[] d, boolean diag, Method method, double p) {
-        int ij; /* can exceed 2^31 - 1, but Java can't handle that */
-        //
-        if (method == Method.MINKOWSKI) {
-            if (!RRuntime.isFinite(p) || p <= 0) {
-                throw error(RError.Message.GENERIC, "distance(): invalid p");
+    @TruffleBoundary
+    private static boolean isParallel(long work) {
+        int threshold = RContext.getInstance().getOption(FastROptions.DistParallelThreshold);
+        return threshold > 0 && work >= threshold && ForkJoinPool.getCommonPoolParallelism() > 1;
+    }
+
+    /**
+     * Computes the distances between the rows of the {@code nr x nc} matrix {@code x} into
+     * {@code d}, column by column of the lower triangle (including the diagonal if {@code diag}).
+     * The warnings about non-finite values of the binary distance are not reported, they are
+     * counted in the result instead, so that this can be called from any thread.
+     */
+    @TruffleBoundary
+    public static Distances rdistance(double[] x, int nr, int nc, double[] d, boolean diag, Method method, double p, boolean parallel) {
+        DistanceTask task = new DistanceTask(x, nr, nc, d, diag ? 0 : 1, method, p, 0, nr);
+        if (parallel) {
+            ForkJoinPool.commonPool().invoke(task);
+        } else {
+            task.computeColumns();
+        }
+        return task.result;
+    }
+
+    public static final class Distances {
+        /**
+         * Number of non-finite values encountered by the binary distance.
+         */
+        public long nonFinite;
+        public boolean seenNA;
+
+        void add(Distances other) {
+            nonFinite += other.nonFinite;
+            seenNA |= other.seenNA;
+        }
+    }
+
+    /**
+     * Computes the columns {@code [lo, hi)} of the lower triangle, splitting the range into two
+     * ranges with about the same number of pairs while it is large enough.
+     */
+    @SuppressWarnings("serial")
+    private static final class DistanceTask extends RecursiveAction {
+
+        private static final long LEAF_WORK = 1 << 16;
+
+        private final double[] x;
+        private final int nr;
+        private final int nc;
+        private final double[] d;
+        private final int dc;
+        private final Method method;
+        private final double p;
+        private final int lo;
+        private final int hi;
+        private final Distances result = new Distances();
+
+        DistanceTask(double[] x, int nr, int nc, double[] d, int dc, Method method, double p, int lo, int hi) {
+            this.x = x;
+            this.nr = nr;
+            this.nc = nc;
+            this.d = d;
+            this.dc = dc;
+            this.method = method;
+            this.p = p;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        /**
+         * Index of the first distance of column {@code j} in {@code d}.
+         */
+        private long offset(int j) {
+            // sum of (nr - k - dc) for k < j
+            return (long) j * (nr - dc) - (long) j * (j - 1) / 2;
+        }
+
+        @Override
+        protected void compute() {
+            long pairs = offset(hi) - offset(lo);
+            if (hi - lo > 1 && pairs * Math.max(1, nc) > LEAF_WORK) {
+                long half = offset(lo) + pairs / 2;
+                int mid = lo + 1;
+                int high = hi - 1;
+                // the first column whose offset is at least half, within (lo, hi)
+                while (mid < high) {
+                    int m = (mid + high) >>> 1;
+                    if (offset(m) < half) {
+                        mid = m + 1;
+                    } else {
+                        high = m;
+                    }
+                }
+                DistanceTask left = new DistanceTask(x, nr, nc, d, dc, method, p, lo, mid);
+                DistanceTask right = new DistanceTask(x, nr, nc, d, dc, method, p, mid, hi);
+                invokeAll(left, right);
+                result.add(left.result);
+                result.add(right.result);
+            } else {
+                computeColumns();
             }
         }
-        int dc = diag ? 0 : 1; /* diag=1: we do the diagonal */
-        ij = 0;
-        naCheck.enable(true);
-        for (int j = 0; j <= nr; j++) {
-            for (int i = j + dc; i < nr; i++) {
-                double r = method.dist(xAccess, xIter, nr, nc, i, j, p);
-                naCheck.check(r);
-                d[ij++] = r;
+
+        private void computeColumns() {
+            int ij = (int) offset(lo);
+            for (int j = lo; j < hi; j++) {
+                for (int i = j + dc; i < nr; i++) {
+                    double r = method.dist(x, nr, nc, i, j, p, result);
+                    if (RRuntime.isNA(r)) {
+                        result.seenNA = true;
+                    }
+                    d[ij++] = r;
+                }
             }
         }
     }
@@ -140,7 +256,7 @@ public abstract class Cdist extends RExternalBuiltinNode.Arg4 {
     public enum Method {
         EUCLIDEAN {
             @Override
-            public double dist(VectorAccess xAccess, RandomIterator xIter, int nr, int nc, final int i1in, final int i2in, double p) {
+            public double dist(double[] x, int nr, int nc, final int i1in, final int i2in, double p, Distances distances) {
                 int i1 = i1in;
                 int i2 = i2in;
                 double dev;
@@ -151,8 +267,8 @@ public abstract class Cdist extends RExternalBuiltinNode.Arg4 {
                 count = 0;
                 dist = 0;
                 for (j = 0; j < nc; j++) {
-                    if (bothNonNAN(xAccess.getDouble(xIter, i1), xAccess.getDouble(xIter, i2))) {
-                        dev = (xAccess.getDouble(xIter, i1) - xAccess.getDouble(xIter, i2));
+                    if (bothNonNAN(x[i1], x[i2])) {
+                        dev = (x[i1] - x[i2]);
                         if (!RRuntime.isNAorNaN(dev)) {
                             dist += dev * dev;
                             count++;
@@ -173,7 +289,7 @@ public abstract class Cdist extends RExternalBuiltinNode.Arg4 {
         },
         MAXIMUM {
             @Override
-            public double dist(VectorAccess xAccess, RandomIterator xIter, int nr, int nc, final int i1in, final int i2in, double p) {
+            public double dist(double[] x, int nr, int nc, final int i1in, final int i2in, double p, Distances distances) {
                 int i1 = i1in;
                 int i2 = i2in;
                 double dev;
@@ -184,8 +300,8 @@ public abstract class Cdist extends RExternalBuiltinNode.Arg4 {
                 count = 0;
                 dist = -Double.MAX_VALUE;
                 for (j = 0; j < nc; j++) {
-                    if (bothNonNAN(xAccess.getDouble(xIter, i1), xAccess.getDouble(xIter, i2))) {
-                        dev = Math.abs(xAccess.getDouble(xIter, i1) - xAccess.getDouble(xIter, i2));
+                    if (bothNonNAN(x[i1], x[i2])) {
+                        dev = Math.abs(x[i1] - x[i2]);
                         if (!RRuntime.isNAorNaN(dev)) {
                             if (dev > dist) {
                                 dist = dev;
@@ -205,7 +321,7 @@ public abstract class Cdist extends RExternalBuiltinNode.Arg4 {
         },
         MANHATTAN {
             @Override
-            public double dist(VectorAccess xAccess, RandomIterator xIter, int nr, int nc, final int i1in, final int i2in, double p) {
+            public double dist(double[] x, int nr, int nc, final int i1in, final int i2in, double p, Distances distances) {
                 int i1 = i1in;
                 int i2 = i2in;
                 double dev;
@@ -216,8 +332,8 @@ public abstract class Cdist extends RExternalBuiltinNode.Arg4 {
                 count = 0;
                 dist = 0;
                 for (j = 0; j < nc; j++) {
-                    if (bothNonNAN(xAccess.getDouble(xIter, i1), xAccess.getDouble(xIter, i2))) {
-                        dev = Math.abs(xAccess.getDouble(xIter, i1) - xAccess.getDouble(xIter, i2));
+                    if (bothNonNAN(x[i1], x[i2])) {
+                        dev = Math.abs(x[i1] - x[i2]);
                         if (!RRuntime.isNAorNaN(dev)) {
                             dist += dev;
                             count++;
@@ -238,7 +354,7 @@ public abstract class Cdist extends RExternalBuiltinNode.Arg4 {
         },
         CANBERRA {
             @Override
-            public double dist(VectorAccess xAccess, RandomIterator xIter, int nr, int nc, final int i1in, final int i2in, double p) {
+            public double dist(double[] x, int nr, int nc, final int i1in, final int i2in, double p, Distances distances) {
                 int i1 = i1in;
                 int i2 = i2in;
                 double dev;
@@ -251,9 +367,9 @@ public abstract class Cdist extends RExternalBuiltinNode.Arg4 {
                 count = 0;
                 dist = 0;
                 for (j = 0; j < nc; j++) {
-                    if (bothNonNAN(xAccess.getDouble(xIter, i1), xAccess.getDouble(xIter, i2))) {
-                        sum = Math.abs(xAccess.getDouble(xIter, i1) + xAccess.getDouble(xIter, i2));
-                        diff = Math.abs(xAccess.getDouble(xIter, i1) - xAccess.getDouble(xIter, i2));
+                    if (bothNonNAN(x[i1], x[i2])) {
+                        sum = Math.abs(x[i1] + x[i2]);
+                        diff = Math.abs(x[i1] - x[i2]);
                         if (sum > DBL_MIN || diff > DBL_MIN) {
                             dev = diff / sum;
                             if (!RRuntime.isNAorNaN(dev) ||
@@ -279,7 +395,7 @@ public abstract class Cdist extends RExternalBuiltinNode.Arg4 {
         },
         BINARY {
             @Override
-            public double dist(VectorAccess xAccess, RandomIterator xIter, int nr, int nc, final int i1in, final int i2in, double p) {
+            public double dist(double[] x, int nr, int nc, final int i1in, final int i2in, double p, Distances distances) {
                 int i1 = i1in;
                 int i2 = i2in;
                 int total;
@@ -292,13 +408,13 @@ public abstract class Cdist extends RExternalBuiltinNode.Arg4 {
                 dist = 0;
 
                 for (j = 0; j < nc; j++) {
-                    if (bothNonNAN(xAccess.getDouble(xIter, i1), xAccess.getDouble(xIter, i2))) {
-                        if (!bothFinite(xAccess.getDouble(xIter, i1), xAccess.getDouble(xIter, i2))) {
-                            RError.warning(RError.SHOW_CALLER2, RError.Message.GENERIC, "treating non-finite values as NA");
+                    if (bothNonNAN(x[i1], x[i2])) {
+                        if (!bothFinite(x[i1], x[i2])) {
+                            distances.nonFinite++;
                         } else {
-                            if (xAccess.getDouble(xIter, i1) != 0. || xAccess.getDouble(xIter, i2) != 0.) {
+                            if (x[i1] != 0. || x[i2] != 0.) {
                                 count++;
-                                if (!(xAccess.getDouble(xIter, i1) != 0. && xAccess.getDouble(xIter, i2) != 0.)) {
+                                if (!(x[i1] != 0. && x[i2] != 0.)) {
                                     dist++;
                                 }
                             }
@@ -321,7 +437,7 @@ public abstract class Cdist extends RExternalBuiltinNode.Arg4 {
         },
         MINKOWSKI {
             @Override
-            public double dist(VectorAccess xAccess, RandomIterator xIter, int nr, int nc, final int i1in, final int i2in, double p) {
+            public double dist(double[] x, int nr, int nc, final int i1in, final int i2in, double p, Distances distances) {
                 int i1 = i1in;
                 int i2 = i2in;
                 double dev;
@@ -332,8 +448,8 @@ public abstract class Cdist extends RExternalBuiltinNode.Arg4 {
                 count = 0;
                 dist = 0;
                 for (j = 0; j < nc; j++) {
-                    if (bothNonNAN(xAccess.getDouble(xIter, i1), xAccess.getDouble(xIter, i2))) {
-                        dev = (xAccess.getDouble(xIter, i1) - xAccess.getDouble(xIter, i2));
+                    if (bothNonNAN(x[i1], x[i2])) {
+                        dev = (x[i1] - x[i2]);
                         if (!RRuntime.isNAorNaN(dev)) {
                             dist += Math.pow(Math.abs(dev), p);
                             count++;
@@ -352,6 +468,6 @@ public abstract class Cdist extends RExternalBuiltinNode.Arg4 {
             }
         };
 
-        public abstract double dist(VectorAccess xAccess, RandomIterator xIter, int nr, int nc, int i1, int i2, double p);
+        public abstract double dist(double[] x, int nr, int nc, int i1, int i2, double p, Distances distances);
     }
 }
@@ -22,6 +22,9 @@ package com.oracle.truffle.r.library.stats;
 import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.nullValue;
 import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.toBoolean;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.dsl.Specialization;
@@ -37,6 +40,8 @@ import com.oracle.truffle.r.nodes.unary.IsFactorNode;
 import com.oracle.truffle.r.runtime.RError;
 import com.oracle.truffle.r.runtime.RError.Message;
 import com.oracle.truffle.r.runtime.RRuntime;
+import com.oracle.truffle.r.runtime.context.FastROptions;
+import com.oracle.truffle.r.runtime.context.RContext;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
 import com.oracle.truffle.r.runtime.data.RDoubleVector;
 import com.oracle.truffle.r.runtime.data.RList;
@@ -47,6 +52,13 @@ import com.oracle.truffle.r.runtime.nmath.RMath;
 
 /*
  * Logic derived from GNU-R, library/stats/src/cov.c
+ *
+ * The loops over the pairs of columns are split into blocks of columns which are computed in
+ * parallel on the common fork-join pool when there is enough work, see
+ * FastROptions.CovcorParallelThreshold. Within a block, the columns of the block are combined with
+ * one other column at a time, so that the block stays in the cache. Every element of the result is
+ * still computed by the same sequence of operations as in GNU-R, so the result does not depend on
+ * the number of threads.
  */
 public abstract class Covcor extends RExternalBuiltinNode.Arg4 {
     // Checkstyle: stop method name check
@@ -72,6 +84,98 @@ public abstract class Covcor extends RExternalBuiltinNode.Arg4 {
         return Double.isNaN(v);
     }
 
+    private static final int COLUMN_BLOCK = 16;
+
+    /**
+     * Computes the pairs {@code (i, j)} with {@code lo <= i < hi} and {@code j <= i}.
+     */
+    @FunctionalInterface
+    private interface TriangleBlock {
+        void compute(int lo, int hi);
+    }
+
+    /**
+     * Computes the pairs {@code (i, j)} with {@code iLo <= i < iHi} and {@code jLo <= j < jHi}.
+     */
+    @FunctionalInterface
+    private interface RectangleBlock {
+        void compute(int iLo, int iHi, int jLo, int jHi);
+    }
+
+    /**
+     * Number of multiply-add operations for {@code pairs} pairs of columns of length {@code n}.
+     */
+    private static double pairWork(int n, double pairs, boolean kendall) {
+        return pairs * n * (kendall ? n : 1);
+    }
+
+    private static boolean isParallel(int columns, double work) {
+        int threshold = RContext.getInstance().getOption(FastROptions.CovcorParallelThreshold);
+        return threshold > 0 && work >= threshold && columns > COLUMN_BLOCK && ForkJoinPool.getCommonPoolParallelism() > 1;
+    }
+
+    private static void forEachTriangleBlock(int ncx, int n, boolean kendall, TriangleBlock block) {
+        if (isParallel(ncx, pairWork(n, (double) ncx * (ncx + 1) / 2, kendall))) {
+            ForkJoinPool.commonPool().invoke(new BlockTask(ncx, 0, (ncx + COLUMN_BLOCK - 1) / COLUMN_BLOCK, block::compute));
+        } else {
+            for (int lo = 0; lo < ncx; lo += COLUMN_BLOCK) {
+                block.compute(lo, Math.min(ncx, lo + COLUMN_BLOCK));
+            }
+        }
+    }
+
+    /**
+     * Splits the larger of the two dimensions into blocks, so that {@code cor(x, y)} with a single
+     * column {@code x} is computed in parallel, too.
+     */
+    private static void forEachRectangleBlock(int ncx, int ncy, int n, boolean kendall, RectangleBlock block) {
+        boolean splitX = ncx >= ncy;
+        int columns = splitX ? ncx : ncy;
+        BlockTask.Body body = splitX ? (lo, hi) -> block.compute(lo, hi, 0, ncy) : (lo, hi) -> block.compute(0, ncx, lo, hi);
+        if (isParallel(columns, pairWork(n, (double) ncx * ncy, kendall))) {
+            ForkJoinPool.commonPool().invoke(new BlockTask(columns, 0, (columns + COLUMN_BLOCK - 1) / COLUMN_BLOCK, body));
+        } else {
+            for (int lo = 0; lo < columns; lo += COLUMN_BLOCK) {
+                body.compute(lo, Math.min(columns, lo + COLUMN_BLOCK));
+            }
+        }
+    }
+
+    /**
+     * Computes the column blocks {@code [lo, hi)}, splitting the range in halves while it has more
+     * than one block.
+     */
+    @SuppressWarnings("serial")
+    private static final class BlockTask extends RecursiveAction {
+
+        @FunctionalInterface
+        private interface Body {
+            void compute(int lo, int hi);
+        }
+
+        private final int columns;
+        private final int lo;
+        private final int hi;
+        private final Body body;
+
+        BlockTask(int columns, int lo, int hi, Body body) {
+            this.columns = columns;
+            this.lo = lo;
+            this.hi = hi;
+            this.body = body;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > 1) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new BlockTask(columns, lo, mid, body), new BlockTask(columns, mid, hi, body));
+            } else {
+                body.compute(lo * COLUMN_BLOCK, Math.min(columns, hi * COLUMN_BLOCK));
+            }
+        }
+    }
+
     /*
      * Note that "if (kendall)" and "if (cor)" are used inside a double for() loop; which makes the
      * code better readable -- and is hopefully dealt with by a smartly optimizing compiler
@@ -160,28 +264,76 @@ public abstract class Covcor extends RExternalBuiltinNode.Arg4 {
 
     @TruffleBoundary
     private static void cov_pairwise1(int n, int ncx, double[] x, double[] ans, boolean[] sd_0, boolean cor, boolean kendall) {
-        for (int i = 0; i < ncx; i++) {
-            int xx = i * n;
-            for (int j = 0; j <= i; j++) {
+        forEachTriangleBlock(ncx, n, kendall, (lo, hi) -> {
+            for (int j = 0; j < hi; j++) {
                 int yy = j * n;
+                for (int i = Math.max(lo, j); i < hi; i++) {
+                    int xx = i * n;
 
-                COV_PAIRWISE_BODY(ans, n, ncx, i, j, x, x, xx, yy, sd_0, cor, kendall);
+                    COV_PAIRWISE_BODY(ans, n, ncx, i, j, x, x, xx, yy, sd_0, cor, kendall);
 
-                ANS(ans, ncx, j, i, ANS(ans, ncx, i, j));
+                    ANS(ans, ncx, j, i, ANS(ans, ncx, i, j));
+                }
             }
-        }
+        });
     }
 
     @TruffleBoundary
     private static void cov_pairwise2(int n, int ncx, int ncy, double[] x, double[] y, double[] ans, boolean[] sd_0, boolean cor, boolean kendall) {
-        for (int i = 0; i < ncx; i++) {
-            int xx = i * n;
-            for (int j = 0; j < ncy; j++) {
+        forEachRectangleBlock(ncx, ncy, n, kendall, (iLo, iHi, jLo, jHi) -> {
+            for (int j = jLo; j < jHi; j++) {
                 int yy = j * n;
+                for (int i = iLo; i < iHi; i++) {
+                    int xx = i * n;
+
+                    COV_PAIRWISE_BODY(ans, n, ncx, i, j, x, y, xx, yy, sd_0, cor, kendall);
+                }
+            }
+        });
+    }
+
+    /**
+     * Cov(x[xx], y[yy]) over the complete observations, not yet divided by n - 1.
+     */
+    private static double COV_SUM(int n, double[] x, int xx, double xxm, double[] y, int yy, double yym, boolean[] ind) {
+        double sum = 0;
+        if (ind == null) {
+            for (int k = 0; k < n; k++) {
+                sum += (x[xx + k] - xxm) * (y[yy + k] - yym);
+            }
+        } else {
+            for (int k = 0; k < n; k++) {
+                if (ind[k]) {
+                    sum += (x[xx + k] - xxm) * (y[yy + k] - yym);
+                }
+            }
+        }
+        return sum;
+    }
 
-                COV_PAIRWISE_BODY(ans, n, ncx, i, j, x, y, xx, yy, sd_0, cor, kendall);
+    /**
+     * Kendall's tau of x[xx] and y[yy] over the complete observations, not yet normalized.
+     */
+    private static double KENDALL_SUM(int n, double[] x, int xx, double[] y, int yy, boolean[] ind) {
+        double sum = 0;
+        if (ind == null) {
+            for (int k = 0; k < n; k++) {
+                for (int n1 = 0; n1 < n; n1++) {
+                    sum += RMath.sign(x[xx + k] - x[xx + n1]) * RMath.sign(y[yy + k] - y[yy + n1]);
+                }
+            }
+        } else {
+            for (int k = 0; k < n; k++) {
+                if (ind[k]) {
+                    for (int n1 = 0; n1 < n; n1++) {
+                        if (ind[n1]) {
+                            sum += RMath.sign(x[xx + k] - x[xx + n1]) * RMath.sign(y[yy + k] - y[yy + n1]);
+                        }
+                    }
+                }
             }
         }
+        return sum;
     }
 
     /*
@@ -262,42 +414,23 @@ public abstract class Covcor extends RExternalBuiltinNode.Arg4 {
             MEAN(n, ncx, x, xm, ind, nobs); /* -> xm[] */
             n1 = nobs - 1;
         }
-        for (int i = 0; i < ncx; i++) {
-            int xx = i * n;
-
-            if (!kendall) {
-                double xxm = xm[i];
-                for (int j = 0; j <= i; j++) {
-                    int yy = j * n;
-                    double yym = xm[j];
-                    double sum = 0;
-                    for (int k = 0; k < n; k++) {
-                        if (ind[k]) {
-                            sum += (x[xx + k] - xxm) * (x[yy + k] - yym);
-                        }
+        int nobs1 = n1;
+        forEachTriangleBlock(ncx, n, kendall, (lo, hi) -> {
+            for (int j = 0; j < hi; j++) {
+                int yy = j * n;
+                for (int i = Math.max(lo, j); i < hi; i++) {
+                    int xx = i * n;
+                    double result;
+                    if (!kendall) {
+                        result = COV_SUM(n, x, xx, xm[i], x, yy, xm[j], ind) / nobs1;
+                    } else { /* Kendall's tau */
+                        result = KENDALL_SUM(n, x, xx, x, yy, ind);
                     }
-                    double result = sum / n1;
                     ANS(ans, ncx, j, i, result);
                     ANS(ans, ncx, i, j, result);
                 }
-            } else { /* Kendall's tau */
-                for (int j = 0; j <= i; j++) {
-                    int yy = j * n;
-                    double sum = 0;
-                    for (int k = 0; k < n; k++) {
-                        if (ind[k]) {
-                            for (n1 = 0; n1 < n; n1++) {
-                                if (ind[n1]) {
-                                    sum += RMath.sign(x[xx + k] - x[xx + n1]) * RMath.sign(x[yy + k] - x[yy + n1]);
-                                }
-                            }
-                        }
-                    }
-                    ANS(ans, ncx, j, i, sum);
-                    ANS(ans, ncx, i, j, sum);
-                }
             }
-        }
+        });
 
         if (cor) {
             for (int i = 0; i < ncx; i++) {
@@ -340,53 +473,25 @@ public abstract class Covcor extends RExternalBuiltinNode.Arg4 {
             MEAN_(n, ncx, x, xm, has_na);/* -> xm[] */
             n1 = n - 1;
         }
-        for (int i = 0; i < ncx; i++) {
-            if (has_na[i]) {
-                for (int j = 0; j <= i; j++) {
-                    ANS(ans, ncx, j, i, RRuntime.DOUBLE_NA);
-                    ANS(ans, ncx, i, j, RRuntime.DOUBLE_NA);
-                }
-            } else {
-                int xx = i * n;
-
-                if (!kendall) {
-                    double xxm = xm[i];
-                    for (int j = 0; j <= i; j++) {
-                        if (has_na[j]) {
-                            ANS(ans, ncx, j, i, RRuntime.DOUBLE_NA);
-                            ANS(ans, ncx, i, j, RRuntime.DOUBLE_NA);
-                        } else {
-                            int yy = j * n;
-                            double yym = xm[j];
-                            double sum = 0;
-                            for (int k = 0; k < n; k++) {
-                                sum += (x[xx + k] - xxm) * (x[yy + k] - yym);
-                            }
-                            double result = sum / n1;
-                            ANS(ans, ncx, j, i, result);
-                            ANS(ans, ncx, i, j, result);
-                        }
-                    }
-                } else { /* Kendall's tau */
-                    for (int j = 0; j <= i; j++) {
-                        if (has_na[j]) {
-                            ANS(ans, ncx, j, i, RRuntime.DOUBLE_NA);
-                            ANS(ans, ncx, i, j, RRuntime.DOUBLE_NA);
-                        } else {
-                            int yy = j * n;
-                            double sum = 0;
-                            for (int k = 0; k < n; k++) {
-                                for (n1 = 0; n1 < n; n1++) {
-                                    sum += RMath.sign(x[xx + k] - x[xx + n1]) * RMath.sign(x[yy + k] - x[yy + n1]);
-                                }
-                            }
-                            ANS(ans, ncx, j, i, sum);
-                            ANS(ans, ncx, i, j, sum);
-                        }
+        int nobs1 = n1;
+        forEachTriangleBlock(ncx, n, kendall, (lo, hi) -> {
+            for (int j = 0; j < hi; j++) {
+                int yy = j * n;
+                for (int i = Math.max(lo, j); i < hi; i++) {
+                    int xx = i * n;
+                    double result;
+                    if (has_na[i] || has_na[j]) {
+                        result = RRuntime.DOUBLE_NA;
+                    } else if (!kendall) {
+                        result = COV_SUM(n, x, xx, xm[i], x, yy, xm[j], null) / nobs1;
+                    } else { /* Kendall's tau */
+                        result = KENDALL_SUM(n, x, xx, x, yy, null);
                     }
+                    ANS(ans, ncx, j, i, result);
+                    ANS(ans, ncx, i, j, result);
                 }
             }
-        }
+        });
 
         if (cor) {
             for (int i = 0; i < ncx; i++) {
@@ -469,38 +574,20 @@ public abstract class Covcor extends RExternalBuiltinNode.Arg4 {
             MEAN(n, ncy, y, ym, ind, nobs);/* -> ym[] */
             n1 = nobs - 1;
         }
-        for (int i = 0; i < ncx; i++) {
-            int xx = i * n;
-            if (!kendall) {
-                double xxm = xm[i];
-                for (int j = 0; j < ncy; j++) {
-                    int yy = j * n;
-                    double yym = ym[j];
-                    double sum = 0;
-                    for (int k = 0; k < n; k++) {
-                        if (ind[k]) {
-                            sum += (x[xx + k] - xxm) * (y[yy + k] - yym);
-                        }
-                    }
-                    ANS(ans, ncx, i, j, sum / n1);
-                }
-            } else { /* Kendall's tau */
-                for (int j = 0; j < ncy; j++) {
-                    int yy = j * n;
-                    double sum = 0;
-                    for (int k = 0; k < n; k++) {
-                        if (ind[k]) {
-                            for (n1 = 0; n1 < n; n1++) {
-                                if (ind[n1]) {
-                                    sum += RMath.sign(x[xx + k] - x[xx + n1]) * RMath.sign(y[yy + k] - y[yy + n1]);
-                                }
-                            }
-                        }
+        int nobs1 = n1;
+        forEachRectangleBlock(ncx, ncy, n, kendall, (iLo, iHi, jLo, jHi) -> {
+            for (int j = jLo; j < jHi; j++) {
+                int yy = j * n;
+                for (int i = iLo; i < iHi; i++) {
+                    int xx = i * n;
+                    if (!kendall) {
+                        ANS(ans, ncx, i, j, COV_SUM(n, x, xx, xm[i], y, yy, ym[j], ind) / nobs1);
+                    } else { /* Kendall's tau */
+                        ANS(ans, ncx, i, j, KENDALL_SUM(n, x, xx, y, yy, ind));
                     }
-                    ANS(ans, ncx, i, j, sum);
                 }
             }
-        }
+        });
 
         if (cor) {
 
@@ -569,46 +656,22 @@ public abstract class Covcor extends RExternalBuiltinNode.Arg4 {
             MEAN_(n, ncy, y, ym, has_na_y);/* -> ym[] */
             n1 = n - 1;
         }
-        for (int i = 0; i < ncx; i++) {
-            if (has_na_x[i]) {
-                for (int j = 0; j < ncy; j++) {
-                    ANS(ans, ncx, i, j, RRuntime.DOUBLE_NA);
-                }
-            } else {
-                int xx = i * n;
-                if (!kendall) {
-                    double xxm = xm[i];
-                    for (int j = 0; j < ncy; j++) {
-                        if (has_na_y[j]) {
-                            ANS(ans, ncx, i, j, RRuntime.DOUBLE_NA);
-                        } else {
-                            int yy = j * n;
-                            double yym = ym[j];
-                            double sum = 0;
-                            for (int k = 0; k < n; k++) {
-                                sum += (x[xx + k] - xxm) * (y[yy + k] - yym);
-                            }
-                            ANS(ans, ncx, i, j, sum / n1);
-                        }
-                    }
-                } else { /* Kendall's tau */
-                    for (int j = 0; j < ncy; j++) {
-                        if (has_na_y[j]) {
-                            ANS(ans, ncx, i, j, RRuntime.DOUBLE_NA);
-                        } else {
-                            int yy = j * n;
-                            double sum = 0;
-                            for (int k = 0; k < n; k++) {
-                                for (n1 = 0; n1 < n; n1++) {
-                                    sum += RMath.sign(x[xx + k] - x[xx + n1]) * RMath.sign(y[yy + k] - y[yy + n1]);
-                                }
-                            }
-                            ANS(ans, ncx, i, j, sum);
-                        }
+        int nobs1 = n1;
+        forEachRectangleBlock(ncx, ncy, n, kendall, (iLo, iHi, jLo, jHi) -> {
+            for (int j = jLo; j < jHi; j++) {
+                int yy = j * n;
+                for (int i = iLo; i < iHi; i++) {
+                    int xx = i * n;
+                    if (has_na_x[i] || has_na_y[j]) {
+                        ANS(ans, ncx, i, j, RRuntime.DOUBLE_NA);
+                    } else if (!kendall) {
+                        ANS(ans, ncx, i, j, COV_SUM(n, x, xx, xm[i], y, yy, ym[j], null) / nobs1);
+                    } else { /* Kendall's tau */
+                        ANS(ans, ncx, i, j, KENDALL_SUM(n, x, xx, y, yy, null));
                     }
                 }
             }
-        }
+        });
 
         if (cor) {
 
@@ -32,24 +32,21 @@ import java.io.PrintStream;
 import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.ThreadLocalAction;
 import com.oracle.truffle.api.TruffleLanguage;
 import com.oracle.truffle.api.dsl.CachedContext;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.api.frame.Frame;
 import com.oracle.truffle.api.frame.FrameInstance.FrameAccess;
-import com.oracle.truffle.api.frame.VirtualFrame;
-import com.oracle.truffle.api.instrumentation.EventContext;
-import com.oracle.truffle.api.instrumentation.ExecutionEventListener;
-import com.oracle.truffle.api.instrumentation.SourceSectionFilter;
-import com.oracle.truffle.api.instrumentation.StandardTags;
+import com.oracle.truffle.api.nodes.Node;
 import com.oracle.truffle.api.nodes.RootNode;
 import com.oracle.truffle.api.source.Source;
 import com.oracle.truffle.r.nodes.builtin.RExternalBuiltinNode;
 import com.oracle.truffle.r.nodes.function.FunctionDefinitionNode;
-import com.oracle.truffle.r.nodes.instrumentation.RInstrumentation;
 import com.oracle.truffle.r.runtime.RArguments;
 import com.oracle.truffle.r.runtime.RCaller;
 import com.oracle.truffle.r.runtime.RError;
@@ -66,6 +63,7 @@ import com.oracle.truffle.r.runtime.data.RNull;
 import com.oracle.truffle.r.runtime.data.RObjectSize;
 import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
 import com.oracle.truffle.r.runtime.instrument.InstrumentationState;
+import com.oracle.truffle.r.runtime.nodes.RBaseNode;
 import com.oracle.truffle.r.runtime.nodes.RSyntaxElement;
 import com.oracle.truffle.r.runtime.nodes.RSyntaxNode;
 
@@ -84,6 +82,9 @@ import com.oracle.truffle.r.runtime.nodes.RSyntaxNode;
  * and then the {@code N} is used in line number references of the form {@code N#L},which precede
  * the function name.
  *
+ * The stacks are sampled asynchronously: a timer thread submits a {@link ThreadLocalAction} to the
+ * profiled thread at each interval and the action walks the stack at the next safepoint. The
+ * profiled code is not instrumented, so the overhead is limited to the stack walks.
  */
 public abstract class Rprof extends RExternalBuiltinNode.Arg9 implements MemoryCopyTracer.Listener {
 
@@ -130,11 +131,11 @@ public abstract class Rprof extends RExternalBuiltinNode.Arg9 implements MemoryC
                     MemoryCopyTracer.setTracingState(true);
                 }
                 // interval is in seconds, we convert to millis
-                long intervalInMillis = (long) (1E3 * intervalD);
-                StatementListener statementListener = new StatementListener();
-                ProfileThread profileThread = new ProfileThread(intervalInMillis, statementListener);
+                long intervalInMillis = Math.max(1, (long) (1E3 * intervalD));
+                Sampler sampler = new Sampler(ctxRef.get().getEnv(), Thread.currentThread(), profState);
+                ProfileThread profileThread = new ProfileThread(intervalInMillis, sampler);
                 profileThread.setDaemon(true);
-                profState.initialize(out, profileThread, statementListener, intervalInMillis, lineProfiling, memProfiling);
+                profState.initialize(out, profileThread, sampler, intervalInMillis, lineProfiling, memProfiling);
                 profileThread.start();
             } catch (IOException ex) {
                 throw error(RError.Message.GENERIC, String.format("Rprof: cannot open profile file '%s'", filename));
@@ -185,12 +186,13 @@ public abstract class Rprof extends RExternalBuiltinNode.Arg9 implements MemoryC
 
     private static final class ProfileThread extends Thread {
         private final long interval;
-        private final StatementListener statementListener;
+        private final Sampler sampler;
         private volatile boolean running = true;
 
-        private ProfileThread(long interval, StatementListener statementListener) {
+        private ProfileThread(long interval, Sampler sampler) {
+            super("Rprof sampler");
             this.interval = interval;
-            this.statementListener = statementListener;
+            this.sampler = sampler;
         }
 
         @Override
@@ -198,57 +200,86 @@ public abstract class Rprof extends RExternalBuiltinNode.Arg9 implements MemoryC
             while (running) {
                 try {
                     Thread.sleep(interval);
-                    statementListener.intervalElapsed();
+                    sampler.intervalElapsed();
                 } catch (InterruptedException ex) {
 
                 }
             }
         }
+
+        private void shutdown() {
+            running = false;
+            interrupt();
+        }
     }
 
     /**
-     * Emulates a sampling timer by checking when the sample interval rolls over and at that point
-     * collects the stack of functions.
+     * Collects the stack of functions of the profiled thread whenever a sample interval elapsed.
+     * At most one sample is pending at a time, so that the actions do not pile up while the
+     * profiled thread does not reach a safepoint, e.g., while it waits for input.
      */
-    private final class StatementListener implements ExecutionEventListener {
+    private static final class Sampler extends ThreadLocalAction {
         private final ArrayList<ArrayList<RSyntaxElement>> intervalStacks = new ArrayList<>();
         private final ArrayList<RprofState.MemoryQuad> intervalMemory = new ArrayList<>();
-        private volatile boolean newInterval;
+        private final TruffleLanguage.Env env;
+        private final Thread[] profiledThread;
+        private final RprofState profState;
+        private final AtomicBoolean pending = new AtomicBoolean();
+        private volatile boolean stopped;
 
-        private StatementListener() {
-            SourceSectionFilter.Builder builder = SourceSectionFilter.newBuilder();
-            builder.tagIs(StandardTags.StatementTag.class);
-            SourceSectionFilter filter = builder.build();
-            RInstrumentation.getInstrumenter().attachExecutionEventListener(filter, this);
+        private Sampler(TruffleLanguage.Env env, Thread profiledThread, RprofState profState) {
+            super(false, false);
+            this.env = env;
+            this.profiledThread = new Thread[]{profiledThread};
+            this.profState = profState;
         }
 
         private void intervalElapsed() {
-            newInterval = true;
+            if (!stopped && pending.compareAndSet(false, true)) {
+                try {
+                    env.submitThreadLocal(profiledThread, this);
+                } catch (IllegalStateException | IllegalArgumentException ex) {
+                    // the context is being closed or the thread left it
+                    pending.set(false);
+                }
+            }
         }
 
         @Override
-        public void onEnter(EventContext context, VirtualFrame frame) {
-            if (newInterval) {
-                onEnter(context);
-                newInterval = false;
+        protected void perform(Access access) {
+            pending.set(false);
+            if (!stopped) {
+                sample(access.getLocation());
             }
         }
 
         @TruffleBoundary
-        private void onEnter(EventContext context) {
-            /* context tells here we are now, frame provides callers. */
+        private void sample(Node location) {
+            /* location tells where we are now, the frames provide the callers. */
             ArrayList<RSyntaxElement> stack = new ArrayList<>();
-            stack.add((RSyntaxElement) context.getInstrumentedNode());
+            RSyntaxElement current = getSyntaxElement(location);
+            if (current != null) {
+                stack.add(current);
+            }
             collectStack(stack);
             intervalStacks.add(stack);
-            RprofState profState = RprofState.get();
             if (profState.memoryProfiling) {
                 intervalMemory.add(profState.memoryQuad.copyAndClear());
             }
         }
 
+        private static RSyntaxElement getSyntaxElement(Node location) {
+            for (Node node = location; node != null; node = node.getParent()) {
+                if (RBaseNode.isRSyntaxNode(node)) {
+                    RSyntaxNode syntaxNode = (RSyntaxNode) node;
+                    return RSyntaxNode.isInternal(syntaxNode.getSourceSection()) ? null : syntaxNode;
+                }
+            }
+            return null;
+        }
+
         @TruffleBoundary
-        private void collectStack(final ArrayList<RSyntaxElement> stack) {
+        private static void collectStack(final ArrayList<RSyntaxElement> stack) {
             Utils.iterateRFrames(FrameAccess.READ_ONLY, new Function<Frame, Object>() {
 
                 @Override
@@ -262,14 +293,6 @@ public abstract class Rprof extends RExternalBuiltinNode.Arg9 implements MemoryC
                 }
             });
         }
-
-        @Override
-        public void onReturnValue(EventContext context, VirtualFrame frame, Object result) {
-        }
-
-        @Override
-        public void onReturnExceptional(EventContext context, VirtualFrame frame, Throwable exception) {
-        }
     }
 
     /**
@@ -278,7 +301,7 @@ public abstract class Rprof extends RExternalBuiltinNode.Arg9 implements MemoryC
      */
     private static final class RprofState extends InstrumentationState.RprofState {
         private ProfileThread profileThread;
-        private StatementListener statementListener;
+        private Sampler sampler;
         private long intervalInMillis;
         private boolean lineProfiling;
         private boolean memoryProfiling;
@@ -313,11 +336,11 @@ public abstract class Rprof extends RExternalBuiltinNode.Arg9 implements MemoryC
             return state;
         }
 
-        public void initialize(PrintStream outA, ProfileThread profileThreadA, StatementListener statementListenerA, long intervalInMillisA,
+        public void initialize(PrintStream outA, ProfileThread profileThreadA, Sampler samplerA, long intervalInMillisA,
                         boolean lineProfilingA, boolean memoryProfilingA) {
             setOut(outA);
             this.profileThread = profileThreadA;
-            this.statementListener = statementListenerA;
+            this.sampler = samplerA;
             this.intervalInMillis = intervalInMillisA;
             this.lineProfiling = lineProfilingA;
             this.memoryProfiling = memoryProfilingA;
@@ -326,7 +349,8 @@ public abstract class Rprof extends RExternalBuiltinNode.Arg9 implements MemoryC
 
         @Override
         public void cleanup(int status) {
-            profileThread.running = false;
+            profileThread.shutdown();
+            sampler.stopped = true;
             HashMap<String, Integer> fileMap = null;
             PrintStream out = this.out();
             if (this.memoryProfiling) {
@@ -340,7 +364,7 @@ public abstract class Rprof extends RExternalBuiltinNode.Arg9 implements MemoryC
                 // scan stacks to find files
                 fileMap = new HashMap<>();
                 int fileIndex = 0;
-                for (ArrayList<RSyntaxElement> intervalStack : statementListener.intervalStacks) {
+                for (ArrayList<RSyntaxElement> intervalStack : sampler.intervalStacks) {
                     for (RSyntaxElement node : intervalStack) {
                         String path = getPath(node);
                         if (path != null && fileMap.get(path) == null) {
@@ -351,9 +375,9 @@ public abstract class Rprof extends RExternalBuiltinNode.Arg9 implements MemoryC
                 }
             }
             int index = 0;
-            for (ArrayList<RSyntaxElement> intervalStack : statementListener.intervalStacks) {
+            for (ArrayList<RSyntaxElement> intervalStack : sampler.intervalStacks) {
                 if (this.memoryProfiling) {
-                    RprofState.MemoryQuad mq = statementListener.intervalMemory.get(index);
+                    RprofState.MemoryQuad mq = sampler.intervalMemory.get(index);
                     out.printf(":%d:%d:%d:%d:", mq.largeV, mq.smallV, mq.nodes, mq.copied);
                 }
                 for (RSyntaxElement node : intervalStack) {
@@ -141,6 +141,10 @@ import com.oracle.truffle.r.nodes.builtin.fastr.FastRPrintErrorNodeGen;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRRCallerTrace;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRRefCountInfo;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRRefCountInfoNodeGen;
+import com.oracle.truffle.r.nodes.builtin.fastr.FastRReadTable;
+import com.oracle.truffle.r.nodes.builtin.fastr.FastRReadTableNodeGen;
+import com.oracle.truffle.r.nodes.builtin.fastr.FastRRegexCacheStats;
+import com.oracle.truffle.r.nodes.builtin.fastr.FastRRegexCacheStatsNodeGen;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRRegisterFunctions;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRRegisterFunctionsNodeGen;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRSetConsoleHandler;
@@ -520,6 +524,8 @@ public class BasePackage extends RBuiltinPackage {
         add(FastRInterop.ToLong.class, FastRInteropFactory.ToLongNodeGen::create);
         add(FastRInterop.ToShort.class, FastRInteropFactory.ToShortNodeGen::create);
         add(FastRRefCountInfo.class, FastRRefCountInfoNodeGen::create);
+        add(FastRRegexCacheStats.class, FastRRegexCacheStatsNodeGen::create);
+        add(FastRReadTable.class, FastRReadTableNodeGen::create);
         add(FastRPkgSource.class, FastRPkgSourceNodeGen::create);
         add(FastRPrintError.class, FastRPrintErrorNodeGen::create);
         add(FastRRCallerTrace.class, FastRRCallerTrace::create);
@@ -29,6 +29,7 @@ import static com.oracle.truffle.r.runtime.Utils.toLowerCase;
 import static com.oracle.truffle.r.runtime.builtins.RBehavior.PURE;
 import static com.oracle.truffle.r.runtime.builtins.RBuiltinKind.INTERNAL;
 
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
@@ -43,6 +44,7 @@ import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.Fallback;
 import com.oracle.truffle.api.dsl.ImportStatic;
 import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.interop.InteropLibrary;
 import com.oracle.truffle.api.library.CachedLibrary;
 import com.oracle.truffle.api.nodes.NodeCost;
 import com.oracle.truffle.api.nodes.NodeInfo;
@@ -54,9 +56,13 @@ import com.oracle.truffle.r.runtime.Collections.ArrayListObj;
 import com.oracle.truffle.r.runtime.RError;
 import com.oracle.truffle.r.runtime.RError.Message;
 import com.oracle.truffle.r.runtime.RInternalError;
+import com.oracle.truffle.r.runtime.RLocale;
 import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.RegExp;
+import com.oracle.truffle.r.runtime.TRegexPattern;
 import com.oracle.truffle.r.runtime.builtins.RBuiltin;
+import com.oracle.truffle.r.runtime.context.FastROptions;
+import com.oracle.truffle.r.runtime.context.RContext;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
 import com.oracle.truffle.r.runtime.data.RDoubleVector;
 import com.oracle.truffle.r.runtime.data.RIntVector;
@@ -76,6 +82,10 @@ import com.oracle.truffle.r.runtime.ops.na.NACheck;
  * so everything is behind {@link TruffleBoundary}. It is possible that some special cases might
  * show up on a hot path and be worthy of a custom specialization.
  * <p>
+ * With {@code --R.TRegex}, {@code grep} and {@code grepl} with a constant pattern have such a
+ * specialization: the pattern is compiled by TRegex once per call site and matched through cached
+ * interop, so that the matching is partially evaluated together with the calling R code.
+ * <p>
  * TODO implement all the options, in particular perl support for all functions.
  * <p>
  * A note on {@code useBytes}. We are currently ignoring this option completely. It's all related to
@@ -135,6 +145,66 @@ public class GrepFunctions {
         casts.arg("bounds").defaultError(RError.Message.INVALID_ARG, "bounds").mustBe((missingValue().or(nullValue()).not())).asDoubleVector();
     }
 
+    /**
+     * Compiles the pattern for the {@code java.util.regex} backend, reusing a previously compiled
+     * pattern from the per-context cache if possible.
+     */
+    @TruffleBoundary
+    static Pattern compilePattern(String pattern, int flags) {
+        return RContext.getInstance().stateRegexCache.getPattern(pattern, flags);
+    }
+
+    /**
+     * Compiles the pattern with TRegex if enabled by {@link FastROptions#TRegex}, returns
+     * {@code null} if disabled or if the pattern is not supported, in which case the
+     * {@code java.util.regex} or PCRE backend is to be used.
+     *
+     * @param flags see {@link TRegexPattern#PERL} etc.
+     */
+    @TruffleBoundary
+    static TRegexPattern compileTRegex(String pattern, int flags) {
+        RContext context = RContext.getInstance();
+        if (!context.getOption(FastROptions.TRegex)) {
+            return null;
+        }
+        return context.stateRegexCache.getTRegex(pattern, flags, context.getEnv());
+    }
+
+    /**
+     * Compiles the pattern of {@code grep} and {@code grepl} with TRegex like
+     * {@link GrepCommonCodeNode#doGrep} does, returns {@code null} if disabled, if the pattern is
+     * not supported or if it is invalid, which is then reported by {@code doGrep}.
+     */
+    @TruffleBoundary
+    static TRegexPattern compileGrepTRegex(String pattern, boolean ignoreCase, boolean perl) {
+        if (RRuntime.isNA(pattern)) {
+            return null;
+        }
+        int caseFlag = ignoreCase ? TRegexPattern.IGNORE_CASE : 0;
+        if (perl) {
+            return compileTRegex(pattern, TRegexPattern.PERL | caseFlag);
+        }
+        try {
+            return compileTRegex(Regexpr.stripLeadingStar(RegExp.transformPatternToGnurCompatible(pattern)), TRegexPattern.DOTALL | caseFlag);
+        } catch (PatternSyntaxException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Finds the next match like {@link PCRERFFI.ExecNode} does, the bounds of the groups that did
+     * not participate and of the non-existent groups are {@code -1}.
+     */
+    private static boolean execTRegex(TRegexPattern tregex, String input, int offset, int[] ovector) {
+        int[] bounds = tregex.exec(input, offset);
+        if (bounds == null) {
+            return false;
+        }
+        Arrays.fill(ovector, -1);
+        System.arraycopy(bounds, 0, ovector, 0, Math.min(bounds.length, ovector.length));
+        return true;
+    }
+
     @NodeInfo(cost = NodeCost.NONE)
     public static class CommonCodeNode extends RBaseNodeWithWarnings {
         @Child protected PCRERFFI.MaketablesNode maketablesNode = RFFIFactory.getPCRERFFI().createMaketablesNode();
@@ -224,13 +294,20 @@ public class GrepFunctions {
             return RDataFactory.createIntVector(naData, RDataFactory.INCOMPLETE_VECTOR);
         }
 
+        @TruffleBoundary
         protected PCRERFFI.Result compilePerlPattern(String pattern, boolean ignoreCase) {
             int cflags = ignoreCase ? PCRERFFI.CASELESS : 0;
-            long tables = maketablesNode.execute();
-            PCRERFFI.Result pcre = compileNode.execute(pattern, cflags, tables);
-            if (pcre.result == 0) {
-                // TODO output warning if pcre.errorMessage not NULL
-                throw error(RError.Message.INVALID_REGEXP, pattern);
+            RContext context = RContext.getInstance();
+            Charset charset = context.stateRLocale.getCharset(RLocale.CTYPE);
+            PCRERFFI.Result pcre = context.stateRegexCache.getPCRE(pattern, cflags, charset);
+            if (pcre == null) {
+                long tables = maketablesNode.execute();
+                pcre = compileNode.execute(pattern, cflags, tables);
+                if (pcre.result == 0) {
+                    // TODO output warning if pcre.errorMessage not NULL
+                    throw error(RError.Message.INVALID_REGEXP, pattern);
+                }
+                context.stateRegexCache.putPCRE(pattern, cflags, charset, pcre);
             }
             return pcre;
         }
@@ -239,6 +316,29 @@ public class GrepFunctions {
     protected static final class GrepCommonCodeNode extends CommonCodeNode {
         @Child private PCRERFFI.ExecNode execNode = RFFIFactory.getPCRERFFI().createExecNode();
 
+        /**
+         * Matches with the TRegex pattern compiled for the constant pattern of the call through the
+         * given cached library, so that the loop and the matching are partially evaluated. Falls
+         * back to {@link #doGrep} if TRegex does not support some of the strings.
+         */
+        protected Object doGrepTRegex(TRegexPattern tregex, InteropLibrary interop, VectorDataLibrary dataLib, String pattern, RStringVector vector, boolean ignoreCase, boolean value,
+                        boolean perl, boolean useBytes, boolean invert, boolean grepl) {
+            Object data = vector.getData();
+            int len = dataLib.getLength(data);
+            boolean[] matches = new boolean[len];
+            for (int i = 0; i < len; i++) {
+                String text = dataLib.getStringAt(data, i);
+                if (!RRuntime.isNA(text)) {
+                    if (!tregex.supports(text)) {
+                        return doGrep(pattern, vector, ignoreCase, value, perl, false, useBytes, invert, grepl);
+                    }
+                    matches[i] = tregex.find(interop, text, 0);
+                }
+            }
+            return createResult(vector, matches, value, invert, grepl);
+        }
+
+        @TruffleBoundary
         protected Object doGrep(String patternArg, RStringVector vector, boolean ignoreCase, boolean value, boolean perlPar, boolean fixed,
                         @SuppressWarnings("unused") boolean useBytes, boolean invert, boolean grepl) {
             try {
@@ -254,17 +354,29 @@ public class GrepFunctions {
                 boolean[] matches = new boolean[len];
                 if (!perl) {
                     // TODO case
+                    TRegexPattern tregex = null;
                     if (!fixed) {
                         pattern = RegExp.transformPatternToGnurCompatible(pattern);
+                        tregex = compileTRegex(Regexpr.stripLeadingStar(pattern), TRegexPattern.DOTALL | (ignoreCase ? TRegexPattern.IGNORE_CASE : 0));
                     }
-                    findAllMatches(matches, pattern, vector, fixed, ignoreCase);
+                    findAllMatches(matches, pattern, vector, fixed, ignoreCase, tregex);
                 } else {
-                    PCRERFFI.Result pcre = compilePerlPattern(pattern, ignoreCase);
+                    TRegexPattern tregex = compileTRegex(pattern, TRegexPattern.PERL | (ignoreCase ? TRegexPattern.IGNORE_CASE : 0));
+                    // compiled lazily if TRegex does not support some of the strings, but always
+                    // if it does not support the pattern, so that invalid patterns are reported
+                    PCRERFFI.Result pcre = tregex == null ? compilePerlPattern(pattern, ignoreCase) : null;
                     // TODO pcre_study for vectors > 10 ? (cf GnuR)
                     int[] ovector = new int[30];
                     for (int i = 0; i < len; i++) {
                         String text = vector.getDataAt(i);
                         if (!RRuntime.isNA(text)) {
+                            if (tregex != null && tregex.supports(text)) {
+                                matches[i] = tregex.find(text, 0);
+                                continue;
+                            }
+                            if (pcre == null) {
+                                pcre = compilePerlPattern(pattern, ignoreCase);
+                            }
                             if (execNode.execute(pcre.result, 0, text, 0, 0, ovector) >= 0) {
                                 matches[i] = true;
                             }
@@ -272,63 +384,71 @@ public class GrepFunctions {
                     }
                 }
 
-                if (grepl) {
-                    byte[] data = new byte[len];
-                    for (int i = 0; i < len; i++) {
-                        data[i] = RRuntime.asLogical(matches[i]);
-                    }
-                    return RDataFactory.createLogicalVector(data, RDataFactory.COMPLETE_VECTOR);
-                }
+                return createResult(vector, matches, value, invert, grepl);
+            } catch (PatternSyntaxException e) {
+                throw error(Message.INVALID_REGEXP_REASON, patternArg, e.getMessage());
+            }
+        }
 
-                int nmatches = 0;
+        @TruffleBoundary
+        private static Object createResult(RStringVector vector, boolean[] matches, boolean value, boolean invert, boolean grepl) {
+            int len = matches.length;
+            if (grepl) {
+                byte[] data = new byte[len];
                 for (int i = 0; i < len; i++) {
-                    if (invert ^ matches[i]) {
-                        nmatches++;
-                    }
+                    data[i] = RRuntime.asLogical(matches[i]);
                 }
+                return RDataFactory.createLogicalVector(data, RDataFactory.COMPLETE_VECTOR);
+            }
 
-                if (nmatches == 0) {
-                    return value ? RDataFactory.createEmptyStringVector() : RDataFactory.createEmptyIntVector();
-                } else {
-                    if (value) {
-                        RStringVector oldNames = vector.getNames();
-                        String[] newNames = null;
-                        if (oldNames != null) {
-                            newNames = new String[nmatches];
-                        }
-                        String[] data = new String[nmatches];
-                        int j = 0;
-                        for (int i = 0; i < len; i++) {
-                            if (invert ^ matches[i]) {
-                                if (newNames != null) {
-                                    newNames[j] = oldNames.getDataAt(i);
-                                }
-                                data[j++] = vector.getDataAt(i);
+            int nmatches = 0;
+            for (int i = 0; i < len; i++) {
+                if (invert ^ matches[i]) {
+                    nmatches++;
+                }
+            }
+
+            if (nmatches == 0) {
+                return value ? RDataFactory.createEmptyStringVector() : RDataFactory.createEmptyIntVector();
+            } else {
+                if (value) {
+                    RStringVector oldNames = vector.getNames();
+                    String[] newNames = null;
+                    if (oldNames != null) {
+                        newNames = new String[nmatches];
+                    }
+                    String[] data = new String[nmatches];
+                    int j = 0;
+                    for (int i = 0; i < len; i++) {
+                        if (invert ^ matches[i]) {
+                            if (newNames != null) {
+                                newNames[j] = oldNames.getDataAt(i);
                             }
+                            data[j++] = vector.getDataAt(i);
                         }
-                        return RDataFactory.createStringVector(data, RDataFactory.COMPLETE_VECTOR, newNames == null ? null : RDataFactory.createStringVector(newNames, RDataFactory.COMPLETE_VECTOR));
-                    } else {
-                        int[] data = new int[nmatches];
-                        int j = 0;
-                        for (int i = 0; i < len; i++) {
-                            if (invert ^ matches[i]) {
-                                data[j++] = i + 1;
-                            }
+                    }
+                    return RDataFactory.createStringVector(data, RDataFactory.COMPLETE_VECTOR, newNames == null ? null : RDataFactory.createStringVector(newNames, RDataFactory.COMPLETE_VECTOR));
+                } else {
+                    int[] data = new int[nmatches];
+                    int j = 0;
+                    for (int i = 0; i < len; i++) {
+                        if (invert ^ matches[i]) {
+                            data[j++] = i + 1;
                         }
-                        return RDataFactory.createIntVector(data, RDataFactory.COMPLETE_VECTOR);
                     }
+                    return RDataFactory.createIntVector(data, RDataFactory.COMPLETE_VECTOR);
                 }
-            } catch (PatternSyntaxException e) {
-                throw error(Message.INVALID_REGEXP_REASON, patternArg, e.getMessage());
             }
         }
 
-        protected static void findAllMatches(boolean[] result, String pattern, RStringVector vector, boolean fixed, boolean ignoreCase) {
+        protected static void findAllMatches(boolean[] result, String pattern, RStringVector vector, boolean fixed, boolean ignoreCase, TRegexPattern tregex) {
             for (int i = 0; i < result.length; i++) {
                 String text = vector.getDataAt(i);
                 if (!RRuntime.isNA(text)) {
                     if (fixed) {
                         result[i] = text.contains(pattern);
+                    } else if (tregex != null && tregex.supports(text)) {
+                        result[i] = tregex.find(text, 0);
                     } else {
                         result[i] = findMatch(pattern, text, ignoreCase);
                     }
@@ -399,6 +519,19 @@ public class GrepFunctions {
             return RDataFactory.createIntVector(Arrays.copyOf(matchIndices, matches), true);
         }
 
+        @Specialization(guards = {"!fixed", "tregex != null", "pattern.equals(cachedPattern)", "ignoreCase == cachedIgnoreCase", "perl == cachedPerl"}, limit = "1")
+        protected Object grepTRegex(String pattern, RStringVector vector, boolean ignoreCase, boolean value, boolean perl, @SuppressWarnings("unused") boolean fixed, boolean useBytes,
+                        boolean invert,
+                        @SuppressWarnings("unused") @Cached("pattern") String cachedPattern,
+                        @SuppressWarnings("unused") @Cached("ignoreCase") boolean cachedIgnoreCase,
+                        @SuppressWarnings("unused") @Cached("perl") boolean cachedPerl,
+                        @Cached("compileGrepTRegex(pattern, ignoreCase, perl)") TRegexPattern tregex,
+                        @CachedLibrary(limit = "3") InteropLibrary interop,
+                        @CachedLibrary(limit = "getGenericDataLibraryCacheSize()") VectorDataLibrary dataLib,
+                        @Cached("createGrepCommon()") GrepCommonCodeNode common) {
+            return common.doGrepTRegex(tregex, interop, dataLib, pattern, vector, ignoreCase, value, perl, useBytes, invert, false);
+        }
+
         @Specialization
         @TruffleBoundary
         protected Object grepValueFalse(String patternArgVec, RStringVector vector, boolean ignoreCaseLogical, boolean valueLogical, boolean perlLogical, boolean fixedLogical,
@@ -424,6 +557,19 @@ public class GrepFunctions {
             castInvert(casts);
         }
 
+        @Specialization(guards = {"!fixed", "tregex != null", "pattern.equals(cachedPattern)", "ignoreCase == cachedIgnoreCase", "perl == cachedPerl"}, limit = "1")
+        protected Object greplTRegex(String pattern, RStringVector vector, boolean ignoreCase, boolean value, boolean perl, @SuppressWarnings("unused") boolean fixed, boolean useBytes,
+                        boolean invert,
+                        @SuppressWarnings("unused") @Cached("pattern") String cachedPattern,
+                        @SuppressWarnings("unused") @Cached("ignoreCase") boolean cachedIgnoreCase,
+                        @SuppressWarnings("unused") @Cached("perl") boolean cachedPerl,
+                        @Cached("compileGrepTRegex(pattern, ignoreCase, perl)") TRegexPattern tregex,
+                        @CachedLibrary(limit = "3") InteropLibrary interop,
+                        @CachedLibrary(limit = "getGenericDataLibraryCacheSize()") VectorDataLibrary dataLib,
+                        @Cached("createGrepCommon()") GrepCommonCodeNode common) {
+            return common.doGrepTRegex(tregex, interop, dataLib, pattern, vector, ignoreCase, value, perl, useBytes, invert, true);
+        }
+
         @Specialization
         @TruffleBoundary
         protected Object grepl(String pattern, RStringVector vector, boolean ignoreCaseLogical, boolean valueLogical, boolean perlLogical, boolean fixedLogical, boolean useBytes,
@@ -483,12 +629,17 @@ public class GrepFunctions {
                 }
 
                 PCRERFFI.Result pcre = null;
+                TRegexPattern tregex = null;
                 if (fixed) {
                     // TODO case
                 } else if (perl) {
-                    pcre = compilePerlPattern(pattern, ignoreCase);
+                    tregex = compileTRegex(pattern, TRegexPattern.PERL | (ignoreCase ? TRegexPattern.IGNORE_CASE : 0));
+                    if (tregex == null) {
+                        pcre = compilePerlPattern(pattern, ignoreCase);
+                    }
                 } else {
                     pattern = RegExp.transformPatternToGnurCompatible(pattern);
+                    tregex = compileTRegex(pattern, TRegexPattern.DOTALL);
                 }
                 String preparedReplacement = null;
                 String[] result = new String[len];
@@ -506,7 +657,7 @@ public class GrepFunctions {
                                 preparedReplacement = replacement.replace("$", "\\$");
                                 preparedReplacement = convertGroups(preparedReplacement, 0);
                             }
-                            value = Pattern.compile(pattern, Pattern.LITERAL).matcher(input).replaceAll(preparedReplacement);
+                            value = compilePattern(pattern, Pattern.LITERAL).matcher(input).replaceAll(preparedReplacement);
                         } else {
                             int ix = input.indexOf(pattern);
                             if (preparedReplacement == null) {
@@ -515,17 +666,21 @@ public class GrepFunctions {
                             value = ix < 0 ? input : input.substring(0, ix) + preparedReplacement + input.substring(ix + pattern.length());
                         }
                     } else if (perl) {
+                        boolean useTRegex = tregex != null && tregex.supports(input);
+                        if (!useTRegex && pcre == null) {
+                            pcre = compilePerlPattern(pattern, ignoreCase);
+                        }
                         int lastEndOffset = 0;
                         int lastEndIndex = 0;
                         int[] ovector = new int[30];
                         int nmatch = 0;
                         int eflag = 0;
                         int lastEnd = -1;
-                        int[] fromByteMapping = getFromByteMapping(input); // non-null if it's
-                                                                           // necessary
+                        // non-null if it's necessary, TRegex is only used for ASCII strings
+                        int[] fromByteMapping = useTRegex ? null : getFromByteMapping(input);
 
                         StringBuilder sb = new StringBuilder();
-                        while (execNode.execute(pcre.result, 0, input, lastEndOffset, eflag, ovector) >= 0) {
+                        while (useTRegex ? execTRegex(tregex, input, lastEndOffset, ovector) : (execNode.execute(pcre.result, 0, input, lastEndOffset, eflag, ovector) >= 0)) {
                             nmatch++;
 
                             // offset == byte position
@@ -574,7 +729,19 @@ public class GrepFunctions {
                             value = sb.toString();
                         }
                     } else {
-                        Matcher matcher = Pattern.compile(pattern, Pattern.DOTALL).matcher(input);
+                        if (tregex != null && tregex.supports(input)) {
+                            if (preparedReplacement == null) {
+                                preparedReplacement = replacement.replace("$", "\\$");
+                                // the translated pattern has the same groups
+                                preparedReplacement = convertGroups(preparedReplacement, tregex.getGroupCount());
+                            }
+                            value = replaceTRegex(tregex, input, preparedReplacement, gsub);
+                            if (value != null) {
+                                result[i] = value;
+                                continue;
+                            }
+                        }
+                        Matcher matcher = compilePattern(pattern, Pattern.DOTALL).matcher(input);
                         if (preparedReplacement == null) {
                             preparedReplacement = replacement.replace("$", "\\$");
                             // matcher.groupCount() only depends on the pattern (not on the input)
@@ -697,6 +864,82 @@ public class GrepFunctions {
             return nonEmpty;
         }
 
+        /**
+         * The equivalent of {@link Matcher#replaceAll(String)} and
+         * {@link Matcher#replaceFirst(String)}. Returns {@code null} if the replacement is not
+         * valid, so that the error is reported by the {@link Matcher}.
+         */
+        @TruffleBoundary
+        private static String replaceTRegex(TRegexPattern tregex, String input, String replacement, boolean all) {
+            int[] bounds = tregex.exec(input, 0);
+            if (bounds == null) {
+                return input;
+            }
+            StringBuilder sb = new StringBuilder();
+            int lastAppendPosition = 0;
+            do {
+                sb.append(input, lastAppendPosition, bounds[0]);
+                if (!appendReplacement(sb, input, replacement, bounds, tregex.getGroupCount())) {
+                    return null;
+                }
+                lastAppendPosition = bounds[1];
+                if (!all) {
+                    break;
+                }
+                // like Matcher.find, continue after an empty match at the next character
+                int from = bounds[1] == bounds[0] ? bounds[1] + 1 : bounds[1];
+                bounds = from <= input.length() ? tregex.exec(input, from) : null;
+            } while (bounds != null);
+            sb.append(input, lastAppendPosition, input.length());
+            return sb.toString();
+        }
+
+        /**
+         * Appends the replacement with the group references {@code $n} expanded like
+         * {@link Matcher#appendReplacement(StringBuffer, String)}, returns {@code false} if the
+         * replacement is not valid.
+         */
+        private static boolean appendReplacement(StringBuilder sb, String input, String replacement, int[] bounds, int groupCount) {
+            int i = 0;
+            while (i < replacement.length()) {
+                char c = replacement.charAt(i++);
+                if (c == '\\') {
+                    if (i == replacement.length()) {
+                        return false;
+                    }
+                    sb.append(replacement.charAt(i++));
+                } else if (c == '$') {
+                    if (i == replacement.length() || !isDigit(replacement.charAt(i))) {
+                        // named group references are not produced by convertGroups
+                        return false;
+                    }
+                    int group = replacement.charAt(i++) - '0';
+                    if (group > groupCount) {
+                        return false;
+                    }
+                    // the following digits belong to the reference as long as it is valid
+                    while (i < replacement.length() && isDigit(replacement.charAt(i))) {
+                        int next = group * 10 + replacement.charAt(i) - '0';
+                        if (next > groupCount) {
+                            break;
+                        }
+                        group = next;
+                        i++;
+                    }
+                    if (bounds[2 * group] >= 0) {
+                        sb.append(input, bounds[2 * group], bounds[2 * group + 1]);
+                    }
+                } else {
+                    sb.append(c);
+                }
+            }
+            return true;
+        }
+
+        private static boolean isDigit(char c) {
+            return c >= '0' && c <= '9';
+        }
+
         private static void pcreStringAdj(StringBuilder sb, String input, String repl, int[] ovector, int[] fromByteMapping) {
             boolean upper = false;
             boolean lower = false;
@@ -989,6 +1232,47 @@ public class GrepFunctions {
                     list.add(new Info(index + 1, pattern.length(), null, null, null));
                     index += pattern.length();
                 }
+                return getInfoResult(list);
+            }
+            int tregexFlags = (perl ? TRegexPattern.PERL : TRegexPattern.DOTALL) | (ignoreCase ? TRegexPattern.IGNORE_CASE : 0);
+            TRegexPattern tregex = compileTRegex(perl ? pattern : stripLeadingStar(pattern), tregexFlags);
+            if (tregex != null && !tregex.supports(text)) {
+                tregex = null;
+            }
+            if (perl && tregex != null) {
+                String[] captureNames = tregex.getGroupNames();
+                int from = 0;
+                int[] bounds;
+                while (from <= text.length() && (bounds = tregex.exec(text, from)) != null) {
+                    // like the number returned by PCRE, the groups after the last one that
+                    // participated in the match are not reported
+                    int captureCount = 1;
+                    for (int i = 1; i < bounds.length / 2; i++) {
+                        if (bounds[2 * i] >= 0) {
+                            captureCount = i + 1;
+                        }
+                    }
+                    int[] captureStart = null;
+                    int[] captureLength = null;
+                    if (captureCount > 1) {
+                        captureStart = new int[captureCount - 1];
+                        captureLength = new int[captureCount - 1];
+                        for (int i = 1; i < captureCount; i++) {
+                            captureStart[i - 1] = bounds[2 * i] + 1;
+                            captureLength[i - 1] = bounds[2 * i + 1] - bounds[2 * i];
+                        }
+                    }
+                    // R starts counting at index 1
+                    list.add(new Info(bounds[0] + 1, bounds[1] - bounds[0], captureStart, captureLength, captureNames));
+                    if (onlyFirst) {
+                        break;
+                    }
+                    from = bounds[1] == bounds[0] ? bounds[1] + 1 : bounds[1];
+                }
+                if (list.isEmpty() && captureNames.length > 0) {
+                    // at least a return array of emtpty string names, is necessary for output
+                    list.add(new Info(-1, -1, null, null, captureNames));
+                }
             } else if (perl) {
                 PCRERFFI.Result pcre = common.compilePerlPattern(pattern, ignoreCase);
                 int maxCaptureCount = getCaptureCountNode.execute(pcre.result, 0);
@@ -1036,6 +1320,19 @@ public class GrepFunctions {
                     // at least a return array of emtpty string names, is necessary for output
                     list.add(new Info(-1, -1, null, null, captureNames));
                 }
+            } else if (tregex != null) {
+                int from = 0;
+                int[] bounds;
+                // the same matches as Matcher.find, which continues after an empty match at the
+                // next character
+                while (from <= text.length() && (bounds = tregex.exec(text, from)) != null) {
+                    // R starts counting at index 1
+                    list.add(new Info(bounds[0] + 1, bounds[1] - bounds[0], null, null, null));
+                    if (onlyFirst) {
+                        break;
+                    }
+                    from = bounds[1] == bounds[0] ? bounds[1] + 1 : bounds[1];
+                }
             } else {
                 Matcher m = getPatternMatcher(pattern, text, ignoreCase);
                 while (m.find()) {
@@ -1043,6 +1340,10 @@ public class GrepFunctions {
                     list.add(new Info(Regexec.start(m) + 1, Regexec.end(m) - Regexec.start(m), null, null, null));
                 }
             }
+            return getInfoResult(list);
+        }
+
+        private static List<Info> getInfoResult(List<Info> list) {
             if (list.size() > 0) {
                 return list;
             }
@@ -1050,16 +1351,20 @@ public class GrepFunctions {
             return list;
         }
 
-        @TruffleBoundary
-        private static Matcher getPatternMatcher(String pattern, String text, boolean ignoreCase) {
-            String actualPattern = pattern;
-
-            // If a pattern starts with a '*', GnuR virtually prepends an empty string literal to
-            // the star. This won't match anything, so just remove '*' from the pattern.
+        /**
+         * If a pattern starts with a '*', GnuR virtually prepends an empty string literal to the
+         * star. This won't match anything, so just remove '*' from the pattern.
+         */
+        static String stripLeadingStar(String pattern) {
             if (pattern.length() > 0 && pattern.charAt(0) == '*') {
-                actualPattern = pattern.substring(1);
+                return pattern.substring(1);
             }
-            return Pattern.compile(actualPattern, Pattern.DOTALL | (ignoreCase ? Pattern.CASE_INSENSITIVE : 0)).matcher(text);
+            return pattern;
+        }
+
+        @TruffleBoundary
+        private static Matcher getPatternMatcher(String pattern, String text, boolean ignoreCase) {
+            return compilePattern(stripLeadingStar(pattern), Pattern.DOTALL | (ignoreCase ? Pattern.CASE_INSENSITIVE : 0)).matcher(text);
         }
     }
 
@@ -1206,7 +1511,7 @@ public class GrepFunctions {
 
         @TruffleBoundary
         private static Matcher getPatternMatcher(String pattern, String text, boolean ignoreCase) {
-            return Pattern.compile(pattern, Pattern.DOTALL | (ignoreCase ? Pattern.CASE_INSENSITIVE : 0)).matcher(text);
+            return compilePattern(pattern, Pattern.DOTALL | (ignoreCase ? Pattern.CASE_INSENSITIVE : 0)).matcher(text);
         }
     }
 
@@ -1546,20 +1851,19 @@ public class GrepFunctions {
             // treat split = NULL as split = ""
             RStringVector split = splitArg.getLength() == 0 ? RDataFactory.createStringVectorFromScalar("") : splitArg;
             String[] splits = new String[split.getLength()];
-            long pcreTables = perl ? common.maketablesNode.execute() : 0;
             PCRERFFI.Result[] pcreSplits = perl ? new PCRERFFI.Result[splits.length] : null;
+            TRegexPattern[] tregexSplits = new TRegexPattern[splits.length];
 
             na.enable(x);
             for (int i = 0; i < splits.length; i++) {
                 String currentSplit = split.getDataAt(i);
                 splits[i] = fixed || perl ? split.getDataAt(i) : RegExp.transformPatternToGnurCompatible(split.getDataAt(i));
+                if (!fixed && !currentSplit.isEmpty() && !RRuntime.isNA(currentSplit)) {
+                    tregexSplits[i] = compileTRegex(splits[i], perl ? TRegexPattern.PERL : 0);
+                }
                 if (perl) {
-                    if (!currentSplit.isEmpty()) {
-                        pcreSplits[i] = common.compileNode.execute(currentSplit, 0, pcreTables);
-                        if (pcreSplits[i].result == 0) {
-                            // TODO output warning if pcre.errorMessage not NULL
-                            throw error(RError.Message.INVALID_REGEXP, currentSplit);
-                        }
+                    if (!currentSplit.isEmpty() && tregexSplits[i] == null) {
+                        pcreSplits[i] = common.compilePerlPattern(currentSplit, false);
                         // TODO pcre_study for vectors > 10 ? (cf GnuR)
                     }
                 }
@@ -1583,10 +1887,18 @@ public class GrepFunctions {
                         if (na.check(data)) {
                             resultItem = RDataFactory.createNAStringVector();
                         } else {
+                            int splitIndex = i % splits.length;
+                            TRegexPattern tregex = tregexSplits[splitIndex];
+                            if (tregex != null && !tregex.supports(data)) {
+                                tregex = null;
+                            }
                             if (perl) {
-                                resultItem = splitPerl(data, pcreSplits[i % splits.length]);
+                                if (tregex == null && pcreSplits[splitIndex] == null) {
+                                    pcreSplits[splitIndex] = common.compilePerlPattern(split.getDataAt(splitIndex), false);
+                                }
+                                resultItem = splitPerl(data, pcreSplits[splitIndex], tregex);
                             } else {
-                                resultItem = splitIntl(data, currentSplit, fixed);
+                                resultItem = splitIntl(data, currentSplit, fixed, tregex);
                             }
                             if (resultItem.getLength() == 0) {
                                 if (fixed) {
@@ -1620,7 +1932,7 @@ public class GrepFunctions {
             }
         }
 
-        private static RStringVector splitIntl(String input, String separator, boolean fixed) {
+        private static RStringVector splitIntl(String input, String separator, boolean fixed, TRegexPattern tregex) {
             assert !RRuntime.isNA(input);
 
             if (fixed) {
@@ -1646,12 +1958,43 @@ public class GrepFunctions {
             } else {
                 if (input.equals(separator)) {
                     return RDataFactory.createStringVector("");
+                } else if (tregex != null) {
+                    return RDataFactory.createStringVector(splitTRegex(input, tregex), true);
                 } else {
-                    return RDataFactory.createStringVector(input.split(separator), true);
+                    return RDataFactory.createStringVector(compilePattern(separator, 0).split(input), true);
                 }
             }
         }
 
+        /**
+         * The equivalent of {@link Pattern#split(CharSequence)}.
+         */
+        private static String[] splitTRegex(String input, TRegexPattern tregex) {
+            ArrayList<String> matches = new ArrayList<>();
+            int index = 0;
+            int from = 0;
+            int[] bounds;
+            while (from <= input.length() && (bounds = tregex.exec(input, from)) != null) {
+                // a zero-width match at the beginning never produces an empty leading substring
+                if (index != 0 || bounds[0] != 0 || bounds[1] != 0) {
+                    matches.add(input.substring(index, bounds[0]));
+                    index = bounds[1];
+                }
+                // like Matcher.find, continue after an empty match at the next character
+                from = bounds[1] == bounds[0] ? bounds[1] + 1 : bounds[1];
+            }
+            if (index == 0) {
+                return new String[]{input};
+            }
+            matches.add(input.substring(index));
+            // trailing empty strings are removed
+            int size = matches.size();
+            while (size > 0 && matches.get(size - 1).isEmpty()) {
+                size--;
+            }
+            return matches.subList(0, size).toArray(new String[size]);
+        }
+
         private static RStringVector emptySplitIntl(String input) {
             assert !RRuntime.isNA(input);
             String[] result = new String[input.length()];
@@ -1661,19 +2004,25 @@ public class GrepFunctions {
             return RDataFactory.createStringVector(result, true);
         }
 
-        private RStringVector splitPerl(String data, PCRERFFI.Result pcre) {
+        /**
+         * Splits the string with the pattern compiled by TRegex if not {@code null}, otherwise with
+         * the PCRE pattern.
+         */
+        private RStringVector splitPerl(String data, PCRERFFI.Result pcre, TRegexPattern tregex) {
             ArrayList<String> matches = new ArrayList<>();
             int lastEndOffset = 0;
             int lastEndIndex = 0;
             int[] ovector = new int[30];
-            int[] fromByteMapping = getFromByteMapping(data); // non-null if it's necessary
+            // non-null if it's necessary, TRegex is only used for ASCII strings
+            int[] fromByteMapping = tregex != null ? null : getFromByteMapping(data);
 
-            while (execNode.execute(pcre.result, 0, data, lastEndOffset, 0, ovector) >= 0) {
+            // like GNU-R, stop at the end of the string, where only an empty match is possible
+            while (lastEndIndex < data.length() && (tregex != null ? execTRegex(tregex, data, lastEndOffset, ovector) : (execNode.execute(pcre.result, 0, data, lastEndOffset, 0, ovector) >= 0))) {
                 // offset == byte position
                 // index == character position
                 int startOffset;
                 int endOffset;
-                if (ovector[1] > 0) {
+                if (ovector[1] > lastEndOffset) {
                     startOffset = ovector[0];
                     endOffset = ovector[1];
                 } else {
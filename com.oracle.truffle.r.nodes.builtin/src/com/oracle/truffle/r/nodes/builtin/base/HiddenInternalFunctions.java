@@ -1,7 +1,7 @@
 /*
  * Copyright (c) 1995-2012, The R Core Team
  * Copyright (c) 2003, The R Foundation
- * Copyright (c) 2014, 2020, Oracle and/or its affiliates
+ * Copyright (c) 2014, 2021, Oracle and/or its affiliates
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -243,14 +243,13 @@ public class HiddenInternalFunctions {
                         CallRFunctionCachedNode callCache) {
             String dbPath = datafile.getDataAt(0);
             String packageName = context.getSafeTruffleFile(dbPath).getName();
-            byte[] dbData = RContext.getInstance().stateLazyDBCache.getData(context, dbPath);
+            ByteBuffer dbData = context.stateLazyDBCache.getData(context, datafile);
             int dotIndex;
             if ((dotIndex = packageName.lastIndexOf('.')) > 0) {
                 packageName = packageName.substring(0, dotIndex);
             }
             int offset = key.getDataAt(0);
             int length = key.getDataAt(1);
-            int outlen = getOutlen(dbData, offset); // length of uncompressed data
             byte[] udata = null;
             boolean rc = true;
             /*
@@ -259,26 +258,25 @@ public class HiddenInternalFunctions {
              * " and the data starts at "offset + 5". The type field is 'Z' for lzma, '2' for bzip,
              * '1' for zip and '0' for no compression. From GnuR code, the only difference between
              * compression=2 and compression=3 is that type='Z' is only possible for the latter.
+             *
+             * The entry is decompressed straight from the (shared, memory-mapped) database.
              */
             if (compression == 0) {
                 udata = new byte[length];
-                System.arraycopy(dbData, offset, udata, 0, length);
+                entry(dbData, offset, length).get(udata);
             } else {
+                int outlen = dbData.getInt(offset); // length of uncompressed data
                 udata = new byte[outlen];
                 if (compression == 2 || compression == 3) {
-                    RCompression.Type type = RCompression.Type.fromTypeChar(dbData[4]);
+                    RCompression.Type type = RCompression.Type.fromTypeChar(dbData.get(offset + 4));
                     if (type == null) {
                         warning(RError.Message.GENERIC, "unknown compression type");
                         return RNull.instance;
                     }
-                    byte[] data = new byte[length - 5];
-                    System.arraycopy(dbData, offset + 5, data, 0, data.length);
-                    rc = RCompression.uncompress(type, udata, data);
+                    rc = RCompression.uncompress(type, udata, entry(dbData, offset + 5, length - 5));
                 } else {
                     // GnuR treats any other value as 1
-                    byte[] data = new byte[length - 4];
-                    System.arraycopy(dbData, offset + 4, data, 0, data.length);
-                    rc = RCompression.uncompress(RCompression.Type.GZIP, udata, data);
+                    rc = RCompression.uncompress(RCompression.Type.GZIP, udata, entry(dbData, offset + 4, length - 4));
                 }
             }
             if (!rc) {
@@ -310,11 +308,14 @@ public class HiddenInternalFunctions {
             }
         }
 
-        private static int getOutlen(byte[] dbData, int offset) {
-            ByteBuffer dataLengthBuf = ByteBuffer.allocate(4);
-            dataLengthBuf.put(dbData, offset, 4);
-            dataLengthBuf.position(0);
-            return dataLengthBuf.getInt();
+        /**
+         * Returns a view of {@code length} bytes of the shared database buffer starting at
+         * {@code offset}.
+         */
+        private static ByteBuffer entry(ByteBuffer dbData, int offset, int length) {
+            ByteBuffer result = dbData.duplicate();
+            result.limit(offset + length).position(offset);
+            return result;
         }
 
         private static final class EvaluateAndSharePromiseNode extends Node {
@@ -539,7 +540,8 @@ public class HiddenInternalFunctions {
         @Specialization
         @TruffleBoundary
         protected RNull doLazyLoadDBFlush(RStringVector dbPath) {
-            RContext.getInstance().stateLazyDBCache.remove(dbPath.getDataAt(0));
+            RContext context = RContext.getInstance();
+            context.stateLazyDBCache.remove(context, dbPath.getDataAt(0));
             return RNull.instance;
         }
     }
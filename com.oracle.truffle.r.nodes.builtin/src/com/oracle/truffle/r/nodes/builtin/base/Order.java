@@ -44,7 +44,6 @@ import com.oracle.truffle.r.nodes.builtin.RPrecedenceBuiltinNode;
 import com.oracle.truffle.r.nodes.builtin.base.OrderNodeGen.CmpNodeGen;
 import com.oracle.truffle.r.nodes.builtin.base.OrderNodeGen.IsAtomicNANodeGen;
 import com.oracle.truffle.r.nodes.builtin.base.OrderNodeGen.OrderVector1NodeGen;
-import com.oracle.truffle.r.nodes.builtin.base.SortFunctions.RadixSort;
 import com.oracle.truffle.r.runtime.RError;
 import com.oracle.truffle.r.runtime.RLocale;
 import com.oracle.truffle.r.runtime.RRuntime;
@@ -80,11 +79,6 @@ public abstract class Order extends RPrecedenceBuiltinNode {
     private final ConditionProfile notRemoveNAs = ConditionProfile.createBinaryProfile();
     private final ValueProfile vectorProfile = ValueProfile.createClassProfile();
 
-    /**
-     * For use by {@link RadixSort}.
-     */
-    public abstract Object execute(byte naLast, boolean decreasing, RArgsValuesAndNames args);
-
     private static final int[] SINCS = {1073790977, 268460033, 67121153, 16783361, 4197377, 1050113, 262913, 65921, 16577, 4193, 1073, 281, 77, 23, 8, 1, 0};
 
     private RIntVector executeOrderVector1(RAbstractVector vIn, VectorDataLibrary vecDataLib, byte naLast, boolean dec) {
@@ -277,7 +271,12 @@ public abstract class Order extends RPrecedenceBuiltinNode {
         for (int i = 0; i < indx.length; i++) {
             indx[i] = i;
         }
-        orderVector(indx, args.getArguments(), RRuntime.fromLogical(naLast), decreasing);
+        Object[] vectors = args.getArguments();
+        if (ParallelOrder.isParallel(n)) {
+            ParallelOrder.sort(indx, 0, n - 1, ParallelOrder.comparator(vectors, RRuntime.fromLogical(naLast), decreasing));
+        } else {
+            orderVector(indx, vectors, RRuntime.fromLogical(naLast), decreasing);
+        }
         for (int i = 0; i < indx.length; i++) {
             indx[i] = indx[i] + 1;
         }
@@ -494,6 +493,10 @@ public abstract class Order extends RPrecedenceBuiltinNode {
         }
 
         private void sort(int[] indx, RDoubleVector dv, int lo, int hi, boolean dec) {
+            if (ParallelOrder.isParallel(hi - lo + 1)) {
+                ParallelOrder.sort(indx, lo, hi, ParallelOrder.comparator(dv, dec));
+                return;
+            }
             int t = 0;
             for (; SINCS[t] > hi - lo + 1; t++) {
             }
@@ -522,6 +525,10 @@ public abstract class Order extends RPrecedenceBuiltinNode {
         }
 
         private void sort(int[] indx, RIntVector dv, int lo, int hi, boolean dec) {
+            if (ParallelOrder.isParallel(hi - lo + 1)) {
+                ParallelOrder.sort(indx, lo, hi, ParallelOrder.comparator(dv, dec));
+                return;
+            }
             int t = 0;
             for (; SINCS[t] > hi - lo + 1; t++) {
             }
@@ -551,6 +558,10 @@ public abstract class Order extends RPrecedenceBuiltinNode {
 
         @TruffleBoundary
         private void sort(int[] indx, RStringVector dv, int lo, int hi, boolean dec) {
+            if (ParallelOrder.isParallel(hi - lo + 1)) {
+                ParallelOrder.sort(indx, lo, hi, ParallelOrder.comparator(dv, dec));
+                return;
+            }
             int t = 0;
             for (; SINCS[t] > hi - lo + 1; t++) {
             }
@@ -636,6 +647,10 @@ public abstract class Order extends RPrecedenceBuiltinNode {
         }
 
         private void sort(int[] indx, RComplexVector dv, int lo, int hi, boolean dec) {
+            if (ParallelOrder.isParallel(hi - lo + 1)) {
+                ParallelOrder.sort(indx, lo, hi, ParallelOrder.comparator(dv, dec));
+                return;
+            }
             int t = 0;
             for (; SINCS[t] > hi - lo + 1; t++) {
             }
@@ -665,6 +680,10 @@ public abstract class Order extends RPrecedenceBuiltinNode {
     }
 
     private static void sortNA(int[] indx, boolean[] isNa, int lo, int hi) {
+        if (isAscending(indx, lo, hi)) {
+            partitionNA(indx, isNa, lo, hi);
+            return;
+        }
         int t = 0;
         for (; SINCS[t] > indx.length; t++) {
         }
@@ -686,6 +705,35 @@ public abstract class Order extends RPrecedenceBuiltinNode {
         }
     }
 
+    private static boolean isAscending(int[] indx, int lo, int hi) {
+        for (int i = lo + 1; i <= hi; i++) {
+            if (indx[i - 1] > indx[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Linear equivalent of the shell sort in {@link #sortNA} for index ranges that are in
+     * ascending order, which is the usual case: a stable partition moving the {@code NA} indices
+     * to the end of the range.
+     */
+    private static void partitionNA(int[] indx, boolean[] isNa, int lo, int hi) {
+        int[] naIndices = new int[hi - lo + 1];
+        int naCount = 0;
+        int j = lo;
+        for (int i = lo; i <= hi; i++) {
+            int idx = indx[i];
+            if (isNa[idx]) {
+                naIndices[naCount++] = idx;
+            } else {
+                indx[j++] = idx;
+            }
+        }
+        System.arraycopy(naIndices, 0, indx, j, naCount);
+    }
+
     protected boolean isFirstIntegerPrecedence(RArgsValuesAndNames args) {
         return isIntegerPrecedence(args.getArgument(0));
     }
@@ -760,142 +808,134 @@ public abstract class Order extends RPrecedenceBuiltinNode {
 
         @Specialization
         protected int lcmp(RLogicalVector v, int i, int j, boolean naLast) {
-            byte x = v.getDataAt(i);
-            byte y = v.getDataAt(j);
-            boolean nax = RRuntime.isNA(x);
-            boolean nay = RRuntime.isNA(y);
-            if (nax && nay) {
-                return 0;
-            }
-            if (nax) {
-                return naLast ? 1 : -1;
-            }
-            if (nay) {
-                return naLast ? -1 : 1;
-            }
-            if (x < y) {
-                return -1;
-            }
-            if (x > y) {
-                return 1;
-            }
-            return 0;
+            return compareLogical(v.getDataAt(i), v.getDataAt(j), naLast);
         }
 
         @Specialization
         protected int icmp(RIntVector v, int i, int j, boolean naLast) {
-            int x = v.getDataAt(i);
-            int y = v.getDataAt(j);
-            boolean nax = RRuntime.isNA(x);
-            boolean nay = RRuntime.isNA(y);
-            if (nax && nay) {
-                return 0;
-            }
-            if (nax) {
-                return naLast ? 1 : -1;
-            }
-            if (nay) {
-                return naLast ? -1 : 1;
-            }
-            if (x < y) {
-                return -1;
-            }
-            if (x > y) {
-                return 1;
-            }
-            return 0;
+            return compareInt(v.getDataAt(i), v.getDataAt(j), naLast);
         }
 
         @Specialization
         protected int rcmp(RDoubleVector v, int i, int j, boolean naLast) {
-            double x = v.getDataAt(i);
-            double y = v.getDataAt(j);
-            boolean nax = RRuntime.isNAorNaN(x);
-            boolean nay = RRuntime.isNAorNaN(y);
-            if (nax && nay) {
-                return 0;
-            }
-            if (nax) {
-                return naLast ? 1 : -1;
-            }
-            if (nay) {
-                return naLast ? -1 : 1;
-            }
-            if (x < y) {
-                return -1;
-            }
-            if (x > y) {
-                return 1;
-            }
-            return 0;
+            return compareDouble(v.getDataAt(i), v.getDataAt(j), naLast);
         }
 
         @Specialization
         protected int scmp(RStringVector v, int i, int j, boolean naLast) {
-            String x = v.getDataAt(i);
-            String y = v.getDataAt(j);
-            boolean nax = RRuntime.isNA(x);
-            boolean nay = RRuntime.isNA(y);
-            if (nax && nay) {
-                return 0;
-            }
-            if (nax) {
-                return naLast ? 1 : -1;
-            }
-            if (nay) {
-                return naLast ? -1 : 1;
-            }
-            if (x.compareTo(y) < 0) {
-                return -1;
-            }
-            if (x.compareTo(y) > 0) {
-                return 1;
-            }
-            return 0;
+            return compareString(v.getDataAt(i), v.getDataAt(j), naLast);
         }
 
         @Specialization
         protected int ccmp(RComplexVector v, int i, int j, boolean naLast) {
             RComplex x = v.getDataAt(i);
             RComplex y = v.getDataAt(j);
-            // compare real parts
-            boolean nax = RRuntime.isNA(x.getRealPart());
-            boolean nay = RRuntime.isNA(y.getRealPart());
-            if (nax && nay) {
-                return 0;
-            }
-            if (nax) {
-                return naLast ? 1 : -1;
-            }
-            if (nay) {
-                return naLast ? -1 : 1;
-            }
-            if (x.getRealPart() < y.getRealPart()) {
-                return -1;
-            }
-            if (x.getRealPart() > y.getRealPart()) {
-                return 1;
-            }
+            return compareComplex(x.getRealPart(), x.getImaginaryPart(), y.getRealPart(), y.getImaginaryPart(), naLast);
+        }
+    }
 
-            // compare real parts
-            nax = RRuntime.isNA(x.getImaginaryPart());
-            nay = RRuntime.isNA(y.getImaginaryPart());
-            if (nax && nay) {
-                return 0;
-            }
-            if (nax) {
-                return naLast ? 1 : -1;
-            }
-            if (nay) {
-                return naLast ? -1 : 1;
-            }
-            if (x.getImaginaryPart() < y.getImaginaryPart()) {
-                return -1;
-            }
-            if (x.getImaginaryPart() > y.getImaginaryPart()) {
-                return 1;
-            }
-            return 0; // equal
+    /*
+     * The comparisons behind CmpNode, shared with ParallelOrder.
+     */
+
+    private static int compareMissing(boolean nax, boolean nay, boolean naLast) {
+        if (nax && nay) {
+            return 0;
+        }
+        if (nax) {
+            return naLast ? 1 : -1;
+        }
+        assert nay;
+        return naLast ? -1 : 1;
+    }
+
+    static int compareLogical(byte x, byte y, boolean naLast) {
+        boolean nax = RRuntime.isNA(x);
+        boolean nay = RRuntime.isNA(y);
+        if (nax || nay) {
+            return compareMissing(nax, nay, naLast);
+        }
+        if (x < y) {
+            return -1;
+        }
+        if (x > y) {
+            return 1;
+        }
+        return 0;
+    }
+
+    static int compareInt(int x, int y, boolean naLast) {
+        boolean nax = RRuntime.isNA(x);
+        boolean nay = RRuntime.isNA(y);
+        if (nax || nay) {
+            return compareMissing(nax, nay, naLast);
+        }
+        if (x < y) {
+            return -1;
+        }
+        if (x > y) {
+            return 1;
+        }
+        return 0;
+    }
+
+    static int compareDouble(double x, double y, boolean naLast) {
+        boolean nax = RRuntime.isNAorNaN(x);
+        boolean nay = RRuntime.isNAorNaN(y);
+        if (nax || nay) {
+            return compareMissing(nax, nay, naLast);
+        }
+        if (x < y) {
+            return -1;
+        }
+        if (x > y) {
+            return 1;
+        }
+        return 0;
+    }
+
+    static int compareString(String x, String y, boolean naLast) {
+        boolean nax = RRuntime.isNA(x);
+        boolean nay = RRuntime.isNA(y);
+        if (nax || nay) {
+            return compareMissing(nax, nay, naLast);
+        }
+        int c = x.compareTo(y);
+        if (c < 0) {
+            return -1;
+        }
+        if (c > 0) {
+            return 1;
+        }
+        return 0;
+    }
+
+    static int compareComplex(double xRe, double xIm, double yRe, double yIm, boolean naLast) {
+        // compare real parts
+        boolean nax = RRuntime.isNA(xRe);
+        boolean nay = RRuntime.isNA(yRe);
+        if (nax || nay) {
+            return compareMissing(nax, nay, naLast);
+        }
+        if (xRe < yRe) {
+            return -1;
+        }
+        if (xRe > yRe) {
+            return 1;
+        }
+
+        // compare imaginary parts
+        nax = RRuntime.isNA(xIm);
+        nay = RRuntime.isNA(yIm);
+        if (nax || nay) {
+            return compareMissing(nax, nay, naLast);
+        }
+        if (xIm < yIm) {
+            return -1;
+        }
+        if (xIm > yIm) {
+            return 1;
         }
+        return 0; // equal
     }
 }
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2021, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.nodes.builtin.base;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.r.runtime.context.FastROptions;
+import com.oracle.truffle.r.runtime.context.RContext;
+
+/**
+ * Parallel tiled multiplication of double matrices for {@link MatMult} and {@link CrossprodCommon}.
+ * The result is partitioned into panels of {@link #BLOCK_SIZE} columns which are computed on the
+ * common fork-join pool. Within a panel, the blocks of both operands are first packed into
+ * contiguous arrays (rows of {@code a} and columns of {@code b} with the inner dimension running
+ * fastest), so that the micro-kernel reads both operands sequentially regardless of the strides of
+ * the input, which keeps its loops simple enough for the compiler to vectorize.
+ *
+ * Every element of the result is accumulated in the same order as in the sequential blocked
+ * multiplication of {@link MatMult}, so the result does not depend on whether, or how, the work
+ * was split. Missing values are not handled here, they are fixed up by the caller.
+ */
+final class ParallelMatMult {
+
+    /**
+     * Must be the same as the block size of the sequential multiplication, see the class comment.
+     */
+    static final int BLOCK_SIZE = 64;
+
+    private ParallelMatMult() {
+        // private
+    }
+
+    /**
+     * Returns {@code true} if the product of an {@code aRows x aCols} and an
+     * {@code aCols x bCols} matrix should be computed in parallel.
+     */
+    @TruffleBoundary
+    static boolean isParallel(int aRows, int aCols, int bCols) {
+        int threshold = RContext.getInstance().getOption(FastROptions.MatMultParallelThreshold);
+        return threshold > 0 && (long) aRows * aCols * bCols >= threshold && bCols > BLOCK_SIZE && ForkJoinPool.getCommonPoolParallelism() > 1;
+    }
+
+    /**
+     * Adds the product of {@code a} and {@code b} to {@code result}, the parameters have the same
+     * meaning as in {@code MatMultAsDouble.doubleMatrixMultiply}.
+     */
+    @TruffleBoundary
+    static void multiply(double[] a, double[] b, double[] result, int aRows, int aCols, int bCols, int aRowStride, int aColStride, int bRowStride, int bColStride, boolean mirrored) {
+        int panels = (bCols + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        ForkJoinPool.commonPool().invoke(new PanelTask(new Operands(a, b, result, aRows, aCols, aRowStride, aColStride, bRowStride, bColStride, bCols, mirrored), 0, panels));
+    }
+
+    private static final class Operands {
+        final double[] a;
+        final double[] b;
+        final double[] result;
+        final int aRows;
+        final int aCols;
+        final int aRowStride;
+        final int aColStride;
+        final int bRowStride;
+        final int bColStride;
+        final int bCols;
+        final boolean mirrored;
+
+        Operands(double[] a, double[] b, double[] result, int aRows, int aCols, int aRowStride, int aColStride, int bRowStride, int bColStride, int bCols, boolean mirrored) {
+            this.a = a;
+            this.b = b;
+            this.result = result;
+            this.aRows = aRows;
+            this.aCols = aCols;
+            this.aRowStride = aRowStride;
+            this.aColStride = aColStride;
+            this.bRowStride = bRowStride;
+            this.bColStride = bColStride;
+            this.bCols = bCols;
+            this.mirrored = mirrored;
+        }
+    }
+
+    /**
+     * Computes the column panels {@code [lo, hi)} of the result, splitting the range in halves
+     * while it has more than one panel.
+     */
+    @SuppressWarnings("serial")
+    private static final class PanelTask extends RecursiveAction {
+        private final Operands op;
+        private final int lo;
+        private final int hi;
+
+        PanelTask(Operands op, int lo, int hi) {
+            this.op = op;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > 1) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new PanelTask(op, lo, mid), new PanelTask(op, mid, hi));
+            } else {
+                multiplyPanel(op, lo * BLOCK_SIZE);
+            }
+        }
+    }
+
+    private static void multiplyPanel(Operands op, int col) {
+        double[] packedA = new double[BLOCK_SIZE * BLOCK_SIZE];
+        double[] packedB = new double[BLOCK_SIZE * BLOCK_SIZE];
+        int cols = Math.min(BLOCK_SIZE, op.bCols - col);
+        // with a mirrored result, only the blocks on and above the diagonal are needed
+        int rowsEnd = op.mirrored ? Math.min(op.aRows, col + BLOCK_SIZE) : op.aRows;
+        for (int k = 0; k < op.aCols; k += BLOCK_SIZE) {
+            int depth = Math.min(BLOCK_SIZE, op.aCols - k);
+            packB(op, packedB, col, cols, k, depth);
+            for (int row = 0; row < rowsEnd; row += BLOCK_SIZE) {
+                int rows = Math.min(BLOCK_SIZE, op.aRows - row);
+                packA(op, packedA, row, rows, k, depth);
+                multiplyPacked(packedA, packedB, op.result, op.aRows, row, rows, col, cols, depth);
+            }
+        }
+    }
+
+    private static void packA(Operands op, double[] packed, int row, int rows, int k, int depth) {
+        for (int r = 0; r < rows; r++) {
+            int index = k * op.aColStride + (row + r) * op.aRowStride;
+            int offset = r * depth;
+            for (int kk = 0; kk < depth; kk++) {
+                packed[offset + kk] = op.a[index];
+                index += op.aColStride;
+            }
+        }
+    }
+
+    private static void packB(Operands op, double[] packed, int col, int cols, int k, int depth) {
+        for (int c = 0; c < cols; c++) {
+            int index = (col + c) * op.bColStride + k * op.bRowStride;
+            int offset = c * depth;
+            for (int kk = 0; kk < depth; kk++) {
+                packed[offset + kk] = op.b[index];
+                index += op.bRowStride;
+            }
+        }
+    }
+
+    /**
+     * Micro-kernel: computes four rows at a time with independent accumulators, each of them
+     * summing over the inner dimension in order.
+     */
+    private static void multiplyPacked(double[] packedA, double[] packedB, double[] result, int resultRows, int row, int rows, int col, int cols, int depth) {
+        for (int c = 0; c < cols; c++) {
+            int bOffset = c * depth;
+            int resultOffset = (col + c) * resultRows + row;
+            int r = 0;
+            for (; r + 3 < rows; r += 4) {
+                int a0 = r * depth;
+                int a1 = a0 + depth;
+                int a2 = a1 + depth;
+                int a3 = a2 + depth;
+                double x0 = 0.0;
+                double x1 = 0.0;
+                double x2 = 0.0;
+                double x3 = 0.0;
+                for (int kk = 0; kk < depth; kk++) {
+                    double bValue = packedB[bOffset + kk];
+                    x0 += packedA[a0 + kk] * bValue;
+                    x1 += packedA[a1 + kk] * bValue;
+                    x2 += packedA[a2 + kk] * bValue;
+                    x3 += packedA[a3 + kk] * bValue;
+                }
+                result[resultOffset + r] += x0;
+                result[resultOffset + r + 1] += x1;
+                result[resultOffset + r + 2] += x2;
+                result[resultOffset + r + 3] += x3;
+            }
+            for (; r < rows; r++) {
+                int a0 = r * depth;
+                double x = 0.0;
+                for (int kk = 0; kk < depth; kk++) {
+                    x += packedA[a0 + kk] * packedB[bOffset + kk];
+                }
+                result[resultOffset + r] += x;
+            }
+        }
+    }
+}
@@ -0,0 +1,356 @@
+/*
+ * Copyright (c) 2021, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.nodes.builtin.base;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.r.runtime.RInternalError;
+import com.oracle.truffle.r.runtime.RLocale;
+import com.oracle.truffle.r.runtime.context.FastROptions;
+import com.oracle.truffle.r.runtime.context.RContext;
+import com.oracle.truffle.r.runtime.data.RComplexVector;
+import com.oracle.truffle.r.runtime.data.RDoubleVector;
+import com.oracle.truffle.r.runtime.data.RIntVector;
+import com.oracle.truffle.r.runtime.data.RLogicalVector;
+import com.oracle.truffle.r.runtime.data.RStringVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
+
+/**
+ * Parallel ordering of index arrays for the {@link Order} builtin. The index range is split into
+ * chunks that are sorted on the common fork-join pool and then merged, with the merges themselves
+ * split further by binary search.
+ *
+ * The comparators used here are plain Java code working on the (read-only) data arrays of the
+ * vectors, so that no Truffle node is executed concurrently. They define a total order: elements
+ * that compare equal are ordered by their index, which is how {@link Order} resolves ties and
+ * which makes the result independent of how the work was split.
+ */
+final class ParallelOrder {
+
+    /**
+     * Chunks of at most this size are sorted sequentially.
+     */
+    private static final int MIN_CHUNK_SIZE = 1 << 13;
+
+    /**
+     * Below this size, runs are sorted by insertion sort.
+     */
+    private static final int INSERTION_SORT_THRESHOLD = 32;
+
+    private ParallelOrder() {
+        // private
+    }
+
+    /**
+     * Compares two indices of the ordered data, must never return {@code 0} for distinct indices.
+     */
+    interface IndexComparator {
+        int compare(int a, int b);
+    }
+
+    /**
+     * Returns {@code true} if a range of {@code length} elements should be ordered in parallel.
+     */
+    @TruffleBoundary
+    static boolean isParallel(int length) {
+        int threshold = RContext.getInstance().getOption(FastROptions.ParallelOrderThreshold);
+        return threshold > 0 && length >= threshold && ForkJoinPool.getCommonPoolParallelism() > 1;
+    }
+
+    /**
+     * Sorts {@code indx[lo..hi]} (both inclusive) according to {@code cmp}.
+     */
+    @TruffleBoundary
+    static void sort(int[] indx, int lo, int hi, IndexComparator cmp) {
+        int length = hi - lo + 1;
+        if (length < 2) {
+            return;
+        }
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, length / (ForkJoinPool.getCommonPoolParallelism() * 4));
+        int[] tmp = new int[indx.length];
+        ForkJoinPool.commonPool().invoke(new SortTask(indx, tmp, lo, hi + 1, chunkSize, cmp));
+    }
+
+    @TruffleBoundary
+    static IndexComparator comparator(RIntVector v, boolean dec) {
+        int[] data = v.getReadonlyData();
+        return (a, b) -> {
+            int x = data[a];
+            int y = data[b];
+            int c = x < y ? -1 : (x > y ? 1 : 0);
+            return tieByIndex(dec ? -c : c, a, b);
+        };
+    }
+
+    @TruffleBoundary
+    static IndexComparator comparator(RDoubleVector v, boolean dec) {
+        double[] data = v.getReadonlyData();
+        return (a, b) -> {
+            double x = data[a];
+            double y = data[b];
+            int c = x < y ? -1 : (x > y ? 1 : 0);
+            return tieByIndex(dec ? -c : c, a, b);
+        };
+    }
+
+    @TruffleBoundary
+    static IndexComparator comparator(RComplexVector v, boolean dec) {
+        double[] data = v.getReadonlyData();
+        return (a, b) -> {
+            double xr = data[2 * a];
+            double yr = data[2 * b];
+            int c;
+            if (xr == yr) {
+                double xi = data[2 * a + 1];
+                double yi = data[2 * b + 1];
+                c = xi < yi ? -1 : (xi > yi ? 1 : 0);
+            } else {
+                c = xr < yr ? -1 : (xr > yr ? 1 : 0);
+            }
+            return tieByIndex(dec ? -c : c, a, b);
+        };
+    }
+
+    @TruffleBoundary
+    static IndexComparator comparator(RStringVector v, boolean dec) {
+        String[] data = v.getReadonlyStringData();
+        Locale locale = RContext.getInstance().stateRLocale.getLocale(RLocale.COLLATE);
+        if (locale == Locale.ROOT) {
+            // simple comparison based on numeric value of characters
+            return (a, b) -> {
+                int c = Integer.signum(data[a].compareTo(data[b]));
+                return tieByIndex(dec ? -c : c, a, b);
+            };
+        } else {
+            Collator collator = RLocale.getOrderCollator(locale);
+            CollationKey[] entries = new CollationKey[data.length];
+            for (int i = 0; i < data.length; i++) {
+                entries[i] = collator.getCollationKey(data[i]);
+            }
+            return (a, b) -> {
+                int c = Integer.signum(entries[a].compareTo(entries[b]));
+                return tieByIndex(dec ? -c : c, a, b);
+            };
+        }
+    }
+
+    /**
+     * Comparator for multiple keys with the same semantics as {@link Order.CmpNode}: missing
+     * values are placed according to {@code naLast} before {@code dec} is applied.
+     */
+    @TruffleBoundary
+    static IndexComparator comparator(Object[] vectors, boolean naLast, boolean dec) {
+        IndexComparator[] keys = new IndexComparator[vectors.length];
+        for (int k = 0; k < vectors.length; k++) {
+            keys[k] = keyComparator((RAbstractVector) vectors[k], naLast);
+        }
+        return (a, b) -> {
+            for (int k = 0; k < keys.length; k++) {
+                int c = keys[k].compare(a, b);
+                if (c != 0) {
+                    return dec ? -c : c;
+                }
+            }
+            return Integer.compare(a, b);
+        };
+    }
+
+    private static IndexComparator keyComparator(RAbstractVector v, boolean naLast) {
+        if (v instanceof RLogicalVector) {
+            byte[] data = ((RLogicalVector) v).getReadonlyData();
+            return (a, b) -> Order.compareLogical(data[a], data[b], naLast);
+        } else if (v instanceof RIntVector) {
+            int[] data = ((RIntVector) v).getReadonlyData();
+            return (a, b) -> Order.compareInt(data[a], data[b], naLast);
+        } else if (v instanceof RDoubleVector) {
+            double[] data = ((RDoubleVector) v).getReadonlyData();
+            return (a, b) -> Order.compareDouble(data[a], data[b], naLast);
+        } else if (v instanceof RStringVector) {
+            String[] data = ((RStringVector) v).getReadonlyStringData();
+            return (a, b) -> Order.compareString(data[a], data[b], naLast);
+        } else if (v instanceof RComplexVector) {
+            double[] data = ((RComplexVector) v).getReadonlyData();
+            return (a, b) -> Order.compareComplex(data[2 * a], data[2 * a + 1], data[2 * b], data[2 * b + 1], naLast);
+        }
+        throw RInternalError.shouldNotReachHere("unexpected vector type in parallel order");
+    }
+
+    private static int tieByIndex(int c, int a, int b) {
+        return c != 0 ? c : Integer.compare(a, b);
+    }
+
+    /**
+     * Sorts {@code a[from..to)}, using {@code tmp[from..to)} as scratch space.
+     */
+    @SuppressWarnings("serial")
+    private static final class SortTask extends RecursiveAction {
+        private final int[] a;
+        private final int[] tmp;
+        private final int from;
+        private final int to;
+        private final int chunkSize;
+        private final IndexComparator cmp;
+
+        SortTask(int[] a, int[] tmp, int from, int to, int chunkSize, IndexComparator cmp) {
+            this.a = a;
+            this.tmp = tmp;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+            this.cmp = cmp;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunkSize) {
+                mergeSort(a, tmp, from, to, cmp);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new SortTask(a, tmp, from, mid, chunkSize, cmp), new SortTask(a, tmp, mid, to, chunkSize, cmp));
+            if (cmp.compare(a[mid - 1], a[mid]) <= 0) {
+                // already in order
+                return;
+            }
+            System.arraycopy(a, from, tmp, from, to - from);
+            new MergeTask(tmp, a, from, mid, mid, to, from, chunkSize, cmp).compute();
+        }
+    }
+
+    /**
+     * Merges {@code src[lo1..hi1)} and {@code src[lo2..hi2)} into {@code dst} starting at
+     * {@code dstPos}. Large merges are split at the median of the larger run and the
+     * corresponding position in the other run, found by binary search.
+     */
+    @SuppressWarnings("serial")
+    private static final class MergeTask extends RecursiveAction {
+        private final int[] src;
+        private final int[] dst;
+        private final int lo1;
+        private final int hi1;
+        private final int lo2;
+        private final int hi2;
+        private final int dstPos;
+        private final int chunkSize;
+        private final IndexComparator cmp;
+
+        MergeTask(int[] src, int[] dst, int lo1, int hi1, int lo2, int hi2, int dstPos, int chunkSize, IndexComparator cmp) {
+            this.src = src;
+            this.dst = dst;
+            this.lo1 = lo1;
+            this.hi1 = hi1;
+            this.lo2 = lo2;
+            this.hi2 = hi2;
+            this.dstPos = dstPos;
+            this.chunkSize = chunkSize;
+            this.cmp = cmp;
+        }
+
+        @Override
+        protected void compute() {
+            int len1 = hi1 - lo1;
+            int len2 = hi2 - lo2;
+            if (len1 + len2 <= chunkSize || len1 == 0 || len2 == 0) {
+                merge(src, dst, lo1, hi1, lo2, hi2, dstPos, cmp);
+                return;
+            }
+            int split1;
+            int split2;
+            if (len1 >= len2) {
+                split1 = (lo1 + hi1) >>> 1;
+                split2 = lowerBound(src, lo2, hi2, src[split1], cmp);
+            } else {
+                split2 = (lo2 + hi2) >>> 1;
+                split1 = lowerBound(src, lo1, hi1, src[split2], cmp);
+            }
+            int dstSplit = dstPos + (split1 - lo1) + (split2 - lo2);
+            invokeAll(new MergeTask(src, dst, lo1, split1, lo2, split2, dstPos, chunkSize, cmp),
+                            new MergeTask(src, dst, split1, hi1, split2, hi2, dstSplit, chunkSize, cmp));
+        }
+    }
+
+    /**
+     * Returns the first position in {@code a[lo..hi)} whose element is not less than {@code key}.
+     * Since the comparator never reports distinct indices as equal, there is no need to
+     * distinguish lower and upper bounds.
+     */
+    private static int lowerBound(int[] a, int lo, int hi, int key, IndexComparator cmp) {
+        int l = lo;
+        int h = hi;
+        while (l < h) {
+            int m = (l + h) >>> 1;
+            if (cmp.compare(a[m], key) < 0) {
+                l = m + 1;
+            } else {
+                h = m;
+            }
+        }
+        return l;
+    }
+
+    private static void merge(int[] src, int[] dst, int lo1, int hi1, int lo2, int hi2, int dstPos, IndexComparator cmp) {
+        int i = lo1;
+        int j = lo2;
+        int k = dstPos;
+        while (i < hi1 && j < hi2) {
+            if (cmp.compare(src[j], src[i]) < 0) {
+                dst[k++] = src[j++];
+            } else {
+                dst[k++] = src[i++];
+            }
+        }
+        System.arraycopy(src, i, dst, k, hi1 - i);
+        System.arraycopy(src, j, dst, k + hi1 - i, hi2 - j);
+    }
+
+    /**
+     * Sequential merge sort of {@code a[from..to)}.
+     */
+    private static void mergeSort(int[] a, int[] tmp, int from, int to, IndexComparator cmp) {
+        if (to - from <= INSERTION_SORT_THRESHOLD) {
+            for (int i = from + 1; i < to; i++) {
+                int cur = a[i];
+                int j = i;
+                while (j > from && cmp.compare(a[j - 1], cur) > 0) {
+                    a[j] = a[j - 1];
+                    j--;
+                }
+                a[j] = cur;
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSort(a, tmp, from, mid, cmp);
+        mergeSort(a, tmp, mid, to, cmp);
+        if (cmp.compare(a[mid - 1], a[mid]) <= 0) {
+            return;
+        }
+        System.arraycopy(a, from, tmp, from, to - from);
+        merge(tmp, a, from, mid, mid, to, from, cmp);
+    }
+}
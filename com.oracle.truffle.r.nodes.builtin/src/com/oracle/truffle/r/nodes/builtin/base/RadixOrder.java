@@ -0,0 +1,567 @@
+/*
+ * Copyright (c) 2021, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.nodes.builtin.base;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.r.runtime.Collections.ArrayListObj;
+import com.oracle.truffle.r.runtime.Collections.NonRecursiveHashMapCharacter;
+import com.oracle.truffle.r.runtime.RInternalError;
+import com.oracle.truffle.r.runtime.RRuntime;
+import com.oracle.truffle.r.runtime.data.RComplexVector;
+import com.oracle.truffle.r.runtime.data.RDataFactory;
+import com.oracle.truffle.r.runtime.data.RDoubleVector;
+import com.oracle.truffle.r.runtime.data.RIntVector;
+import com.oracle.truffle.r.runtime.data.RLogicalVector;
+import com.oracle.truffle.r.runtime.data.RStringVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
+
+/**
+ * Stable LSD radix ordering of one or more keys, the engine behind {@code radixsort} (and hence
+ * {@code order(method = "radix")}, {@code sort.list} and {@code grouping}).
+ *
+ * Every key is first turned into an array of {@code long} values whose unsigned ordering matches
+ * the requested ordering of the key (the sign bit of integers and the sign/exponent of doubles are
+ * "twiddled", decreasing keys are bit-inverted). Missing values get a separate flag and are moved
+ * to the front or to the back by an additional stable two-bucket pass, so their placement does not
+ * depend on {@code decreasing}. Keys are processed from the least significant to the most
+ * significant one, each with as many counting passes as the range of the key requires, which makes
+ * the whole sort O(n) per key and stable for ties.
+ *
+ * Strings are mapped to integer ranks via a string cache shared by all the string keys of one
+ * call: the unique strings are sorted byte-wise (i.e., in the C locale, as in GNU R) by an MSD
+ * radix sort of their UTF-8 representation, or, if {@code sortstr} is {@code FALSE}, ranked by
+ * their first appearance, which is enough for grouping.
+ */
+public final class RadixOrder {
+
+    private static final int RADIX_BITS = 11;
+    private static final int RADIX_SIZE = 1 << RADIX_BITS;
+    private static final int RADIX_MASK = RADIX_SIZE - 1;
+
+    /**
+     * Below this size, string buckets are finished by an insertion sort.
+     */
+    private static final int STRING_INSERTION_SORT_THRESHOLD = 32;
+
+    /**
+     * Key values of missing elements, used to keep {@code NA} before {@code NaN}.
+     */
+    private static final long NA_KEY = 0;
+    private static final long NAN_KEY = 1;
+
+    private final RAbstractVector[] vectors;
+    private final boolean[] decreasing;
+    private final byte naLast;
+    private final boolean retgrp;
+    private final int n;
+
+    private StringCache stringCache;
+
+    private int[] order;
+    private int[] tmpOrder;
+    private long[] current;
+    private long[] tmpCurrent;
+    private int[] counts;
+
+    /**
+     * Original-position keys and missing flags of every key, retained only when the group
+     * boundaries have to be computed.
+     */
+    private long[][] groupKeys;
+    private boolean[][] groupMissing;
+
+    private RadixOrder(RAbstractVector[] vectors, boolean[] decreasing, byte naLast, boolean retgrp) {
+        assert vectors.length > 0 && vectors.length == decreasing.length;
+        this.vectors = vectors;
+        this.decreasing = decreasing;
+        this.naLast = naLast;
+        this.retgrp = retgrp;
+        this.n = vectors[0].getLength();
+    }
+
+    /**
+     * Computes the (1-based) ordering permutation of the given vectors, which must all have the
+     * same length. If {@code naLast} is {@code NA}, elements that are missing in any key are
+     * removed from the result. If {@code retgrp} is {@code true}, the result carries the
+     * {@code "ends"} and {@code "maxgrpn"} attributes describing the groups of equal elements.
+     */
+    @TruffleBoundary
+    public static RIntVector order(RAbstractVector[] vectors, boolean[] decreasing, byte naLast, boolean retgrp, boolean sortstr) {
+        RadixOrder radixOrder = new RadixOrder(vectors, decreasing, naLast, retgrp);
+        radixOrder.prepareStrings(sortstr);
+        return radixOrder.execute();
+    }
+
+    private RIntVector execute() {
+        order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        if (retgrp) {
+            groupKeys = new long[vectors.length * 2][];
+            groupMissing = new boolean[vectors.length * 2][];
+        }
+        tmpOrder = new int[n];
+        current = new long[n];
+        tmpCurrent = new long[n];
+        counts = new int[RADIX_SIZE];
+        boolean[] anyMissing = RRuntime.isNA(naLast) ? new boolean[n] : null;
+        for (int k = vectors.length - 1; k >= 0; k--) {
+            sortKey(k, anyMissing);
+        }
+        if (anyMissing != null) {
+            removeMissing(anyMissing);
+        }
+        for (int i = 0; i < order.length; i++) {
+            order[i]++;
+        }
+        RIntVector result = RDataFactory.createIntVector(order, RDataFactory.COMPLETE_VECTOR);
+        if (retgrp) {
+            setGroupAttributes(result);
+        }
+        return result;
+    }
+
+    private void sortKey(int k, boolean[] anyMissing) {
+        RAbstractVector v = vectors[k];
+        boolean dec = decreasing[k];
+        long[] keys = new long[n];
+        boolean[] missing = new boolean[n];
+        boolean hasMissing;
+        if (v instanceof RComplexVector) {
+            // the imaginary part is the less significant one, so it goes first
+            long[] imKeys = new long[n];
+            hasMissing = encodeComplex((RComplexVector) v, dec, keys, imKeys, missing);
+            sortByKey(imKeys);
+            retainGroupKey(2 * k + 1, imKeys, missing);
+        } else if (v instanceof RDoubleVector) {
+            hasMissing = encodeDouble((RDoubleVector) v, dec, keys, missing);
+        } else if (v instanceof RIntVector) {
+            hasMissing = encodeInt((RIntVector) v, dec, keys, missing);
+        } else if (v instanceof RLogicalVector) {
+            hasMissing = encodeLogical((RLogicalVector) v, dec, keys, missing);
+        } else if (v instanceof RStringVector) {
+            hasMissing = stringCache.encode((RStringVector) v, dec, keys, missing);
+        } else {
+            throw RInternalError.shouldNotReachHere("unexpected vector type in radix order");
+        }
+        sortByKey(keys);
+        retainGroupKey(2 * k, keys, missing);
+        if (hasMissing) {
+            partitionMissing(missing);
+            if (anyMissing != null) {
+                for (int i = 0; i < n; i++) {
+                    anyMissing[i] |= missing[i];
+                }
+            }
+        }
+    }
+
+    private void retainGroupKey(int index, long[] keys, boolean[] missing) {
+        if (retgrp) {
+            groupKeys[index] = keys;
+            groupMissing[index] = missing;
+        }
+    }
+
+    private static boolean encodeInt(RIntVector v, boolean dec, long[] keys, boolean[] missing) {
+        int[] data = v.getReadonlyData();
+        boolean hasMissing = false;
+        for (int i = 0; i < keys.length; i++) {
+            int x = data[i];
+            if (RRuntime.isNA(x)) {
+                hasMissing = true;
+                missing[i] = true;
+                keys[i] = NA_KEY;
+            } else {
+                long u = (x ^ Integer.MIN_VALUE) & 0xFFFFFFFFL;
+                keys[i] = dec ? 0xFFFFFFFFL - u : u;
+            }
+        }
+        return hasMissing;
+    }
+
+    private static boolean encodeLogical(RLogicalVector v, boolean dec, long[] keys, boolean[] missing) {
+        byte[] data = v.getReadonlyData();
+        boolean hasMissing = false;
+        for (int i = 0; i < keys.length; i++) {
+            byte x = data[i];
+            if (RRuntime.isNA(x)) {
+                hasMissing = true;
+                missing[i] = true;
+                keys[i] = NA_KEY;
+            } else {
+                keys[i] = dec ? RRuntime.LOGICAL_TRUE - x : x;
+            }
+        }
+        return hasMissing;
+    }
+
+    private static boolean encodeDouble(RDoubleVector v, boolean dec, long[] keys, boolean[] missing) {
+        double[] data = v.getReadonlyData();
+        boolean hasMissing = false;
+        for (int i = 0; i < keys.length; i++) {
+            double x = data[i];
+            if (Double.isNaN(x)) {
+                hasMissing = true;
+                missing[i] = true;
+                keys[i] = RRuntime.isNA(x) ? NA_KEY : NAN_KEY;
+            } else {
+                keys[i] = doubleKey(x, dec);
+            }
+        }
+        return hasMissing;
+    }
+
+    private static boolean encodeComplex(RComplexVector v, boolean dec, long[] reKeys, long[] imKeys, boolean[] missing) {
+        double[] data = v.getReadonlyData();
+        boolean hasMissing = false;
+        for (int i = 0; i < reKeys.length; i++) {
+            double re = data[2 * i];
+            double im = data[2 * i + 1];
+            if (Double.isNaN(re) || Double.isNaN(im)) {
+                hasMissing = true;
+                missing[i] = true;
+                reKeys[i] = RRuntime.isNA(re) || RRuntime.isNA(im) ? NA_KEY : NAN_KEY;
+                imKeys[i] = NA_KEY;
+            } else {
+                reKeys[i] = doubleKey(re, dec);
+                imKeys[i] = doubleKey(im, dec);
+            }
+        }
+        return hasMissing;
+    }
+
+    /**
+     * Maps a non-NaN double to a long such that the unsigned ordering of the results matches the
+     * numerical ordering of the inputs: negative numbers get all bits flipped, positive numbers
+     * just the sign bit. Negative zero is normalized so that it ties with positive zero.
+     */
+    private static long doubleKey(double x, boolean dec) {
+        long bits = Double.doubleToRawLongBits(x == 0.0 ? 0.0 : x);
+        long key = bits ^ ((bits >> 63) | Long.MIN_VALUE);
+        return dec ? ~key : key;
+    }
+
+    /**
+     * Stable LSD radix pass(es) reordering {@link #order} by the given keys (indexed by original
+     * position). Only the digits spanned by the range of the keys are processed and passes in
+     * which all elements fall into one bucket are skipped.
+     */
+    private void sortByKey(long[] keys) {
+        long[] cur = current;
+        int[] ord = order;
+        long min = -1L;
+        long max = 0L;
+        for (int i = 0; i < n; i++) {
+            long key = keys[ord[i]];
+            cur[i] = key;
+            if (Long.compareUnsigned(key, min) < 0) {
+                min = key;
+            }
+            if (Long.compareUnsigned(key, max) > 0) {
+                max = key;
+            }
+        }
+        if (n < 2 || min == max) {
+            return;
+        }
+        for (int i = 0; i < n; i++) {
+            cur[i] -= min;
+        }
+        int bits = 64 - Long.numberOfLeadingZeros(max - min);
+        long[] dstCur = tmpCurrent;
+        int[] dstOrd = tmpOrder;
+        int[] cnt = counts;
+        for (int shift = 0; shift < bits; shift += RADIX_BITS) {
+            Arrays.fill(cnt, 0);
+            for (int i = 0; i < n; i++) {
+                cnt[(int) (cur[i] >>> shift) & RADIX_MASK]++;
+            }
+            if (cnt[(int) (cur[0] >>> shift) & RADIX_MASK] == n) {
+                // all elements share this digit
+                continue;
+            }
+            int sum = 0;
+            for (int d = 0; d < RADIX_SIZE; d++) {
+                int c = cnt[d];
+                cnt[d] = sum;
+                sum += c;
+            }
+            for (int i = 0; i < n; i++) {
+                int pos = cnt[(int) (cur[i] >>> shift) & RADIX_MASK]++;
+                dstCur[pos] = cur[i];
+                dstOrd[pos] = ord[i];
+            }
+            long[] swapCur = cur;
+            cur = dstCur;
+            dstCur = swapCur;
+            int[] swapOrd = ord;
+            ord = dstOrd;
+            dstOrd = swapOrd;
+        }
+        // keep the scratch arrays and the result in their fields, whichever way they ended up
+        order = ord;
+        tmpOrder = dstOrd;
+        current = cur;
+        tmpCurrent = dstCur;
+    }
+
+    /**
+     * Stable partition moving missing elements to the end or to the front according to
+     * {@code na.last}. With {@code na.last = NA} they go to the end and are removed later.
+     */
+    private void partitionMissing(boolean[] missing) {
+        boolean last = naLast != RRuntime.LOGICAL_FALSE;
+        int[] ord = order;
+        int[] dst = tmpOrder;
+        int missingCount = 0;
+        for (int i = 0; i < n; i++) {
+            if (missing[ord[i]]) {
+                missingCount++;
+            }
+        }
+        int present = last ? 0 : missingCount;
+        int absent = last ? n - missingCount : 0;
+        for (int i = 0; i < n; i++) {
+            int idx = ord[i];
+            if (missing[idx]) {
+                dst[absent++] = idx;
+            } else {
+                dst[present++] = idx;
+            }
+        }
+        order = dst;
+        tmpOrder = ord;
+    }
+
+    private void removeMissing(boolean[] anyMissing) {
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            if (!anyMissing[order[i]]) {
+                count++;
+            }
+        }
+        if (count == n) {
+            return;
+        }
+        int[] result = new int[count];
+        for (int i = 0, j = 0; i < n; i++) {
+            int idx = order[i];
+            if (!anyMissing[idx]) {
+                result[j++] = idx;
+            }
+        }
+        order = result;
+    }
+
+    private boolean sameGroup(int a, int b) {
+        for (int k = 0; k < groupKeys.length; k++) {
+            long[] keys = groupKeys[k];
+            if (keys != null && (keys[a] != keys[b] || groupMissing[k][a] != groupMissing[k][b])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void setGroupAttributes(RIntVector result) {
+        int len = order.length;
+        int[] ends = new int[len];
+        int groups = 0;
+        int maxgrpn = 0;
+        int start = 0;
+        for (int i = 1; i <= len; i++) {
+            // order is 1-based at this point
+            if (i == len || !sameGroup(order[i - 1] - 1, order[i] - 1)) {
+                ends[groups++] = i;
+                maxgrpn = Math.max(maxgrpn, i - start);
+                start = i;
+            }
+        }
+        int[] endsData = new int[groups];
+        System.arraycopy(ends, 0, endsData, 0, groups);
+        result.setAttr("ends", RDataFactory.createIntVector(endsData, RDataFactory.COMPLETE_VECTOR));
+        result.setAttr("maxgrpn", RDataFactory.createIntVectorFromScalar(maxgrpn));
+    }
+
+    private void prepareStrings(boolean sortstr) {
+        boolean hasStrings = false;
+        int total = 0;
+        for (RAbstractVector v : vectors) {
+            if (v instanceof RStringVector) {
+                hasStrings = true;
+                total += v.getLength();
+            }
+        }
+        if (hasStrings) {
+            stringCache = new StringCache(total);
+            for (RAbstractVector v : vectors) {
+                if (v instanceof RStringVector) {
+                    stringCache.add((RStringVector) v);
+                }
+            }
+            stringCache.rank(sortstr);
+        }
+    }
+
+    /**
+     * Maps all the distinct strings of one radix ordering call to their ranks.
+     */
+    private static final class StringCache {
+
+        private final NonRecursiveHashMapCharacter indices;
+        private final ArrayListObj<String> uniques;
+        private int[] ranks;
+
+        StringCache(int approxCapacity) {
+            indices = new NonRecursiveHashMapCharacter(approxCapacity);
+            uniques = new ArrayListObj<>(16);
+        }
+
+        void add(RStringVector v) {
+            String[] data = v.getReadonlyStringData();
+            for (int i = 0; i < v.getLength(); i++) {
+                String s = data[i];
+                if (!RRuntime.isNA(s) && indices.get(s) < 0) {
+                    indices.put(s, uniques.size());
+                    uniques.add(s);
+                }
+            }
+        }
+
+        void rank(boolean sortstr) {
+            int size = uniques.size();
+            ranks = new int[size];
+            if (sortstr) {
+                byte[][] bytes = new byte[size][];
+                int[] sorted = new int[size];
+                for (int i = 0; i < size; i++) {
+                    bytes[i] = uniques.get(i).getBytes(StandardCharsets.UTF_8);
+                    sorted[i] = i;
+                }
+                msdSort(bytes, sorted);
+                for (int i = 0; i < size; i++) {
+                    ranks[sorted[i]] = i;
+                }
+            } else {
+                for (int i = 0; i < size; i++) {
+                    ranks[i] = i;
+                }
+            }
+        }
+
+        boolean encode(RStringVector v, boolean dec, long[] keys, boolean[] missing) {
+            String[] data = v.getReadonlyStringData();
+            int maxRank = ranks.length - 1;
+            boolean hasMissing = false;
+            for (int i = 0; i < keys.length; i++) {
+                String s = data[i];
+                if (RRuntime.isNA(s)) {
+                    hasMissing = true;
+                    missing[i] = true;
+                    keys[i] = NA_KEY;
+                } else {
+                    int r = ranks[indices.get(s)];
+                    keys[i] = dec ? maxRank - r : r;
+                }
+            }
+            return hasMissing;
+        }
+
+        /**
+         * Byte-wise MSD radix sort of the indices into {@code bytes}. Buckets are processed from an
+         * explicit work list rather than recursively, because strings with long common prefixes
+         * would otherwise lead to a deep recursion.
+         */
+        private static void msdSort(byte[][] bytes, int[] idx) {
+            int[] tmp = new int[idx.length];
+            // bucket 0 holds the strings that end at the current depth
+            int[] cnt = new int[257 + 1];
+            ArrayListObj<int[]> work = new ArrayListObj<>(16);
+            work.add(new int[]{0, idx.length, 0});
+            while (work.size() > 0) {
+                int[] item = (int[]) work.pop();
+                int lo = item[0];
+                int hi = item[1];
+                int depth = item[2];
+                if (hi - lo <= STRING_INSERTION_SORT_THRESHOLD) {
+                    insertionSort(bytes, idx, lo, hi, depth);
+                    continue;
+                }
+                Arrays.fill(cnt, 0);
+                for (int i = lo; i < hi; i++) {
+                    cnt[charAt(bytes[idx[i]], depth) + 2]++;
+                }
+                for (int d = 0; d < 257; d++) {
+                    cnt[d + 1] += cnt[d];
+                }
+                for (int i = lo; i < hi; i++) {
+                    tmp[lo + cnt[charAt(bytes[idx[i]], depth) + 1]++] = idx[i];
+                }
+                System.arraycopy(tmp, lo, idx, lo, hi - lo);
+                // cnt[d] is now the end of bucket d; bucket 0 (end of string) needs no more work
+                for (int d = 1; d < 257; d++) {
+                    int bucketLo = lo + cnt[d - 1];
+                    int bucketHi = lo + cnt[d];
+                    if (bucketHi - bucketLo > 1) {
+                        work.add(new int[]{bucketLo, bucketHi, depth + 1});
+                    }
+                }
+            }
+        }
+
+        /**
+         * Returns the unsigned byte at {@code depth}, or {@code -1} past the end of the string.
+         */
+        private static int charAt(byte[] s, int depth) {
+            return depth < s.length ? s[depth] & 0xFF : -1;
+        }
+
+        private static void insertionSort(byte[][] bytes, int[] idx, int lo, int hi, int depth) {
+            for (int i = lo + 1; i < hi; i++) {
+                int cur = idx[i];
+                int j = i;
+                while (j > lo && compare(bytes[idx[j - 1]], bytes[cur], depth) > 0) {
+                    idx[j] = idx[j - 1];
+                    j--;
+                }
+                idx[j] = cur;
+            }
+        }
+
+        private static int compare(byte[] a, byte[] b, int depth) {
+            int len = Math.min(a.length, b.length);
+            for (int i = depth; i < len; i++) {
+                int c = (a[i] & 0xFF) - (b[i] & 0xFF);
+                if (c != 0) {
+                    return c;
+                }
+            }
+            return a.length - b.length;
+        }
+    }
+}
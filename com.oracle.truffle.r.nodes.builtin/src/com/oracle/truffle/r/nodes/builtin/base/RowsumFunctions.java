@@ -31,18 +31,17 @@ import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.toBoolean;
 import static com.oracle.truffle.r.runtime.builtins.RBehavior.PURE;
 import static com.oracle.truffle.r.runtime.builtins.RBuiltinKind.INTERNAL;
 
-import java.util.HashMap;
-
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.api.library.CachedLibrary;
 import com.oracle.truffle.api.profiles.ConditionProfile;
+import com.oracle.truffle.r.nodes.builtin.Match5Node;
 import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
 import com.oracle.truffle.r.runtime.RError;
 import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.builtins.RBuiltin;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
-import com.oracle.truffle.r.runtime.data.RDoubleVector;
 import com.oracle.truffle.r.runtime.data.RFunction;
 import com.oracle.truffle.r.runtime.data.RIntVector;
 import com.oracle.truffle.r.runtime.data.RList;
@@ -79,43 +78,36 @@ public class RowsumFunctions {
         @Specialization(limit = "getGenericDataLibraryCacheSize()")
         @TruffleBoundary
         protected Object rowsum(RAbstractVector xv, RAbstractVector g, RAbstractVector uniqueg, boolean narm, RStringVector rn,
-                        @CachedLibrary("xv.getData()") VectorDataLibrary xvDataLib) {
+                        @CachedLibrary("xv.getData()") VectorDataLibrary xvDataLib,
+                        @Cached Match5Node matchNode) {
             int p = xv.isMatrix() ? xv.getDimensions()[1] : 1;
             int n = g.getLength();
             int ng = uniqueg.getLength();
-            HashMap<Object, Integer> table = new HashMap<>();
-            for (int i = 0; i < ng; i++) {
-                // uniqueg has no duplicates (by definition)
-                table.put(uniqueg.getDataAtAsObject(i), i);
-            }
-            int[] matches = new int[n];
-            for (int i = 0; i < n; i++) {
-                Integer hi = table.get(g.getDataAtAsObject(i));
-                matches[i] = hi + 1;
-            }
+            // group index of each row, computed by the hash based match, as in GnuR
+            int[] matches = getMatches(matchNode.execute(g, uniqueg, 0, RNull.instance));
             int offset = 0;
             int offsetg = 0;
 
             boolean isInt = xv instanceof RIntVector;
             RAbstractVector result;
             na.enable(xv);
-            boolean complete = xvDataLib.isComplete(xv.getData());
+            Object xvData = xv.getData();
+            boolean complete = xvDataLib.isComplete(xvData);
 
             if (typeProfile.profile(isInt)) {
-                RIntVector xi = (RIntVector) xv;
                 int[] ansi = new int[ng * p];
                 for (int i = 0; i < p; i++) {
                     for (int j = 0; j < n; j++) {
                         int midx = matches[j] - 1 + offsetg;
                         int itmp = ansi[midx];
-                        if (na.check(xi.getDataAt(j + offset))) {
+                        int jtmp = xvDataLib.getIntAt(xvData, j + offset);
+                        if (na.check(jtmp)) {
                             if (!narm) {
                                 ansi[midx] = RRuntime.INT_NA;
                                 complete = RDataFactory.INCOMPLETE_VECTOR;
                             }
                         } else if (!na.check(itmp)) {
                             long dtmp = itmp;
-                            int jtmp = xi.getDataAt(j + offset);
                             dtmp += jtmp;
                             if (dtmp < Integer.MIN_VALUE || dtmp > Integer.MAX_VALUE) {
                                 itmp = RRuntime.INT_NA;
@@ -131,12 +123,11 @@ public class RowsumFunctions {
                 }
                 result = RDataFactory.createIntVector(ansi, complete, new int[]{ng, p});
             } else {
-                RDoubleVector xd = (RDoubleVector) xv;
                 double[] ansd = new double[ng * p];
                 for (int i = 0; i < p; i++) {
                     for (int j = 0; j < n; j++) {
                         int midx = matches[j] - 1 + offsetg;
-                        double dtmp = xd.getDataAt(j + offset);
+                        double dtmp = xvDataLib.getDoubleAt(xvData, j + offset);
                         if (!narm || !Double.isNaN(dtmp)) {
                             ansd[midx] += dtmp;
                         }
@@ -146,7 +137,7 @@ public class RowsumFunctions {
                 }
                 result = RDataFactory.createDoubleVector(ansd, complete, new int[]{ng, p});
             }
-            RList dn2 = xv.materialize().getDimNames();
+            RList dn2 = xv.getDimNames();
             Object dn2Obj = RNull.instance;
             if (dn2 != null && dn2.getLength() >= 2 && dn2.getDataAt(1) != RNull.instance) {
                 dn2Obj = dn2.getDataAt(1);
@@ -155,5 +146,12 @@ public class RowsumFunctions {
             result.setDimNames(dimNames);
             return result;
         }
+
+        private static int[] getMatches(Object matches) {
+            if (matches instanceof Integer) {
+                return new int[]{(Integer) matches};
+            }
+            return ((RIntVector) matches).getReadonlyData();
+        }
     }
 }
@@ -59,6 +59,12 @@ import com.oracle.truffle.r.runtime.rng.RRNG;
 
 @RBuiltin(name = "sample", kind = INTERNAL, parameterNames = {"x", "size", "replace", "prob"}, behavior = MODIFIES_STATE)
 public abstract class Sample extends RBuiltinNode.Arg4 {
+    /**
+     * Populations from which the weighted sampling without replacement searches the cumulative
+     * probabilities in a tree instead of scanning them linearly.
+     */
+    private static final int TREE_MIN_POPULATION = 1000;
+
     private final ConditionProfile sampleSizeProfile = ConditionProfile.createBinaryProfile();
 
     static {
@@ -120,8 +126,7 @@ public abstract class Sample extends RBuiltinNode.Arg4 {
             }
         }
         if (nc > 200) {
-            // TODO implement walker
-            throw new UnsupportedOperationException("walker_ProbSampleReplace is not yet implemented");
+            return RDataFactory.createIntVector(walkerProbSampleReplace(x, probArray, size), RDataFactory.COMPLETE_VECTOR);
         } else {
             return RDataFactory.createIntVector(probSampleReplace(x, probArray, size), RDataFactory.COMPLETE_VECTOR);
         }
@@ -132,6 +137,9 @@ public abstract class Sample extends RBuiltinNode.Arg4 {
     protected RIntVector doSampleNoReplacement(final int x, final int size, final boolean isRepeatable, final RDoubleVector prob) {
         double[] probArray = prob.materialize().getDataCopy();
         fixupProbability(probArray, x, size, isRepeatable);
+        if (x >= TREE_MIN_POPULATION && size > 1) {
+            return RDataFactory.createIntVector(treeProbSampleWithoutReplace(x, probArray, size), RDataFactory.COMPLETE_VECTOR);
+        }
         return RDataFactory.createIntVector(probSampleWithoutReplace(x, probArray, size), RDataFactory.COMPLETE_VECTOR);
     }
 
@@ -243,6 +251,113 @@ public abstract class Sample extends RBuiltinNode.Arg4 {
         return ans;
     }
 
+    @TruffleBoundary
+    private static int[] walkerProbSampleReplace(int n, double[] probArray, int resultSize) {
+        // The following code is transcribed from GNU R src/main/random.c function
+        // walker_ProbSampleReplace, the RNG is consumed in the same way.
+        int[] hl = new int[n];
+        double[] q = new double[n];
+        int[] a = new int[n];
+        // hl[0..h] label the entries with q < 1 and hl[l..n-1] those with q >= 1
+        int h = -1;
+        int l = n;
+        for (int i = 0; i < n; i++) {
+            q[i] = probArray[i] * n;
+            if (q[i] < 1.) {
+                hl[++h] = i;
+            } else {
+                hl[--l] = i;
+            }
+        }
+        if (h >= 0 && l < n) {
+            for (int k = 0; k < n - 1; k++) {
+                int i = hl[k];
+                int j = hl[l];
+                a[i] = j;
+                q[j] += q[i] - 1;
+                if (q[j] < 1.) {
+                    l++;
+                }
+                if (l >= n) {
+                    break;
+                }
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            q[i] += i;
+        }
+        int[] result = new int[resultSize];
+        for (int i = 0; i < resultSize; i++) {
+            double rU = RRNG.unifRand() * n;
+            int k = (int) rU;
+            result[i] = (rU < q[k]) ? k + 1 : a[k] + 1;
+        }
+        return result;
+    }
+
+    /**
+     * Same as {@link #probSampleWithoutReplace(int, double[], int)}, including the order of the
+     * probabilities and the consumption of the RNG, but the drawn index is found in a Fenwick tree
+     * of the remaining probabilities, so each sample takes {@code O(log n)} instead of
+     * {@code O(n)}. The cumulative sums are added up in a different order than in the linear scan,
+     * so a uniform falling within rounding distance of a boundary may select the neighbouring
+     * index.
+     */
+    @TruffleBoundary
+    private static int[] treeProbSampleWithoutReplace(int n, double[] probArray, int resultSize) {
+        int[] ans = new int[resultSize];
+        int[] perm = new int[n];
+        for (int i = 0; i < n; i++) {
+            perm[i] = i + 1;
+        }
+        heapSort(perm, probArray);
+        // tree[i] holds the sum of probArray[i - lowbit(i), i) (one-based)
+        double[] tree = new double[n + 1];
+        for (int i = 1; i <= n; i++) {
+            tree[i] += probArray[i - 1];
+            int parent = i + (i & -i);
+            if (parent <= n) {
+                tree[parent] += tree[i];
+            }
+        }
+        boolean[] taken = new boolean[n];
+        int last = n - 1;
+        int topBit = Integer.highestOneBit(n);
+        double totalMass = 1;
+        for (int i = 0; i < resultSize; i++) {
+            double rT = totalMass * RRNG.unifRand();
+            // find the first index whose cumulative probability is >= rT
+            int pos = 0;
+            for (int step = topBit; step > 0; step >>= 1) {
+                int next = pos + step;
+                if (next <= n && tree[next] < rT) {
+                    pos = next;
+                    rT -= tree[next];
+                }
+            }
+            int j = pos;
+            // rounding residues of removed entries may stop the search early or rT may exceed the
+            // remaining mass, in the latter case the linear scan takes the last index as well
+            while (j < last && taken[j]) {
+                j++;
+            }
+            if (j > last) {
+                j = last;
+            }
+            ans[i] = perm[j];
+            totalMass -= probArray[j];
+            taken[j] = true;
+            for (int k = j + 1; k <= n; k += k & -k) {
+                tree[k] -= probArray[j];
+            }
+            probArray[j] = 0;
+            while (last > 0 && taken[last]) {
+                last--;
+            }
+        }
+        return ans;
+    }
+
     @TruffleBoundary
     private static void buildheap(double[] keys, int[] values) {
         for (int i = (keys.length >> 1); i >= 0; i--) {
@@ -1,7 +1,7 @@
 /*
  * Copyright (c) 1995-2012, The R Core Team
  * Copyright (c) 2003, The R Foundation
- * Copyright (c) 2014, 2020, Oracle and/or its affiliates
+ * Copyright (c) 2014, 2021, Oracle and/or its affiliates
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -24,6 +24,8 @@ import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.stringValue;
 import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.toBoolean;
 
 import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.dsl.Specialization;
@@ -38,9 +40,12 @@ import com.oracle.truffle.r.runtime.RError.Message;
 import com.oracle.truffle.r.runtime.RInternalError;
 import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.conn.RConnection;
+import com.oracle.truffle.r.runtime.context.FastROptions;
+import com.oracle.truffle.r.runtime.context.RContext;
 import com.oracle.truffle.r.runtime.data.RAttributable;
 import com.oracle.truffle.r.runtime.data.RComplex;
 import com.oracle.truffle.r.runtime.data.RComplexVector;
+import com.oracle.truffle.r.runtime.data.RDataFactory;
 import com.oracle.truffle.r.runtime.data.RDoubleVector;
 import com.oracle.truffle.r.runtime.data.RIntVector;
 import com.oracle.truffle.r.runtime.data.RLogicalVector;
@@ -55,6 +60,11 @@ import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
 
 public abstract class WriteTable extends RExternalBuiltinNode.Arg11 {
 
+    /**
+     * Approximate number of cells that are formatted into one string written to the connection.
+     */
+    private static final int BLOCK_CELLS = 1 << 16;
+
     static {
         Casts casts = new Casts(WriteTable.class);
         // file
@@ -97,8 +107,9 @@ public abstract class WriteTable extends RExternalBuiltinNode.Arg11 {
             }
         }
         try (RConnection con = RConnection.fromIndex(file).forceOpen("wt")) {
+            Column[] columns;
             if (xx instanceof RAttributable && ClassHierarchyNode.hasClass((RAttributable) xx, RRuntime.CLASS_DATA_FRAME)) {
-                executeDataFrame(con, (RAbstractVector) xx, nr, nc, rnames, csep, ceol, cna, cdec, qmethod, quoteCol, quoteRn);
+                columns = getDataFrameColumns((RAbstractVector) xx, nr, nc, cdec, qmethod, quoteCol);
             } else { /* A matrix */
 
                 // if (!isVectorAtomic(x))
@@ -108,41 +119,30 @@ public abstract class WriteTable extends RExternalBuiltinNode.Arg11 {
                 if (x.getLength() != nr * nc) {
                     throw new IllegalArgumentException("corrupt matrix -- dims not not match length");
                 }
-
-                StringBuilder tmp = new StringBuilder();
-                for (int i = 0; i < nr; i++) {
-                    if (!(rnames instanceof RNull)) {
-                        tmp.append(encodeElement2((RStringVector) rnames, i, quoteRn, qmethod, cdec));
-                        tmp.append(csep);
-                    }
-                    for (int j = 0; j < nc; j++) {
-                        if (j > 0) {
-                            tmp.append(csep);
-                        }
-                        if (isna(x, i + j * nr)) {
-                            tmp.append(cna);
-                        } else {
-                            tmp.append(encodeElement2(x, i + j * nr, quoteCol[j], qmethod, cdec));
-                            /* if(cdec) change_dec(tmp, cdec, TYPEOF(x)); */
-                        }
-                    }
-                    tmp.append(ceol);
-                    con.writeString(tmp.toString(), false);
-                    tmp.setLength(0);
+                columns = new Column[nc];
+                Object data = getColumnData(x);
+                for (int j = 0; j < nc; j++) {
+                    columns[j] = createColumn(data, j * nr, cdec, quoteCol[j], qmethod);
                 }
             }
+            Column rowNames = null;
+            if (!(rnames instanceof RNull)) {
+                RStringVector names = (RStringVector) rnames;
+                if (names.getLength() < nr) {
+                    throw new IllegalArgumentException("index out of range");
+                }
+                rowNames = new StringColumn(names.getReadonlyStringData(), 0, quoteRn, qmethod, false);
+            }
+            new TableFormatter(rowNames, columns, csep, ceol, cna).write(con, nr, isParallel(nr, nc, columns));
         } catch (IOException | IllegalArgumentException ex) {
             throw RError.error(RError.SHOW_CALLER, RError.Message.GENERIC, ex.getMessage());
         }
         return RNull.instance;
     }
 
-    private static void executeDataFrame(RConnection con, RAbstractVector x, int nr, int nc, Object rnames, String csep, String ceol, String cna, char cdec, boolean qmethod, boolean[] quoteCol,
-                    boolean quoteRn)
-                    throws IOException {
-
+    private static Column[] getDataFrameColumns(RAbstractVector x, int nr, int nc, char cdec, boolean qmethod, boolean[] quoteCol) {
         /* handle factors internally, check integrity */
-        RStringVector[] levels = new RStringVector[nc];
+        Column[] columns = new Column[nc];
         for (int j = 0; j < nc; j++) {
             Object xjObj = x.getDataAtAsObject(j);
             if (xjObj instanceof RAbstractContainer) {
@@ -151,143 +151,380 @@ public abstract class WriteTable extends RExternalBuiltinNode.Arg11 {
                     throw new IllegalArgumentException("corrupt data frame -- length of column " + (j + 1) + " does not not match nrows");
                 }
                 if (isFactor(xj)) {
-                    levels[j] = (RStringVector) DynamicObjectLibrary.getUncached().getOrDefault(xj.getAttributes(), "levels", null);
+                    RStringVector levels = (RStringVector) DynamicObjectLibrary.getUncached().getOrDefault(xj.getAttributes(), "levels", null);
+                    columns[j] = createFactorColumn(((RIntVector) xj).getReadonlyData(), levels, quoteCol[j], qmethod);
+                } else {
+                    columns[j] = createColumn(getColumnData((RAbstractVector) xj), 0, cdec, quoteCol[j], qmethod);
                 }
             } else {
                 if (nr != 1) {
                     throw new IllegalArgumentException("corrupt data frame -- length of column " + (j + 1) + " does not not match nrows");
                 }
+                columns[j] = createColumn(getScalarData(xjObj), 0, cdec, quoteCol[j], qmethod);
             }
         }
+        return columns;
+    }
 
-        StringBuilder tmp = new StringBuilder();
-        for (int i = 0; i < nr; i++) {
-            // if (i % 1000 == 999)
-            // R_CheckUserInterrupt();
-            if (!(rnames instanceof RNull)) {
-                tmp.append(encodeElement2((RStringVector) rnames, i, quoteRn, qmethod, cdec)).append(csep);
+    /**
+     * Extracts the data of an atomic vector, so that the columns can be formatted without
+     * accessing any R objects.
+     */
+    private static Object getColumnData(RAbstractVector x) {
+        if (x instanceof RDoubleVector) {
+            return ((RDoubleVector) x).getReadonlyData();
+        } else if (x instanceof RIntVector) {
+            return ((RIntVector) x).getReadonlyData();
+        } else if (x instanceof RLogicalVector) {
+            return new LogicalData(((RLogicalVector) x).getReadonlyData());
+        } else if (x instanceof RStringVector) {
+            return ((RStringVector) x).getReadonlyStringData();
+        } else if (x instanceof RComplexVector) {
+            return x;
+        } else if (x instanceof RRawVector) {
+            return ((RRawVector) x).getReadonlyData();
+        }
+        throw RInternalError.unimplemented();
+    }
+
+    private static Object getScalarData(Object o) {
+        if (o instanceof Integer) {
+            return new int[]{(int) o};
+        } else if (o instanceof Double) {
+            return new double[]{(double) o};
+        } else if (o instanceof Byte) {
+            return new LogicalData(new byte[]{(byte) o});
+        } else if (o instanceof String) {
+            return new String[]{(String) o};
+        } else if (o instanceof RComplex) {
+            return RDataFactory.createComplexVectorFromScalar((RComplex) o);
+        } else if (o instanceof RRaw) {
+            return new byte[]{((RRaw) o).getValue()};
+        }
+        throw RInternalError.unimplemented();
+    }
+
+    private static Column createColumn(Object data, int offset, char cdec, boolean quote, boolean qmethod) {
+        if (data instanceof double[]) {
+            return new DoubleColumn((double[]) data, offset, cdec);
+        } else if (data instanceof int[]) {
+            return new IntColumn((int[]) data, offset);
+        } else if (data instanceof LogicalData) {
+            return new LogicalColumn(((LogicalData) data).data, offset);
+        } else if (data instanceof String[]) {
+            return new StringColumn((String[]) data, offset, quote, qmethod, true);
+        } else if (data instanceof RComplexVector) {
+            return new ComplexColumn((RComplexVector) data, offset, cdec);
+        } else {
+            return new RawColumn((byte[]) data, offset);
+        }
+    }
+
+    private static Column createFactorColumn(int[] codes, RStringVector levels, boolean quote, boolean qmethod) {
+        int nlevels = levels == null ? 0 : levels.getLength();
+        for (int code : codes) {
+            if (!RRuntime.isNA(code) && (code < 1 || code > nlevels)) {
+                throw new IllegalArgumentException("index out of range");
             }
-            for (int j = 0; j < nc; j++) {
-                Object xjObj = x.getDataAtAsObject(j);
-                if (j > 0) {
-                    tmp.append(csep);
+        }
+        // every level is encoded only once
+        String[] encoded = new String[nlevels];
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < nlevels; i++) {
+            appendString(sb, levels.getDataAt(i), quote, qmethod);
+            encoded[i] = sb.toString();
+            sb.setLength(0);
+        }
+        return new FactorColumn(codes, encoded);
+    }
+
+    private static boolean isParallel(int nr, int nc, Column[] columns) {
+        int threshold = RContext.getInstance().getOption(FastROptions.WriteTableParallelThreshold);
+        if (threshold <= 0 || (long) nr * (nc + 1) < threshold || ForkJoinPool.getCommonPoolParallelism() <= 1) {
+            return false;
+        }
+        for (Column column : columns) {
+            if (!column.isThreadSafe()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Formats the rows in blocks of {@link #BLOCK_CELLS} cells, each block is handed to the
+     * connection as one string. In parallel mode, a wave of blocks is formatted by the common
+     * fork-join pool and then written in order; the buffers are reused by the subsequent waves.
+     */
+    private static final class TableFormatter {
+        private final Column rowNames;
+        private final Column[] columns;
+        private final String csep;
+        private final String ceol;
+        private final String cna;
+
+        TableFormatter(Column rowNames, Column[] columns, String csep, String ceol, String cna) {
+            this.rowNames = rowNames;
+            this.columns = columns;
+            this.csep = csep;
+            this.ceol = ceol;
+            this.cna = cna;
+        }
+
+        void write(RConnection con, int nr, boolean parallel) throws IOException {
+            int blockRows = Math.max(1, BLOCK_CELLS / (columns.length + 1));
+            int blocks = (int) (((long) nr + blockRows - 1) / blockRows);
+            StringBuilder[] buffers = new StringBuilder[parallel ? Math.min(blocks, ForkJoinPool.getCommonPoolParallelism() * 2) : 1];
+            for (int i = 0; i < buffers.length; i++) {
+                buffers[i] = new StringBuilder();
+            }
+            for (int block = 0; block < blocks; block += buffers.length) {
+                int wave = Math.min(buffers.length, blocks - block);
+                if (wave > 1) {
+                    ForkJoinPool.commonPool().invoke(new FormatTask(this, buffers, block, blockRows, nr, 0, wave));
+                } else {
+                    formatRows(buffers[0], block * blockRows, Math.min(nr, (block + 1) * blockRows));
+                }
+                for (int i = 0; i < wave; i++) {
+                    con.writeString(buffers[i].toString(), false);
+                    buffers[i].setLength(0);
+                }
+            }
+        }
+
+        void formatRows(StringBuilder sb, int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (rowNames != null) {
+                    rowNames.append(sb, i, cna);
+                    sb.append(csep);
                 }
-                if (xjObj instanceof RAbstractContainer) {
-                    RAbstractContainer xj = (RAbstractContainer) xjObj;
-                    if (isna(xj, i)) {
-                        tmp.append(cna);
-                    } else {
-                        if (levels[j] != null) {
-                            tmp.append(encodeElement2(levels[j], (int) xj.getDataAtAsObject(i) - 1, quoteCol[j], qmethod, cdec));
-                        } else {
-                            tmp.append(encodeElement2((RAbstractVector) xj, i, quoteCol[j], qmethod, cdec));
-                        }
-                        /* if(cdec) change_dec(tmp, cdec, TYPEOF(xj)); */
+                for (int j = 0; j < columns.length; j++) {
+                    if (j > 0) {
+                        sb.append(csep);
                     }
-                } else {
-                    tmp.append(encodePrimitiveElement(xjObj, cna, quoteRn, qmethod));
-                    /* if(cdec) change_dec(tmp, cdec, TYPEOF(xj)); */
+                    columns[j].append(sb, i, cna);
                 }
+                sb.append(ceol);
             }
-            tmp.append(ceol);
-            con.writeString(tmp.toString(), false);
-            tmp.setLength(0);
         }
     }
 
-    private static String encodeStringElement(String p0, boolean quote, boolean qmethod) {
-        if (!quote) {
-            return p0;
+    /**
+     * Formats the blocks {@code [lo, hi)} of the current wave, splitting the range in halves while
+     * it has more than one block.
+     */
+    @SuppressWarnings("serial")
+    private static final class FormatTask extends RecursiveAction {
+        private final TableFormatter formatter;
+        private final StringBuilder[] buffers;
+        private final int firstBlock;
+        private final int blockRows;
+        private final int nr;
+        private final int lo;
+        private final int hi;
+
+        FormatTask(TableFormatter formatter, StringBuilder[] buffers, int firstBlock, int blockRows, int nr, int lo, int hi) {
+            this.formatter = formatter;
+            this.buffers = buffers;
+            this.firstBlock = firstBlock;
+            this.blockRows = blockRows;
+            this.nr = nr;
+            this.lo = lo;
+            this.hi = hi;
         }
-        StringBuilder sb = new StringBuilder();
-        sb.append('"');
-        for (int i = 0; i < p0.length(); i++) {
-            char p = p0.charAt(i);
-            if (p == '"') {
-                sb.append(qmethod ? '\\' : '"');
+
+        @Override
+        protected void compute() {
+            if (hi - lo > 1) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new FormatTask(formatter, buffers, firstBlock, blockRows, nr, lo, mid), new FormatTask(formatter, buffers, firstBlock, blockRows, nr, mid, hi));
+            } else {
+                int from = (firstBlock + lo) * blockRows;
+                formatter.formatRows(buffers[lo], from, Math.min(nr, from + blockRows));
             }
-            sb.append(p);
         }
-        sb.append('"');
-        return sb.toString();
     }
 
-    /* a version of EncodeElement with different escaping of char strings */
-    private static String encodeElement2(RAbstractVector x, int indx, boolean quote, boolean qmethod, char cdec) {
-        if (indx < 0 || indx >= x.getLength()) {
-            throw new IllegalArgumentException("index out of range");
+    /**
+     * Distinguishes logical data from raw data, both are stored in a {@code byte[]}.
+     */
+    private static final class LogicalData {
+        private final byte[] data;
+
+        LogicalData(byte[] data) {
+            this.data = data;
+        }
+    }
+
+    private abstract static class Column {
+        /**
+         * Appends the element at row {@code i}, or {@code na} if it is missing.
+         */
+        abstract void append(StringBuilder sb, int i, String na);
+
+        boolean isThreadSafe() {
+            return true;
         }
-        if (x instanceof RStringVector) {
-            RStringVector sx = (RStringVector) x;
-            String p0 = /* translateChar */sx.getDataAt(indx);
-            return encodeStringElement(p0, quote, qmethod);
+    }
+
+    private static final class IntColumn extends Column {
+        private final int[] data;
+        private final int offset;
+
+        IntColumn(int[] data, int offset) {
+            this.data = data;
+            this.offset = offset;
+        }
+
+        @Override
+        void append(StringBuilder sb, int i, String na) {
+            int v = data[offset + i];
+            if (RRuntime.isNA(v)) {
+                sb.append(na);
+            } else {
+                sb.append(v);
+            }
         }
-        return encodeElement(x, indx, quote ? '"' : 0, cdec);
     }
 
-    private static String encodePrimitiveElement(Object o, String cna, boolean quote, boolean qmethod) {
-        if (o instanceof Integer) {
-            int v = (int) o;
-            return RRuntime.isNA(v) ? cna : RRuntime.intToStringNoCheck(v);
-        } else if (o instanceof Double) {
-            double v = (double) o;
-            return RRuntime.isNA(v) ? cna : DoubleVectorPrinter.encodeReal(v);
-        } else if (o instanceof Byte) {
-            byte v = (byte) o;
-            return RRuntime.isNA(v) ? cna : RRuntime.logicalToStringNoCheck(v);
-        } else if (o instanceof String) {
-            String v = (String) o;
-            return RRuntime.isNA(v) ? cna : encodeStringElement(v, quote, qmethod);
-        } else if (o instanceof RComplex) {
-            RComplex v = (RComplex) o;
-            return RRuntime.isNA(v) ? cna : ComplexVectorPrinter.encodeComplex(v);
-        } else if (o instanceof RRaw) {
-            RRaw v = (RRaw) o;
-            return RRuntime.rawToHexString(v.getValue());
+    private static final class DoubleColumn extends Column {
+        private final double[] data;
+        private final int offset;
+        private final char cdec;
+
+        DoubleColumn(double[] data, int offset, char cdec) {
+            this.data = data;
+            this.offset = offset;
+            this.cdec = cdec;
+        }
+
+        @Override
+        void append(StringBuilder sb, int i, String na) {
+            double v = data[offset + i];
+            // like GnuR, NaN is written as NA as well
+            if (Double.isNaN(v)) {
+                sb.append(na);
+            } else {
+                sb.append(DoubleVectorPrinter.encodeReal(v, 15, cdec, 0, RRuntime.STRING_NA));
+            }
         }
-        throw RInternalError.unimplemented();
     }
 
-    private static boolean isna(RAbstractContainer x, int indx) {
-        if (x instanceof RLogicalVector) {
-            return RRuntime.isNA(((RLogicalVector) x).getDataAt(indx));
-        } else if (x instanceof RDoubleVector) {
-            return RRuntime.isNA(((RDoubleVector) x).getDataAt(indx));
-        } else if (x instanceof RIntVector) {
-            return RRuntime.isNA(((RIntVector) x).getDataAt(indx));
-        } else if (x instanceof RStringVector) {
-            return RRuntime.isNA(((RStringVector) x).getDataAt(indx));
-        } else if (x instanceof RComplexVector) {
-            RComplexVector cvec = (RComplexVector) x;
-            RComplex c = cvec.getDataAt(indx);
-            return c.isNA();
-        } else {
-            return false;
+    private static final class LogicalColumn extends Column {
+        private final byte[] data;
+        private final int offset;
+
+        LogicalColumn(byte[] data, int offset) {
+            this.data = data;
+            this.offset = offset;
+        }
+
+        @Override
+        void append(StringBuilder sb, int i, String na) {
+            byte v = data[offset + i];
+            sb.append(RRuntime.isNA(v) ? na : RRuntime.logicalToStringNoCheck(v));
         }
     }
 
-    private static String encodeElement(Object x, int indx, @SuppressWarnings("unused") char quote, @SuppressWarnings("unused") char dec) {
-        if (x instanceof RDoubleVector) {
-            RDoubleVector v = (RDoubleVector) x;
-            return DoubleVectorPrinter.encodeReal(v.getDataAt(indx));
+    private static final class StringColumn extends Column {
+        private final String[] data;
+        private final int offset;
+        private final boolean quote;
+        private final boolean qmethod;
+        private final boolean checkNA;
+
+        StringColumn(String[] data, int offset, boolean quote, boolean qmethod, boolean checkNA) {
+            this.data = data;
+            this.offset = offset;
+            this.quote = quote;
+            this.qmethod = qmethod;
+            this.checkNA = checkNA;
         }
-        if (x instanceof RIntVector) {
-            RIntVector v = (RIntVector) x;
-            return RRuntime.intToString(v.getDataAt(indx));
+
+        @Override
+        void append(StringBuilder sb, int i, String na) {
+            String v = data[offset + i];
+            if (checkNA && RRuntime.isNA(v)) {
+                sb.append(na);
+            } else {
+                appendString(sb, v, quote, qmethod);
+            }
         }
-        if (x instanceof RLogicalVector) {
-            RLogicalVector v = (RLogicalVector) x;
-            return RRuntime.logicalToString(v.getDataAt(indx));
+    }
+
+    private static final class FactorColumn extends Column {
+        private final int[] codes;
+        private final String[] levels;
+
+        FactorColumn(int[] codes, String[] levels) {
+            this.codes = codes;
+            this.levels = levels;
         }
-        if (x instanceof RComplexVector) {
-            RComplexVector v = (RComplexVector) x;
-            return ComplexVectorPrinter.encodeComplex(v.getDataAt(indx));
+
+        @Override
+        void append(StringBuilder sb, int i, String na) {
+            int code = codes[i];
+            sb.append(RRuntime.isNA(code) ? na : levels[code - 1]);
         }
-        if (x instanceof RRawVector) {
-            RRawVector v = (RRawVector) x;
-            return RRuntime.rawToHexString(v.getRawDataAt(indx));
+    }
+
+    private static final class ComplexColumn extends Column {
+        private final RComplexVector data;
+        private final int offset;
+        private final char cdec;
+
+        ComplexColumn(RComplexVector data, int offset, char cdec) {
+            this.data = data;
+            this.offset = offset;
+            this.cdec = cdec;
         }
-        throw RInternalError.unimplemented();
+
+        @Override
+        void append(StringBuilder sb, int i, String na) {
+            RComplex v = data.getDataAt(offset + i);
+            if (Double.isNaN(v.getRealPart()) || Double.isNaN(v.getImaginaryPart())) {
+                sb.append(na);
+            } else {
+                sb.append(ComplexVectorPrinter.encodeComplex(v, 15, cdec, 0, RRuntime.STRING_NA));
+            }
+        }
+
+        @Override
+        boolean isThreadSafe() {
+            // encodeComplex allocates R vectors
+            return false;
+        }
+    }
+
+    private static final class RawColumn extends Column {
+        private final byte[] data;
+        private final int offset;
+
+        RawColumn(byte[] data, int offset) {
+            this.data = data;
+            this.offset = offset;
+        }
+
+        @Override
+        void append(StringBuilder sb, int i, String na) {
+            sb.append(RRuntime.rawToHexString(data[offset + i]));
+        }
+    }
+
+    private static void appendString(StringBuilder sb, String p0, boolean quote, boolean qmethod) {
+        if (!quote) {
+            sb.append(p0);
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < p0.length(); i++) {
+            char p = p0.charAt(i);
+            if (p == '"') {
+                sb.append(qmethod ? '\\' : '"');
+            }
+            sb.append(p);
+        }
+        sb.append('"');
     }
 
     @TruffleBoundary
@@ -397,11 +397,16 @@ public final class ComplexVectorPrinter extends VectorPrinter<RComplexVector> {
 
     @TruffleBoundary
     public static String encodeComplex(RComplex x, int digits, int sciPen, String naString) {
+        return encodeComplex(x, digits, '.', sciPen, naString);
+    }
+
+    @TruffleBoundary
+    public static String encodeComplex(RComplex x, int digits, char cdec, int sciPen, String naString) {
         RComplexVector xVec = RDataFactory.createComplexVectorFromScalar(x);
         VectorAccess access = xVec.slowPathAccess();
         RandomIterator iter = access.randomAccess(xVec);
         ComplexVectorMetrics cvm = formatComplexVector(iter, access, 0, 1, 0, digits, sciPen, naString.length());
-        return encodeComplex(x, cvm, '.', digits, naString);
+        return encodeComplex(x, cvm, cdec, digits, naString);
     }
 
     @TruffleBoundary
@@ -20,11 +20,11 @@
 package com.oracle.truffle.r.nodes.builtin.base.printer;
 
 import java.io.IOException;
+import java.util.function.IntToDoubleFunction;
 
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.Utils;
-import com.oracle.truffle.r.runtime.data.RDataFactory;
 import com.oracle.truffle.r.runtime.data.RDoubleVector;
 import com.oracle.truffle.r.runtime.data.nodes.VectorAccess;
 import com.oracle.truffle.r.runtime.data.nodes.VectorAccess.RandomIterator;
@@ -85,6 +85,15 @@ public final class DoubleVectorPrinter extends VectorPrinter<RDoubleVector> {
 
     @TruffleBoundary
     public static DoubleVectorMetrics formatDoubleVector(RandomIterator iter, VectorAccess access, int offs, int n, int nsmall, int digits, int sciPen, int naWidth) {
+        return formatDoubleVector(i -> access.getDouble(iter, offs + i), n, nsmall, digits, sciPen, naWidth);
+    }
+
+    /**
+     * Computes the metrics of the {@code n} values given by {@code values}. Does not allocate any
+     * R objects, so it may also be used outside of the context thread.
+     */
+    @TruffleBoundary
+    private static DoubleVectorMetrics formatDoubleVector(IntToDoubleFunction values, int n, int nsmall, int digits, int sciPen, int naWidth) {
         int left;
         int right;
         int sleft;
@@ -118,7 +127,7 @@ public final class DoubleVectorPrinter extends VectorPrinter<RDoubleVector> {
         mnl = RRuntime.INT_MAX_VALUE;
 
         for (int i = 0; i < n; i++) {
-            double xi = access.getDouble(iter, offs + i);
+            double xi = values.applyAsDouble(i);
             if (!RRuntime.isFinite(xi)) {
                 if (RRuntime.isNA(xi)) {
                     naflag = true;
@@ -379,10 +388,7 @@ public final class DoubleVectorPrinter extends VectorPrinter<RDoubleVector> {
 
     @TruffleBoundary
     public static String encodeReal(double x, int digits, char cdec, int sciPen, String naString) {
-        RDoubleVector value = RDataFactory.createDoubleVectorFromScalar(x);
-        VectorAccess access = value.slowPathAccess();
-        RandomIterator iter = access.randomAccess(value);
-        DoubleVectorMetrics dm = formatDoubleVector(iter, access, 0, 1, 0, digits, sciPen, naString.length());
+        DoubleVectorMetrics dm = formatDoubleVector(i -> x, 1, 0, digits, sciPen, naString.length());
         return encodeReal(x, dm.maxWidth, dm.d, dm.e, cdec, naString);
     }
 
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2015, 2020, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2015, 2021, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -66,6 +66,7 @@ import com.oracle.truffle.r.runtime.data.RNull;
 import com.oracle.truffle.r.runtime.data.model.RAbstractListVector;
 import com.oracle.truffle.r.runtime.data.RStringVector;
 import com.oracle.truffle.r.runtime.env.REnvironment;
+import com.oracle.truffle.r.runtime.rng.RRNG;
 
 /**
  * The FastR builtins that allow multiple "virtual" R sessions potentially executing in parallel.
@@ -212,8 +213,9 @@ public class FastRContext {
 
             // first, create context infos
             ChildContextInfo[] childContextInfos = new ChildContextInfo[length];
+            int[][] rngStreams = RRNG.childStreams(length);
             for (int i = 0; i < length; i++) {
-                childContextInfos[i] = createContextInfo(contextKind);
+                childContextInfos[i] = createContextInfo(contextKind, rngStreams, i);
                 data[i] = childContextInfos[i].getId();
                 multiSlotIndices[i] = childContextInfos[i].getMultiSlotInd();
             }
@@ -338,8 +340,9 @@ public class FastRContext {
 
             int length = exprs.getLength();
             Object[] results = new Object[length];
+            int[][] rngStreams = RRNG.childStreams(length);
             if (length == 1) {
-                ChildContextInfo info = createContextInfo(contextKind);
+                ChildContextInfo info = createContextInfo(contextKind, rngStreams, 0);
                 TruffleContext truffleContext = info.createTruffleContext();
                 results[0] = EvalThread.run(truffleContext, info, RSource.fromTextInternalInvisible(exprs.getDataAt(0), RSource.Internal.CONTEXT_EVAL));
             } else {
@@ -347,7 +350,7 @@ public class FastRContext {
                 EvalThread[] threads = new EvalThread[length];
                 int[] multiSlotIndices = new int[length];
                 for (int i = 0; i < length; i++) {
-                    ChildContextInfo info = createContextInfo(contextKind);
+                    ChildContextInfo info = createContextInfo(contextKind, rngStreams, i);
                     threads[i] = new EvalThread(RContext.getInstance().threads, info, RSource.fromTextInternalInvisible(exprs.getDataAt(i % exprs.getLength()), RSource.Internal.CONTEXT_EVAL));
                     multiSlotIndices[i] = info.getMultiSlotInd();
                 }
@@ -459,6 +462,18 @@ public class FastRContext {
         return ChildContextInfo.createNoRestore(Client.RSCRIPT, null, contextKind, context, console.getStdin(), console.getStdout(), console.getStderr());
     }
 
+    /**
+     * Creates the info of the {@code index}-th child context, which gets its own random number
+     * stream if {@code rngStreams} (see {@link RRNG#childStreams(int)}) is not {@code null}.
+     */
+    private static ChildContextInfo createContextInfo(RContext.ContextKind contextKind, int[][] rngStreams, int index) {
+        ChildContextInfo info = createContextInfo(contextKind);
+        if (rngStreams != null) {
+            info.setRNGSeeds(rngStreams[index]);
+        }
+        return info;
+    }
+
     @RBuiltin(name = ".fastr.channel.create", kind = PRIMITIVE, parameterNames = {"key"}, behavior = COMPLEX)
     public abstract static class CreateChannel extends RBuiltinNode.Arg1 {
 
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2021, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.nodes.builtin.fastr;
+
+import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.toBoolean;
+import static com.oracle.truffle.r.runtime.builtins.RBehavior.IO;
+import static com.oracle.truffle.r.runtime.builtins.RBuiltinKind.PRIMITIVE;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.concurrent.ForkJoinPool;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.TruffleFile;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
+import com.oracle.truffle.r.runtime.RRuntime;
+import com.oracle.truffle.r.runtime.builtins.RBuiltin;
+import com.oracle.truffle.r.runtime.conn.ParallelTableReader;
+import com.oracle.truffle.r.runtime.context.FastROptions;
+import com.oracle.truffle.r.runtime.context.RContext;
+import com.oracle.truffle.r.runtime.data.RDataFactory;
+import com.oracle.truffle.r.runtime.data.RNull;
+import com.oracle.truffle.r.runtime.data.RStringVector;
+
+/**
+ * Reads a delimited file with {@link ParallelTableReader}, this is the fast path of
+ * {@code read.table}. Returns a list of the columns, the header fields (or {@code NULL}) and a
+ * logical vector that tells which columns still have to be converted by {@code type.convert}, or
+ * {@code NULL} if the file cannot be read this way.
+ */
+@RBuiltin(name = ".fastr.read.table", kind = PRIMITIVE, parameterNames = {"file", "header", "sep", "quote", "comment.char", "skip", "na.strings"}, behavior = IO)
+public abstract class FastRReadTable extends RBuiltinNode.Arg7 {
+
+    private static final String[] NAMES = new String[]{"columns", "names", "convert"};
+
+    static {
+        Casts casts = new Casts(FastRReadTable.class);
+        casts.arg("file").asStringVector().findFirst();
+        casts.arg("header").asLogicalVector().findFirst().map(toBoolean());
+        casts.arg("sep").asStringVector().findFirst();
+        casts.arg("quote").asStringVector().findFirst();
+        casts.arg("comment.char").asStringVector().findFirst();
+        casts.arg("skip").asIntegerVector().findFirst();
+        casts.arg("na.strings").asStringVector();
+    }
+
+    @TruffleBoundary
+    @Specialization
+    protected Object read(String file, boolean header, String sep, String quote, String commentChar, int skip, RStringVector naStrings) {
+        String[] na = new String[naStrings.getLength()];
+        for (int i = 0; i < na.length; i++) {
+            na[i] = naStrings.getDataAt(i);
+        }
+        ParallelTableReader.Format format = ParallelTableReader.Format.create(sep, quote, commentChar, skip, header, na);
+        if (format == null) {
+            return RNull.instance;
+        }
+        ParallelTableReader.Table table;
+        TruffleFile path = RContext.getInstance().getSafeTruffleFile(file);
+        try (SeekableByteChannel channel = path.newByteChannel(Collections.singleton(StandardOpenOption.READ))) {
+            if (!(channel instanceof FileChannel)) {
+                return RNull.instance;
+            }
+            long size = channel.size();
+            table = ParallelTableReader.read((FileChannel) channel, format, isParallel(size) ? ParallelTableReader.getChunkCount(size) : 1);
+        } catch (IOException | SecurityException | UnsupportedOperationException e) {
+            // the original implementation reports the error
+            return RNull.instance;
+        }
+        if (table == null) {
+            return RNull.instance;
+        }
+        Object[] columns = new Object[table.columns.length];
+        byte[] convert = new byte[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            Object column = table.columns[i];
+            boolean complete = table.complete[i];
+            if (column instanceof int[]) {
+                columns[i] = RDataFactory.createIntVector((int[]) column, complete);
+            } else if (column instanceof double[]) {
+                columns[i] = RDataFactory.createDoubleVector((double[]) column, complete);
+            } else if (column instanceof byte[]) {
+                columns[i] = RDataFactory.createLogicalVector((byte[]) column, complete);
+            } else {
+                columns[i] = RDataFactory.createStringVector((String[]) column, complete);
+                convert[i] = RRuntime.LOGICAL_TRUE;
+            }
+        }
+        Object names = table.names == null ? RNull.instance : RDataFactory.createStringVector(table.names, RDataFactory.COMPLETE_VECTOR);
+        return RDataFactory.createList(new Object[]{RDataFactory.createList(columns), names, RDataFactory.createLogicalVector(convert, RDataFactory.COMPLETE_VECTOR)},
+                        RDataFactory.createStringVector(NAMES.clone(), RDataFactory.COMPLETE_VECTOR));
+    }
+
+    private static boolean isParallel(long size) {
+        int threshold = RContext.getInstance().getOption(FastROptions.ReadTableParallelThreshold);
+        return threshold > 0 && size >= threshold && ForkJoinPool.getCommonPoolParallelism() > 1;
+    }
+}
@@ -37,6 +37,7 @@ import com.oracle.truffle.r.runtime.RType;
 import com.oracle.truffle.r.runtime.data.NativeDataAccess;
 import com.oracle.truffle.r.runtime.data.RComplex;
 import com.oracle.truffle.r.runtime.data.RComplexVector;
+import com.oracle.truffle.r.runtime.data.RDataFactory;
 import com.oracle.truffle.r.runtime.data.RDoubleVector;
 import com.oracle.truffle.r.runtime.data.RIntVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
@@ -147,6 +148,36 @@ public class VectorManipulationTest extends TestBase {
         });
     }
 
+    @Test
+    public void testNativeAllocation() {
+        execInContext(() -> {
+            RIntVector intVec = RDataFactory.createNativeIntVector(100);
+            assertThat("Not a native mirror", intVec.getInternalManagedData() == null);
+            assertThat("Invalid length", intVec.getLength() == 100);
+            for (int i = 0; i < 100; i++) {
+                assertThat("Not zero filled", intVec.getDataAt(i) == 0);
+            }
+            intVec.setDataAt(intVec.getInternalStore(), 42, 7);
+            int[] intData = intVec.getDataCopy();
+            assertThat("Invalid data", intData[42] == 7 && intData[41] == 0);
+            assertDataContents(intVec, intData);
+
+            RDoubleVector doubleVector = RDataFactory.createNativeDoubleVector(100);
+            assertThat("Not a native mirror", doubleVector.getInternalManagedData() == null);
+            assertThat("Invalid length", doubleVector.getLength() == 100);
+            for (int i = 0; i < 100; i++) {
+                assertThat("Not zero filled", doubleVector.getDataAt(i) == 0);
+            }
+            doubleVector.setDataAt(doubleVector.getInternalStore(), 42, 1.5);
+            double[] doubleData = doubleVector.getDataCopy();
+            assertThat("Invalid data", doubleData[42] == 1.5 && doubleData[41] == 0);
+            assertDataContents(doubleVector, doubleData);
+
+            assertThat("Invalid length", RDataFactory.createNativeDoubleVector(0).getLength() == 0);
+            return null;
+        });
+    }
+
     private static <ArrayT> void assertDataContents(RAbstractVector vec, ArrayT arr) {
         int len = vec.getLength();
         RType type = vec.getRType();
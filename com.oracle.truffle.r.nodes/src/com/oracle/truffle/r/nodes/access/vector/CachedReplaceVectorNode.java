@@ -409,9 +409,15 @@ final class CachedReplaceVectorNode extends CachedVectorNode {
     @TruffleBoundary
     private static RAbstractVector resizeVector(RAbstractVector vector, int size) {
         RStringVector oldNames = vector.getNames();
-        RAbstractVector res = vector.copyResized(size, true).materialize();
-        if (vector.isMaterialized()) {
-            res.copyAttributesFrom(vector);
+        RAbstractVector res;
+        if (!vector.isShared() && vector.growInPlace(size)) {
+            // the attributes are already in place, only names and dimensions need updating
+            res = vector;
+        } else {
+            res = vector.copyResized(size, true).materialize();
+            if (vector.isMaterialized()) {
+                res.copyAttributesFrom(vector);
+            }
         }
         res.setDimensionsNoCheck(null);
         res.setDimNamesNoCheck(null);
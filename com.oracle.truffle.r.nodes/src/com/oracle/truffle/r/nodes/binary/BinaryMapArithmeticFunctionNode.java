@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2015, 2020, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2015, 2021, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -29,6 +29,7 @@ import com.oracle.truffle.r.runtime.RError;
 import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.data.RComplex;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
+import com.oracle.truffle.r.runtime.data.RDoubleDeferredVectorData;
 import com.oracle.truffle.r.runtime.data.RDoubleSeqVectorData;
 import com.oracle.truffle.r.runtime.data.RIntSeqVectorData;
 import com.oracle.truffle.r.runtime.data.RSeq;
@@ -97,6 +98,20 @@ public final class BinaryMapArithmeticFunctionNode extends BinaryMapNAFunctionNo
         return null;
     }
 
+    @Override
+    public RDoubleDeferredVectorData.Operation getFusableOperation() {
+        if (arithmetic instanceof Add) {
+            return RDoubleDeferredVectorData.Operation.ADD;
+        } else if (arithmetic instanceof Subtract) {
+            return RDoubleDeferredVectorData.Operation.SUBTRACT;
+        } else if (arithmetic instanceof Multiply) {
+            return RDoubleDeferredVectorData.Operation.MULTIPLY;
+        } else if (arithmetic instanceof Div) {
+            return RDoubleDeferredVectorData.Operation.DIVIDE;
+        }
+        return null;
+    }
+
     private boolean isSequenceMulArithmetic() {
         return arithmetic instanceof Multiply || arithmetic instanceof IntegerDiv || arithmetic instanceof Div;
     }
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2015, 2020, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2015, 2021, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -25,6 +25,7 @@ package com.oracle.truffle.r.nodes.primitive;
 import com.oracle.truffle.r.runtime.RInternalError;
 import com.oracle.truffle.r.runtime.data.AbstractContainerLibrary;
 import com.oracle.truffle.r.runtime.data.RComplex;
+import com.oracle.truffle.r.runtime.data.RDoubleDeferredVectorData;
 import com.oracle.truffle.r.runtime.data.VectorDataLibrary;
 import com.oracle.truffle.r.runtime.data.model.RAbstractContainer;
 import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
@@ -121,6 +122,14 @@ public abstract class BinaryMapFunctionNode extends RBaseNode {
 
     }
 
+    /**
+     * Returns the operation if this function on doubles can be deferred into a
+     * {@link RDoubleDeferredVectorData}, <code>null</code> otherwise.
+     */
+    public RDoubleDeferredVectorData.Operation getFusableOperation() {
+        return null;
+    }
+
     /**
      * Returns <code>true</code> if the result can always be considered complete.
      */
@@ -22,7 +22,10 @@
  */
 package com.oracle.truffle.r.nodes.primitive;
 
+import static com.oracle.truffle.r.runtime.context.FastROptions.FusedArithmetic;
+
 import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.api.profiles.BranchProfile;
@@ -34,7 +37,10 @@ import com.oracle.truffle.r.runtime.RError;
 import com.oracle.truffle.r.runtime.RInternalError;
 import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.RType;
+import com.oracle.truffle.r.runtime.context.RContext;
 import com.oracle.truffle.r.runtime.data.RComplex;
+import com.oracle.truffle.r.runtime.data.RDoubleDeferredVectorData;
+import com.oracle.truffle.r.runtime.data.RDoubleVector;
 import com.oracle.truffle.r.runtime.data.RRaw;
 import com.oracle.truffle.r.runtime.data.RScalarVector;
 import com.oracle.truffle.r.runtime.data.RSharingAttributeStorage;
@@ -147,6 +153,11 @@ final class BinaryMapScalarNode extends BinaryMapNode {
 
 final class BinaryMapVectorNode extends BinaryMapNode {
 
+    /**
+     * Shorter vectors are computed eagerly, the deferred evaluation would not pay off.
+     */
+    private static final int FUSED_MIN_LENGTH = 1024;
+
     @Child private VectorMapBinaryInternalNode vectorNode;
     @Child private CopyAttributesNode copyAttributes;
     @Child private GetDimAttributeNode getLeftDimNode = GetDimAttributeNode.create();
@@ -166,6 +177,7 @@ final class BinaryMapVectorNode extends BinaryMapNode {
     private final ConditionProfile seenEmpty;
     private final ConditionProfile shareLeft;
     private final ConditionProfile shareRight;
+    private final ConditionProfile fuse;
     private final BranchProfile hasWarningsBranchProfile;
 
     // compile-time optimization flags
@@ -173,6 +185,7 @@ final class BinaryMapVectorNode extends BinaryMapNode {
     private final boolean mayFoldConstantTime;
     private final boolean mayShareLeft;
     private final boolean mayShareRight;
+    private final RDoubleDeferredVectorData.Operation fusedOperation;
 
     BinaryMapVectorNode(BinaryMapFunctionNode function, RAbstractVector left, RAbstractVector right, RType argumentType, RType resultType, boolean copyAttributes, boolean isGeneric) {
         super(function, left, right, argumentType, resultType);
@@ -191,6 +204,8 @@ final class BinaryMapVectorNode extends BinaryMapNode {
         this.shareLeft = mayShareLeft ? ConditionProfile.createBinaryProfile() : null;
         this.shareRight = mayShareRight ? ConditionProfile.createBinaryProfile() : null;
         this.dimensionsProfile = mayContainMetadata ? ConditionProfile.createBinaryProfile() : null;
+        this.fusedOperation = argumentType == RType.Double && resultType == RType.Double && RContext.getInstance().getOption(FusedArithmetic) ? function.getFusableOperation() : null;
+        this.fuse = fusedOperation != null ? ConditionProfile.createBinaryProfile() : null;
 
         this.hasWarningsBranchProfile = BranchProfile.create();
 
@@ -253,7 +268,15 @@ final class BinaryMapVectorNode extends BinaryMapNode {
             assert right.getLength() == rightLength;
             SeqIterator leftIter = leftLibrary.iterator(leftData);
             SeqIterator rightIter = rightLibrary.iterator(rightData);
-            if (mayShareLeft && left.getRType() == resultType && shareLeft.profile(leftLength == maxLength && ((RSharingAttributeStorage) left).isTemporary())) {
+            RAbstractVector fused = null;
+            if (fusedOperation != null && fuse.profile(maxLength >= FUSED_MIN_LENGTH && (leftLength == rightLength || leftLength == 1 || rightLength == 1))) {
+                fused = fuse(left, leftData, right, rightData, maxLength);
+            }
+            if (fused != null) {
+                // the elements are computed later, nothing can overflow
+                target = fused;
+                warningInfo = new WarningInfo();
+            } else if (mayShareLeft && left.getRType() == resultType && shareLeft.profile(leftLength == maxLength && ((RSharingAttributeStorage) left).isTemporary())) {
                 target = left;
                 SeqWriteIterator resultIter = leftLibrary.writeIterator(leftData);
                 try {
@@ -298,6 +321,26 @@ final class BinaryMapVectorNode extends BinaryMapNode {
         return target;
     }
 
+    /**
+     * Returns a vector whose elements are computed once they are read, or {@code null} if the
+     * operands are not supported by {@link RDoubleDeferredVectorData}. Operands with attributes are
+     * not supported, since the nodes specialized for not materialized vectors do not copy them.
+     */
+    @TruffleBoundary
+    private RAbstractVector fuse(RAbstractVector left, Object leftData, RAbstractVector right, Object rightData, int length) {
+        if (left.getAttributes() != null || right.getAttributes() != null) {
+            return null;
+        }
+        RDoubleDeferredVectorData data = RDoubleDeferredVectorData.create(fusedOperation, leftData, rightData, length);
+        if (data == null) {
+            return null;
+        }
+        // the deferred data keeps the arrays of the operands, they must not be updated in place
+        // until it is evaluated
+        data.shareOperands(left, right);
+        return RDoubleVector.createDeferred(data);
+    }
+
     private VectorDataLibrary getResultLibrary() {
         if (resultLibrary == null) {
             CompilerDirectives.transferToInterpreterAndInvalidate();
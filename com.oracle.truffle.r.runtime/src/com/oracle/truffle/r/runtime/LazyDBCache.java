@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2015, 2019, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2015, 2021, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -23,33 +23,112 @@
 package com.oracle.truffle.r.runtime;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
+import com.oracle.truffle.api.TruffleFile;
 import com.oracle.truffle.r.runtime.context.RContext;
+import com.oracle.truffle.r.runtime.data.RStringVector;
 
+/**
+ * Provides the contents of the lazy-load databases ({@code .rdb} files) to
+ * {@code lazyLoadDBfetch}. The files are memory-mapped read-only, so that they do not occupy the
+ * Java heap, and the mappings are shared by all contexts. A file that cannot be mapped (e.g. one
+ * that does not live in the default file system) is read into a heap buffer instead.
+ *
+ * A mapping is validated against the file once per load of the database, not on every fetch. The
+ * {@code datafile} vector that {@code lazyLoadDBexec} captures in the promises of one load
+ * identifies the load.
+ */
 public class LazyDBCache {
 
+    private static final class Entry {
+        private final String key;
+        private final ByteBuffer data;
+        private final long size;
+        private final long lastModified;
+
+        Entry(String key, ByteBuffer data, long size, long lastModified) {
+            this.key = key;
+            this.data = data;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+
+    /**
+     * Keyed by the absolute path of the database. An entry is validated against the size and the
+     * modification time of the file when a load first uses it, since packages may be re-installed
+     * while FastR is running.
+     */
+    private static final ConcurrentHashMap<String, Entry> DB_CACHE = new ConcurrentHashMap<>();
+
+    private static Entry map(String key, TruffleFile file) throws IOException {
+        long size = file.size();
+        long lastModified = file.getLastModifiedTime().toMillis();
+        ByteBuffer data;
+        try (SeekableByteChannel channel = file.newByteChannel(EnumSet.of(StandardOpenOption.READ))) {
+            if (channel instanceof FileChannel && size <= Integer.MAX_VALUE) {
+                data = ((FileChannel) channel).map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                data = ByteBuffer.wrap(file.readAllBytes());
+            }
+        }
+        return new Entry(key, data.asReadOnlyBuffer(), size, lastModified);
+    }
+
+    private static boolean isValid(Entry entry, TruffleFile file) throws IOException {
+        return entry.size == file.size() && entry.lastModified == file.getLastModifiedTime().toMillis();
+    }
+
     public static final class ContextStateImpl implements RContext.ContextState {
-        private final Map<String, byte[]> dbCache = new HashMap<>();
-
-        public byte[] getData(RContext context, String dbPath) {
-            byte[] dbData = dbCache.get(dbPath);
-            if (dbData == null) {
-                try {
-                    dbData = context.getSafeTruffleFile(dbPath).readAllBytes();
-                } catch (IOException ex) {
-                    // unexpected
-                    throw RInternalError.shouldNotReachHere(ex);
+
+        /**
+         * The entries validated by the loads in this context, keyed by the {@code datafile} vector
+         * of the load. An entry is used only as long as it is still the shared one, so that
+         * {@code lazyLoadDBflush} and a remapping in another load are seen.
+         */
+        private final Map<RStringVector, Entry> validated = Collections.synchronizedMap(new WeakHashMap<>());
+
+        /**
+         * Returns the contents of the database as a read-only buffer. Callers must use absolute
+         * accessors or {@link ByteBuffer#duplicate() duplicate} the buffer, as it is shared.
+         */
+        public ByteBuffer getData(RContext context, RStringVector datafile) {
+            Entry entry = validated.get(datafile);
+            if (entry == null || DB_CACHE.get(entry.key) != entry) {
+                entry = getEntry(context, datafile.getDataAt(0));
+                validated.put(datafile, entry);
+            }
+            return entry.data;
+        }
+
+        private static Entry getEntry(RContext context, String dbPath) {
+            TruffleFile file = context.getSafeTruffleFile(dbPath);
+            String key = file.getAbsoluteFile().getPath();
+            try {
+                Entry entry = DB_CACHE.get(key);
+                if (entry == null || !isValid(entry, file)) {
+                    entry = map(key, file);
+                    DB_CACHE.put(key, entry);
                 }
-                dbCache.put(dbPath, dbData);
+                return entry;
+            } catch (IOException ex) {
+                // unexpected
+                throw RInternalError.shouldNotReachHere(ex);
             }
-            return dbData;
         }
 
-        public void remove(String dbPath) {
+        public void remove(RContext context, String dbPath) {
             // no an error if missing
-            dbCache.remove(dbPath);
+            DB_CACHE.remove(context.getSafeTruffleFile(dbPath).getAbsoluteFile().getPath());
         }
 
         public static ContextStateImpl newContextState() {
@@ -22,11 +22,13 @@
  */
 package com.oracle.truffle.r.runtime;
 
+import static com.oracle.truffle.r.runtime.context.FastROptions.ChannelCapacity;
 import static com.oracle.truffle.r.runtime.context.FastROptions.ChannelReceiveTimeout;
 import static com.oracle.truffle.r.runtime.env.frame.REnvTruffleFrameAccess.getStringIdentifiersAndValues;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Semaphore;
@@ -46,42 +48,66 @@ import com.oracle.truffle.r.runtime.data.Closure;
 import com.oracle.truffle.r.runtime.data.RAttributable;
 import com.oracle.truffle.r.runtime.data.RAttributesLayout;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
+import com.oracle.truffle.r.runtime.data.REmpty;
 import com.oracle.truffle.r.runtime.data.RFunction;
 import com.oracle.truffle.r.runtime.data.RList;
+import com.oracle.truffle.r.runtime.data.RMissing;
 import com.oracle.truffle.r.runtime.data.RNull;
 import com.oracle.truffle.r.runtime.data.RPairList;
 import com.oracle.truffle.r.runtime.data.RPromise;
 import com.oracle.truffle.r.runtime.data.RPromise.PromiseState;
 import com.oracle.truffle.r.runtime.data.RSharingAttributeStorage;
 import com.oracle.truffle.r.runtime.data.RUnboundValue;
+import com.oracle.truffle.r.runtime.data.model.RAbstractAtomicVector;
 import com.oracle.truffle.r.runtime.env.REnvironment;
 import com.oracle.truffle.r.runtime.env.frame.FrameSlotChangeMonitor;
+import com.oracle.truffle.r.runtime.nodes.RSyntaxCall;
+import com.oracle.truffle.r.runtime.nodes.RSyntaxConstant;
 import com.oracle.truffle.r.runtime.nodes.RSyntaxElement;
+import com.oracle.truffle.r.runtime.nodes.RSyntaxFunction;
+import com.oracle.truffle.r.runtime.nodes.RSyntaxLookup;
+import com.oracle.truffle.r.runtime.nodes.RSyntaxVisitor;
 
 /**
  * Implementation of a channel abstraction used for communication between parallel contexts in
  * shared memory space.
+ *
+ * Messages are not serialized: atomic vectors are made permanently shared and handed over as they
+ * are, lists and attributes are only copied if they contain values that need conversion. Only
+ * environments, functions, promises, language objects and connections are converted to a private
+ * representation, and only connections (or language objects with non-trivial constants) go
+ * through {@link RSerialize}.
  */
 public class RChannel {
 
-    // TODO: cheaper way of serializing data (re-usable buffer?)
-
     private static final int INITIAL_CHANNEL_NUM = 4;
     private static final int CHANNEL_NUM_GROW_FACTOR = 2;
-    private static final int QUEUE_CAPACITY = 1;
 
+    /*
+     * Only accessed when holding the semaphore.
+     */
     private static int[] keys = new int[INITIAL_CHANNEL_NUM];
-    private static RChannel[] channels = new RChannel[INITIAL_CHANNEL_NUM];
+
+    /*
+     * Updated by copy-on-write when holding the semaphore, so that sending and receiving (i.e.
+     * looking up a channel by its id) does not need to acquire it.
+     */
+    private static volatile RChannel[] channels = new RChannel[INITIAL_CHANNEL_NUM];
 
     private static final int CLOSED_CHANNEL_KEY = -1;
 
     /*
-     * Used to mediate access to the semaphore instances
+     * Used to mediate creating and closing channels
      */
     private static final Semaphore create = new Semaphore(1, true);
 
-    private final ArrayBlockingQueue<Object> primaryToWorker = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
-    private final ArrayBlockingQueue<Object> workerToPrimary = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final ArrayBlockingQueue<Object> primaryToWorker;
+    private final ArrayBlockingQueue<Object> workerToPrimary;
+
+    private RChannel(int capacity) {
+        this.primaryToWorker = new ArrayBlockingQueue<>(capacity);
+        this.workerToPrimary = new ArrayBlockingQueue<>(capacity);
+    }
 
     public static int createChannel(int key) {
         if (key <= 0) {
@@ -135,18 +161,15 @@ public class RChannel {
                 }
             }
             if (freeSlot != -1) {
+                int capacity = Math.max(1, RContext.getInstance().getNonNegativeIntOption(ChannelCapacity));
+                RChannel[] channelsTmp = Arrays.copyOf(channels, channels.length);
+                channelsTmp[freeSlot] = new RChannel(capacity);
                 keys[freeSlot] = key;
-                channels[freeSlot] = new RChannel();
+                channels = channelsTmp;
                 return new int[]{freeSlot, key};
             } else {
-                int[] keysTmp = new int[keys.length * CHANNEL_NUM_GROW_FACTOR];
-                RChannel[] channelsTmp = new RChannel[channels.length * CHANNEL_NUM_GROW_FACTOR];
-                for (int i = 1; i < keys.length; i++) {
-                    keysTmp[i] = keys[i];
-                    channelsTmp[i] = channels[i];
-                }
-                keys = keysTmp;
-                channels = channelsTmp;
+                keys = Arrays.copyOf(keys, keys.length * CHANNEL_NUM_GROW_FACTOR);
+                channels = Arrays.copyOf(channels, channels.length * CHANNEL_NUM_GROW_FACTOR);
             }
         }
     }
@@ -179,7 +202,8 @@ public class RChannel {
         int actualId = Math.abs(id);
         try {
             create.acquire();
-            if (actualId == 0 || actualId >= channels.length || channels[actualId] == null) {
+            RChannel[] channelsTmp = channels;
+            if (actualId == 0 || actualId >= channelsTmp.length || channelsTmp[actualId] == null) {
                 // closing an already closed channel does not necessarily have to be an error (and
                 // makes parallell package's worker script work unchanged)
                 if (keys[actualId] != CLOSED_CHANNEL_KEY) {
@@ -187,7 +211,11 @@ public class RChannel {
                 }
             }
             keys[actualId] = CLOSED_CHANNEL_KEY;
-            channels[actualId] = null;
+            if (channelsTmp[actualId] != null) {
+                channelsTmp = Arrays.copyOf(channelsTmp, channelsTmp.length);
+                channelsTmp[actualId] = null;
+                channels = channelsTmp;
+            }
         } catch (InterruptedException x) {
             throw RError.error(RError.SHOW_CALLER2, RError.Message.GENERIC, "error closing channel");
         } finally {
@@ -197,18 +225,12 @@ public class RChannel {
 
     private static RChannel getChannelFromId(int id) {
         int actualId = Math.abs(id);
-        try {
-            create.acquire();
-            if (actualId == 0 || actualId >= channels.length || channels[actualId] == null) {
-                throw RError.error(RError.SHOW_CALLER2, RError.Message.GENERIC, "channel with specified id does not exist");
-            }
-            RChannel channel = channels[actualId];
-            return channel;
-        } catch (InterruptedException x) {
-            throw RError.error(RError.SHOW_CALLER2, RError.Message.GENERIC, "error transmitting through channel");
-        } finally {
-            create.release();
+        RChannel[] channelsTmp = channels;
+        RChannel channel = actualId < channelsTmp.length ? channelsTmp[actualId] : null;
+        if (actualId == 0 || channel == null) {
+            throw RError.error(RError.SHOW_CALLER2, RError.Message.GENERIC, "channel with specified id does not exist");
         }
+        return channel;
     }
 
     public static void send(int id, Object data) {
@@ -359,6 +381,25 @@ public class RChannel {
             }
         }
 
+        protected static class SerializedLanguage {
+
+            private final DynamicObject attributes;
+            private final RSyntaxElement serializedExpr;
+
+            public SerializedLanguage(DynamicObject attributes, RSyntaxElement serializedExpr) {
+                this.attributes = attributes;
+                this.serializedExpr = serializedExpr;
+            }
+
+            public DynamicObject getAttributes() {
+                return attributes;
+            }
+
+            public RSyntaxElement getSerializedExpr() {
+                return serializedExpr;
+            }
+        }
+
         protected static class SerializedFunction {
             private final DynamicObject attributes;
             private final Object env;
@@ -515,6 +556,66 @@ public class RChannel {
             return new SerializedFunction(attributes == null ? null : createShareableSlow(attributes, true), env, fn.getName(), fn.getPackageName(), fn.getRBuiltin(), fn.getTarget());
         }
 
+        /**
+         * Language objects are transmitted as syntax trees that are re-created in the receiving
+         * context, which is only possible if all constants in the tree can be shared.
+         */
+        @TruffleBoundary
+        private Object convertPrivateLanguage(Object msg) throws IOException {
+            RPairList lang = (RPairList) msg;
+            RSyntaxElement expr = lang.getSyntaxElement();
+            if (!SHAREABLE_SYNTAX.accept(expr)) {
+                return convertPrivateAttributable(msg);
+            }
+            DynamicObject attributes = lang.getAttributes();
+            return new SerializedLanguage(attributes == null ? null : createShareableSlow(attributes, true), expr);
+        }
+
+        private static final RSyntaxVisitor<Boolean> SHAREABLE_SYNTAX = new RSyntaxVisitor<Boolean>() {
+
+            @Override
+            protected Boolean visit(RSyntaxCall element) {
+                if (!accept(element.getSyntaxLHS())) {
+                    return false;
+                }
+                for (RSyntaxElement arg : element.getSyntaxArguments()) {
+                    if (arg != null && !accept(arg)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            protected Boolean visit(RSyntaxConstant element) {
+                Object value = element.getValue();
+                if (value instanceof RAbstractAtomicVector) {
+                    if (((RAbstractAtomicVector) value).getAttributes() != null) {
+                        return false;
+                    }
+                    makeShared(value);
+                    return true;
+                }
+                return value == RNull.instance || value == REmpty.instance || value == RMissing.instance || value instanceof String || value instanceof Integer || value instanceof Double ||
+                                value instanceof Byte;
+            }
+
+            @Override
+            protected Boolean visit(RSyntaxLookup element) {
+                return true;
+            }
+
+            @Override
+            protected Boolean visit(RSyntaxFunction element) {
+                for (RSyntaxElement arg : element.getSyntaxArgumentDefaults()) {
+                    if (arg != null && !accept(arg)) {
+                        return false;
+                    }
+                }
+                return accept(element.getSyntaxBody());
+            }
+        };
+
         private Object convertPrivateAttributable(Object msg) throws IOException {
             // do full serialization but handle attributes separately (no reason to serialize them
             // unconditionally)
@@ -548,7 +649,7 @@ public class RChannel {
         }
 
         private static boolean serializeObject(Object o) {
-            return o instanceof REnvironment || o instanceof RConnection || (o instanceof RPairList && ((RPairList) o).isLanguage());
+            return o instanceof REnvironment || o instanceof RConnection;
         }
 
         private Object convertPrivate(Object o) throws IOException {
@@ -560,6 +661,8 @@ public class RChannel {
                 return convertPrivatePromise(o);
             } else if (o instanceof RFunction) {
                 return convertPrivateFunction(o);
+            } else if (o instanceof RPairList && ((RPairList) o).isLanguage()) {
+                return convertPrivateLanguage(o);
             } else if (!serializeObject(o)) {
                 // we need to make internal values (permanently) shared to avoid updates to ref
                 // count by different threads
@@ -669,6 +772,8 @@ public class RChannel {
                     ret = unserializePromise((SerializedPromise) el);
                 } else if (el instanceof SerializedFunction) {
                     ret = unserializeFunction((SerializedFunction) el);
+                } else if (el instanceof SerializedLanguage) {
+                    ret = unserializeLanguage((SerializedLanguage) el);
                 } else if (el instanceof SerializedAttributable) {
                     ret = unserializeAttributable((SerializedAttributable) el);
                 }
@@ -725,6 +830,18 @@ public class RChannel {
             }
         }
 
+        @TruffleBoundary
+        private static RPairList unserializeLanguage(SerializedLanguage l) {
+            RPairList lang = RDataFactory.createLanguage(Closure.createLanguageClosure(RContext.getASTBuilder().process(l.getSerializedExpr()).asRNode()));
+            DynamicObject attributes = l.getAttributes();
+            if (attributes != null) {
+                assert lang.getAttributes() == null;
+                // attributes unserialized in caller methods
+                lang.initAttributes(attributes);
+            }
+            return lang;
+        }
+
         @TruffleBoundary
         private RFunction unserializeFunction(SerializedFunction f) throws IOException {
             REnvironment env = (REnvironment) unserializeObject(f.getEnv());
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2014, 2019, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2014, 2021, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -28,10 +28,13 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.ProcessBuilder.Redirect;
+import java.nio.ByteBuffer;
 import java.nio.file.OpenOption;
 import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
+import java.util.zip.DataFormatException;
 import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
 
 import org.tukaani.xz.LZMA2InputStream;
 
@@ -120,6 +123,33 @@ public class RCompression {
         }
     }
 
+    /**
+     * Variant of {@link #uncompress(Type, byte[], byte[])} that reads the compressed data directly
+     * from (the remaining bytes of) a buffer, e.g. a memory-mapped lazy-load database, without
+     * copying it to the heap first.
+     *
+     * @param type compression type
+     * @param udata where to store uncompressed data
+     * @param cdata data to uncompress
+     * @return {@code true} iff success
+     */
+    public static boolean uncompress(Type type, byte[] udata, ByteBuffer cdata) {
+        switch (type) {
+            case NONE:
+                cdata.get(udata, 0, Math.min(udata.length, cdata.remaining()));
+                return true;
+            case GZIP:
+                return zlibUncompress(udata, cdata);
+            case BZIP2:
+                throw RInternalError.unimplemented("BZIP2 compression");
+            case XZ:
+                return lzmaUncompress(udata, new ByteBufferInputStream(cdata));
+            default:
+                assert false;
+                return false;
+        }
+    }
+
     /**
      * Uncompress for internal use in {@code LazyLoadDBInsertValue} where size of uncompressed data
      * is known.
@@ -185,9 +215,46 @@ public class RCompression {
 
     }
 
+    /**
+     * The data is in the format produced by zlib's {@code compress}, which {@link Inflater} reads
+     * as well. The input is fed to the inflater in chunks, so that no copy of the whole compressed
+     * data is needed.
+     */
+    private static boolean zlibUncompress(byte[] udata, ByteBuffer data) {
+        Inflater inflater = new Inflater();
+        try {
+            byte[] chunk = new byte[Math.min(data.remaining(), 64 * 1024)];
+            int totalRead = 0;
+            while (totalRead < udata.length) {
+                if (inflater.needsInput()) {
+                    if (!data.hasRemaining()) {
+                        return false;
+                    }
+                    int n = Math.min(chunk.length, data.remaining());
+                    data.get(chunk, 0, n);
+                    inflater.setInput(chunk, 0, n);
+                }
+                int n = inflater.inflate(udata, totalRead, udata.length - totalRead);
+                if (n == 0 && (inflater.finished() || inflater.needsDictionary())) {
+                    break;
+                }
+                totalRead += n;
+            }
+            return totalRead == udata.length;
+        } catch (DataFormatException ex) {
+            return false;
+        } finally {
+            inflater.end();
+        }
+    }
+
     private static boolean lzmaUncompress(byte[] udata, byte[] data) {
+        return lzmaUncompress(udata, new ByteArrayInputStream(data));
+    }
+
+    private static boolean lzmaUncompress(byte[] udata, InputStream data) {
         int dictSize = udata.length < LZMA2InputStream.DICT_SIZE_MIN ? LZMA2InputStream.DICT_SIZE_MIN : udata.length;
-        try (LZMA2InputStream lzmaStream = new LZMA2InputStream(new ByteArrayInputStream(data), dictSize)) {
+        try (LZMA2InputStream lzmaStream = new LZMA2InputStream(data, dictSize)) {
             int totalRead = 0;
             int n;
             while ((n = lzmaStream.read(udata, totalRead, udata.length - totalRead)) > 0) {
@@ -284,4 +351,38 @@ public class RCompression {
         }
         throw new IOException();
     }
+
+    /**
+     * Reads the remaining bytes of a buffer.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
 }
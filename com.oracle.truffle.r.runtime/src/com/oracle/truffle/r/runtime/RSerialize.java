@@ -27,6 +27,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.NoSuchFileException;
 import java.util.ArrayList;
@@ -416,6 +417,11 @@ public class RSerialize {
 
     private static class Input extends Common {
 
+        /**
+         * Logical vectors are serialized as integers, which are decoded in chunks of this size.
+         */
+        private static final int LOGICAL_CHUNK_SIZE = 8 * 1024;
+
         protected final PInputStream stream;
         /**
          * Only set when called from lazyLoadDBFetch. Helps to identify the package of the deparsed
@@ -732,7 +738,10 @@ public class RSerialize {
                             RFunction func = PairlistDeserializer.processFunction(carItem, cdrItem, enclosingEnv, currentFunctionName, packageName);
                             if (attrItem != RNull.instance) {
                                 setAttributes(func, attrItem);
-                                handleFunctionSrcrefAttr(func);
+                                if (func.getAttr(RRuntime.R_SRCREF) != null) {
+                                    // needs the AST and the library path set up above
+                                    handleFunctionSrcrefAttr(func);
+                                }
                             }
                             if (restore) {
                                 RContext.getInstance().libraryPaths.remove(0);
@@ -854,13 +863,13 @@ public class RSerialize {
                 case INTSXP: {
                     int len = stream.readInt();
                     int[] data = new int[len];
+                    stream.readInts(data, 0, len);
                     boolean complete = RDataFactory.COMPLETE_VECTOR;
                     for (int i = 0; i < len; i++) {
-                        int intVal = stream.readInt();
-                        if (intVal == RRuntime.INT_NA) {
+                        if (data[i] == RRuntime.INT_NA) {
                             complete = false;
+                            break;
                         }
-                        data[i] = intVal;
                     }
                     result = RDataFactory.createIntVector(data, complete);
                     break;
@@ -870,13 +879,18 @@ public class RSerialize {
                     int len = stream.readInt();
                     byte[] data = new byte[len];
                     boolean complete = RDataFactory.COMPLETE_VECTOR;
-                    for (int i = 0; i < len; i++) {
-                        int intVal = stream.readInt();
-                        if (intVal == RRuntime.INT_NA) {
-                            complete = false;
-                            data[i] = RRuntime.LOGICAL_NA;
-                        } else {
-                            data[i] = (byte) intVal;
+                    int[] chunk = new int[Math.min(len, LOGICAL_CHUNK_SIZE)];
+                    for (int pos = 0; pos < len; pos += chunk.length) {
+                        int n = Math.min(chunk.length, len - pos);
+                        stream.readInts(chunk, 0, n);
+                        for (int i = 0; i < n; i++) {
+                            int intVal = chunk[i];
+                            if (intVal == RRuntime.INT_NA) {
+                                complete = false;
+                                data[pos + i] = RRuntime.LOGICAL_NA;
+                            } else {
+                                data[pos + i] = (byte) intVal;
+                            }
                         }
                     }
                     result = RDataFactory.createLogicalVector(data, complete);
@@ -886,13 +900,13 @@ public class RSerialize {
                 case REALSXP: {
                     int len = stream.readInt();
                     double[] data = new double[len];
+                    stream.readDoubles(data);
                     boolean complete = RDataFactory.COMPLETE_VECTOR;
                     for (int i = 0; i < len; i++) {
-                        double doubleVal = stream.readDouble();
-                        if (RRuntime.isNA(doubleVal)) {
+                        if (RRuntime.isNA(data[i])) {
                             complete = false;
+                            break;
                         }
-                        data[i] = doubleVal;
                     }
                     result = RDataFactory.createDoubleVector(data, complete);
                     break;
@@ -901,23 +915,17 @@ public class RSerialize {
                 case CPLXSXP: {
                     int len = stream.readInt();
                     double[] data = new double[2 * len];
+                    stream.readDoubles(data);
                     boolean complete = RDataFactory.COMPLETE_VECTOR;
-                    for (int i = 0; i < len; i++) {
-                        int ix = 2 * i;
-                        double reVal = stream.readDouble();
-                        if (RRuntime.isNA(reVal)) {
-                            complete = false;
-                        }
-                        double imVal = stream.readDouble();
-                        if (RRuntime.isNA(imVal)) {
+                    for (int ix = 0; ix < data.length; ix += 2) {
+                        double reVal = data[ix];
+                        double imVal = data[ix + 1];
+                        if (RRuntime.isNA(reVal) || RRuntime.isNA(imVal)) {
                             complete = false;
-                        }
-                        if (RRuntime.isNA(reVal) && RRuntime.isNA(imVal)) {
-                            data[ix] = RRuntime.COMPLEX_NA_REAL_PART;
-                            data[ix + 1] = RRuntime.COMPLEX_NA_IMAGINARY_PART;
-                        } else {
-                            data[ix] = reVal;
-                            data[ix + 1] = imVal;
+                            if (RRuntime.isNA(reVal) && RRuntime.isNA(imVal)) {
+                                data[ix] = RRuntime.COMPLEX_NA_REAL_PART;
+                                data[ix + 1] = RRuntime.COMPLEX_NA_IMAGINARY_PART;
+                            }
                         }
                     }
                     result = RDataFactory.createComplexVector(data, complete);
@@ -1229,6 +1237,23 @@ public class RSerialize {
 
         abstract void readRaw(byte[] data) throws IOException;
 
+        /**
+         * Reads {@code len} integers into {@code data} starting at {@code off}.
+         */
+        void readInts(int[] data, int off, int len) throws IOException {
+            for (int i = off; i < off + len; i++) {
+                data[i] = readInt();
+            }
+        }
+
+        /**
+         * Reads {@code data.length} doubles into {@code data}.
+         */
+        void readDoubles(double[] data) throws IOException {
+            for (int i = 0; i < data.length; i++) {
+                data[i] = readDouble();
+            }
+        }
     }
 
     @SuppressWarnings("unused")
@@ -1247,7 +1272,7 @@ public class RSerialize {
 
     private static final class XdrInputFormat extends PInputStream {
 
-        private static final int READ_BUFFER_SIZE = 32 * 1024;
+        private static final int READ_BUFFER_SIZE = 64 * 1024;
 
         private final class Buffer {
             private final byte[] buf;
@@ -1366,7 +1391,50 @@ public class RSerialize {
 
         @Override
         void readRaw(byte[] data) throws IOException {
-            ensureData(data.length).readRaw(data);
+            if (data.length <= defaultBuffer.buf.length || is instanceof PByteArrayInputStream) {
+                ensureData(data.length).readRaw(data);
+                return;
+            }
+            // take what is buffered and read the rest directly into the destination array
+            int pos = defaultBuffer.size - defaultBuffer.offset;
+            System.arraycopy(defaultBuffer.buf, defaultBuffer.offset, data, 0, pos);
+            defaultBuffer.offset = defaultBuffer.size = 0;
+            while (pos < data.length) {
+                int nread = is.read(data, pos, data.length - pos);
+                if (nread <= 0) {
+                    throw RInternalError.unimplemented("handle unexpected eof");
+                }
+                pos += nread;
+            }
+        }
+
+        /**
+         * Decodes the vector payload in chunks of at most the size of the default buffer, so that
+         * large vectors need no temporary buffer of their size.
+         */
+        @Override
+        void readInts(int[] data, int off, int len) throws IOException {
+            int pos = off;
+            int end = off + len;
+            while (pos < end) {
+                int n = Math.min(end - pos, defaultBuffer.buf.length / Integer.BYTES);
+                defaultBuffer.readData(n * Integer.BYTES);
+                ByteBuffer.wrap(defaultBuffer.buf, defaultBuffer.offset, n * Integer.BYTES).asIntBuffer().get(data, pos, n);
+                defaultBuffer.offset += n * Integer.BYTES;
+                pos += n;
+            }
+        }
+
+        @Override
+        void readDoubles(double[] data) throws IOException {
+            int pos = 0;
+            while (pos < data.length) {
+                int n = Math.min(data.length - pos, defaultBuffer.buf.length / Double.BYTES);
+                defaultBuffer.readData(n * Double.BYTES);
+                ByteBuffer.wrap(defaultBuffer.buf, defaultBuffer.offset, n * Double.BYTES).asDoubleBuffer().get(data, pos, n);
+                defaultBuffer.offset += n * Double.BYTES;
+                pos += n;
+            }
         }
 
         private Buffer ensureData(int n) throws IOException {
@@ -2825,15 +2893,22 @@ public class RSerialize {
      */
     private static final class PairlistDeserializer {
 
+        /**
+         * Creates a function whose AST is built from the pairlists only when the function is
+         * first called or inspected, most of the functions read from the lazy-load database of a
+         * package are never used.
+         */
         public static RFunction processFunction(Object car, Object cdr, REnvironment environment, String functionName, String packageName) {
             // car == arguments, cdr == body, tag == PairList(attributes, environment)
 
             MaterializedFrame enclosingFrame = environment.getFrame();
 
-            RootCallTarget callTarget = RContext.getASTBuilder().rootFunction(RContext.getInstance().getLanguage(), RSyntaxNode.LAZY_DEPARSE, processArguments(car, false), processBody(cdr),
-                            functionName == null ? "<deserialized function>" : functionName);
-            FrameSlotChangeMonitor.initializeEnclosingFrame(callTarget.getRootNode().getFrameDescriptor(), enclosingFrame);
-            RFunction func = RDataFactory.createFunction(functionName, packageName, callTarget, null, enclosingFrame);
+            RFunction func = RDataFactory.createLazyFunction(functionName, packageName, function -> {
+                RootCallTarget callTarget = RContext.getASTBuilder().rootFunction(RContext.getInstance().getLanguage(), RSyntaxNode.LAZY_DEPARSE, processArguments(car, false), processBody(cdr),
+                                functionName == null ? "<deserialized function>" : functionName);
+                FrameSlotChangeMonitor.initializeEnclosingFrame(callTarget.getRootNode().getFrameDescriptor(), function.getEnclosingFrame());
+                return callTarget;
+            }, enclosingFrame);
 
             /*
              * TODO: this is missing the code that registers sources with RPackageSource!
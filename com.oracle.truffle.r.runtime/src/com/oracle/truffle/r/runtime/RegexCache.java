@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2021, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.runtime;
+
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.TruffleLanguage.Env;
+import com.oracle.truffle.r.runtime.context.RContext;
+import com.oracle.truffle.r.runtime.ffi.PCRERFFI;
+
+/**
+ * Per-context cache of compiled regular expressions used by the {@code grep} family of builtins.
+ * The {@link Pattern java.util.regex}, the PCRE and the {@link TRegexPattern TRegex} backends are
+ * cached in separate bounded LRU maps, the size of which is given by
+ * {@link FastROptions#RegexCacheSize}.
+ *
+ * Compiled PCRE patterns are never freed (not even without the cache), so evicting a PCRE entry
+ * simply drops the reference to the native code.
+ */
+public final class RegexCache {
+
+    private RegexCache() {
+        // no instances
+    }
+
+    private static final class Key {
+        private final String pattern;
+        private final int flags;
+        private final Charset charset;
+
+        Key(String pattern, int flags, Charset charset) {
+            this.pattern = pattern;
+            this.flags = flags;
+            this.charset = charset;
+        }
+
+        @Override
+        public int hashCode() {
+            return (pattern.hashCode() * 31 + flags) * 31 + Objects.hashCode(charset);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return flags == other.flags && pattern.equals(other.pattern) && Objects.equals(charset, other.charset);
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static final class LRUMap<V> extends LinkedHashMap<Key, V> {
+        private final int maxSize;
+        private long hits;
+        private long misses;
+
+        LRUMap(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, V> eldest) {
+            return size() > maxSize;
+        }
+    }
+
+    /**
+     * Cached in place of the patterns that TRegex does not support, so that they are translated
+     * only once.
+     */
+    private static final Object UNSUPPORTED = new Object();
+
+    public static final class ContextStateImpl implements RContext.ContextState {
+        private final int maxSize;
+        private final LRUMap<Pattern> javaPatterns;
+        private final LRUMap<PCRERFFI.Result> pcrePatterns;
+        private final LRUMap<Object> tregexPatterns;
+
+        private ContextStateImpl(int maxSize) {
+            this.maxSize = maxSize;
+            this.javaPatterns = new LRUMap<>(maxSize);
+            this.pcrePatterns = new LRUMap<>(maxSize);
+            this.tregexPatterns = new LRUMap<>(maxSize);
+        }
+
+        /**
+         * Returns the compiled {@link Pattern} for given pattern and {@link Pattern} flags, compiling
+         * it on a cache miss.
+         *
+         * @throws java.util.regex.PatternSyntaxException if the pattern is not valid
+         */
+        @TruffleBoundary
+        public Pattern getPattern(String pattern, int flags) {
+            if (maxSize == 0) {
+                return Pattern.compile(pattern, flags);
+            }
+            Key key = new Key(pattern, flags, null);
+            synchronized (javaPatterns) {
+                Pattern result = javaPatterns.get(key);
+                if (result != null) {
+                    javaPatterns.hits++;
+                    return result;
+                }
+                javaPatterns.misses++;
+            }
+            // compile outside of the lock; a concurrent miss on the same key is harmless
+            Pattern result = Pattern.compile(pattern, flags);
+            synchronized (javaPatterns) {
+                javaPatterns.put(key, result);
+            }
+            return result;
+        }
+
+        /**
+         * Looks up a previously compiled PCRE pattern. The PCRE character tables depend on the
+         * {@code LC_CTYPE} locale, so its charset is part of the key.
+         */
+        @TruffleBoundary
+        public PCRERFFI.Result getPCRE(String pattern, int cflags, Charset charset) {
+            if (maxSize == 0) {
+                return null;
+            }
+            Key key = new Key(pattern, cflags, charset);
+            synchronized (pcrePatterns) {
+                PCRERFFI.Result result = pcrePatterns.get(key);
+                if (result != null) {
+                    pcrePatterns.hits++;
+                } else {
+                    pcrePatterns.misses++;
+                }
+                return result;
+            }
+        }
+
+        /**
+         * Records a successfully compiled PCRE pattern, see
+         * {@link #getPCRE(String, int, Charset)}.
+         */
+        @TruffleBoundary
+        public void putPCRE(String pattern, int cflags, Charset charset, PCRERFFI.Result compiled) {
+            assert compiled.result != 0;
+            if (maxSize == 0) {
+                return;
+            }
+            synchronized (pcrePatterns) {
+                pcrePatterns.put(new Key(pattern, cflags, charset), compiled);
+            }
+        }
+
+        /**
+         * Returns the pattern compiled by TRegex for given pattern and {@link TRegexPattern} flags,
+         * compiling it on a cache miss, or {@code null} if TRegex does not support the pattern.
+         */
+        @TruffleBoundary
+        public TRegexPattern getTRegex(String pattern, int flags, Env env) {
+            if (maxSize == 0) {
+                return TRegexPattern.compile(env, pattern, flags);
+            }
+            Key key = new Key(pattern, flags, null);
+            synchronized (tregexPatterns) {
+                Object result = tregexPatterns.get(key);
+                if (result != null) {
+                    tregexPatterns.hits++;
+                    return result == UNSUPPORTED ? null : (TRegexPattern) result;
+                }
+                tregexPatterns.misses++;
+            }
+            TRegexPattern result = TRegexPattern.compile(env, pattern, flags);
+            synchronized (tregexPatterns) {
+                tregexPatterns.put(key, result == null ? UNSUPPORTED : result);
+            }
+            return result;
+        }
+
+        /**
+         * Returns the statistics as {@code (java hits, java misses, pcre hits, pcre misses, java
+         * size, pcre size, tregex hits, tregex misses, tregex size)}.
+         */
+        @TruffleBoundary
+        public long[] getStatistics() {
+            long[] result = new long[9];
+            synchronized (javaPatterns) {
+                result[0] = javaPatterns.hits;
+                result[1] = javaPatterns.misses;
+                result[4] = javaPatterns.size();
+            }
+            synchronized (pcrePatterns) {
+                result[2] = pcrePatterns.hits;
+                result[3] = pcrePatterns.misses;
+                result[5] = pcrePatterns.size();
+            }
+            synchronized (tregexPatterns) {
+                result[6] = tregexPatterns.hits;
+                result[7] = tregexPatterns.misses;
+                result[8] = tregexPatterns.size();
+            }
+            return result;
+        }
+
+        /**
+         * Resets the hit and miss counters, the cached patterns are kept.
+         */
+        @TruffleBoundary
+        public void resetStatistics() {
+            synchronized (javaPatterns) {
+                javaPatterns.hits = 0;
+                javaPatterns.misses = 0;
+            }
+            synchronized (pcrePatterns) {
+                pcrePatterns.hits = 0;
+                pcrePatterns.misses = 0;
+            }
+            synchronized (tregexPatterns) {
+                tregexPatterns.hits = 0;
+                tregexPatterns.misses = 0;
+            }
+        }
+
+        public static ContextStateImpl newContextState(int maxSize) {
+            return new ContextStateImpl(maxSize);
+        }
+    }
+}
@@ -0,0 +1,750 @@
+/*
+ * Copyright (c) 2021, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.runtime;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.TruffleLanguage.Env;
+import com.oracle.truffle.api.exception.AbstractTruffleException;
+import com.oracle.truffle.api.interop.ExceptionType;
+import com.oracle.truffle.api.interop.InteropException;
+import com.oracle.truffle.api.interop.InteropLibrary;
+import com.oracle.truffle.api.interop.UnsupportedMessageException;
+import com.oracle.truffle.api.source.Source;
+
+/**
+ * A regular expression compiled by TRegex, the regex engine of Truffle, used by the {@code grep}
+ * family of builtins in place of the {@code java.util.regex} and PCRE backends.
+ *
+ * TRegex understands the ECMAScript syntax, so the patterns are translated first. The translation
+ * only accepts constructs whose meaning is the same as in the backend the pattern was written for,
+ * i.e., {@code java.util.regex} for the (already transformed) TRE patterns and PCRE for
+ * {@code perl = TRUE}, anything else makes {@link #compile(Env, String, int)} return {@code null}
+ * and the caller falls back to that backend. The same applies to subjects that
+ * {@link #supports(String) are not supported}: FastR's PCRE matches bytes, so perl patterns are
+ * only used on ASCII subjects, and TRegex matches UTF-16 code units, whereas
+ * {@code java.util.regex} matches code points.
+ */
+public final class TRegexPattern {
+
+    /**
+     * The pattern uses the PCRE syntax and semantics.
+     */
+    public static final int PERL = 1;
+    public static final int IGNORE_CASE = 2;
+    /**
+     * {@code .} matches any character, like {@link java.util.regex.Pattern#DOTALL}.
+     */
+    public static final int DOTALL = 4;
+
+    /**
+     * Whitespace as matched by {@code \s} in both {@code java.util.regex} and PCRE.
+     */
+    private static final String SPACE = " \\t\\n\\x0B\\f\\r";
+
+    /**
+     * The {@code $} of {@code java.util.regex} without {@code MULTILINE}: the end of the input or
+     * before a line terminator at the end of the input, but not between {@code \r} and {@code \n}.
+     */
+    private static final String JAVA_DOLLAR = "(?=\\r\\n$|(?<!\\r)\\n$|[\\r\\u0085\\u2028\\u2029]$|$)";
+
+    private static final List<String> JAVA_POSIX_CLASSES = Arrays.asList("Alnum", "Alpha", "Blank", "Cntrl", "Digit", "Graph", "Lower", "Print", "Punct", "Space", "Upper", "XDigit");
+
+    private final Object regex;
+    private final int groupCount;
+    private final String[] groupNames;
+    private final boolean asciiOnly;
+
+    private TRegexPattern(Object regex, Translation translation) {
+        this.regex = regex;
+        this.groupCount = translation.groupCount;
+        this.groupNames = translation.groupNames;
+        this.asciiOnly = translation.asciiOnly;
+    }
+
+    /**
+     * Compiles the pattern, returns {@code null} if the pattern cannot be translated, if TRegex
+     * rejects it or if TRegex is not installed, which FastR does not depend on.
+     */
+    @TruffleBoundary
+    public static TRegexPattern compile(Env env, String pattern, int flags) {
+        if (!env.getInternalLanguages().containsKey("regex")) {
+            return null;
+        }
+        Translation translation = translate(pattern, flags);
+        if (translation == null) {
+            return null;
+        }
+        String source = "Flavor=ECMAScript/" + translation.source + "/" + ((flags & IGNORE_CASE) != 0 ? "i" : "");
+        Object regex;
+        try {
+            regex = env.parseInternal(Source.newBuilder("regex", source, "<regex>").internal(true).build()).call();
+        } catch (AbstractTruffleException e) {
+            if (!isParseError(e)) {
+                throw e;
+            }
+            // syntax errors are reported by the backend the pattern was written for
+            return null;
+        }
+        if (InteropLibrary.getUncached().isNull(regex)) {
+            // TRegex does not support the pattern
+            return null;
+        }
+        return new TRegexPattern(regex, translation);
+    }
+
+    private static boolean isParseError(AbstractTruffleException e) {
+        try {
+            return InteropLibrary.getUncached().getExceptionType(e) == ExceptionType.PARSE_ERROR;
+        } catch (UnsupportedMessageException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Number of capturing groups of the pattern.
+     */
+    public int getGroupCount() {
+        return groupCount;
+    }
+
+    /**
+     * Names of the capturing groups, the empty string for unnamed groups.
+     */
+    public String[] getGroupNames() {
+        return groupNames.clone();
+    }
+
+    /**
+     * Determines whether matching the given subject gives the same result as the backend the
+     * pattern was written for.
+     */
+    public boolean supports(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (asciiOnly ? c >= 128 : Character.isSurrogate(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The compiled TRegex matcher, for callers that cache the {@link InteropLibrary} used with
+     * {@link #find(InteropLibrary, String, int)} and {@link #exec(InteropLibrary, String, int)}.
+     */
+    public Object getRegex() {
+        return regex;
+    }
+
+    /**
+     * Searches for the first match starting at {@code fromIndex}.
+     */
+    @TruffleBoundary
+    public boolean find(String text, int fromIndex) {
+        return find(InteropLibrary.getUncached(), text, fromIndex);
+    }
+
+    /**
+     * Like {@link #find(String, int)}, the library must accept the {@link #getRegex() matcher}, the
+     * match result and its {@code isMatch} value, e.g., a dispatched library with a limit of three.
+     * With a cached library, the matching is partially evaluated together with the caller.
+     */
+    public boolean find(InteropLibrary interop, String text, int fromIndex) {
+        try {
+            Object result = interop.invokeMember(regex, "exec", text, fromIndex);
+            return interop.asBoolean(interop.readMember(result, "isMatch"));
+        } catch (InteropException e) {
+            throw RInternalError.shouldNotReachHere(e);
+        }
+    }
+
+    /**
+     * Searches for the first match starting at {@code fromIndex}. Returns {@code null} if there is
+     * none, otherwise the start and end indices of the match followed by those of each group,
+     * {@code -1} for groups that did not participate in the match.
+     */
+    @TruffleBoundary
+    public int[] exec(String text, int fromIndex) {
+        return exec(InteropLibrary.getUncached(), text, fromIndex);
+    }
+
+    /**
+     * Like {@link #exec(String, int)}, the library must also accept the bounds of the groups, see
+     * {@link #find(InteropLibrary, String, int)}.
+     */
+    public int[] exec(InteropLibrary interop, String text, int fromIndex) {
+        try {
+            Object result = interop.invokeMember(regex, "exec", text, fromIndex);
+            if (!interop.asBoolean(interop.readMember(result, "isMatch"))) {
+                return null;
+            }
+            int[] bounds = new int[2 * (groupCount + 1)];
+            for (int i = 0; i <= groupCount; i++) {
+                bounds[2 * i] = interop.asInt(interop.invokeMember(result, "getStart", i));
+                bounds[2 * i + 1] = interop.asInt(interop.invokeMember(result, "getEnd", i));
+            }
+            return bounds;
+        } catch (InteropException e) {
+            throw RInternalError.shouldNotReachHere(e);
+        }
+    }
+
+    public static final class Translation {
+        public final String source;
+        public final int groupCount;
+        public final String[] groupNames;
+        public final boolean asciiOnly;
+
+        Translation(String source, int groupCount, String[] groupNames, boolean asciiOnly) {
+            this.source = source;
+            this.groupCount = groupCount;
+            this.groupNames = groupNames;
+            this.asciiOnly = asciiOnly;
+        }
+    }
+
+    /**
+     * Translates the pattern to the ECMAScript syntax, returns {@code null} if the pattern uses a
+     * construct that is not supported by the translation.
+     */
+    @TruffleBoundary
+    public static Translation translate(String pattern, int flags) {
+        return new Translator(pattern, flags).translate();
+    }
+
+    private static final class Translator {
+        private final String pattern;
+        private final boolean perl;
+        private final boolean ignoreCase;
+        private final boolean dotAll;
+        private final StringBuilder out = new StringBuilder();
+        private int pos;
+
+        private final ArrayList<String> groupNames = new ArrayList<>();
+        private final ArrayList<OpenGroup> openGroups = new ArrayList<>();
+        private final BitSet closedGroups = new BitSet();
+        private boolean asciiOnly;
+        private boolean hasBackReference;
+        // a group might not participate in a match
+        private boolean hasOptionalGroup;
+        // a quantified group with captures might match the empty string
+        private boolean hasNullableRepeatedGroup;
+
+        Translator(String pattern, int flags) {
+            this.pattern = pattern;
+            this.perl = (flags & PERL) != 0;
+            this.ignoreCase = (flags & IGNORE_CASE) != 0;
+            this.dotAll = (flags & DOTALL) != 0;
+            // FastR's PCRE matches bytes and the case insensitive matching of java.util.regex
+            // folds only ASCII characters
+            this.asciiOnly = perl || ignoreCase;
+        }
+
+        private boolean hasNext() {
+            return pos < pattern.length();
+        }
+
+        private char peek() {
+            return pattern.charAt(pos);
+        }
+
+        private boolean peekIs(char c) {
+            return pos < pattern.length() && pattern.charAt(pos) == c;
+        }
+
+        Translation translate() {
+            if (pattern.isEmpty()) {
+                return new Translation("(?:)", 0, new String[0], asciiOnly);
+            }
+            // whether the previous element can be quantified
+            boolean quantifiable = false;
+            while (hasNext()) {
+                char c = pattern.charAt(pos++);
+                boolean wasQuantifiable = quantifiable;
+                quantifiable = true;
+                switch (c) {
+                    case '\\':
+                        if (!escape(false)) {
+                            return null;
+                        }
+                        // ECMAScript does not allow quantified word boundaries
+                        quantifiable = !(out.length() >= 2 && out.charAt(out.length() - 2) == '\\' && (out.charAt(out.length() - 1) == 'b' || out.charAt(out.length() - 1) == 'B'));
+                        break;
+                    case '[':
+                        if (!characterClass()) {
+                            return null;
+                        }
+                        break;
+                    case '(':
+                        if (!group()) {
+                            return null;
+                        }
+                        quantifiable = false;
+                        break;
+                    case ')':
+                        if (openGroups.isEmpty()) {
+                            return null;
+                        }
+                        closeGroup();
+                        break;
+                    case '|':
+                        // the groups of the other alternatives do not participate
+                        hasOptionalGroup = true;
+                        mayBeEmpty();
+                        out.append('|');
+                        quantifiable = false;
+                        break;
+                    case '^':
+                        mayBeEmpty();
+                        out.append('^');
+                        quantifiable = false;
+                        break;
+                    case '.':
+                        out.append(dotAll ? "[\\s\\S]" : perl ? "[^\\n]" : "[^\\n\\r\\u0085\\u2028\\u2029]");
+                        break;
+                    case '$':
+                        mayBeEmpty();
+                        // PCRE without DOLLAR_ENDONLY also matches before a final newline
+                        out.append(perl ? "(?=\\n?$)" : JAVA_DOLLAR);
+                        quantifiable = false;
+                        break;
+                    case '*':
+                    case '+':
+                    case '?':
+                        if (!wasQuantifiable) {
+                            // the backends either reject the pattern or do not agree on it
+                            return null;
+                        }
+                        if (c != '+') {
+                            mayBeEmpty();
+                        }
+                        out.append(c);
+                        if (!quantifierSuffix()) {
+                            return null;
+                        }
+                        quantifiable = false;
+                        break;
+                    case '{':
+                        if (!wasQuantifiable) {
+                            return null;
+                        }
+                        mayBeEmpty();
+                        if (!boundedQuantifier()) {
+                            return null;
+                        }
+                        quantifiable = false;
+                        break;
+                    case ']':
+                    case '}':
+                    case '/':
+                        out.append('\\').append(c);
+                        break;
+                    default:
+                        if (!literal(c)) {
+                            return null;
+                        }
+                        break;
+                }
+            }
+            if (!openGroups.isEmpty() || (hasBackReference && hasOptionalGroup) || hasNullableRepeatedGroup) {
+                // a back-reference to a group that did not participate matches the empty string in
+                // ECMAScript, but fails in the other backends, and ECMAScript neither repeats a
+                // quantified group that matched the empty string nor keeps the captures of earlier
+                // iterations
+                return null;
+            }
+            return new Translation(out.toString(), groupNames.size(), groupNames.toArray(new String[groupNames.size()]), asciiOnly);
+        }
+
+        private void openGroup(int number, boolean lookaround) {
+            openGroups.add(new OpenGroup(number, lookaround));
+        }
+
+        private void closeGroup() {
+            OpenGroup group = openGroups.remove(openGroups.size() - 1);
+            closedGroups.set(group.number);
+            out.append(')');
+            boolean hasCaptures = group.number != 0 || group.containsCapture;
+            if (hasNext() && (peek() == '?' || peek() == '*' || peek() == '{')) {
+                hasOptionalGroup = true;
+                mayBeEmpty();
+            }
+            if (hasNext() && (peek() == '*' || peek() == '+' || peek() == '{') && hasCaptures && group.mayBeEmpty) {
+                hasNullableRepeatedGroup = true;
+            }
+            if (!openGroups.isEmpty()) {
+                OpenGroup enclosing = openGroups.get(openGroups.size() - 1);
+                enclosing.containsCapture |= hasCaptures;
+                enclosing.mayBeEmpty |= group.mayBeEmpty || group.lookaround;
+            }
+        }
+
+        /**
+         * Records that the innermost open group might match the empty string. This is an over
+         * approximation, e.g., {@code (a*b)} is also considered nullable.
+         */
+        private void mayBeEmpty() {
+            if (!openGroups.isEmpty()) {
+                openGroups.get(openGroups.size() - 1).mayBeEmpty = true;
+            }
+        }
+
+        private boolean literal(char c) {
+            if (Character.isSurrogate(c)) {
+                return false;
+            }
+            out.append(c);
+            return true;
+        }
+
+        /**
+         * Lazy quantifiers are supported, possessive quantifiers are not.
+         */
+        private boolean quantifierSuffix() {
+            if (peekIs('?')) {
+                out.append('?');
+                pos++;
+            }
+            return !peekIs('+');
+        }
+
+        private boolean boundedQuantifier() {
+            int start = pos;
+            while (hasNext() && Character.isDigit(peek())) {
+                pos++;
+            }
+            if (pos == start) {
+                return false;
+            }
+            if (peekIs(',')) {
+                pos++;
+                while (hasNext() && Character.isDigit(peek())) {
+                    pos++;
+                }
+            }
+            if (!peekIs('}')) {
+                return false;
+            }
+            pos++;
+            out.append('{').append(pattern, start, pos);
+            return quantifierSuffix();
+        }
+
+        private boolean group() {
+            if (!peekIs('?')) {
+                groupNames.add("");
+                openGroup(groupNames.size(), false);
+                out.append('(');
+                return true;
+            }
+            pos++;
+            if (!hasNext()) {
+                return false;
+            }
+            char c = pattern.charAt(pos++);
+            switch (c) {
+                case ':':
+                case '=':
+                case '!':
+                    out.append("(?").append(c);
+                    openGroup(0, c != ':');
+                    return true;
+                case '<':
+                    if (peekIs('=') || peekIs('!')) {
+                        out.append("(?<").append(pattern.charAt(pos++));
+                        openGroup(0, true);
+                        return true;
+                    }
+                    return namedGroup();
+                case 'P':
+                    if (perl && peekIs('<')) {
+                        pos++;
+                        return namedGroup();
+                    }
+                    return false;
+                default:
+                    // inline flags, atomic groups, comments, conditionals, ...
+                    return false;
+            }
+        }
+
+        private boolean namedGroup() {
+            int start = pos;
+            while (hasNext() && isAsciiLetterOrDigit(peek()) && (pos > start || !Character.isDigit(peek()))) {
+                pos++;
+            }
+            if (pos == start || !peekIs('>')) {
+                return false;
+            }
+            String name = pattern.substring(start, pos);
+            pos++;
+            groupNames.add(name);
+            openGroup(groupNames.size(), false);
+            out.append("(?<").append(name).append('>');
+            return true;
+        }
+
+        private boolean characterClass() {
+            out.append('[');
+            if (peekIs('^')) {
+                out.append('^');
+                pos++;
+            }
+            if (peekIs(']')) {
+                // a leading ']' is a literal in PCRE, but an empty class in ECMAScript
+                return false;
+            }
+            boolean lastWasClassEscape = false;
+            while (hasNext()) {
+                char c = pattern.charAt(pos++);
+                boolean classEscape = false;
+                switch (c) {
+                    case ']':
+                        out.append(']');
+                        return true;
+                    case '\\':
+                        if (!hasNext()) {
+                            return false;
+                        }
+                        classEscape = "dDwWsp".indexOf(peek()) >= 0;
+                        if (!escape(true)) {
+                            return false;
+                        }
+                        break;
+                    case '[':
+                        if (!perl) {
+                            // union of classes in java.util.regex
+                            return false;
+                        } else if (peekIs(':')) {
+                            int end = pattern.indexOf(":]", pos + 1);
+                            if (end < 0) {
+                                return false;
+                            }
+                            String ranges = posixClass(pattern.substring(pos + 1, end));
+                            if (ranges == null) {
+                                return false;
+                            }
+                            out.append(ranges);
+                            pos = end + 2;
+                            classEscape = true;
+                        } else {
+                            out.append("\\[");
+                        }
+                        break;
+                    case '&':
+                        if (!perl && peekIs('&')) {
+                            // intersection of classes in java.util.regex
+                            return false;
+                        }
+                        out.append('&');
+                        break;
+                    case '-':
+                        // ECMAScript accepts ranges with class escapes as bounds
+                        if ((lastWasClassEscape && !peekIs(']')) || (peekIs('\\') && pos + 1 < pattern.length() && "dDwWsSpP".indexOf(pattern.charAt(pos + 1)) >= 0) || peekIs('[')) {
+                            return false;
+                        }
+                        out.append('-');
+                        break;
+                    case '/':
+                        out.append("\\/");
+                        break;
+                    default:
+                        if (!literal(c)) {
+                            return false;
+                        }
+                        break;
+                }
+                lastWasClassEscape = classEscape;
+            }
+            return false;
+        }
+
+        /**
+         * Translates the escape sequence following a backslash.
+         */
+        private boolean escape(boolean inClass) {
+            if (!hasNext()) {
+                return false;
+            }
+            char c = pattern.charAt(pos++);
+            switch (c) {
+                case 'd':
+                case 'D':
+                case 'w':
+                case 'W':
+                case 't':
+                case 'n':
+                case 'r':
+                case 'f':
+                    out.append('\\').append(c);
+                    return true;
+                case 's':
+                    // \s of ECMAScript includes the Unicode white space
+                    out.append(inClass ? SPACE : "[" + SPACE + "]");
+                    return true;
+                case 'S':
+                    if (inClass) {
+                        return false;
+                    }
+                    out.append("[^" + SPACE + "]");
+                    return true;
+                case 'b':
+                case 'B':
+                    if (inClass) {
+                        return false;
+                    }
+                    if (!perl) {
+                        // word characters of java.util.regex boundaries are Unicode letters and
+                        // digits
+                        asciiOnly = true;
+                    }
+                    mayBeEmpty();
+                    out.append('\\').append(c);
+                    return true;
+                case 'x':
+                    if (pos + 2 > pattern.length() || !isHexDigit(pattern.charAt(pos)) || !isHexDigit(pattern.charAt(pos + 1))) {
+                        return false;
+                    }
+                    out.append("\\x").append(pattern, pos, pos + 2);
+                    pos += 2;
+                    return true;
+                case 'p':
+                case 'P':
+                    return !perl && javaPosixClass(c == 'P', inClass);
+                default:
+                    if (c >= '1' && c <= '9') {
+                        return backReference(c - '0', inClass);
+                    } else if (c < 128 && !isAsciiLetterOrDigit(c)) {
+                        // escaped punctuation is a literal in all backends
+                        appendHex(c);
+                        return true;
+                    }
+                    // anchors, quoting, octal and Unicode escapes, named back-references, ...
+                    return false;
+            }
+        }
+
+        private boolean backReference(int group, boolean inClass) {
+            if (inClass || (hasNext() && Character.isDigit(peek())) || !closedGroups.get(group)) {
+                return false;
+            }
+            hasBackReference = true;
+            out.append('\\').append((char) ('0' + group));
+            return true;
+        }
+
+        /**
+         * The POSIX classes {@code \p{Alpha}} etc. produced by
+         * {@link RegExp#transformPatternToGnurCompatible(String)}, which are ASCII only in
+         * {@code java.util.regex}.
+         */
+        private boolean javaPosixClass(boolean negated, boolean inClass) {
+            if (!peekIs('{')) {
+                return false;
+            }
+            int end = pattern.indexOf('}', pos);
+            if (end < 0) {
+                return false;
+            }
+            String name = pattern.substring(pos + 1, end);
+            if (negated && inClass) {
+                return false;
+            }
+            String ranges = JAVA_POSIX_CLASSES.contains(name) ? posixClass(name.toLowerCase()) : null;
+            if (ranges == null || (ignoreCase && (name.equals("Lower") || name.equals("Upper")))) {
+                return false;
+            }
+            pos = end + 1;
+            if (inClass) {
+                out.append(ranges);
+            } else {
+                out.append(negated ? "[^" : "[").append(ranges).append(']');
+            }
+            return true;
+        }
+
+        private void appendHex(char c) {
+            out.append("\\x").append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+        }
+    }
+
+    private static final class OpenGroup {
+        // capturing group number, 0 for the other groups
+        final int number;
+        final boolean lookaround;
+        boolean containsCapture;
+        boolean mayBeEmpty;
+
+        OpenGroup(int number, boolean lookaround) {
+            this.number = number;
+            this.lookaround = lookaround;
+        }
+    }
+
+    /**
+     * The ASCII ranges of the POSIX character classes.
+     */
+    private static String posixClass(String name) {
+        switch (name) {
+            case "alnum":
+                return "0-9A-Za-z";
+            case "alpha":
+                return "A-Za-z";
+            case "blank":
+                return " \\t";
+            case "cntrl":
+                return "\\x00-\\x1F\\x7F";
+            case "digit":
+                return "0-9";
+            case "graph":
+                return "\\x21-\\x7E";
+            case "lower":
+                return "a-z";
+            case "print":
+                return "\\x20-\\x7E";
+            case "punct":
+                return "\\x21-\\x2F\\x3A-\\x40\\x5B-\\x60\\x7B-\\x7E";
+            case "space":
+                return SPACE;
+            case "upper":
+                return "A-Z";
+            case "xdigit":
+                return "0-9A-Fa-f";
+            default:
+                return null;
+        }
+    }
+
+    private static boolean isAsciiLetterOrDigit(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+    }
+
+    private static boolean isHexDigit(char c) {
+        return Character.digit(c, 16) >= 0 && c < 128;
+    }
+}
@@ -28,6 +28,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Reader;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.channels.ByteChannel;
 import java.nio.channels.Channels;
 import java.nio.channels.ReadableByteChannel;
@@ -37,6 +38,7 @@ import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CodingErrorAction;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.Objects;
 
@@ -49,7 +51,6 @@ import com.oracle.truffle.r.runtime.data.RBaseObject;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
 import com.oracle.truffle.r.runtime.data.RStringVector;
 import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
 
 /**
  * Actually performs the I/O operations for a connections.<br>
@@ -62,6 +63,10 @@ abstract class DelegateRConnection extends RBaseObject implements RConnection, B
     public static final int DEFAULT_CACHE_SIZE = 16 * 1024;
     protected final BaseRConnection base;
     private final ByteBuffer cache;
+    /**
+     * Little-endian view of {@link #cache} used to scan the cached data in words.
+     */
+    private final ByteBuffer cacheWords;
     private final boolean readCache;
 
     DelegateRConnection(BaseRConnection base) {
@@ -79,8 +84,10 @@ abstract class DelegateRConnection extends RBaseObject implements RConnection, B
             if (readCache) {
                 cache.flip();
             }
+            cacheWords = ByteBuffer.wrap(cache.array()).order(ByteOrder.LITTLE_ENDIAN);
         } else {
             cache = null;
+            cacheWords = null;
         }
     }
 
@@ -133,7 +140,10 @@ abstract class DelegateRConnection extends RBaseObject implements RConnection, B
     /**
      * {@code readLines} from the connection. It would be convenient to use a {@link BufferedReader}
      * but mixing binary and text operations, which is a requirement, would then be difficult.
-     * 
+     *
+     * If the connection has a read cache, the lines are scanned for directly in the cached blocks,
+     * see {@link #readLinesBuffered(int, EnumSet, boolean)}.
+     *
      * @param warn Specifies which warnings should be output.
      * @param skipNul Specifies if the null character should be ignored.
      */
@@ -141,6 +151,9 @@ abstract class DelegateRConnection extends RBaseObject implements RConnection, B
     @TruffleBoundary
     public String[] readLines(int n, EnumSet<ReadLineWarning> warn, boolean skipNul) throws IOException {
         base.setIncomplete(false);
+        if (readCache && cache != null) {
+            return readLinesBuffered(n, warn, skipNul);
+        }
         ArrayList<String> lines = new ArrayList<>();
         int totalRead = 0;
         int nBytesConsumed = 0;
@@ -158,21 +171,8 @@ abstract class DelegateRConnection extends RBaseObject implements RConnection, B
             boolean lineEnd = false;
             if (ch < 0) {
                 if (totalRead > 0) {
-                    /*
-                     * GnuR says if non-blocking and in text mode, silently push back incomplete
-                     * lines, otherwise keep data and output warning.
-                     */
-                    final String incompleteFinalLine = new String(buffer, 0, totalRead, base.getEncoding());
                     nBytesConsumed += totalRead;
-                    if (!base.isBlocking() && base.isTextMode()) {
-                        base.pushBack(RDataFactory.createStringVector(incompleteFinalLine), false);
-                        base.setIncomplete(true);
-                    } else {
-                        lines.add(incompleteFinalLine);
-                        if (warn.contains(ReadLineWarning.INCOMPLETE_LAST_LINE)) {
-                            RError.warning(RError.SHOW_CALLER, RError.Message.INCOMPLETE_FINAL_LINE, base.getSummaryDescription());
-                        }
-                    }
+                    incompleteFinalLine(new String(buffer, 0, totalRead, base.getEncoding()), lines, warn);
                 }
                 break;
             }
@@ -216,6 +216,147 @@ abstract class DelegateRConnection extends RBaseObject implements RConnection, B
         return result;
     }
 
+    /**
+     * Block-wise variant of {@link #readLines(int, EnumSet, boolean)}: the line terminators are
+     * searched for directly in the read cache and a line that lies completely within the cache is
+     * decoded without copying. Only lines that span several blocks or contain {@code NUL}
+     * characters are assembled in a separate buffer.
+     */
+    private String[] readLinesBuffered(int n, EnumSet<ReadLineWarning> warn, boolean skipNul) throws IOException {
+        Charset encoding = base.getEncoding();
+        byte[] data = cache.array();
+        ArrayList<String> lines = new ArrayList<>();
+        byte[] buffer = null;
+        int totalRead = 0;
+        int nBytesConsumed = 0;
+        boolean nullRead = false;
+        while (true) {
+            if (!cache.hasRemaining()) {
+                ensureDataAvailable(1);
+                if (!cache.hasRemaining()) {
+                    if (totalRead > 0) {
+                        nBytesConsumed += totalRead;
+                        incompleteFinalLine(new String(buffer, 0, totalRead, encoding), lines, warn);
+                    }
+                    break;
+                }
+            }
+            int start = cache.position();
+            int limit = cache.limit();
+            int end = findLineTerminator(start, limit);
+            int segmentLength = nullRead ? 0 : end - start;
+            if (end == limit || data[end] == 0 || totalRead > 0) {
+                if (segmentLength > 0) {
+                    buffer = ensureCapacity(buffer, totalRead + segmentLength);
+                    System.arraycopy(data, start, buffer, totalRead, segmentLength);
+                    totalRead += segmentLength;
+                }
+                segmentLength = 0;
+            }
+            if (end == limit) {
+                cache.position(end);
+                continue;
+            }
+            byte terminator = data[end];
+            cache.position(end + 1);
+            if (terminator == 0) {
+                if (warn.contains(ReadLineWarning.EMBEDDED_NUL) && !skipNul) {
+                    RError.warning(RError.SHOW_CALLER, RError.Message.LINE_CONTAINS_EMBEDDED_NULLS, lines.size() + 1);
+                }
+                nullRead = !skipNul;
+                continue;
+            }
+            if (totalRead > 0) {
+                lines.add(new String(buffer, 0, totalRead, encoding));
+                nBytesConsumed += totalRead;
+            } else {
+                lines.add(new String(data, start, segmentLength, encoding));
+                nBytesConsumed += segmentLength;
+            }
+            totalRead = 0;
+            nullRead = false;
+            if (terminator == '\r') {
+                // swallow the trailing lf, if any
+                if (!cache.hasRemaining()) {
+                    ensureDataAvailable(1);
+                }
+                if (cache.hasRemaining() && data[cache.position()] == '\n') {
+                    cache.position(cache.position() + 1);
+                }
+            }
+            if (n > 0 && lines.size() == n) {
+                break;
+            }
+        }
+        String[] result = new String[lines.size()];
+        lines.toArray(result);
+        updateReadOffset(nBytesConsumed);
+        return result;
+    }
+
+    private void incompleteFinalLine(String line, ArrayList<String> lines, EnumSet<ReadLineWarning> warn) {
+        /*
+         * GnuR says if non-blocking and in text mode, silently push back incomplete lines,
+         * otherwise keep data and output warning.
+         */
+        if (!base.isBlocking() && base.isTextMode()) {
+            base.pushBack(RDataFactory.createStringVector(line), false);
+            base.setIncomplete(true);
+        } else {
+            lines.add(line);
+            if (warn.contains(ReadLineWarning.INCOMPLETE_LAST_LINE)) {
+                RError.warning(RError.SHOW_CALLER, RError.Message.INCOMPLETE_FINAL_LINE, base.getSummaryDescription());
+            }
+        }
+    }
+
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+    private static final long LF_BYTES = '\n' * ONES;
+    private static final long CR_BYTES = '\r' * ONES;
+
+    /**
+     * Returns a word that has the high bit set in the lowest byte that is zero in {@code word}.
+     * Higher bytes may be reported spuriously, but never the lowest one.
+     */
+    private static long zeroBytes(long word) {
+        return (word - ONES) & ~word & HIGH_BITS;
+    }
+
+    /**
+     * Returns the index of the first {@code '\n'}, {@code '\r'} or {@code NUL} byte in the read
+     * cache between {@code from} (inclusive) and {@code to} (exclusive), or {@code to} if there is
+     * none. Eight bytes are tested at once.
+     */
+    private int findLineTerminator(int from, int to) {
+        int i = from;
+        for (; i + Long.BYTES <= to; i += Long.BYTES) {
+            long word = cacheWords.getLong(i);
+            long found = zeroBytes(word) | zeroBytes(word ^ LF_BYTES) | zeroBytes(word ^ CR_BYTES);
+            if (found != 0) {
+                return i + (Long.numberOfTrailingZeros(found) >>> 3);
+            }
+        }
+        byte[] data = cache.array();
+        for (; i < to; i++) {
+            byte b = data[i];
+            if (b == '\n' || b == '\r' || b == 0) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    private static byte[] ensureCapacity(byte[] buffer, int n) {
+        if (buffer == null) {
+            return new byte[Math.max(64, n)];
+        } else if (n > buffer.length) {
+            return Arrays.copyOf(buffer, Math.max(n, buffer.length + buffer.length / 2));
+        } else {
+            return buffer;
+        }
+    }
+
     /**
      * Updates the read cursor.<br>
      * <p>
@@ -641,7 +782,7 @@ abstract class DelegateRConnection extends RBaseObject implements RConnection, B
 
     static DelegateRConnection createGZIPDelegateOutputConnection(BaseRConnection base, OutputStream os) throws IOException {
         assert base.getOpenMode().canWrite();
-        return new CompressedOutputRConnection(base, new GZIPOutputStream(os, GZIP_BUFFER_SIZE), true);
+        return new CompressedOutputRConnection(base, ParallelCompressionOutputStream.createGZIP(os), true);
     }
 
     static DelegateRConnection createGZIPDelegateInputConnection(BaseRConnection base, InputStream is) throws IOException {
@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2021, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.runtime.conn;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+import org.tukaani.xz.LZMA2Options;
+import org.tukaani.xz.XZ;
+import org.tukaani.xz.XZOutputStream;
+
+import com.oracle.truffle.r.runtime.context.FastROptions;
+import com.oracle.truffle.r.runtime.context.RContext;
+
+/**
+ * Compresses the data written to it in independent blocks, using several threads, and writes the
+ * compressed blocks in order. Each block becomes a complete gzip member or xz stream; both formats
+ * allow concatenation, so the result can be read by any gzip/xz decoder, including GNU R's
+ * {@code gzfile} and {@code xzfile}.
+ */
+final class ParallelCompressionOutputStream extends OutputStream {
+
+    private static final int GZIP_BLOCK_SIZE = 1 << 20;
+    private static final int XZ_BLOCK_SIZE = 8 << 20;
+
+    @FunctionalInterface
+    private interface BlockCompressor {
+        byte[] compress(byte[] data, int length) throws IOException;
+    }
+
+    private final OutputStream out;
+    private final BlockCompressor compressor;
+    /**
+     * The maximal number of blocks being compressed at the same time, {@code 1} means that the
+     * blocks are compressed in the writing thread.
+     */
+    private final int threads;
+    private final ArrayDeque<Future<byte[]>> pending = new ArrayDeque<>();
+    private byte[] block;
+    private int count;
+    private boolean written;
+
+    private ParallelCompressionOutputStream(OutputStream out, BlockCompressor compressor, int blockSize, int threads) {
+        this.out = out;
+        this.compressor = compressor;
+        this.threads = threads;
+        this.block = new byte[blockSize];
+    }
+
+    static OutputStream createGZIP(OutputStream out) {
+        return new ParallelCompressionOutputStream(out, ParallelCompressionOutputStream::gzipBlock, GZIP_BLOCK_SIZE, getThreads());
+    }
+
+    static OutputStream createXZ(OutputStream out) {
+        return new ParallelCompressionOutputStream(out, ParallelCompressionOutputStream::xzBlock, XZ_BLOCK_SIZE, Math.min(getThreads(), getXZMemoryLimit()));
+    }
+
+    private static int getThreads() {
+        int threads = RContext.getInstance().getNonNegativeIntOption(FastROptions.CompressionThreads);
+        return threads == 0 ? Runtime.getRuntime().availableProcessors() : threads;
+    }
+
+    /**
+     * The xz encoder of the default preset needs about 94MB, so only as many blocks are compressed
+     * at the same time as their encoders and buffers fit in a quarter of the maximal heap size.
+     */
+    private static int getXZMemoryLimit() {
+        long blockMemory = new LZMA2Options().getEncoderMemoryUsage() * 1024L + 2L * XZ_BLOCK_SIZE;
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 4 / blockMemory));
+    }
+
+    private static byte[] gzipBlock(byte[] data, int length) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream(length / 2 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(result)) {
+            gzip.write(data, 0, length);
+        }
+        return result.toByteArray();
+    }
+
+    private static byte[] xzBlock(byte[] data, int length) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream(length / 4 + 64);
+        try (XZOutputStream xz = new XZOutputStream(result, new LZMA2Options(), XZ.CHECK_CRC32)) {
+            xz.write(data, 0, length);
+        }
+        return result.toByteArray();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        block[count++] = (byte) b;
+        if (count == block.length) {
+            submitBlock(false);
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        int offset = off;
+        int remaining = len;
+        while (remaining > 0) {
+            int n = Math.min(remaining, block.length - count);
+            System.arraycopy(b, offset, block, count, n);
+            count += n;
+            offset += n;
+            remaining -= n;
+            if (count == block.length) {
+                submitBlock(false);
+            }
+        }
+    }
+
+    private void submitBlock(boolean last) throws IOException {
+        byte[] data = block;
+        int length = count;
+        if (!last) {
+            block = new byte[block.length];
+        }
+        count = 0;
+        written = true;
+        if (threads <= 1) {
+            out.write(compressor.compress(data, length));
+        } else {
+            pending.add(ForkJoinPool.commonPool().submit(() -> compressor.compress(data, length)));
+            while (pending.size() >= threads) {
+                writePending();
+            }
+        }
+    }
+
+    private void writePending() throws IOException {
+        Future<byte[]> next = pending.poll();
+        try {
+            out.write(next.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Writes out all blocks that are already being compressed. The data of the current, partial
+     * block is kept, so that flushing does not degrade the compression ratio.
+     */
+    @Override
+    public void flush() throws IOException {
+        while (!pending.isEmpty()) {
+            writePending();
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (block == null) {
+            return;
+        }
+        try {
+            if (count > 0 || !written) {
+                // an empty stream still consists of one (empty) gzip member or xz stream
+                submitBlock(true);
+            }
+            flush();
+        } finally {
+            block = null;
+            out.close();
+        }
+    }
+}
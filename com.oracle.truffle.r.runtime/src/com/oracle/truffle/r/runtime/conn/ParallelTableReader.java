@@ -0,0 +1,1089 @@
+/*
+ * Copyright (c) 2021, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.runtime.conn;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+import com.oracle.truffle.r.runtime.RRuntime;
+
+/**
+ * Reads a delimited text file into typed columns. This is the engine of the fast path of
+ * {@code read.table} and {@code read.csv}, it supports the subset of {@code scan} that such files
+ * need: a one byte separator, quotes in the style of CSV files (escaped by doubling them),
+ * comments, {@code na.strings}, skipped lines and an optional header. Blank lines are skipped.
+ * <p>
+ * The file is memory-mapped and split into chunks. The quote and comment state at the start of a
+ * chunk depends on everything before it, so the chunks are first scanned in parallel once for
+ * each possible start state. Composing these results in order gives the real state at the start
+ * of every chunk and thus the first record that starts in it. The records of the chunks are then
+ * parsed in parallel.
+ * <p>
+ * A column is typed directly if all its values are logical words or all are plain decimal numbers
+ * that {@code type.convert} reads the same way. The other columns are returned as character
+ * vectors, with {@code na.strings} replaced by {@code NA} as {@code scan} does, and have to be
+ * converted by {@code type.convert}. {@code null} is returned whenever the file is outside of the
+ * supported subset, e.g. if a record has a different number of fields than the first one, so that
+ * the caller can fall back to the general implementation.
+ */
+public final class ParallelTableReader {
+
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    private static final long MIN_CHUNK_SIZE = 1 << 20;
+    private static final long MAX_CHUNK_SIZE = 1 << 26;
+
+    /*
+     * Column types ordered by generality; NONE means that only NA values were seen so far.
+     */
+    private static final byte NONE = 0;
+    private static final byte LOGICAL = 1;
+    private static final byte INTEGER = 2;
+    private static final byte DOUBLE = 3;
+    private static final byte CHARACTER = 4;
+
+    /*
+     * Quote and comment states of the chunk scan, the state of the k-th quote character is
+     * QUOTE + k.
+     */
+    private static final int NORMAL = 0;
+    private static final int COMMENT = 1;
+    private static final int QUOTE = 2;
+
+    /*
+     * Kinds of field values.
+     */
+    private static final int TOKEN_OTHER = 0;
+    private static final int TOKEN_NA = 1;
+    private static final int TOKEN_LOGICAL = 2;
+    private static final int TOKEN_INTEGER = 3;
+    private static final int TOKEN_DOUBLE = 4;
+
+    /**
+     * Decimal numbers with more significant digits are left to {@code type.convert}.
+     */
+    private static final int MAX_DIGITS = 18;
+    private static final double[] POWERS_OF_TEN = new double[23];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private ParallelTableReader() {
+        // only static methods
+    }
+
+    public static final class Format {
+
+        private final byte separator;
+        private final byte[] quotes;
+        private final int commentChar;
+        private final int skip;
+        private final boolean header;
+        private final byte[][] naStrings;
+        /**
+         * The quote and comment state transitions, indexed by {@code state << 8 | byte}.
+         */
+        private final byte[] transitions;
+
+        private Format(byte separator, byte[] quotes, int commentChar, int skip, boolean header, byte[][] naStrings) {
+            this.separator = separator;
+            this.quotes = quotes;
+            this.commentChar = commentChar;
+            this.skip = skip;
+            this.header = header;
+            this.naStrings = naStrings;
+            this.transitions = new byte[getStateCount() << 8];
+            for (int b = 0; b < 256; b++) {
+                int normal = b == commentChar ? COMMENT : NORMAL;
+                for (int k = quotes.length - 1; k >= 0; k--) {
+                    if (quotes[k] == (byte) b) {
+                        normal = QUOTE + k;
+                    }
+                }
+                transitions[NORMAL << 8 | b] = (byte) normal;
+                transitions[COMMENT << 8 | b] = (byte) (b == '\n' || b == '\r' ? NORMAL : COMMENT);
+                for (int k = 0; k < quotes.length; k++) {
+                    transitions[(QUOTE + k) << 8 | b] = (byte) (quotes[k] == (byte) b ? NORMAL : QUOTE + k);
+                }
+            }
+        }
+
+        /**
+         * Creates the format of a file with the given {@code read.table} arguments, or returns
+         * {@code null} if they are not supported. The separator, the quote characters and the
+         * comment character must be distinct ASCII characters other than newlines; an empty
+         * {@code commentChar} means no comments.
+         */
+        public static Format create(String sep, String quote, String commentChar, int skip, boolean header, String[] naStrings) {
+            if (sep.length() != 1 || !isSupportedChar(sep.charAt(0)) || commentChar.length() > 1 || skip < 0) {
+                return null;
+            }
+            byte separator = (byte) sep.charAt(0);
+            byte[] quotes = new byte[quote.length()];
+            for (int i = 0; i < quotes.length; i++) {
+                char c = quote.charAt(i);
+                if (!isSupportedChar(c) || c == separator) {
+                    return null;
+                }
+                quotes[i] = (byte) c;
+            }
+            int comment = -1;
+            if (commentChar.length() == 1) {
+                comment = commentChar.charAt(0);
+                if (!isSupportedChar((char) comment) || comment == separator || quote.indexOf(comment) >= 0) {
+                    return null;
+                }
+            }
+            int count = 0;
+            byte[][] na = new byte[naStrings.length][];
+            for (String s : naStrings) {
+                if (!RRuntime.isNA(s)) {
+                    na[count++] = s.getBytes(StandardCharsets.UTF_8);
+                }
+            }
+            return new Format(separator, quotes, comment, skip, header, Arrays.copyOf(na, count));
+        }
+
+        private static boolean isSupportedChar(char c) {
+            return c > 0 && c < 128 && c != '\n' && c != '\r';
+        }
+
+        private int getStateCount() {
+            return QUOTE + quotes.length;
+        }
+    }
+
+    public static final class Table {
+        /**
+         * The header fields or {@code null} if the file has no header.
+         */
+        public final String[] names;
+        /**
+         * The columns, each one is an {@code int[]}, a {@code double[]}, a {@code byte[]} of
+         * logical values or a {@code String[]} that still has to be converted by
+         * {@code type.convert}.
+         */
+        public final Object[] columns;
+        public final boolean[] complete;
+
+        private Table(String[] names, Object[] columns, boolean[] complete) {
+            this.names = names;
+            this.columns = columns;
+            this.complete = complete;
+        }
+    }
+
+    /**
+     * Returns the number of chunks to split a file of {@code size} bytes into when it is read in
+     * parallel.
+     */
+    public static int getChunkCount(long size) {
+        long chunkSize = Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, size / (ForkJoinPool.getCommonPoolParallelism() * 4L)));
+        return (int) Math.max(1, (size + chunkSize - 1) / chunkSize);
+    }
+
+    /**
+     * Reads the file open in {@code channel} in the given number of {@code chunks}, {@code 1}
+     * reads it sequentially in the calling thread. Returns {@code null} if the file is not in the
+     * supported subset of formats or has no data records.
+     */
+    public static Table read(FileChannel channel, Format format, int chunks) throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            return null;
+        }
+        MappedFile file = new MappedFile(channel, size);
+        if (hasSignature(file)) {
+            return null;
+        }
+        RecordParser parser = new RecordParser(file, format);
+        long pos = skipLines(file, format.skip);
+        long recordStart;
+        do {
+            recordStart = pos;
+            pos = parser.parseRecord(pos, size);
+        } while (!parser.failed && parser.fieldCount == 0 && pos < size);
+        if (parser.failed || parser.fieldCount == 0) {
+            return null;
+        }
+        int ncol = parser.fieldCount;
+        String[] names = null;
+        long dataStart = recordStart;
+        if (format.header) {
+            names = parser.getHeader();
+            dataStart = pos;
+        }
+        if (dataStart >= size) {
+            return null;
+        }
+
+        long length = size - dataStart;
+        int n = (int) Math.max(1, Math.min(chunks, length));
+        boolean parallel = n > 1;
+        long[] bounds = new long[n + 1];
+        for (int i = 0; i <= n; i++) {
+            bounds[i] = dataStart + (long) (length * ((double) i / n));
+        }
+        bounds[n] = size;
+        ChunkStates[] states = new ChunkStates[n];
+        forEach(n, parallel, i -> states[i] = ChunkStates.scan(file, format, bounds[i], bounds[i + 1]));
+
+        // the ranges of records, each one starts with the first record that starts in a chunk
+        long[] ranges = new long[n + 1];
+        int rangeCount = 0;
+        int state = NORMAL;
+        for (int i = 0; i < n; i++) {
+            if (states[i].nul) {
+                return null;
+            }
+            long start = i == 0 ? dataStart : states[i].firstRecord[state];
+            if (start >= 0 && (rangeCount == 0 || start > ranges[rangeCount - 1])) {
+                ranges[rangeCount++] = start;
+            }
+            state = states[i].end[state];
+        }
+        if (state >= QUOTE) {
+            // EOF within a quoted string
+            return null;
+        }
+        ranges[rangeCount] = size;
+
+        int m = rangeCount;
+        Chunk[] results = new Chunk[m];
+        byte[] noTypes = new byte[ncol];
+        forEach(m, parallel, i -> results[i] = Chunk.parse(file, format, ncol, ranges[i], ranges[i + 1], noTypes));
+        byte[] types = new byte[ncol];
+        long rows = 0;
+        for (Chunk chunk : results) {
+            if (chunk.failed) {
+                return null;
+            }
+            rows += chunk.rows;
+            for (int c = 0; c < ncol; c++) {
+                types[c] = join(types[c], chunk.columns[c].type);
+            }
+        }
+        if (rows == 0 || rows > Integer.MAX_VALUE) {
+            return null;
+        }
+        // the chunks whose values cannot be converted to the final types are parsed again
+        forEach(m, parallel, i -> {
+            if (results[i].needsReparse(types)) {
+                results[i] = Chunk.parse(file, format, ncol, ranges[i], ranges[i + 1], types);
+            }
+        });
+
+        Object[] columns = new Object[ncol];
+        boolean[] complete = new boolean[ncol];
+        int totalRows = (int) rows;
+        forEach(ncol, parallel, c -> {
+            columns[c] = assemble(results, c, types[c], totalRows);
+            boolean noNA = types[c] != NONE;
+            for (Chunk chunk : results) {
+                noNA &= !chunk.columns[c].na;
+            }
+            complete[c] = noNA;
+        });
+        return new Table(names, columns, complete);
+    }
+
+    private static byte join(byte a, byte b) {
+        if (a == b || b == NONE) {
+            return a;
+        } else if (a == NONE) {
+            return b;
+        } else if (a == CHARACTER || b == CHARACTER || a == LOGICAL || b == LOGICAL) {
+            return CHARACTER;
+        } else {
+            // INTEGER and DOUBLE
+            return DOUBLE;
+        }
+    }
+
+    /**
+     * Compressed files are decompressed by {@code file}, and a byte order mark is kept by it. Both
+     * are left to the general implementation.
+     */
+    private static boolean hasSignature(MappedFile file) {
+        return file.startsWith(0x1f, 0x8b) || file.startsWith('B', 'Z', 'h') || file.startsWith(0xfd, '7', 'z', 'X', 'Z', 0) || file.startsWith(0xef, 0xbb, 0xbf);
+    }
+
+    private static long skipLines(MappedFile file, int lines) {
+        long pos = 0;
+        for (int i = 0; i < lines && pos < file.size; i++) {
+            while (pos < file.size) {
+                byte b = file.get(pos++);
+                if (b == '\n') {
+                    break;
+                } else if (b == '\r') {
+                    if (pos < file.size && file.get(pos) == '\n') {
+                        pos++;
+                    }
+                    break;
+                }
+            }
+        }
+        return pos;
+    }
+
+    private static Object assemble(Chunk[] chunks, int c, byte type, int rows) {
+        int offset = 0;
+        switch (type) {
+            case NONE: {
+                byte[] result = new byte[rows];
+                Arrays.fill(result, RRuntime.LOGICAL_NA);
+                return result;
+            }
+            case LOGICAL: {
+                byte[] result = new byte[rows];
+                for (Chunk chunk : chunks) {
+                    Column column = chunk.columns[c];
+                    if (column.type == LOGICAL) {
+                        System.arraycopy(column.logicals, 0, result, offset, chunk.rows);
+                    } else {
+                        Arrays.fill(result, offset, offset + chunk.rows, RRuntime.LOGICAL_NA);
+                    }
+                    offset += chunk.rows;
+                }
+                return result;
+            }
+            case INTEGER: {
+                int[] result = new int[rows];
+                for (Chunk chunk : chunks) {
+                    Column column = chunk.columns[c];
+                    if (column.type == INTEGER) {
+                        System.arraycopy(column.ints, 0, result, offset, chunk.rows);
+                    } else {
+                        Arrays.fill(result, offset, offset + chunk.rows, RRuntime.INT_NA);
+                    }
+                    offset += chunk.rows;
+                }
+                return result;
+            }
+            case DOUBLE: {
+                double[] result = new double[rows];
+                for (Chunk chunk : chunks) {
+                    Column column = chunk.columns[c];
+                    if (column.type == DOUBLE) {
+                        System.arraycopy(column.doubles, 0, result, offset, chunk.rows);
+                    } else if (column.type == INTEGER) {
+                        for (int i = 0; i < chunk.rows; i++) {
+                            int value = column.ints[i];
+                            result[offset + i] = value == RRuntime.INT_NA ? RRuntime.DOUBLE_NA : value;
+                        }
+                    } else {
+                        Arrays.fill(result, offset, offset + chunk.rows, RRuntime.DOUBLE_NA);
+                    }
+                    offset += chunk.rows;
+                }
+                return result;
+            }
+            default: {
+                assert type == CHARACTER;
+                String[] result = new String[rows];
+                for (Chunk chunk : chunks) {
+                    System.arraycopy(chunk.columns[c].strings, 0, result, offset, chunk.rows);
+                    offset += chunk.rows;
+                }
+                return result;
+            }
+        }
+    }
+
+    private static void forEach(int n, boolean parallel, IntConsumer body) {
+        if (parallel && n > 1) {
+            ForkJoinPool.commonPool().invoke(new ForEachTask(body, 0, n));
+        } else {
+            for (int i = 0; i < n; i++) {
+                body.accept(i);
+            }
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static final class ForEachTask extends RecursiveAction {
+
+        private final IntConsumer body;
+        private final int lo;
+        private final int hi;
+
+        ForEachTask(IntConsumer body, int lo, int hi) {
+            this.body = body;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > 1) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new ForEachTask(body, lo, mid), new ForEachTask(body, mid, hi));
+            } else {
+                body.accept(lo);
+            }
+        }
+    }
+
+    /**
+     * The file mapped in segments of at most 1GB, which can be read from any thread.
+     */
+    private static final class MappedFile {
+
+        private final ByteBuffer[] segments;
+        private final long size;
+
+        MappedFile(FileChannel channel, long size) throws IOException {
+            this.size = size;
+            this.segments = new ByteBuffer[(int) ((size + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+            for (int i = 0; i < segments.length; i++) {
+                long start = (long) i << SEGMENT_SHIFT;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_MASK + 1, size - start));
+            }
+        }
+
+        byte get(long pos) {
+            return segments[(int) (pos >>> SEGMENT_SHIFT)].get((int) (pos & SEGMENT_MASK));
+        }
+
+        boolean startsWith(int... signature) {
+            if (size < signature.length) {
+                return false;
+            }
+            for (int i = 0; i < signature.length; i++) {
+                if ((get(i) & 0xff) != signature[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * The result of scanning a chunk for each possible start state: the state at its end and the
+     * position of the first record that starts in it, or {@code -1}.
+     */
+    private static final class ChunkStates {
+
+        private final byte[] end;
+        private final long[] firstRecord;
+        private boolean nul;
+
+        private ChunkStates(int states) {
+            this.end = new byte[states];
+            this.firstRecord = new long[states];
+        }
+
+        static ChunkStates scan(MappedFile file, Format format, long start, long end) {
+            int states = format.getStateCount();
+            byte[] transitions = format.transitions;
+            ChunkStates result = new ChunkStates(states);
+            byte[] current = result.end;
+            for (int s = 0; s < states; s++) {
+                current[s] = (byte) s;
+            }
+            long[] firstRecord = result.firstRecord;
+            Arrays.fill(firstRecord, -1);
+            for (long pos = start; pos < end; pos++) {
+                int b = file.get(pos) & 0xff;
+                if (b == 0) {
+                    result.nul = true;
+                    return result;
+                }
+                boolean newline = b == '\n' || b == '\r';
+                for (int s = 0; s < states; s++) {
+                    int state = current[s];
+                    if (newline && state <= COMMENT && firstRecord[s] < 0) {
+                        firstRecord[s] = pos + 1;
+                    }
+                    current[s] = transitions[state << 8 | b];
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Splits records into fields and classifies their values.
+     */
+    private static final class RecordParser {
+
+        private final MappedFile file;
+        private final Format format;
+
+        private byte[] data = new byte[256];
+        private int length;
+        private int[] fieldEnds = new int[16];
+        private boolean[] fieldQuoted = new boolean[16];
+        int fieldCount;
+        /**
+         * Set if a record contains a NUL byte or a quoted string is not terminated.
+         */
+        boolean failed;
+
+        int intValue;
+        /**
+         * Set for an integer {@code -0}, which is a negative zero as a double.
+         */
+        boolean negativeZero;
+        double doubleValue;
+        byte logicalValue;
+
+        RecordParser(MappedFile file, Format format) {
+            this.file = file;
+            this.format = format;
+        }
+
+        /**
+         * Parses the record that starts at {@code pos} and returns the position of the next one.
+         * {@link #fieldCount} is {@code 0} for blank lines and lines with just a comment.
+         */
+        long parseRecord(long start, long end) {
+            fieldCount = 0;
+            length = 0;
+            boolean blank = true;
+            boolean quoted = false;
+            long pos = start;
+            while (pos < end) {
+                byte b = file.get(pos++);
+                if (b == '\n' || b == '\r') {
+                    pos = skipLF(b, pos, end);
+                    break;
+                } else if (b == format.separator) {
+                    blank = false;
+                    endField(quoted);
+                    quoted = false;
+                } else if ((b & 0xff) == format.commentChar) {
+                    pos = skipLine(pos, end);
+                    break;
+                } else if (isQuote(b)) {
+                    blank = false;
+                    quoted = true;
+                    pos = parseQuoted(b, pos, end);
+                } else if (b == 0) {
+                    failed = true;
+                } else {
+                    blank = false;
+                    append(b);
+                }
+            }
+            if (!blank) {
+                endField(quoted);
+            }
+            return pos;
+        }
+
+        private long parseQuoted(byte quote, long start, long end) {
+            long pos = start;
+            while (pos < end) {
+                byte b = file.get(pos++);
+                if (b == quote) {
+                    if (pos < end && file.get(pos) == quote) {
+                        // a doubled quote stands for the quote
+                        pos++;
+                    } else {
+                        return pos;
+                    }
+                } else if (b == '\r') {
+                    pos = skipLF(b, pos, end);
+                    b = '\n';
+                } else if (b == 0) {
+                    failed = true;
+                }
+                append(b);
+            }
+            failed = true;
+            return pos;
+        }
+
+        private long skipLine(long start, long end) {
+            long pos = start;
+            while (pos < end) {
+                byte b = file.get(pos++);
+                if (b == '\n' || b == '\r') {
+                    return skipLF(b, pos, end);
+                }
+            }
+            return pos;
+        }
+
+        private long skipLF(byte b, long pos, long end) {
+            return b == '\r' && pos < end && file.get(pos) == '\n' ? pos + 1 : pos;
+        }
+
+        private boolean isQuote(byte b) {
+            for (byte quote : format.quotes) {
+                if (b == quote) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void append(byte b) {
+            if (length == data.length) {
+                data = Arrays.copyOf(data, length * 2);
+            }
+            data[length++] = b;
+        }
+
+        private void endField(boolean quoted) {
+            if (fieldCount == fieldEnds.length) {
+                fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+                fieldQuoted = Arrays.copyOf(fieldQuoted, fieldCount * 2);
+            }
+            fieldQuoted[fieldCount] = quoted;
+            fieldEnds[fieldCount++] = length;
+        }
+
+        private int fieldStart(int field) {
+            return field == 0 ? 0 : fieldEnds[field - 1];
+        }
+
+        /**
+         * The fields of the current record as the header, i.e., with white space stripped from
+         * unquoted fields and without {@code na.strings}.
+         */
+        String[] getHeader() {
+            String[] result = new String[fieldCount];
+            for (int i = 0; i < fieldCount; i++) {
+                int from = fieldStart(i);
+                int to = fieldEnds[i];
+                if (!fieldQuoted[i]) {
+                    while (from < to && isWhite(data[from])) {
+                        from++;
+                    }
+                    while (to > from && isWhite(data[to - 1])) {
+                        to--;
+                    }
+                }
+                result[i] = new String(data, from, to - from, StandardCharsets.UTF_8);
+            }
+            return result;
+        }
+
+        private static boolean isWhite(byte b) {
+            return b == ' ' || b == '\t';
+        }
+
+        boolean isNAString(int field) {
+            int from = fieldStart(field);
+            int len = fieldEnds[field] - from;
+            outer: for (byte[] na : format.naStrings) {
+                if (na.length == len) {
+                    for (int i = 0; i < len; i++) {
+                        if (na[i] != data[from + i]) {
+                            continue outer;
+                        }
+                    }
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * The value of a field of a character column, {@code NA} for {@code na.strings}.
+         */
+        String getString(int field) {
+            if (isNAString(field)) {
+                return RRuntime.STRING_NA;
+            }
+            int from = fieldStart(field);
+            return new String(data, from, fieldEnds[field] - from, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Classifies the value of a field as the type it has for {@code type.convert}, and stores
+         * the typed value in {@link #intValue}, {@link #doubleValue} or {@link #logicalValue}.
+         * Values that are blank or in {@code na.strings} are {@code NA}. Only integers in the
+         * range of R integers and plain decimal numbers with a limited number of digits are
+         * numbers, other values that {@code type.convert} may read as numbers, e.g. {@code 1e5},
+         * {@code Inf} or {@code 0x10}, are {@link #TOKEN_OTHER}.
+         */
+        int classify(int field) {
+            int from = fieldStart(field);
+            int to = fieldEnds[field];
+            if (from == to || isNAString(field)) {
+                return TOKEN_NA;
+            }
+            byte first = data[from];
+            if (first == 'T' || first == 'F' || first == 't' || first == 'f') {
+                return classifyLogical(from, to);
+            }
+            int i = from;
+            boolean negative = first == '-';
+            if (negative) {
+                i++;
+            }
+            long mantissa = 0;
+            int digits = 0;
+            int significant = 0;
+            int fraction = -1;
+            for (; i < to; i++) {
+                byte b = data[i];
+                if (b >= '0' && b <= '9') {
+                    if (mantissa != 0 || b != '0') {
+                        if (++significant > MAX_DIGITS) {
+                            return TOKEN_OTHER;
+                        }
+                    }
+                    mantissa = mantissa * 10 + (b - '0');
+                    digits++;
+                    if (fraction >= 0) {
+                        fraction++;
+                    }
+                } else if (b == '.' && fraction < 0 && digits > 0) {
+                    fraction = 0;
+                } else {
+                    return TOKEN_OTHER;
+                }
+            }
+            if (digits == 0 || fraction == 0) {
+                return TOKEN_OTHER;
+            }
+            if (fraction < 0) {
+                if (negative && digits > 1 && data[from + 1] == '0') {
+                    // type.convert does not read negative integers with leading zeros as decimal
+                    return TOKEN_OTHER;
+                }
+                long value = negative ? -mantissa : mantissa;
+                if (value > Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+                    intValue = (int) value;
+                    negativeZero = negative && value == 0;
+                    doubleValue = negativeZero ? -0.0 : value;
+                    return TOKEN_INTEGER;
+                }
+                doubleValue = value;
+            } else if (mantissa < (1L << 53) && fraction < POWERS_OF_TEN.length) {
+                // both operands are exact, so the quotient is correctly rounded
+                doubleValue = mantissa / POWERS_OF_TEN[fraction];
+                if (negative) {
+                    doubleValue = -doubleValue;
+                }
+            } else {
+                doubleValue = Double.parseDouble(new String(data, from, to - from, StandardCharsets.ISO_8859_1));
+            }
+            return TOKEN_DOUBLE;
+        }
+
+        private int classifyLogical(int from, int to) {
+            switch (to - from) {
+                case 1:
+                    if (data[from] == 'T') {
+                        logicalValue = RRuntime.LOGICAL_TRUE;
+                        return TOKEN_LOGICAL;
+                    } else if (data[from] == 'F') {
+                        logicalValue = RRuntime.LOGICAL_FALSE;
+                        return TOKEN_LOGICAL;
+                    }
+                    return TOKEN_OTHER;
+                case 4:
+                    if (matches(from, "TRUE") || matches(from, "True") || matches(from, "true")) {
+                        logicalValue = RRuntime.LOGICAL_TRUE;
+                        return TOKEN_LOGICAL;
+                    }
+                    return TOKEN_OTHER;
+                case 5:
+                    if (matches(from, "FALSE") || matches(from, "False") || matches(from, "false")) {
+                        logicalValue = RRuntime.LOGICAL_FALSE;
+                        return TOKEN_LOGICAL;
+                    }
+                    return TOKEN_OTHER;
+                default:
+                    return TOKEN_OTHER;
+            }
+        }
+
+        private boolean matches(int from, String word) {
+            for (int i = 0; i < word.length(); i++) {
+                if (data[from + i] != word.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * The records of a range of the file, parsed into one growing array per column.
+     */
+    private static final class Chunk {
+
+        final Column[] columns;
+        int rows;
+        boolean failed;
+
+        private Chunk(byte[] types) {
+            columns = new Column[types.length];
+            for (int c = 0; c < types.length; c++) {
+                columns[c] = new Column(types[c]);
+            }
+        }
+
+        /**
+         * Parses the records in {@code [start, end)}, starting with the given column types. If a
+         * column has to change its type in a way that loses information about its previous values,
+         * the range is parsed again with the new type.
+         */
+        static Chunk parse(MappedFile file, Format format, int ncol, long start, long end, byte[] initialTypes) {
+            byte[] types = initialTypes.clone();
+            while (true) {
+                Chunk chunk = new Chunk(types);
+                int restart = chunk.parseRecords(new RecordParser(file, format), ncol, start, end);
+                if (restart < 0) {
+                    return chunk;
+                }
+                types[restart] = chunk.columns[restart].restartType;
+            }
+        }
+
+        private int parseRecords(RecordParser parser, int ncol, long start, long end) {
+            long pos = start;
+            while (pos < end) {
+                pos = parser.parseRecord(pos, end);
+                if (parser.failed) {
+                    failed = true;
+                    return -1;
+                }
+                if (parser.fieldCount == 0) {
+                    continue;
+                }
+                if (parser.fieldCount != ncol || rows == Integer.MAX_VALUE) {
+                    failed = true;
+                    return -1;
+                }
+                for (int c = 0; c < ncol; c++) {
+                    if (!columns[c].add(parser, c)) {
+                        return c;
+                    }
+                }
+                rows++;
+            }
+            return -1;
+        }
+
+        boolean needsReparse(byte[] types) {
+            for (int c = 0; c < types.length; c++) {
+                Column column = columns[c];
+                if (column.type != types[c] && (types[c] == CHARACTER || (types[c] == DOUBLE && column.type == INTEGER && column.negativeZero))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final class Column {
+
+        private static final int INITIAL_CAPACITY = 1024;
+
+        byte type;
+        int size;
+        boolean na;
+        /**
+         * Whether an integer column contains {@code -0}, which is a negative zero as a double.
+         */
+        boolean negativeZero;
+        byte restartType;
+
+        byte[] logicals;
+        int[] ints;
+        double[] doubles;
+        String[] strings;
+
+        Column(byte type) {
+            this.type = type;
+            switch (type) {
+                case LOGICAL:
+                    logicals = new byte[INITIAL_CAPACITY];
+                    break;
+                case INTEGER:
+                    ints = new int[INITIAL_CAPACITY];
+                    break;
+                case DOUBLE:
+                    doubles = new double[INITIAL_CAPACITY];
+                    break;
+                case CHARACTER:
+                    strings = new String[INITIAL_CAPACITY];
+                    break;
+            }
+        }
+
+        /**
+         * Adds the value of the given field, or returns {@code false} if the column has to be
+         * parsed again as {@link #restartType}.
+         */
+        boolean add(RecordParser parser, int field) {
+            if (type == CHARACTER) {
+                String value = parser.getString(field);
+                na |= RRuntime.isNA(value);
+                ensureCapacity();
+                strings[size++] = value;
+                return true;
+            }
+            int token = parser.classify(field);
+            switch (token) {
+                case TOKEN_NA:
+                    na = true;
+                    if (type != NONE) {
+                        ensureCapacity();
+                        setNA();
+                    }
+                    size++;
+                    return true;
+                case TOKEN_LOGICAL:
+                    if (type == NONE) {
+                        changeType(LOGICAL);
+                    } else if (type != LOGICAL) {
+                        return restart(CHARACTER);
+                    }
+                    ensureCapacity();
+                    logicals[size++] = parser.logicalValue;
+                    return true;
+                case TOKEN_INTEGER:
+                    if (type == NONE) {
+                        changeType(INTEGER);
+                    } else if (type == LOGICAL) {
+                        return restart(CHARACTER);
+                    }
+                    ensureCapacity();
+                    if (type == INTEGER) {
+                        negativeZero |= parser.negativeZero;
+                        ints[size++] = parser.intValue;
+                    } else {
+                        doubles[size++] = parser.doubleValue;
+                    }
+                    return true;
+                case TOKEN_DOUBLE:
+                    if (type == NONE || (type == INTEGER && !negativeZero)) {
+                        changeType(DOUBLE);
+                    } else if (type == INTEGER) {
+                        return restart(DOUBLE);
+                    } else if (type == LOGICAL) {
+                        return restart(CHARACTER);
+                    }
+                    ensureCapacity();
+                    doubles[size++] = parser.doubleValue;
+                    return true;
+                default:
+                    assert token == TOKEN_OTHER;
+                    if (size > 0) {
+                        // blanks and na.strings cannot be told apart any more
+                        return restart(CHARACTER);
+                    }
+                    changeType(CHARACTER);
+                    return add(parser, field);
+            }
+        }
+
+        private boolean restart(byte newType) {
+            restartType = newType;
+            return false;
+        }
+
+        private void setNA() {
+            switch (type) {
+                case LOGICAL:
+                    logicals[size] = RRuntime.LOGICAL_NA;
+                    break;
+                case INTEGER:
+                    ints[size] = RRuntime.INT_NA;
+                    break;
+                default:
+                    assert type == DOUBLE;
+                    doubles[size] = RRuntime.DOUBLE_NA;
+                    break;
+            }
+        }
+
+        /**
+         * Changes the type of a column without loss: from {@link #NONE}, whose values are all
+         * {@code NA}, or from {@link #INTEGER} to {@link #DOUBLE}.
+         */
+        private void changeType(byte newType) {
+            int capacity = Math.max(INITIAL_CAPACITY, size * 2);
+            switch (newType) {
+                case LOGICAL:
+                    logicals = new byte[capacity];
+                    Arrays.fill(logicals, 0, size, RRuntime.LOGICAL_NA);
+                    break;
+                case INTEGER:
+                    ints = new int[capacity];
+                    Arrays.fill(ints, 0, size, RRuntime.INT_NA);
+                    break;
+                case DOUBLE:
+                    doubles = new double[capacity];
+                    if (type == INTEGER) {
+                        for (int i = 0; i < size; i++) {
+                            doubles[i] = ints[i] == RRuntime.INT_NA ? RRuntime.DOUBLE_NA : ints[i];
+                        }
+                        ints = null;
+                    } else {
+                        Arrays.fill(doubles, 0, size, RRuntime.DOUBLE_NA);
+                    }
+                    break;
+                default:
+                    assert newType == CHARACTER && size == 0;
+                    strings = new String[capacity];
+                    break;
+            }
+            type = newType;
+        }
+
+        private void ensureCapacity() {
+            switch (type) {
+                case LOGICAL:
+                    if (size == logicals.length) {
+                        logicals = Arrays.copyOf(logicals, size * 2);
+                    }
+                    break;
+                case INTEGER:
+                    if (size == ints.length) {
+                        ints = Arrays.copyOf(ints, size * 2);
+                    }
+                    break;
+                case DOUBLE:
+                    if (size == doubles.length) {
+                        doubles = Arrays.copyOf(doubles, size * 2);
+                    }
+                    break;
+                case CHARACTER:
+                    if (size == strings.length) {
+                        strings = Arrays.copyOf(strings, size * 2);
+                    }
+                    break;
+            }
+        }
+    }
+}
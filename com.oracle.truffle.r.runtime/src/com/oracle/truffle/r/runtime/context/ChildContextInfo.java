@@ -63,6 +63,7 @@ public final class ChildContextInfo {
     private final int id;
     private final int multiSlotInd;
     private TruffleContext truffleContext;
+    private int[] rngSeeds;
     public ExecutorService executor;
 
     private ChildContextInfo(RStartParams startParams, Map<String, String> env, ContextKind kind, RContext parent, InputStream stdin, OutputStream stdout, OutputStream stderr,
@@ -165,6 +166,18 @@ public final class ChildContextInfo {
         return truffleContext;
     }
 
+    /**
+     * The initial {@code .Random.seed} of the context or {@code null} if it should be seeded from
+     * the current time.
+     */
+    public int[] getRNGSeeds() {
+        return rngSeeds;
+    }
+
+    public void setRNGSeeds(int[] rngSeeds) {
+        this.rngSeeds = rngSeeds;
+    }
+
     public InputStream getStdin() {
         return stdin;
     }
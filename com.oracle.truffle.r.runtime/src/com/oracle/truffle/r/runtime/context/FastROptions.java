@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2014, 2020, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2014, 2021, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -100,6 +100,10 @@ public class FastROptions {
     public static final OptionKey<Boolean> SearchPathForcePromises = new OptionKey<>(false);
     @Option(category = OptionCategory.EXPERT, help = "Load native code of packages, including builtin packages.") //
     public static final OptionKey<Boolean> LoadPackagesNativeCode = new OptionKey<>(!FastRConfig.ManagedMode);
+    @Option(category = OptionCategory.EXPERT, help = "Defer element-wise double arithmetic (+, -, *, /) on long vectors and evaluate chains of such operations in a single pass without temporaries") //
+    public static final OptionKey<Boolean> FusedArithmetic = new OptionKey<>(false);
+    @Option(category = OptionCategory.EXPERT, help = "Match the regular expressions of grep, grepl, regexpr, gregexpr, sub, gsub and strsplit with TRegex if it is installed, falling back to the Java and PCRE engines for unsupported patterns") //
+    public static final OptionKey<Boolean> TRegex = new OptionKey<>(false);
     // Promises optimizations
     @Option(category = OptionCategory.INTERNAL, help = "If enabled, overrides all other EagerEval switches (see EagerEvalHelper)") //
     public static final OptionKey<Boolean> EagerEval = new OptionKey<>(false);
@@ -123,10 +127,28 @@ public class FastROptions {
     public static final OptionKey<String> AdditionalOptions = new OptionKey<>("");
     @Option(category = OptionCategory.INTERNAL, help = "Enables timeout (in seconds) when receiving messages from a channel") //
     public static final OptionKey<Integer> ChannelReceiveTimeout = new OptionKey<>(0);
+    @Option(category = OptionCategory.EXPERT, help = "Number of messages a channel between parallel contexts buffers in each direction before sending blocks") //
+    public static final OptionKey<Integer> ChannelCapacity = new OptionKey<>(1);
     @Option(category = OptionCategory.EXPERT, help = "Restrict force splitting of call targets") //
     public static final OptionKey<Boolean> RestrictForceSplitting = new OptionKey<>(true);
     @Option(category = OptionCategory.INTERNAL, help = "Turn on explicit GC via the gc built-in. Otherwise calls to gc are ignored.") //
     public static final OptionKey<Boolean> EnableExplicitGC = new OptionKey<>(false);
+    @Option(category = OptionCategory.EXPERT, help = "Minimal number of elements for which the order builtin sorts in parallel, 0 disables parallel ordering.") //
+    public static final OptionKey<Integer> ParallelOrderThreshold = new OptionKey<>(1 << 17);
+    @Option(category = OptionCategory.EXPERT, help = "Maximal number of compiled regular expressions cached per context and regex engine, 0 disables the cache.") //
+    public static final OptionKey<Integer> RegexCacheSize = new OptionKey<>(128);
+    @Option(category = OptionCategory.EXPERT, help = "Number of threads used to compress data written to gzip and xz file connections, 0 means the number of available processors.") //
+    public static final OptionKey<Integer> CompressionThreads = new OptionKey<>(0);
+    @Option(category = OptionCategory.EXPERT, help = "Minimal number of multiply-add operations for which matrix products of doubles are computed in parallel, 0 disables parallel matrix products.") //
+    public static final OptionKey<Integer> MatMultParallelThreshold = new OptionKey<>(1 << 21);
+    @Option(category = OptionCategory.EXPERT, help = "Minimal number of multiply-add operations for which cov and cor process the pairs of columns in parallel, 0 disables parallel cov and cor.") //
+    public static final OptionKey<Integer> CovcorParallelThreshold = new OptionKey<>(1 << 21);
+    @Option(category = OptionCategory.EXPERT, help = "Minimal number of element comparisons for which dist computes the distances in parallel, 0 disables parallel dist.") //
+    public static final OptionKey<Integer> DistParallelThreshold = new OptionKey<>(1 << 21);
+    @Option(category = OptionCategory.EXPERT, help = "Minimal file size in bytes for which read.table parses the file in parallel chunks, 0 disables parallel reading.") //
+    public static final OptionKey<Integer> ReadTableParallelThreshold = new OptionKey<>(1 << 22);
+    @Option(category = OptionCategory.EXPERT, help = "Minimal number of cells for which write.table formats the rows in parallel blocks, 0 disables parallel formatting.") //
+    public static final OptionKey<Integer> WriteTableParallelThreshold = new OptionKey<>(1 << 18);
 
     // Discontinued since rc12
     // only a warning is printed to use the default logger mechanism
@@ -94,6 +94,7 @@ import com.oracle.truffle.r.runtime.RProfile;
 import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.RRuntimeASTAccess;
 import com.oracle.truffle.r.runtime.RSerialize;
+import com.oracle.truffle.r.runtime.RegexCache;
 import com.oracle.truffle.r.runtime.ReturnException;
 import com.oracle.truffle.r.runtime.SuppressFBWarnings;
 import com.oracle.truffle.r.runtime.TempPathName;
@@ -363,6 +364,7 @@ public final class RContext {
     public final RRNG.ContextStateImpl stateRNG;
     public final RSerialize.ContextStateImpl stateRSerialize;
     public final LazyDBCache.ContextStateImpl stateLazyDBCache;
+    public final RegexCache.ContextStateImpl stateRegexCache;
     public final InstrumentationState stateInstrumentation;
     public final ContextStateImpl stateInternalCode;
     public final DLL.ContextStateImpl stateDLL;
@@ -431,6 +433,7 @@ public final class RContext {
             initialInfo = childInfo;
         }
         Map<String, String> initialEnvVars;
+        int[] initialRNGSeeds = null;
         if (initialInfo == null) {
             /*
              * This implies that FastR is being invoked initially from another Truffle language or
@@ -457,6 +460,7 @@ public final class RContext {
             this.truffleContext = info.getTruffleContext();
             this.executor = info.executor;
             initialEnvVars = info.getEnv() == null ? Collections.emptyMap() : info.getEnv();
+            initialRNGSeeds = info.getRNGSeeds();
         }
 
         outputWelcomeMessage(startParameters);
@@ -477,7 +481,7 @@ public final class RContext {
         this.stateRErrorHandling = RErrorHandling.ContextStateImpl.newContextState();
         this.stateInteropTry = FastrInteropTryContextState.newContextState();
         this.stateRConnection = ConnectionSupport.ContextStateImpl.newContextState();
-        this.stateRNG = RRNG.ContextStateImpl.newContextState();
+        this.stateRNG = RRNG.ContextStateImpl.newContextState(initialRNGSeeds);
         this.stateRSerialize = RSerialize.ContextStateImpl.newContextState();
         this.stateLazyDBCache = LazyDBCache.ContextStateImpl.newContextState();
         this.stateInstrumentation = InstrumentationState.newContextState(instrumenter);
@@ -496,6 +500,7 @@ public final class RContext {
         RDataFactory.setAllocationTracingEnabled(allocationReporter.isActive());
 
         this.fastrOptions = new FastROptions(this);
+        this.stateRegexCache = RegexCache.ContextStateImpl.newContextState(getNonNegativeIntOption(FastROptions.RegexCacheSize));
     }
 
     static void outputWelcomeMessage(RStartParams rsp) {
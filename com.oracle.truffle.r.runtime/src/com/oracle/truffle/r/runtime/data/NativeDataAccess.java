@@ -53,6 +53,7 @@ import com.oracle.truffle.r.runtime.data.model.RAbstractContainer;
 import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
 import com.oracle.truffle.r.runtime.data.nodes.ShareObjectNode;
 import com.oracle.truffle.r.runtime.ffi.FFIMaterializeNode;
+import com.oracle.truffle.r.runtime.ffi.util.ConcurrentLongHashMap;
 import com.oracle.truffle.r.runtime.ffi.util.NativeMemory;
 import com.oracle.truffle.r.runtime.ffi.util.NativeMemory.ElementType;
 import com.oracle.truffle.r.runtime.ffi.util.NativeMemory.NativeMemoryWrapper;
@@ -334,6 +335,17 @@ public final class NativeDataAccess {
             assert this.length == 0 || dataAddress.getAddress() != getEmptyDataAddress();
         }
 
+        @TruffleBoundary
+        void allocateNativeZeroed(int vectorLength, ElementType type) {
+            assert getDataAddress() == 0;
+            if (vectorLength != 0) {
+                setDataAddress(NativeMemory.allocateZeroed(type, vectorLength, delegate));
+            } else {
+                setExternalDataAddress(getEmptyDataAddress());
+            }
+            this.length = vectorLength;
+        }
+
         @TruffleBoundary
         void initializeAltrep(RBaseObject altrepVec, long address, int altrepLength) {
             assert altrepVec.isAltRep();
@@ -400,10 +412,10 @@ public final class NativeDataAccess {
     // The counter is initialized to invalid address and incremented by 2 to always get invalid
     // address value
     private static final AtomicLong counter = new AtomicLong(0xdef000000000001L);
-    private static final ConcurrentHashMap<Long, NativeHandleWrapper> nativeMirrors = new ConcurrentHashMap<>(512);
+    private static final ConcurrentLongHashMap<NativeHandleWrapper> nativeMirrors = new ConcurrentLongHashMap<>(512);
 
     // For debugging purposes:
-    private static final ConcurrentHashMap<Long, NativeMirror> dataAddressToNativeMirrors = System.getenv(FastROptions.NATIVE_DATA_INSPECTOR) != null ? new ConcurrentHashMap<>(512) : null;
+    private static final ConcurrentLongHashMap<NativeMirror> dataAddressToNativeMirrors = System.getenv(FastROptions.NATIVE_DATA_INSPECTOR) != null ? new ConcurrentLongHashMap<>(512) : null;
     private static final ConcurrentHashMap<Long, RuntimeException> nativeMirrorInfo = TRACE_MIRROR_ALLOCATION_SITES ? new ConcurrentHashMap<>() : null;
 
     public static NativeMirror createNativeMirror(RBaseObject obj) {
@@ -487,7 +499,7 @@ public final class NativeDataAccess {
 
     /**
      * For given native mirror ID returns the Java side object (vector). TruffleBoundary because it
-     * calls into HashMap.
+     * calls into {@link ConcurrentLongHashMap}.
      */
     @TruffleBoundary
     public static Object lookup(long address) {
@@ -1190,6 +1202,30 @@ public final class NativeDataAccess {
         return mirror.dataAddress.getAddress();
     }
 
+    /**
+     * Allocates zero filled native memory for a new vector that has no managed data at all, so that
+     * the data does not have to be copied to the native memory when native code accesses it.
+     */
+    static void allocateZeroedNativeContents(RIntVector vector, int length) {
+        NativeMirror mirror = vector.getNativeMirror();
+        if (mirror == null) {
+            mirror = createNativeMirror(vector);
+        }
+        assert mirror.dataAddress == null && mirror.length == 0 : mirror;
+        noIntNative.invalidate();
+        mirror.allocateNativeZeroed(length, ElementType.INT);
+    }
+
+    static void allocateZeroedNativeContents(RDoubleVector vector, int length) {
+        NativeMirror mirror = vector.getNativeMirror();
+        if (mirror == null) {
+            mirror = createNativeMirror(vector);
+        }
+        assert mirror.dataAddress == null && mirror.length == 0 : mirror;
+        noDoubleNative.invalidate();
+        mirror.allocateNativeZeroed(length, ElementType.DOUBLE);
+    }
+
     /**
      * Prepares the given ALTREP vector for usage in native code. Does not allocate any native
      * memory.
@@ -1389,6 +1425,10 @@ public final class NativeDataAccess {
         String getAttribute(String idString, String attrName);
 
         String getNativeIdFromAddress(String dataAddressString);
+
+        long getNativeMirrorsLookups();
+
+        long getNativeMirrorsCollisions();
     }
 
     public static class NativeDataInspector implements NativeDataInspectorMBean {
@@ -1413,6 +1453,16 @@ public final class NativeDataAccess {
             return NativeDataAccess.nativeMirrors.size();
         }
 
+        @Override
+        public long getNativeMirrorsLookups() {
+            return NativeDataAccess.nativeMirrors.getLookups();
+        }
+
+        @Override
+        public long getNativeMirrorsCollisions() {
+            return NativeDataAccess.nativeMirrors.getCollisions();
+        }
+
         @Override
         public String getNativeIdFromAddress(String dataAddressString) {
             assert NativeDataAccess.dataAddressToNativeMirrors != null;
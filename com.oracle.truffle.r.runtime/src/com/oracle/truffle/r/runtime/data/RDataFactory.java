@@ -694,10 +694,7 @@ public final class RDataFactory {
 
         @TruffleBoundary
         public final REnvironment createNewEnv(String name, boolean hashed, int initialSize) {
-            REnvironment.NewEnv env = new REnvironment.NewEnv(RRuntime.createNonFunctionFrame("<new-env-" + environmentCount.incrementAndGet() + ">"), name);
-            env.setHashed(hashed);
-            env.setInitialSize(initialSize);
-            return traceDataCreated(env);
+            return traceDataCreated(new REnvironment.NewEnv(RRuntime.createNonFunctionFrame("<new-env-" + environmentCount.incrementAndGet() + ">"), name, hashed, initialSize));
         }
 
         public final RS4Object createS4Object() {
@@ -795,6 +792,14 @@ public final class RDataFactory {
         return traceDataCreated(RIntVector.fromNative(address, length));
     }
 
+    /**
+     * Creates a zero filled integer vector whose data live in native memory from the start, meant
+     * for vectors that are going to be filled by native code.
+     */
+    public static RIntVector createNativeIntVector(int length) {
+        return traceDataCreated(RIntVector.createNative(length));
+    }
+
     public static RIntVector createIntVector(int length) {
         return createIntVector(length, false);
     }
@@ -831,6 +836,14 @@ public final class RDataFactory {
         return traceDataCreated(RDoubleVector.fromNative(address, length));
     }
 
+    /**
+     * Creates a zero filled double vector whose data live in native memory from the start, meant
+     * for vectors that are going to be filled by native code.
+     */
+    public static RDoubleVector createNativeDoubleVector(int length) {
+        return traceDataCreated(RDoubleVector.createNative(length));
+    }
+
     public static RDoubleVector createDoubleVector(int length) {
         return createDoubleVector(length, false);
     }
@@ -1311,6 +1324,14 @@ public final class RDataFactory {
         return traceDataCreated(new RFunction(name, packageName, target, builtin, enclosingFrame));
     }
 
+    /**
+     * Creates a closure whose call target is created by {@code targetFactory} when it is first
+     * needed.
+     */
+    public static RFunction createLazyFunction(String name, String packageName, RFunction.TargetFactory targetFactory, MaterializedFrame enclosingFrame) {
+        return traceDataCreated(new RFunction(name, packageName, targetFactory, enclosingFrame));
+    }
+
     private static final AtomicInteger environmentCount = new AtomicInteger();
 
     @TruffleBoundary
@@ -1334,10 +1355,7 @@ public final class RDataFactory {
 
     @TruffleBoundary
     public static REnvironment createNewEnv(String name, boolean hashed, int initialSize) {
-        REnvironment.NewEnv env = new REnvironment.NewEnv(RRuntime.createNonFunctionFrame("<new-env-" + environmentCount.incrementAndGet() + ">"), name);
-        env.setHashed(hashed);
-        env.setInitialSize(initialSize);
-        return traceDataCreated(env);
+        return traceDataCreated(new REnvironment.NewEnv(RRuntime.createNonFunctionFrame("<new-env-" + environmentCount.incrementAndGet() + ">"), name, hashed, initialSize));
     }
 
     public static RS4Object createS4Object() {
@@ -41,15 +41,28 @@ import com.oracle.truffle.r.runtime.data.VectorDataLibrary.RandomAccessIterator;
 import com.oracle.truffle.r.runtime.data.VectorDataLibrary.RandomAccessWriteIterator;
 import com.oracle.truffle.r.runtime.data.VectorDataLibrary.SeqIterator;
 import com.oracle.truffle.r.runtime.data.VectorDataLibrary.SeqWriteIterator;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
 import com.oracle.truffle.r.runtime.ops.na.NACheck;
 
 @ExportLibrary(VectorDataLibrary.class)
 public class RDoubleArrayVectorData implements TruffleObject, ShareableVectorData {
-    private final double[] data;
+    /**
+     * The backing array, which may be longer than {@link #length} if the vector was grown by
+     * {@link #grow(int)}. The spare capacity is trimmed away in place by the first read-only access
+     * to the whole array or by {@link #materialize()}, so that later accesses do not copy.
+     */
+    private double[] data;
+    private final int length;
     private boolean complete;
 
     public RDoubleArrayVectorData(double[] data, boolean complete) {
+        this(data, data.length, complete);
+    }
+
+    private RDoubleArrayVectorData(double[] data, int length, boolean complete) {
+        assert length <= data.length;
         this.data = data;
+        this.length = length;
         this.complete = complete && ENABLE_COMPLETE;
     }
 
@@ -68,11 +81,12 @@ public class RDoubleArrayVectorData implements TruffleObject, ShareableVectorDat
 
     @ExportMessage
     public int getLength() {
-        return data.length;
+        return length;
     }
 
     @ExportMessage
     public RDoubleArrayVectorData materialize() {
+        trimToLength();
         return this;
     }
 
@@ -83,7 +97,7 @@ public class RDoubleArrayVectorData implements TruffleObject, ShareableVectorDat
 
     @ExportMessage
     public RDoubleArrayVectorData copy(@SuppressWarnings("unused") boolean deep) {
-        return new RDoubleArrayVectorData(Arrays.copyOf(data, data.length), isComplete());
+        return new RDoubleArrayVectorData(Arrays.copyOf(data, length), isComplete());
     }
 
     @ExportMessage
@@ -93,12 +107,19 @@ public class RDoubleArrayVectorData implements TruffleObject, ShareableVectorDat
 
     @ExportMessage
     public double[] getReadonlyDoubleData() {
+        trimToLength();
         return data;
     }
 
+    private void trimToLength() {
+        if (data.length != length) {
+            data = Arrays.copyOf(data, length);
+        }
+    }
+
     @ExportMessage
     public double[] getDoubleDataCopy() {
-        return Arrays.copyOf(data, data.length);
+        return Arrays.copyOf(data, length);
     }
 
     // Read access to the elements:
@@ -107,7 +128,7 @@ public class RDoubleArrayVectorData implements TruffleObject, ShareableVectorDat
     public SeqIterator iterator(
                     @Shared("naCheck") @Cached() NACheck naCheck,
                     @Shared("SeqItLoopProfile") @Cached("createCountingProfile()") LoopConditionProfile loopProfile) {
-        SeqIterator it = new SeqIterator(data, data.length);
+        SeqIterator it = new SeqIterator(data, length);
         naCheck.enable(!isComplete());
         it.initLoopConditionProfile(loopProfile);
         return it;
@@ -159,7 +180,7 @@ public class RDoubleArrayVectorData implements TruffleObject, ShareableVectorDat
 
     @ExportMessage
     public SeqWriteIterator writeIterator() {
-        return new SeqWriteIterator(data, data.length);
+        return new SeqWriteIterator(data, length);
     }
 
     @ExportMessage
@@ -204,6 +225,24 @@ public class RDoubleArrayVectorData implements TruffleObject, ShareableVectorDat
         getStore(it)[index] = value;
     }
 
+    // Growing:
+
+    /**
+     * Returns data of length {@code newLength} with the elements of this data followed by
+     * {@code NA}s. The backing array is reused if it has enough spare capacity, otherwise it is
+     * replaced by an over-allocated one, see {@link RAbstractVector#growCapacity(int, int)}. This
+     * data must not be used any more afterwards.
+     */
+    RDoubleArrayVectorData grow(int newLength) {
+        assert newLength > length;
+        double[] newData = data;
+        if (newLength > data.length) {
+            newData = Arrays.copyOf(data, RAbstractVector.growCapacity(length, newLength));
+        }
+        Arrays.fill(newData, length, newLength, RRuntime.DOUBLE_NA);
+        return new RDoubleArrayVectorData(newData, newLength, false);
+    }
+
     private static double[] getStore(Iterator it) {
         return (double[]) it.getStore();
     }
@@ -0,0 +1,412 @@
+/*
+ * Copyright (c) 2021, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.runtime.data;
+
+import static com.oracle.truffle.r.runtime.data.model.RAbstractVector.ENABLE_COMPLETE;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import com.oracle.truffle.api.CompilerAsserts;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.Cached.Shared;
+import com.oracle.truffle.api.interop.TruffleObject;
+import com.oracle.truffle.api.library.ExportLibrary;
+import com.oracle.truffle.api.library.ExportMessage;
+import com.oracle.truffle.api.profiles.ConditionProfile;
+import com.oracle.truffle.api.profiles.LoopConditionProfile;
+import com.oracle.truffle.r.runtime.RRuntime;
+import com.oracle.truffle.r.runtime.RType;
+import com.oracle.truffle.r.runtime.data.VectorDataLibrary.Iterator;
+import com.oracle.truffle.r.runtime.data.VectorDataLibrary.RandomAccessIterator;
+import com.oracle.truffle.r.runtime.data.VectorDataLibrary.SeqIterator;
+import com.oracle.truffle.r.runtime.ops.na.NACheck;
+
+/**
+ * Double vector data holding the not yet computed result of an element-wise arithmetic operation.
+ * The operands are either full length {@code double[]} arrays, scalars or other deferred data, so
+ * that a chain like {@code a * b + c / d - e} forms a small expression tree. The tree is evaluated
+ * in one pass over the data, chunk by chunk, when the elements are first read, no intermediate
+ * vectors are allocated.
+ *
+ * The operand arrays must not change, so the vectors they belong to are kept shared by
+ * {@link #shareOperands} until the data is evaluated. Once evaluated, the operands are released
+ * and the data behaves like read-only array data.
+ */
+@ExportLibrary(VectorDataLibrary.class)
+public final class RDoubleDeferredVectorData implements TruffleObject {
+
+    public enum Operation {
+        ADD,
+        SUBTRACT,
+        MULTIPLY,
+        DIVIDE
+    }
+
+    /**
+     * Deeper trees are not worth the bookkeeping and would make the evaluation recurse too deeply.
+     */
+    public static final int MAX_DEPTH = 8;
+
+    private static final int CHUNK_SIZE = 1024;
+
+    private final Operation operation;
+    private final int length;
+    private final int depth;
+    private final boolean complete;
+
+    // double[], Double or RDoubleDeferredVectorData, cleared after the evaluation
+    private Object left;
+    private Object right;
+    // the vectors of the array operands, whose reference counts are decremented after the evaluation
+    private RSharingAttributeStorage[] shares;
+
+    private volatile double[] values;
+
+    private RDoubleDeferredVectorData(Operation operation, Object left, Object right, int length, int depth, boolean complete) {
+        this.operation = operation;
+        this.left = left;
+        this.right = right;
+        this.length = length;
+        this.depth = depth;
+        this.complete = complete && ENABLE_COMPLETE;
+    }
+
+    /**
+     * Creates the deferred result of {@code left op right}, the operands are given as vector data
+     * and must be of length {@code length} or 1. Returns {@code null} if the operands cannot be
+     * deferred, in which case the operation needs to be evaluated eagerly.
+     */
+    @TruffleBoundary
+    public static RDoubleDeferredVectorData create(Operation operation, Object leftData, Object rightData, int length) {
+        VectorDataLibrary lib = VectorDataLibrary.getFactory().getUncached();
+        Object leftOperand = toOperand(leftData, lib);
+        Object rightOperand = toOperand(rightData, lib);
+        if (leftOperand == null || rightOperand == null) {
+            return null;
+        }
+        int depth = Math.max(getDepth(leftOperand), getDepth(rightOperand)) + 1;
+        if (depth > MAX_DEPTH) {
+            return null;
+        }
+        boolean complete = isComplete(leftOperand, leftData, lib) && isComplete(rightOperand, rightData, lib);
+        return new RDoubleDeferredVectorData(operation, leftOperand, rightOperand, length, depth, complete);
+    }
+
+    private static Object toOperand(Object data, VectorDataLibrary lib) {
+        if (lib.getType(data) != RType.Double) {
+            return null;
+        } else if (lib.getLength(data) == 1) {
+            return lib.getDoubleAt(data, 0);
+        } else if (data instanceof RDoubleDeferredVectorData) {
+            double[] evaluated = ((RDoubleDeferredVectorData) data).values;
+            return evaluated != null ? evaluated : data;
+        } else if (data instanceof RDoubleArrayVectorData) {
+            return lib.getReadonlyDoubleData(data);
+        }
+        return null;
+    }
+
+    /**
+     * Increments the reference counts of the operand vectors whose arrays this data keeps, so that
+     * they are not updated in place until the data is evaluated, which decrements them again. The
+     * counts incremented for a temporary deferred operand are taken over, since nothing else can
+     * evaluate it.
+     */
+    @TruffleBoundary
+    public void shareOperands(RSharingAttributeStorage leftVector, RSharingAttributeStorage rightVector) {
+        assert shares == null && values == null;
+        ArrayList<RSharingAttributeStorage> result = new ArrayList<>();
+        shareOperand(left, leftVector, result);
+        if (rightVector != leftVector) {
+            shareOperand(right, rightVector, result);
+        }
+        if (!result.isEmpty()) {
+            shares = result.toArray(new RSharingAttributeStorage[result.size()]);
+        }
+    }
+
+    private static void shareOperand(Object operand, RSharingAttributeStorage vector, ArrayList<RSharingAttributeStorage> result) {
+        if (operand instanceof double[]) {
+            if (!vector.isSharedPermanent()) {
+                vector.incRefCount();
+                result.add(vector);
+            }
+        } else if (operand instanceof RDoubleDeferredVectorData && vector.isTemporary()) {
+            RSharingAttributeStorage[] taken = ((RDoubleDeferredVectorData) operand).takeShares();
+            if (taken != null) {
+                result.addAll(Arrays.asList(taken));
+            }
+        }
+    }
+
+    private synchronized RSharingAttributeStorage[] takeShares() {
+        RSharingAttributeStorage[] result = shares;
+        shares = null;
+        return result;
+    }
+
+    private void releaseOperands() {
+        if (shares != null) {
+            for (RSharingAttributeStorage share : shares) {
+                if (!share.isSharedPermanent()) {
+                    share.decRefCount();
+                }
+            }
+            shares = null;
+        }
+    }
+
+    private static int getDepth(Object operand) {
+        return operand instanceof RDoubleDeferredVectorData ? ((RDoubleDeferredVectorData) operand).depth : 0;
+    }
+
+    private static boolean isComplete(Object operand, Object data, VectorDataLibrary lib) {
+        if (operand instanceof Double) {
+            return !RRuntime.isNA((double) operand);
+        }
+        return lib.isComplete(data);
+    }
+
+    private double[] getValues() {
+        double[] result = values;
+        if (result == null) {
+            result = evaluate();
+        }
+        return result;
+    }
+
+    @TruffleBoundary
+    private synchronized double[] evaluate() {
+        if (values == null) {
+            double[] result = new double[length];
+            double[][] buffers = new double[depth][CHUNK_SIZE];
+            double[] chunk = new double[CHUNK_SIZE];
+            for (int start = 0; start < length; start += CHUNK_SIZE) {
+                int size = Math.min(CHUNK_SIZE, length - start);
+                evaluateChunk(start, size, chunk, buffers, 0);
+                System.arraycopy(chunk, 0, result, start, size);
+            }
+            values = result;
+            left = null;
+            right = null;
+            releaseOperands();
+        }
+        return values;
+    }
+
+    /**
+     * Computes elements {@code [start, start + size)} into {@code dst}, the right operand of the
+     * operation at tree level {@code level} is computed into {@code buffers[level]}.
+     */
+    private void evaluateChunk(int start, int size, double[] dst, double[][] buffers, int level) {
+        fetch(left, start, size, dst, buffers, level + 1);
+        double[] r = buffers[level];
+        fetch(right, start, size, r, buffers, level + 1);
+        if (complete) {
+            switch (operation) {
+                case ADD:
+                    for (int i = 0; i < size; i++) {
+                        dst[i] += r[i];
+                    }
+                    break;
+                case SUBTRACT:
+                    for (int i = 0; i < size; i++) {
+                        dst[i] -= r[i];
+                    }
+                    break;
+                case MULTIPLY:
+                    for (int i = 0; i < size; i++) {
+                        dst[i] *= r[i];
+                    }
+                    break;
+                case DIVIDE:
+                    for (int i = 0; i < size; i++) {
+                        dst[i] /= r[i];
+                    }
+                    break;
+            }
+        } else {
+            for (int i = 0; i < size; i++) {
+                dst[i] = apply(operation, dst[i], r[i]);
+            }
+        }
+    }
+
+    private static void fetch(Object operand, int start, int size, double[] dst, double[][] buffers, int level) {
+        if (operand instanceof double[]) {
+            System.arraycopy(operand, start, dst, 0, size);
+        } else if (operand instanceof Double) {
+            Arrays.fill(dst, 0, size, (double) operand);
+        } else {
+            RDoubleDeferredVectorData deferred = (RDoubleDeferredVectorData) operand;
+            double[] evaluated = deferred.values;
+            if (evaluated != null) {
+                System.arraycopy(evaluated, start, dst, 0, size);
+            } else {
+                synchronized (deferred) {
+                    if (deferred.values != null) {
+                        System.arraycopy(deferred.values, start, dst, 0, size);
+                    } else {
+                        deferred.evaluateChunk(start, size, dst, buffers, level);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Same semantics as the arithmetic in {@code BinaryMapArithmeticFunctionNode}: {@code NA} on
+     * the left wins, {@code NaN op NA} is {@code NaN}.
+     */
+    private static double apply(Operation operation, double l, double r) {
+        if (RRuntime.isNA(l)) {
+            return RRuntime.DOUBLE_NA;
+        } else if (RRuntime.isNA(r)) {
+            return Double.isNaN(l) ? l : RRuntime.DOUBLE_NA;
+        }
+        switch (operation) {
+            case ADD:
+                return l + r;
+            case SUBTRACT:
+                return l - r;
+            case MULTIPLY:
+                return l * r;
+            case DIVIDE:
+                return l / r;
+            default:
+                throw new AssertionError();
+        }
+    }
+
+    public boolean isEvaluated() {
+        return values != null;
+    }
+
+    @ExportMessage
+    public NACheck getNACheck(@Shared("naCheck") @Cached() NACheck na) {
+        na.enable(!isComplete());
+        return na;
+    }
+
+    @SuppressWarnings("static-method")
+    @ExportMessage
+    public RType getType() {
+        return RType.Double;
+    }
+
+    @ExportMessage
+    public int getLength() {
+        return length;
+    }
+
+    @ExportMessage
+    public RDoubleArrayVectorData materialize() {
+        return new RDoubleArrayVectorData(getDoubleDataCopy(), isComplete());
+    }
+
+    /**
+     * The data is never written to, so the copy can share it.
+     */
+    @ExportMessage
+    public RDoubleDeferredVectorData copy(@SuppressWarnings("unused") boolean deep) {
+        return this;
+    }
+
+    @ExportMessage
+    public boolean isComplete() {
+        return complete && ENABLE_COMPLETE;
+    }
+
+    @ExportMessage
+    public double[] getReadonlyDoubleData() {
+        return getValues();
+    }
+
+    @ExportMessage
+    public double[] getDoubleDataCopy() {
+        return Arrays.copyOf(getValues(), length);
+    }
+
+    // Read access to the elements:
+
+    @ExportMessage
+    public SeqIterator iterator(@Shared("naCheck") @Cached() NACheck naCheck,
+                    @Shared("SeqItLoopProfile") @Cached("createCountingProfile()") LoopConditionProfile loopProfile) {
+        SeqIterator it = new SeqIterator(getValues(), length);
+        naCheck.enable(!isComplete());
+        it.initLoopConditionProfile(loopProfile);
+        return it;
+    }
+
+    @ExportMessage
+    @SuppressWarnings("static-method")
+    public boolean nextImpl(SeqIterator it, boolean loopCondition,
+                    @Shared("SeqItLoopProfile") @Cached("createCountingProfile()") LoopConditionProfile loopProfile) {
+        return it.next(loopCondition, loopProfile);
+    }
+
+    @ExportMessage
+    @SuppressWarnings("static-method")
+    public void nextWithWrap(SeqIterator it,
+                    @Cached("createBinaryProfile()") ConditionProfile wrapProfile) {
+        it.nextWithWrap(wrapProfile);
+    }
+
+    @ExportMessage
+    public RandomAccessIterator randomAccessIterator(@Shared("naCheck") @Cached() NACheck naCheck) {
+        naCheck.enable(!isComplete());
+        return new RandomAccessIterator(getValues());
+    }
+
+    @ExportMessage
+    public Object getDataAtAsObject(int index) {
+        return getValues()[index];
+    }
+
+    @ExportMessage
+    public double getDoubleAt(int index) {
+        return getValues()[index];
+    }
+
+    @ExportMessage
+    public double getNextDouble(SeqIterator it) {
+        return getStore(it)[it.getIndex()];
+    }
+
+    @ExportMessage
+    public double getDouble(RandomAccessIterator it, int index) {
+        return getStore(it)[index];
+    }
+
+    private static double[] getStore(Iterator it) {
+        return (double[]) it.getStore();
+    }
+
+    @Override
+    public String toString() {
+        CompilerAsserts.neverPartOfCompilation();
+        return isEvaluated() ? Arrays.toString(values) : "deferred " + operation + " of length " + length;
+    }
+}
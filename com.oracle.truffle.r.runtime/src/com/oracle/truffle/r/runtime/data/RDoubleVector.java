@@ -89,6 +89,10 @@ public final class RDoubleVector extends RAbstractNumericVector implements RMate
         return new RDoubleVector(new RDoubleSeqVectorData(start, stride, length), length);
     }
 
+    public static RDoubleVector createDeferred(RDoubleDeferredVectorData data) {
+        return new RDoubleVector(data, data.getLength());
+    }
+
     public static RDoubleVector createClosure(RAbstractVector delegate, boolean keepAttrs) {
         RDoubleVector result = new RDoubleVector(VectorDataClosure.fromVector(delegate, RType.Double), delegate.getLength());
         if (keepAttrs) {
@@ -117,6 +121,13 @@ public final class RDoubleVector extends RAbstractNumericVector implements RMate
         return result;
     }
 
+    static RDoubleVector createNative(int length) {
+        RDoubleVector result = new RDoubleVector();
+        NativeDataAccess.allocateZeroedNativeContents(result, length);
+        result.setData(new RDoubleNativeVectorData(result), length);
+        return result;
+    }
+
     @Override
     @Ignore // AbstractContainerLibrary
     public boolean isMaterialized() {
@@ -178,6 +189,8 @@ public final class RDoubleVector extends RAbstractNumericVector implements RMate
         }
         // TODO: get rid of this method
         assert data instanceof RDoubleArrayVectorData : data.getClass().getName();
+        // the callers may write into the array, so it must not be a trimmed copy
+        materializeData(VectorDataLibrary.getFactory().getUncached());
         return ((RDoubleArrayVectorData) data).getReadonlyDoubleData();
     }
 
@@ -275,6 +288,16 @@ public final class RDoubleVector extends RAbstractNumericVector implements RMate
         setData(dataLib.materialize(data), getLength());
     }
 
+    @Override
+    public boolean growInPlace(int newLength) {
+        if (data instanceof RDoubleArrayVectorData) {
+            assert !isShared();
+            setData(((RDoubleArrayVectorData) data).grow(newLength), newLength);
+            return true;
+        }
+        return false;
+    }
+
     @ExportMessage(name = "materialize", library = AbstractContainerLibrary.class)
     RDoubleVector containerLibMaterialize(@CachedLibrary(limit = DATA_LIB_LIMIT) VectorDataLibrary dataLib) {
         if (dataLib.isWriteable(data)) {
@@ -22,6 +22,7 @@
  */
 package com.oracle.truffle.r.runtime.data;
 
+import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.RootCallTarget;
@@ -54,7 +55,9 @@ import com.oracle.truffle.r.runtime.interop.R2ForeignNodeGen;
  * are as follows:
  * <ul>
  * <li>The {@link #name} is optional. It is only set initially for builtins (required).
- * <li>The {@link #target} represents the actually callable entry point to the function.
+ * <li>The {@link #target} represents the actually callable entry point to the function. It may be
+ * created lazily by a {@link TargetFactory} on the first call to {@link #getTarget()}, which is used
+ * for closures read from lazy-load databases, as most of them are never called.
  * <li>Functions may represent builtins; this is indicated by the {@link #builtin} flag set to the
  * associated {@link RBuiltin} instance.
  * <li>The lexically enclosing environment of this function's definition is referenced by
@@ -69,6 +72,12 @@ public final class RFunction extends RSharingAttributeStorage implements Shareab
     private final String name;
     private final String packageName;
     @CompilationFinal private RootCallTarget target;
+    /**
+     * Non-null while the {@link #target} of a lazily created function was not created yet. The
+     * field is volatile and written after {@link #target}, so a thread that reads {@code null} here
+     * also sees the created target.
+     */
+    @CompilationFinal private volatile TargetFactory targetFactory;
     private final RBuiltinDescriptor builtin;
 
     @CompilationFinal private MaterializedFrame enclosingFrame;
@@ -85,6 +94,18 @@ public final class RFunction extends RSharingAttributeStorage implements Shareab
         this.enclosingFrame = enclosingFrame instanceof VirtualEvalFrame ? ((VirtualEvalFrame) enclosingFrame).getOriginalFrame() : enclosingFrame;
     }
 
+    RFunction(String name, String packageName, TargetFactory targetFactory, MaterializedFrame enclosingFrame) {
+        this(name, packageName, (RootCallTarget) null, null, enclosingFrame);
+        this.targetFactory = targetFactory;
+    }
+
+    /**
+     * Creates the call target of a lazily created function.
+     */
+    public interface TargetFactory {
+        RootCallTarget createTarget(RFunction function);
+    }
+
     @SuppressWarnings("static-method")
     @ExportMessage
     boolean isExecutable() {
@@ -135,11 +156,28 @@ public final class RFunction extends RSharingAttributeStorage implements Shareab
     }
 
     public RootCallTarget getTarget() {
+        if (targetFactory != null) {
+            CompilerDirectives.transferToInterpreterAndInvalidate();
+            createTarget();
+        }
         return target;
     }
 
+    @TruffleBoundary
+    private synchronized void createTarget() {
+        if (targetFactory != null) {
+            RootCallTarget newTarget = targetFactory.createTarget(this);
+            if (name != NO_NAME) {
+                RContext.getRRuntimeASTAccess().setFunctionName(newTarget.getRootNode(), name);
+            }
+            target = newTarget;
+            targetFactory = null;
+        }
+    }
+
     public RootNode getRootNode() {
-        return target != null ? target.getRootNode() : null;
+        RootCallTarget callTarget = getTarget();
+        return callTarget != null ? callTarget.getRootNode() : null;
     }
 
     public MaterializedFrame getEnclosingFrame() {
@@ -148,7 +186,7 @@ public final class RFunction extends RSharingAttributeStorage implements Shareab
 
     @Override
     public String toString() {
-        return target.toString();
+        return getTarget().toString();
     }
 
     @Override
@@ -161,8 +199,13 @@ public final class RFunction extends RSharingAttributeStorage implements Shareab
         return newFunction;
     }
 
-    public void reassignTarget(RootCallTarget newTarget) {
+    /**
+     * Synchronized with {@link #createTarget()}, so that a target being created from the factory
+     * cannot overwrite the new one.
+     */
+    public synchronized void reassignTarget(RootCallTarget newTarget) {
         this.target = newTarget;
+        this.targetFactory = null;
     }
 
     public void reassignEnclosingFrame(MaterializedFrame newEnclosingFrame) {
@@ -91,6 +91,13 @@ public final class RIntVector extends RAbstractNumericVector {
         return result;
     }
 
+    static RIntVector createNative(int length) {
+        RIntVector result = new RIntVector();
+        NativeDataAccess.allocateZeroedNativeContents(result, length);
+        result.setData(new RIntNativeVectorData(result), length);
+        return result;
+    }
+
     public static RIntVector createSequence(int start, int stride, int length) {
         return new RIntVector(new RIntSeqVectorData(start, stride, length), length);
     }
@@ -257,6 +264,8 @@ public final class RIntVector extends RAbstractNumericVector {
         }
         // TODO: get rid of this method
         assert data instanceof RIntArrayVectorData : data.getClass().getName();
+        // the callers may write into the array, so it must not be a trimmed copy
+        materializeData(VectorDataLibrary.getFactory().getUncached());
         return ((RIntArrayVectorData) data).getReadonlyIntData();
     }
 
@@ -289,6 +298,16 @@ public final class RIntVector extends RAbstractNumericVector {
         setData(dataLib.materialize(data), getLength());
     }
 
+    @Override
+    public boolean growInPlace(int newLength) {
+        if (data instanceof RIntArrayVectorData) {
+            assert !isShared();
+            setData(((RIntArrayVectorData) data).grow(newLength), newLength);
+            return true;
+        }
+        return false;
+    }
+
     @ExportMessage(name = "materialize", library = AbstractContainerLibrary.class)
     RIntVector containerLibMaterialize(@CachedLibrary(limit = DATA_LIB_LIMIT) VectorDataLibrary dataLib) {
         if (dataLib.isWriteable(data)) {
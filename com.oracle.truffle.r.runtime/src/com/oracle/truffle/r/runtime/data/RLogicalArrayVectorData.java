@@ -41,15 +41,28 @@ import com.oracle.truffle.r.runtime.data.VectorDataLibrary.RandomAccessIterator;
 import com.oracle.truffle.r.runtime.data.VectorDataLibrary.RandomAccessWriteIterator;
 import com.oracle.truffle.r.runtime.data.VectorDataLibrary.SeqIterator;
 import com.oracle.truffle.r.runtime.data.VectorDataLibrary.SeqWriteIterator;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
 import com.oracle.truffle.r.runtime.ops.na.NACheck;
 
 @ExportLibrary(VectorDataLibrary.class)
 class RLogicalArrayVectorData implements TruffleObject, ShareableVectorData {
-    private final byte[] data;
+    /**
+     * The backing array, which may be longer than {@link #length} if the vector was grown by
+     * {@link #grow(int)}. The spare capacity is trimmed away in place by the first read-only access
+     * to the whole array or by {@link #materialize()}, so that later accesses do not copy.
+     */
+    private byte[] data;
+    private final int length;
     private boolean complete;
 
     RLogicalArrayVectorData(byte[] data, boolean complete) {
+        this(data, data.length, complete);
+    }
+
+    private RLogicalArrayVectorData(byte[] data, int length, boolean complete) {
+        assert length <= data.length;
         this.data = data;
+        this.length = length;
         this.complete = complete && ENABLE_COMPLETE;
     }
 
@@ -69,11 +82,12 @@ class RLogicalArrayVectorData implements TruffleObject, ShareableVectorData {
 
     @ExportMessage
     public int getLength() {
-        return data.length;
+        return length;
     }
 
     @ExportMessage
     public RLogicalArrayVectorData materialize() {
+        trimToLength();
         return this;
     }
 
@@ -84,7 +98,7 @@ class RLogicalArrayVectorData implements TruffleObject, ShareableVectorData {
 
     @ExportMessage
     public RLogicalArrayVectorData copy(@SuppressWarnings("unused") boolean deep) {
-        return new RLogicalArrayVectorData(Arrays.copyOf(data, data.length), isComplete());
+        return new RLogicalArrayVectorData(Arrays.copyOf(data, length), isComplete());
     }
 
     @ExportMessage
@@ -94,12 +108,19 @@ class RLogicalArrayVectorData implements TruffleObject, ShareableVectorData {
 
     @ExportMessage
     public byte[] getReadonlyLogicalData() {
+        trimToLength();
         return data;
     }
 
+    private void trimToLength() {
+        if (data.length != length) {
+            data = Arrays.copyOf(data, length);
+        }
+    }
+
     @ExportMessage
     public byte[] getLogicalDataCopy() {
-        return Arrays.copyOf(data, data.length);
+        return Arrays.copyOf(data, length);
     }
 
     // Read access to the elements:
@@ -108,7 +129,7 @@ class RLogicalArrayVectorData implements TruffleObject, ShareableVectorData {
     public SeqIterator iterator(
                     @Shared("naCheck") @Cached() NACheck naCheck,
                     @Shared("SeqItLoopProfile") @Cached("createCountingProfile()") LoopConditionProfile loopProfile) {
-        SeqIterator it = new SeqIterator(data, data.length);
+        SeqIterator it = new SeqIterator(data, length);
         naCheck.enable(!isComplete());
         it.initLoopConditionProfile(loopProfile);
         return it;
@@ -162,7 +183,7 @@ class RLogicalArrayVectorData implements TruffleObject, ShareableVectorData {
 
     @ExportMessage
     public SeqWriteIterator writeIterator() {
-        return new SeqWriteIterator(data, data.length);
+        return new SeqWriteIterator(data, length);
     }
 
     @ExportMessage
@@ -207,6 +228,24 @@ class RLogicalArrayVectorData implements TruffleObject, ShareableVectorData {
         getStore(it)[index] = value;
     }
 
+    // Growing:
+
+    /**
+     * Returns data of length {@code newLength} with the elements of this data followed by
+     * {@code NA}s. The backing array is reused if it has enough spare capacity, otherwise it is
+     * replaced by an over-allocated one, see {@link RAbstractVector#growCapacity(int, int)}. This
+     * data must not be used any more afterwards.
+     */
+    RLogicalArrayVectorData grow(int newLength) {
+        assert newLength > length;
+        byte[] newData = data;
+        if (newLength > data.length) {
+            newData = Arrays.copyOf(data, RAbstractVector.growCapacity(length, newLength));
+        }
+        Arrays.fill(newData, length, newLength, RRuntime.LOGICAL_NA);
+        return new RLogicalArrayVectorData(newData, newLength, false);
+    }
+
     private static byte[] getStore(Iterator it) {
         return (byte[]) it.getStore();
     }
@@ -188,6 +188,8 @@ public final class RLogicalVector extends RAbstractAtomicVector implements RMate
         }
         // TODO: get rid of this method
         assert data instanceof RLogicalArrayVectorData : data.getClass().getName();
+        // the callers may write into the array, so it must not be a trimmed copy
+        materializeData(VectorDataLibrary.getFactory().getUncached());
         return ((RLogicalArrayVectorData) data).getReadonlyLogicalData();
     }
 
@@ -287,6 +289,16 @@ public final class RLogicalVector extends RAbstractAtomicVector implements RMate
         setData(dataLib.materialize(data), getLength());
     }
 
+    @Override
+    public boolean growInPlace(int newLength) {
+        if (data instanceof RLogicalArrayVectorData) {
+            assert !isShared();
+            setData(((RLogicalArrayVectorData) data).grow(newLength), newLength);
+            return true;
+        }
+        return false;
+    }
+
     @ExportMessage(name = "materialize", library = AbstractContainerLibrary.class)
     RLogicalVector containerLibMaterialize(@CachedLibrary(limit = DATA_LIB_LIMIT) VectorDataLibrary dataLib) {
         if (dataLib.isWriteable(data)) {
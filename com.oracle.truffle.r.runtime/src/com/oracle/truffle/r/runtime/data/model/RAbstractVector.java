@@ -615,6 +615,30 @@ public abstract class RAbstractVector extends RAbstractContainer implements RFFI
         return result;
     }
 
+    /**
+     * Extends this vector to {@code newLength} elements filling the new ones with {@code NA}. Unlike
+     * {@link #copyResized(int, boolean)}, this vector itself is modified and its backing array is
+     * over-allocated, so that repeated appends (e.g. {@code x[length(x) + 1] <- v} in a loop) take
+     * amortised constant time. Only the length changes, the attributes are left to the caller. The
+     * caller must make sure that the vector is not shared.
+     *
+     * @return {@code false} if the data of this vector cannot be grown in place, in which case the
+     *         vector is left unchanged
+     */
+    public boolean growInPlace(@SuppressWarnings("unused") int newLength) {
+        return false;
+    }
+
+    /**
+     * The capacity of the backing array of a vector that is growing from {@code length} to
+     * {@code newLength} elements. Small increments get 50% extra space, big jumps (e.g.
+     * {@code x[1e6] <- 1} on an empty vector) are allocated exactly.
+     */
+    public static int growCapacity(int length, int newLength) {
+        long capacity = Math.min(length + (length >> 1) + 4L, Integer.MAX_VALUE - 8);
+        return (int) Math.max(newLength, capacity);
+    }
+
     protected boolean isResizedComplete(int newSize, boolean filledNAs) {
         return isComplete() && ((getLength() >= newSize) || !filledNAs);
     }
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2013, 2020, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2013, 2021, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -72,6 +72,7 @@ import com.oracle.truffle.r.runtime.env.frame.FrameSlotChangeMonitor;
 import com.oracle.truffle.r.runtime.env.frame.NSBaseMaterializedFrame;
 import com.oracle.truffle.r.runtime.env.frame.REnvEmptyFrameAccess;
 import com.oracle.truffle.r.runtime.env.frame.REnvFrameAccess;
+import com.oracle.truffle.r.runtime.env.frame.REnvHashedFrameAccess;
 import com.oracle.truffle.r.runtime.env.frame.REnvTruffleFrameAccess;
 import com.oracle.truffle.r.runtime.interop.Foreign2R;
 import com.oracle.truffle.r.runtime.interop.R2Foreign;
@@ -888,14 +889,18 @@ public abstract class REnvironment extends RAttributable {
      * An environment associated with an already materialized frame.
      */
     private REnvironment(String name, MaterializedFrame frame) {
-        this(name, new REnvTruffleFrameAccess(frame));
+        this(name, frame, new REnvTruffleFrameAccess(frame));
+    }
+
+    private REnvironment(String name, MaterializedFrame frame, REnvFrameAccess frameAccess) {
+        this(name, frameAccess);
 
         // Associate frame with the environment
         RArguments.setEnvironment(frame, this);
     }
 
     public REnvironment getParent() {
-        MaterializedFrame enclosingFrame = RArguments.getEnclosingFrame(getFrame());
+        MaterializedFrame enclosingFrame = RArguments.getEnclosingFrame(frameAccess.getFrameWithoutBindings());
         return enclosingFrame == null ? emptyEnv : frameToEnvironment(enclosingFrame);
     }
 
@@ -905,7 +910,7 @@ public abstract class REnvironment extends RAttributable {
      */
     public void setParent(REnvironment env) {
         if (getParent() != env) {
-            RArguments.setEnclosingFrame(getFrame(), env.getFrame(), true);
+            RArguments.setEnclosingFrame(frameAccess.getFrameWithoutBindings(), env.getFrame(), true);
         }
     }
 
@@ -964,6 +969,23 @@ public abstract class REnvironment extends RAttributable {
         return frameAccessProfile.profile(frameAccess).getFrame();
     }
 
+    /**
+     * Returns the frame of this environment for reading or initializing its enclosing frame only,
+     * see {@link REnvFrameAccess#getFrameWithoutBindings()}.
+     */
+    public MaterializedFrame getFrameWithoutBindings() {
+        return frameAccess.getFrameWithoutBindings();
+    }
+
+    /**
+     * Returns {@code false} if the bindings of this environment are not stored in its frame, i.e.,
+     * if the frame should not be requested for operations that can be done via
+     * {@link #get(String)} and {@link #put(String, Object)}.
+     */
+    public boolean hasFrameBindings() {
+        return frameAccess.hasFrameBindings();
+    }
+
     public void lock(boolean bindings) {
         locked = true;
         if (bindings) {
@@ -1220,9 +1242,10 @@ public abstract class REnvironment extends RAttributable {
     /**
      * An environment explicitly created with, typically, {@code new.env}, but also used internally.
      * Such environments are always {@link #UNNAMED} but can later be given a name as an attribute.
-     * This is the class used by the {@code new.env} function. We record but do not interpret the
-     * {@code hash} input, as we always use a hashmap, for possible use by the serialization code
-     * (GnuR generates different output format for hash environments).
+     * This is the class used by the {@code new.env} function. The bindings of environments created
+     * with {@code hash = TRUE} are kept in a {@link REnvHashedFrameAccess hash table} until the
+     * frame is needed. The {@code hash} input is also recorded for the serialization code (GnuR
+     * generates different output format for hash environments).
      *
      */
     public static final class NewEnv extends REnvironment {
@@ -1236,6 +1259,15 @@ public abstract class REnvironment extends RAttributable {
             }
         }
 
+        public NewEnv(MaterializedFrame frame, String name, boolean hashed, int initialSize) {
+            super(UNNAMED, frame, hashed ? new REnvHashedFrameAccess(frame, initialSize) : new REnvTruffleFrameAccess(frame));
+            if (name != null) {
+                setAttr(NAME_ATTR_KEY, name);
+            }
+            this.hashed = hashed;
+            this.initialSize = initialSize;
+        }
+
         public boolean isHashed() {
             return hashed;
         }
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2014, 2018, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2014, 2021, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -22,9 +22,14 @@
  */
 package com.oracle.truffle.r.runtime.env.frame;
 
+import java.text.Collator;
+import java.util.Arrays;
+import java.util.Locale;
 import java.util.regex.Pattern;
 
 import com.oracle.truffle.api.frame.MaterializedFrame;
+import com.oracle.truffle.r.runtime.RLocale;
+import com.oracle.truffle.r.runtime.context.RContext;
 import com.oracle.truffle.r.runtime.data.RStringVector;
 import com.oracle.truffle.r.runtime.env.REnvironment;
 import com.oracle.truffle.r.runtime.env.REnvironment.PutException;
@@ -79,4 +84,28 @@ public abstract class REnvFrameAccess {
 
     public abstract MaterializedFrame getFrame();
 
+    /**
+     * Returns the frame without making sure that the bindings are stored in it, which is enough to
+     * read or set its enclosing frame. The result must not be used to look up variables.
+     */
+    public MaterializedFrame getFrameWithoutBindings() {
+        return getFrame();
+    }
+
+    /**
+     * Returns {@code false} if the bindings are currently kept outside of the frame, in which case
+     * {@link #getFrame()} moves them into the frame.
+     */
+    public boolean hasFrameBindings() {
+        return true;
+    }
+
+    /**
+     * Sorts the names returned by {@link #ls} according to the collation locale.
+     */
+    protected static void sortNames(String[] names) {
+        Locale locale = RContext.getInstance().stateRLocale.getLocale(RLocale.COLLATE);
+        Collator collator = locale == Locale.ROOT || locale == null ? null : RLocale.getOrderCollator(locale);
+        Arrays.sort(names, (o1, o2) -> RLocale.compare(collator, o1, o2));
+    }
 }
@@ -0,0 +1,334 @@
+/*
+ * Copyright (c) 2021, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.runtime.env.frame;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import com.oracle.truffle.api.CompilerAsserts;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.frame.FrameDescriptor;
+import com.oracle.truffle.api.frame.MaterializedFrame;
+import com.oracle.truffle.r.runtime.RError;
+import com.oracle.truffle.r.runtime.RInternalError;
+import com.oracle.truffle.r.runtime.RRuntime;
+import com.oracle.truffle.r.runtime.data.RDataFactory;
+import com.oracle.truffle.r.runtime.data.RStringVector;
+import com.oracle.truffle.r.runtime.env.REnvironment;
+import com.oracle.truffle.r.runtime.env.REnvironment.PutException;
+
+/**
+ * Variant of {@link REnvFrameAccess} for hashed environments created by {@code new.env}. Such
+ * environments are often used as dictionaries with many keys, and adding a {@code FrameSlot} for
+ * each of them grows the {@link FrameDescriptor} (and the frame) one slot at a time and invalidates
+ * the lookups that went through the descriptor on every insert.
+ *
+ * Therefore the bindings are stored in an open-addressing hash table until the frame itself is
+ * requested via {@link #getFrame()}, e.g. to evaluate code in the environment or to use it as the
+ * enclosing environment of a function or of another environment. At that point, the bindings are
+ * moved to the frame and all further accesses are delegated to a {@link REnvTruffleFrameAccess}.
+ * Operations on the environment as a whole, like {@code assign}, {@code get}, {@code exists},
+ * {@code mget}, {@code ls} and {@code rm}, work on the hash table directly.
+ *
+ * The keys and values are kept in insertion order in dense arrays, removed entries are cleared and
+ * dropped when the table is rebuilt. The index table maps the hash of a key to its position in the
+ * dense arrays plus one, {@code 0} marks an empty index slot.
+ */
+public final class REnvHashedFrameAccess extends REnvFrameAccess {
+
+    private static final int MIN_CAPACITY = 8;
+    private static final int MAX_INITIAL_CAPACITY = 1 << 20;
+
+    private final MaterializedFrame frame;
+
+    private String[] keys;
+    private Object[] values;
+    private int[] index;
+    /**
+     * Number of used entries in the dense arrays, including removed ones.
+     */
+    private int count;
+    /**
+     * Number of live bindings.
+     */
+    private int size;
+
+    private Set<String> lockedBindings;
+
+    /**
+     * Set once the bindings were moved to the frame.
+     */
+    private REnvTruffleFrameAccess materialized;
+
+    public REnvHashedFrameAccess(MaterializedFrame frame, int initialSize) {
+        this.frame = frame;
+        allocate(Math.max(MIN_CAPACITY, Math.min(MAX_INITIAL_CAPACITY, initialSize)));
+    }
+
+    private void allocate(int capacity) {
+        keys = new String[capacity];
+        values = new Object[capacity];
+        index = new int[Integer.highestOneBit(capacity - 1) << 2];
+        count = 0;
+    }
+
+    @Override
+    public MaterializedFrame getFrame() {
+        return materialize().getFrame();
+    }
+
+    @Override
+    public MaterializedFrame getFrameWithoutBindings() {
+        return frame;
+    }
+
+    @Override
+    public boolean hasFrameBindings() {
+        return materialized != null;
+    }
+
+    private static int hash(String key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Returns the position of {@code key} in the dense arrays or {@code -1}.
+     */
+    private int find(String key) {
+        int mask = index.length - 1;
+        int i = hash(key) & mask;
+        while (true) {
+            int entry = index[i];
+            if (entry == 0) {
+                return -1;
+            }
+            String k = keys[entry - 1];
+            if (k != null && k.equals(key)) {
+                return entry - 1;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    private void insert(String key, Object value) {
+        if (count == keys.length) {
+            rebuild(Math.max(MIN_CAPACITY, size * 2));
+        }
+        keys[count] = key;
+        values[count] = value;
+        count++;
+        size++;
+        addToIndex(key, count);
+    }
+
+    private void addToIndex(String key, int entry) {
+        int mask = index.length - 1;
+        int i = hash(key) & mask;
+        while (index[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        index[i] = entry;
+    }
+
+    /**
+     * Compacts the dense arrays into arrays of the given capacity and rebuilds the index.
+     */
+    private void rebuild(int capacity) {
+        String[] oldKeys = keys;
+        Object[] oldValues = values;
+        int oldCount = count;
+        allocate(capacity);
+        for (int i = 0; i < oldCount; i++) {
+            if (oldKeys[i] != null) {
+                keys[count] = oldKeys[i];
+                values[count] = oldValues[i];
+                count++;
+                addToIndex(oldKeys[i], count);
+            }
+        }
+    }
+
+    @Override
+    public Object get(String key) {
+        CompilerAsserts.neverPartOfCompilation();
+        if (materialized != null) {
+            return materialized.get(key);
+        }
+        int pos = find(key);
+        return pos < 0 ? null : values[pos];
+    }
+
+    @Override
+    public boolean isActiveBinding(String key) {
+        CompilerAsserts.neverPartOfCompilation();
+        // active bindings are created in the frame
+        return materialized != null && materialized.isActiveBinding(key);
+    }
+
+    @Override
+    public void put(String key, Object value) throws PutException {
+        CompilerAsserts.neverPartOfCompilation();
+        assert key != null;
+        assert value != null;
+        if (materialized != null) {
+            materialized.put(key, value);
+            return;
+        }
+        if (lockedBindings != null && lockedBindings.contains(key)) {
+            throw new PutException(RError.Message.ENV_CHANGE_BINDING, key);
+        }
+        int pos = find(key);
+        if (pos >= 0) {
+            values[pos] = value;
+        } else {
+            insert(key, value);
+        }
+    }
+
+    @Override
+    public void rm(String key) throws PutException {
+        CompilerAsserts.neverPartOfCompilation();
+        assert key != null;
+        if (materialized != null) {
+            materialized.rm(key);
+            return;
+        }
+        if (lockedBindings != null) {
+            lockedBindings.remove(key);
+        }
+        int pos = find(key);
+        if (pos < 0) {
+            throw new PutException(RError.Message.UNKNOWN_OBJECT, key);
+        }
+        // the index entry stays, it is skipped by lookups and dropped by the next rebuild
+        keys[pos] = null;
+        values[pos] = null;
+        size--;
+    }
+
+    @Override
+    @TruffleBoundary
+    public RStringVector ls(boolean allNames, Pattern pattern, boolean sorted) {
+        if (materialized != null) {
+            return materialized.ls(allNames, pattern, sorted);
+        }
+        ArrayList<String> names = new ArrayList<>(size);
+        for (int i = 0; i < count; i++) {
+            String key = keys[i];
+            if (key != null && REnvironment.includeName(key, allNames, pattern)) {
+                names.add(key);
+            }
+        }
+        String[] data = names.toArray(new String[names.size()]);
+        if (sorted) {
+            sortNames(data);
+        }
+        return RDataFactory.createStringVector(data, RDataFactory.COMPLETE_VECTOR);
+    }
+
+    @Override
+    @TruffleBoundary
+    public void lockBindings() {
+        if (materialized != null) {
+            materialized.lockBindings();
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            if (keys[i] != null) {
+                lockBinding(keys[i]);
+            }
+        }
+    }
+
+    @Override
+    @TruffleBoundary
+    public void lockBinding(String key) {
+        if (materialized != null) {
+            materialized.lockBinding(key);
+            return;
+        }
+        if (lockedBindings == null) {
+            lockedBindings = new HashSet<>();
+        }
+        lockedBindings.add(key);
+    }
+
+    @Override
+    @TruffleBoundary
+    public void unlockBinding(String key) {
+        if (materialized != null) {
+            materialized.unlockBinding(key);
+        } else if (lockedBindings != null) {
+            lockedBindings.remove(key);
+        }
+    }
+
+    @Override
+    @TruffleBoundary
+    public boolean bindingIsLocked(String key) {
+        if (materialized != null) {
+            return materialized.bindingIsLocked(key);
+        }
+        return lockedBindings != null && lockedBindings.contains(key);
+    }
+
+    /**
+     * Moves the bindings to the frame. The frame slots are added before any value is written, so
+     * that the frame is resized only once.
+     */
+    @TruffleBoundary
+    private REnvTruffleFrameAccess materialize() {
+        if (materialized == null) {
+            REnvTruffleFrameAccess access = new REnvTruffleFrameAccess(frame);
+            FrameDescriptor fd = frame.getFrameDescriptor();
+            for (int i = 0; i < count; i++) {
+                if (keys[i] != null) {
+                    FrameSlotChangeMonitor.findOrAddFrameSlot(fd, keys[i], RRuntime.getSlotKind(values[i]));
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                if (keys[i] != null) {
+                    try {
+                        access.put(keys[i], values[i]);
+                    } catch (PutException e) {
+                        throw RInternalError.shouldNotReachHere(e);
+                    }
+                }
+            }
+            if (lockedBindings != null) {
+                for (String key : lockedBindings) {
+                    access.lockBinding(key);
+                }
+            }
+            materialized = access;
+            keys = null;
+            values = null;
+            index = null;
+            lockedBindings = null;
+        }
+        return materialized;
+    }
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright (c) 2021, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.runtime.ffi.util;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
+/**
+ * Concurrent hash map with primitive {@code long} keys, used to map handles and addresses of native
+ * mirrors without boxing the keys or allocating an entry per mapping.
+ *
+ * The map is split into a fixed number of segments, each of them an open-addressing table with
+ * linear probing guarded by its own {@link StampedLock}. Lookups are optimistic and only fall back
+ * to the read lock if a concurrent update of the same segment was detected. Removal uses backward
+ * shifting, so there are no tombstones.
+ *
+ * The key {@code 0} is reserved as the marker of an empty slot, it is never a valid handle nor a
+ * valid address, and it is never found by {@link #get(long)}.
+ */
+public final class ConcurrentLongHashMap<V> {
+
+    private static final int SEGMENT_BITS = 5;
+    private static final int SEGMENTS = 1 << SEGMENT_BITS;
+    private static final long EMPTY = 0;
+
+    private static final class Table {
+        final long[] keys;
+        final Object[] values;
+        final int mask;
+        final int threshold;
+
+        Table(int capacity) {
+            assert Integer.bitCount(capacity) == 1;
+            this.keys = new long[capacity];
+            this.values = new Object[capacity];
+            this.mask = capacity - 1;
+            // linear probing degrades quickly with higher load factors
+            this.threshold = capacity >> 1;
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static final class Segment extends StampedLock {
+        private Table table;
+        private int size;
+
+        Segment(int capacity) {
+            this.table = new Table(capacity);
+        }
+    }
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder collisions = new LongAdder();
+
+    public ConcurrentLongHashMap(int initialCapacity) {
+        int segmentCapacity = Math.max(8, Integer.highestOneBit(Math.max(1, initialCapacity * 2 / SEGMENTS - 1)) << 1);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(segmentCapacity);
+        }
+    }
+
+    /**
+     * MurmurHash3 finalizer, handles are allocated sequentially, so the bits need to be spread.
+     */
+    private static long mix(long key) {
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private Segment segmentFor(long hash) {
+        return segments[(int) (hash >>> (64 - SEGMENT_BITS))];
+    }
+
+    private static int slot(long hash, int mask) {
+        return (int) hash & mask;
+    }
+
+    @TruffleBoundary
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key == EMPTY) {
+            return null;
+        }
+        long hash = mix(key);
+        Segment segment = segmentFor(hash);
+        lookups.increment();
+        long stamp = segment.tryOptimisticRead();
+        if (stamp != 0) {
+            Table table = segment.table;
+            int probes = 0;
+            int i = slot(hash, table.mask);
+            Object result = null;
+            // bounded, since the table may be in an inconsistent state without the lock
+            while (probes <= table.mask) {
+                long k = table.keys[i];
+                if (k == key) {
+                    result = table.values[i];
+                    break;
+                } else if (k == EMPTY) {
+                    break;
+                }
+                i = (i + 1) & table.mask;
+                probes++;
+            }
+            if (segment.validate(stamp)) {
+                if (probes > 0) {
+                    collisions.increment();
+                }
+                return (V) result;
+            }
+        }
+        stamp = segment.readLock();
+        try {
+            Table table = segment.table;
+            int i = slot(hash, table.mask);
+            boolean collision = false;
+            while (true) {
+                long k = table.keys[i];
+                if (k == key || k == EMPTY) {
+                    if (collision) {
+                        collisions.increment();
+                    }
+                    return k == key ? (V) table.values[i] : null;
+                }
+                i = (i + 1) & table.mask;
+                collision = true;
+            }
+        } finally {
+            segment.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Associates {@code value} with {@code key} and returns the previously associated value or
+     * {@code null}.
+     */
+    @TruffleBoundary
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        assert key != EMPTY && value != null;
+        long hash = mix(key);
+        Segment segment = segmentFor(hash);
+        long stamp = segment.writeLock();
+        try {
+            Table table = segment.table;
+            int i = slot(hash, table.mask);
+            while (true) {
+                long k = table.keys[i];
+                if (k == key) {
+                    Object old = table.values[i];
+                    table.values[i] = value;
+                    return (V) old;
+                } else if (k == EMPTY) {
+                    table.keys[i] = key;
+                    table.values[i] = value;
+                    if (++segment.size > table.threshold) {
+                        segment.table = rehash(table);
+                    }
+                    return null;
+                }
+                i = (i + 1) & table.mask;
+            }
+        } finally {
+            segment.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes the mapping for {@code key} only if it is currently mapped to {@code value} (compared
+     * by identity).
+     */
+    @TruffleBoundary
+    public boolean remove(long key, V value) {
+        assert key != EMPTY;
+        long hash = mix(key);
+        Segment segment = segmentFor(hash);
+        long stamp = segment.writeLock();
+        try {
+            Table table = segment.table;
+            int i = slot(hash, table.mask);
+            while (true) {
+                long k = table.keys[i];
+                if (k == EMPTY) {
+                    return false;
+                } else if (k == key) {
+                    if (table.values[i] != value) {
+                        return false;
+                    }
+                    delete(table, i);
+                    segment.size--;
+                    return true;
+                }
+                i = (i + 1) & table.mask;
+            }
+        } finally {
+            segment.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Backward shift deletion: moves the following entries of the probe sequence into the hole as
+     * long as they are not in their home slot range.
+     */
+    private static void delete(Table table, int slot) {
+        int hole = slot;
+        int i = slot;
+        while (true) {
+            i = (i + 1) & table.mask;
+            long k = table.keys[i];
+            if (k == EMPTY) {
+                break;
+            }
+            int home = slot(mix(k), table.mask);
+            // the entry at i may be moved to the hole unless its home lies cyclically in (hole, i]
+            boolean homeBetween = hole <= i ? (home > hole && home <= i) : (home > hole || home <= i);
+            if (!homeBetween) {
+                table.keys[hole] = k;
+                table.values[hole] = table.values[i];
+                hole = i;
+            }
+        }
+        table.keys[hole] = EMPTY;
+        table.values[hole] = null;
+    }
+
+    private static Table rehash(Table table) {
+        Table result = new Table(table.keys.length << 1);
+        for (int j = 0; j < table.keys.length; j++) {
+            long k = table.keys[j];
+            if (k != EMPTY) {
+                int i = slot(mix(k), result.mask);
+                while (result.keys[i] != EMPTY) {
+                    i = (i + 1) & result.mask;
+                }
+                result.keys[i] = k;
+                result.values[i] = table.values[j];
+            }
+        }
+        return result;
+    }
+
+    @TruffleBoundary
+    public int size() {
+        int result = 0;
+        for (Segment segment : segments) {
+            long stamp = segment.readLock();
+            try {
+                result += segment.size;
+            } finally {
+                segment.unlockRead(stamp);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Number of {@link #get(long)} calls since the creation of the map.
+     */
+    public long getLookups() {
+        return lookups.sum();
+    }
+
+    /**
+     * Number of {@link #get(long)} calls that did not find the key (or its absence) in its home
+     * slot.
+     */
+    public long getCollisions() {
+        return collisions.sum();
+    }
+}
@@ -103,6 +103,15 @@ public abstract class NativeMemory {
         return result;
     }
 
+    /**
+     * Allocates {@code size} elements of the given type and fills them with zeros.
+     */
+    public static long allocateZeroed(ElementType type, long size, Object debugInfo) {
+        long result = allocate(type, size, debugInfo);
+        UNSAFE.setMemory(result, size * type.bytes, (byte) 0);
+        return result;
+    }
+
     public static void free(long address, Object debugInfo) {
         traceFree(address, debugInfo);
         UNSAFE.freeMemory(address);
@@ -1,7 +1,7 @@
 /*
  * Copyright (c) 1995-2012, The R Core Team
  * Copyright (c) 2003, The R Foundation
- * Copyright (c) 2014, 2020, Oracle and/or its affiliates
+ * Copyright (c) 2014, 2021, Oracle and/or its affiliates
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -44,14 +44,15 @@ import com.oracle.truffle.r.runtime.ffi.BaseRFFI;
 import com.oracle.truffle.r.runtime.nmath.RandomFunctions.RandomNumberProvider;
 import static com.oracle.truffle.r.runtime.rng.RRNG.SampleKind.REJECTION;
 import static com.oracle.truffle.r.runtime.rng.RRNG.SampleKind.ROUNDING;
+import com.oracle.truffle.r.runtime.rng.lecuyer.LecuyerCMRG;
 import com.oracle.truffle.r.runtime.rng.mm.MarsagliaMulticarry;
 import com.oracle.truffle.r.runtime.rng.mt.MersenneTwister;
 import com.oracle.truffle.r.runtime.rng.user.UserRNG;
 
 /**
  * Facade class to the R random number generators, (see src/main/RNG.c in GnuR). The individual
- * generators are implemented in their own class. Currently there are only two implemented, the
- * default, {@link MersenneTwister} and {@link MarsagliaMulticarry}.
+ * generators are implemented in their own class. Currently there are only three implemented, the
+ * default, {@link MersenneTwister}, {@link MarsagliaMulticarry} and {@link LecuyerCMRG}.
  *
  * The fact that the R programmer can set {@code .Random.seed} explicitly, as opposed to the
  * recommended approach of calling {@code set.seed}, is something of a pain as it changes the
@@ -80,7 +81,7 @@ public class RRNG {
         KNUTH_TAOCP(),
         USER_UNIF(UserRNG::new),
         KNUTH_TAOCP2(),
-        LECUYER_CMRG();
+        LECUYER_CMRG(LecuyerCMRG::new);
 
         @CompilationFinal(dimensions = 1) static final Kind[] VALUES = values();
 
@@ -147,14 +148,32 @@ public class RRNG {
          */
         private Object currentSeeds = null;
 
-        private ContextStateImpl() {
+        /**
+         * The {@value RRNG#RANDOM_SEED} handed over by the parent context, see
+         * {@link RRNG#childStreams(int)}.
+         */
+        private final int[] initialSeeds;
+
+        private ContextStateImpl(int[] initialSeeds) {
             this.currentNormKind = DEFAULT_NORM_KIND;
             this.currentSampleKind = REJECTION;
             this.allGenerators = new RandomNumberGenerator[Kind.VALUES.length];
+            this.initialSeeds = initialSeeds;
         }
 
         @Override
         public RContext.ContextState initialize(RContext context) {
+            if (initialSeeds != null) {
+                int flags = initialSeeds[0];
+                RandomNumberGenerator rng = Kind.VALUES[flags % 100].create();
+                rng.setISeed(initialSeeds);
+                this.currentGenerator = rng;
+                this.allGenerators[rng.getKind().ordinal()] = rng;
+                this.currentNormKind = NormKind.VALUES[(flags % 10000) / 100];
+                this.currentSampleKind = SampleKind.VALUES[flags / 10000];
+                this.currentSeeds = initialSeeds;
+                return this;
+            }
             int seed = timeToSeed();
             RandomNumberGenerator rng = DEFAULT_KIND.create();
             initGenerator(rng, seed);
@@ -221,8 +240,12 @@ public class RRNG {
             }
         }
 
-        public static ContextStateImpl newContextState() {
-            return new ContextStateImpl();
+        /**
+         * Creates the state for a context that starts with the given {@value RRNG#RANDOM_SEED} or
+         * with a fresh time based seed if {@code initialSeeds} is {@code null}.
+         */
+        public static ContextStateImpl newContextState(int[] initialSeeds) {
+            return new ContextStateImpl(initialSeeds);
         }
 
         public void initializeDotRandomSeed(RContext context) {
@@ -233,6 +256,9 @@ public class RRNG {
             FrameSlot slot = FrameSlotChangeMonitor.findOrAddFrameSlot(frame.getFrameDescriptor(), RRNG.RANDOM_SEED, FrameSlotKind.Object);
             FrameSlotChangeMonitor.setActiveBinding(frame, slot, dotRandomSeed, false, null);
             dotRandomSeedBinding = new WeakReference<>(dotRandomSeed);
+            if (currentSeeds != null) {
+                dotRandomSeed.setInitialized(true);
+            }
         }
 
         public void setCurrentSeeds(Object seeds) {
@@ -533,6 +559,33 @@ public class RRNG {
         getContextState().updateCurrentSampleKind(newSampleKind, false);
     }
 
+    /**
+     * Computes the seeds of {@code n} child contexts, so that each of them gets its own
+     * independent random number stream. This is only done for the {@link Kind#LECUYER_CMRG}
+     * generator: the i-th child gets the stream that is {@code i} streams ahead of the current
+     * {@value #RANDOM_SEED}, the same as with {@code parallel::nextRNGStream}. The state of the
+     * current context is not changed. Since the seeds are computed upfront in the parent, the
+     * children do not need to synchronize on any shared RNG state.
+     *
+     * @return {@code null} if the current generator is not {@link Kind#LECUYER_CMRG}, the
+     *         {@value #RANDOM_SEED} for each child otherwise
+     */
+    @TruffleBoundary
+    public static int[][] childStreams(int n) {
+        getRNGState();
+        if (currentKind() != Kind.LECUYER_CMRG) {
+            return null;
+        }
+        putRNGState();
+        int[][] result = new int[n][];
+        int[] seeds = currentGenerator().getSeeds();
+        for (int i = 0; i < n; i++) {
+            seeds = LecuyerCMRG.nextStream(seeds);
+            result[i] = seeds;
+        }
+        return result;
+    }
+
     /**
      * Loads the state of RNG from global environment variable {@code .Random.seed}. This should be
      * invoked before any random numbers generation as the user may have directly changed the
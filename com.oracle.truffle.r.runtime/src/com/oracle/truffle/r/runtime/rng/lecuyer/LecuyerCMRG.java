@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 1995-2012, The R Core Team
+ * Copyright (c) 2003, The R Foundation
+ * Copyright (c) 2011, The R Core Team
+ * Copyright (c) 2021, Oracle and/or its affiliates
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.R-project.org/Licenses/
+ */
+package com.oracle.truffle.r.runtime.rng.lecuyer;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.r.runtime.rng.RNGInitAdapter;
+import com.oracle.truffle.r.runtime.rng.RRNG;
+import com.oracle.truffle.r.runtime.rng.RRNG.Kind;
+
+/**
+ * "L'Ecuyer-CMRG" RNG, i.e. the MRG32k3a combined multiple recursive generator. Transcribed from
+ * GnuR RNG.c, the stream jumping functions are transcribed from src/library/parallel/rngstream.c.
+ *
+ * The six seeds are unsigned 32-bit integers stored as Java {@code int}s.
+ */
+public final class LecuyerCMRG extends RNGInitAdapter {
+
+    private static final int N_SEED = 6;
+
+    private static final long M1 = 4294967087L;
+    private static final long M2 = 4294944443L;
+    private static final double NORMC = 2.328306549295727688e-10;
+    private static final long A12 = 1403580;
+    private static final long A13N = 810728;
+    private static final long A21 = 527612;
+    private static final long A23N = 1370589;
+
+    /*
+     * Jump matrices advancing the state by 2^127 steps, i.e. to the next stream.
+     */
+    private static final long[][] A1P127 = {
+                    {2427906178L, 3580155704L, 949770784L},
+                    {226153695L, 1230515664L, 3580155704L},
+                    {1988835001L, 986791581L, 1230515664L}
+    };
+
+    private static final long[][] A2P127 = {
+                    {1464411153L, 277697599L, 1610723613L},
+                    {32183930L, 1464411153L, 1022607788L},
+                    {2824425944L, 32183930L, 2093834863L}
+    };
+
+    public LecuyerCMRG() {
+        super(N_SEED);
+    }
+
+    @Override
+    @TruffleBoundary
+    public void init(int seedParam) {
+        int seed = seedParam;
+        for (int i = 0; i < N_SEED; i++) {
+            seed = (69069 * seed + 1);
+            while (Integer.toUnsignedLong(seed) >= M2) {
+                seed = (69069 * seed + 1);
+            }
+            setISeedItem(i, seed);
+        }
+    }
+
+    @Override
+    @TruffleBoundary
+    public void fixupSeeds(boolean initial) {
+        // first set: not all zero, in [0, m1); second set: not all zero, in [0, m2)
+        if (!checkSeeds(0, M1) || !checkSeeds(3, M2)) {
+            init(RRNG.timeToSeed());
+        }
+    }
+
+    private boolean checkSeeds(int start, long m) {
+        boolean notAllZero = false;
+        for (int i = start; i < start + 3; i++) {
+            long seed = Integer.toUnsignedLong(getISeedItem(i));
+            if (seed != 0) {
+                notAllZero = true;
+            }
+            if (seed >= m) {
+                return false;
+            }
+        }
+        return notAllZero;
+    }
+
+    @Override
+    public double genrandDouble() {
+        long p1 = A12 * Integer.toUnsignedLong(getISeedItem(1)) - A13N * Integer.toUnsignedLong(getISeedItem(0));
+        /* p1 % m1 would surely do */
+        long k = p1 / M1;
+        p1 -= k * M1;
+        if (p1 < 0) {
+            p1 += M1;
+        }
+        setISeedItem(0, getISeedItem(1));
+        setISeedItem(1, getISeedItem(2));
+        setISeedItem(2, (int) p1);
+
+        long p2 = A21 * Integer.toUnsignedLong(getISeedItem(5)) - A23N * Integer.toUnsignedLong(getISeedItem(3));
+        k = p2 / M2;
+        p2 -= k * M2;
+        if (p2 < 0) {
+            p2 += M2;
+        }
+        setISeedItem(3, getISeedItem(4));
+        setISeedItem(4, getISeedItem(5));
+        setISeedItem(5, (int) p2);
+
+        return ((p1 > p2) ? (p1 - p2) : (p1 - p2 + M1)) * NORMC;
+    }
+
+    @Override
+    public Kind getKind() {
+        return Kind.LECUYER_CMRG;
+    }
+
+    @Override
+    public int getNSeed() {
+        return N_SEED;
+    }
+
+    /**
+     * Returns the {@code .Random.seed} of the stream following the one given by {@code seeds}, cf.
+     * {@code parallel::nextRNGStream}. The generator flag under index 0 is copied over.
+     */
+    public static int[] nextStream(int[] seeds) {
+        return jump(seeds, A1P127, A2P127);
+    }
+
+    private static int[] jump(int[] seeds, long[][] a1, long[][] a2) {
+        assert seeds.length >= N_SEED + 1;
+        int[] result = new int[N_SEED + 1];
+        result[0] = seeds[0];
+        for (int i = 0; i < 3; i++) {
+            long tmp = 0;
+            long tmp2 = 0;
+            for (int j = 0; j < 3; j++) {
+                tmp = (tmp + mulMod(a1[i][j], Integer.toUnsignedLong(seeds[j + 1]), M1)) % M1;
+                tmp2 = (tmp2 + mulMod(a2[i][j], Integer.toUnsignedLong(seeds[j + 4]), M2)) % M2;
+            }
+            result[i + 1] = (int) tmp;
+            result[i + 4] = (int) tmp2;
+        }
+        return result;
+    }
+
+    /**
+     * Computes {@code (a * s) % m} for {@code a} and {@code s} below 2^32 without overflowing
+     * {@code long} by splitting {@code s} into 16-bit halves.
+     */
+    private static long mulMod(long a, long s, long m) {
+        long high = (a * (s >>> 16)) % m;
+        return ((high << 16) + a * (s & 0xffff)) % m;
+    }
+}
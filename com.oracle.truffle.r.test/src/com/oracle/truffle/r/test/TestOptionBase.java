@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2021, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.test;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.Callable;
+
+import org.graalvm.options.OptionKey;
+import org.graalvm.polyglot.Value;
+import org.junit.AfterClass;
+
+import com.oracle.truffle.r.runtime.context.RContext;
+import com.oracle.truffle.r.runtime.context.RContext.ContextKind;
+import com.oracle.truffle.r.test.generate.FastRContext;
+import com.oracle.truffle.r.test.generate.FastRSession;
+
+/**
+ * Base class for the test suites that compare the results of R expressions evaluated with a
+ * {@link com.oracle.truffle.r.runtime.context.FastROptions FastR option} enabled with the results
+ * of the same expressions evaluated with the option disabled. The expressions are evaluated in a
+ * context of the test suite, which each suite creates in its {@code BeforeClass} method. Each
+ * expression is parsed again after the option is switched, so that the options read when the nodes
+ * are created take effect.
+ */
+public abstract class TestOptionBase extends TestBase {
+
+    private static FastRContext context;
+
+    protected static void createContext(String setup) {
+        context = FastRSession.create().createContext(ContextKind.SHARE_PARENT_RW);
+        if (setup != null) {
+            context.eval("R", setup);
+        }
+    }
+
+    @AfterClass
+    public static void finishClass() {
+        context.close();
+        context = null;
+    }
+
+    protected static Value eval(String code) {
+        return context.eval("R", code);
+    }
+
+    protected static Value execInContext(Callable<Object> c) {
+        return FastRSession.execInContext(context, c);
+    }
+
+    /**
+     * Evaluates the expression into {@code expected} with the option disabled and into
+     * {@code actual} with the option enabled, and checks that the results are identical.
+     */
+    protected static void assertSameWithOption(OptionKey<Boolean> option, String expression) {
+        eval("expected <- " + expression);
+        setOption(option, true);
+        try {
+            eval("actual <- " + expression);
+        } finally {
+            setOption(option, false);
+        }
+        assertTrue(expression, eval("identical(expected, actual)").asBoolean());
+    }
+
+    protected static void setOption(OptionKey<Boolean> option, boolean value) {
+        execInContext(() -> {
+            RContext.getInstance().setOption(option, value);
+            return null;
+        });
+    }
+}
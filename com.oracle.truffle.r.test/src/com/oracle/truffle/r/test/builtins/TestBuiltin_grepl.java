@@ -112,4 +112,11 @@ public class TestBuiltin_grepl extends TestBase {
         assertEval(Output.IgnoreErrorMessage, "{ grepl('x{2,  3}', 'xxx', perl=FALSE) }");
         assertEval("{ grepl('x{2,  3}', 'xxx', perl=TRUE) }");
     }
+
+    @Test
+    public void testRegexCache() {
+        assertEvalFastR("{ invisible(.fastr.regex.cache.stats(reset=TRUE)); for (i in 1:3) grepl('a+b', 'xaab'); .fastr.regex.cache.stats()[['java.hits']] >= 2 }", "[1] TRUE");
+        assertEvalFastR("{ invisible(.fastr.regex.cache.stats(reset=TRUE)); for (i in 1:3) grepl('a+b', 'xaab', perl=TRUE); .fastr.regex.cache.stats()[['pcre.hits']] >= 2 }", "[1] TRUE");
+        assertEvalFastR("{ x <- .fastr.regex.cache.stats(reset=TRUE); x <- .fastr.regex.cache.stats(); x[['java.hits']] + x[['pcre.misses']] }", "[1] 0");
+    }
 }
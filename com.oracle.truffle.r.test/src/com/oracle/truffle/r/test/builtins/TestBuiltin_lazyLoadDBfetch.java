@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2021, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.test.builtins;
+
+import org.junit.Test;
+
+import com.oracle.truffle.r.test.TestBase;
+
+// Checkstyle: stop line length check
+public class TestBuiltin_lazyLoadDBfetch extends TestBase {
+
+    @Test
+    public void testlazyLoadDBfetch() {
+        assertEval("{ f <- tempfile(); e <- new.env(); e$x <- 1:3; e$y <- 'y'; tools:::makeLazyLoadDB(e, f); l <- new.env(); lazyLoad(f, envir = l); r <- list(l$x, l$y, l$x); unlink(paste0(f, c('.rdb', '.rdx'))); r }");
+    }
+
+    @Test
+    public void testlazyLoadDBfetchRewritten() {
+        // the database is rewritten without lazyLoadDBflush, a new load must not get the old contents
+        assertEval("{ f <- tempfile(); e <- new.env(); e$x <- 1:3; tools:::makeLazyLoadDB(e, f); l1 <- new.env(); lazyLoad(f, envir = l1); a <- l1$x; " +
+                        "e$x <- c('a', 'b', 'c', 'd'); tools:::makeLazyLoadDB(e, f); l2 <- new.env(); lazyLoad(f, envir = l2); b <- l2$x; unlink(paste0(f, c('.rdb', '.rdx'))); list(a, b) }");
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2016, 2019, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2016, 2021, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -53,4 +53,12 @@ public class TestBuiltin_matmul extends TestBase {
         assertEval("numeric() %*% matrix(0, nrow=1, ncol=0)");
         assertEval("numeric() %*% matrix(0, nrow=0, ncol=1)");
     }
+
+    @Test
+    public void testMatmulLarge() {
+        // large enough to be computed in parallel
+        assertEval("{ x <- matrix((1:60000 %% 7) - 3, 200); r <- x %*% t(x); c(dim(r), sum(r), r[1, 1], r[200, 199], r[77, 130]) }");
+        assertEval("{ x <- matrix((1:60000 %% 11) / 4, 300); r <- crossprod(x); c(dim(r), sum(r), r[1, 2], r[2, 1], isSymmetric(r)) }");
+        assertEval("{ x <- matrix((1:60000 %% 5) - 2, 300); y <- matrix((1:60000 %% 3), 200); x[5, 7] <- NA; y[9, 150] <- NaN; r <- x %*% y; c(sum(is.na(r)), sum(r, na.rm = TRUE)) }");
+    }
 }
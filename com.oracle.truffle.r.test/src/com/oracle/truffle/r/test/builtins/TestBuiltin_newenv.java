@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2016, 2018, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2016, 2021, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -37,4 +37,17 @@ public class TestBuiltin_newenv extends TestBase {
         assertEval(Output.ContainsReferences, "parent.env(new.env())");
         assertEval(Output.ContainsReferences, "e <- new.env(); e; parent.env(new.env(TRUE, e))");
     }
+
+    @Test
+    public void testHashedEnvAsDictionary() {
+        assertEval("{ e <- new.env(hash = TRUE); for (i in 1:5000) assign(paste0('k', i), i, envir = e); c(length(ls(e)), get('k4321', envir = e), exists('k5001', envir = e), e[['k17']], e$k2) }");
+        assertEval("{ e <- new.env(); for (i in 1:100) e[[paste0('k', i)]] <- i; rm(list = paste0('k', 1:90), envir = e); e$k95 <- -1; unlist(mget(ls(e), envir = e)) }");
+        assertEval("{ e <- new.env(); assign('.a', 1, e); assign('b', 2, e); assign('a', 3, e); list(ls(e), ls(e, all.names = TRUE), ls(e, pattern = '^a'), sort(names(as.list(e, all.names = TRUE)))) }");
+        assertEval("{ e <- new.env(); assign('x', 1, e); lockBinding('x', e); tryCatch(assign('x', 2, e), error = function(c) 'locked') }");
+        assertEval("{ e <- new.env(); assign('x', 1, e); lockEnvironment(e); e$x <- 5; r <- tryCatch(assign('y', 2, e), error = function(c) 'locked'); list(e$x, r) }");
+        // the bindings have to be visible once the environment is used to evaluate code
+        assertEval("{ e <- new.env(); for (i in 1:100) assign(paste0('k', i), i, envir = e); f <- function() k42 + k7; environment(f) <- e; c(f(), evalq(k1 + k100, e), local(k50, e)) }");
+        assertEval("{ e <- new.env(); assign('x', 1, e); e2 <- new.env(parent = e); assign('y', 2, e); c(get('x', e2), evalq(x + y, e2)) }");
+        assertEval("{ e <- new.env(); assign('x', 1, e); evalq(x <- x + 1, e); assign('x', get('x', e) * 10, e); rm('x', envir = e); c(exists('x', e, inherits = FALSE), length(ls(e))) }");
+    }
 }
@@ -180,4 +180,14 @@ public class TestBuiltin_order extends TestBase {
         assertEval("order(NULL)");
         assertEval("order(c(NULL, c(1,2,0)))");
     }
+
+    @Test
+    public void testOrderLarge() {
+        // large enough to be ordered in parallel with the default threshold
+        assertEval("{ x <- rep(c(3, 1, NA, 2, -0, 0, NaN), 30000); o <- order(x, method = 'shell'); c(length(o), head(o), tail(o), sum(as.numeric(o) * seq_along(o))) }");
+        assertEval("{ x <- rep(c(3L, 1L, NA, 2L), 50000); o <- order(x, decreasing = TRUE, na.last = FALSE, method = 'shell'); c(length(o), head(o), tail(o), sum(as.numeric(o) * seq_along(o))) }");
+        assertEval("{ x <- rep(c(3L, 1L, NA, 2L), 50000); o <- order(x, na.last = NA, method = 'shell'); c(length(o), head(o), tail(o), sum(as.numeric(o) * seq_along(o))) }");
+        assertEval("{ x <- rep(c('b', 'a', NA, 'c'), 50000); o <- order(x); c(length(o), head(o), tail(o), sum(as.numeric(o) * seq_along(o))) }");
+        assertEval("{ x <- rep(c(2, 1, NA), 70000); y <- rep(c(1L, NA, 3L, 2L, 1L, 0L, 5L), 30000); o <- order(x, y, decreasing = TRUE, method = 'shell'); c(length(o), head(o), tail(o), sum(as.numeric(o) * seq_along(o))) }");
+    }
 }
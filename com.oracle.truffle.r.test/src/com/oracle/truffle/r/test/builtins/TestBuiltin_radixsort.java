@@ -64,4 +64,31 @@ public class TestBuiltin_radixsort extends TestBase {
         // at InternalNode$InternalCallWrapNode.prepareArgs(InternalNode.java:309)
         assertEval(Ignored.ImplementationError, "argv <- list(structure(integer(0), .Label = character(0), class = 'factor'), TRUE, FALSE); .Internal(radixsort(argv[[1]], argv[[2]], argv[[3]]))");
     }
+
+    @Test
+    public void testRadixOrder() {
+        assertEval("order(c(3L, 1L, NA, 2L, 1L), method = 'radix')");
+        assertEval("order(c(3L, 1L, NA, 2L, 1L), na.last = FALSE, method = 'radix')");
+        assertEval("order(c(3L, 1L, NA, 2L, 1L), na.last = NA, method = 'radix')");
+        assertEval("order(c(3L, 1L, NA, 2L, 1L), decreasing = TRUE, method = 'radix')");
+        assertEval("order(c(2.5, -0, NaN, -Inf, NA, 0, 1e300, -1e-300), method = 'radix')");
+        assertEval("order(c(2.5, -0, NaN, -Inf, NA, 0, 1e300, -1e-300), decreasing = TRUE, na.last = FALSE, method = 'radix')");
+        assertEval("order(c(TRUE, NA, FALSE, TRUE), method = 'radix')");
+        assertEval("order(c('b', 'B', NA, 'a', 'ab', '', 'A'), method = 'radix')");
+        assertEval("order(factor(c('x', 'y', 'x', NA, 'z')), method = 'radix')");
+        assertEval("order(c(1L, 2L, 1L, 2L, 1L), c('c', 'a', 'b', 'a', 'a'), decreasing = c(TRUE, FALSE), method = 'radix')");
+        assertEval("order(c(1, 1, 2, 2), c(NA, 3L, 2L, NA), c(4, 3, 2, 1), na.last = NA, method = 'radix')");
+        assertEval("sort(c(10L, 3L, NA, 7L), method = 'radix')");
+        assertEval("sort(c('b', 'a', 'c', 'a'), decreasing = TRUE, method = 'radix')");
+    }
+
+    @Test
+    public void testRadixSortGroups() {
+        assertEval("grouping(c('b', 'a', 'b', 'c', 'a'))");
+        assertEval("grouping(c(2L, NA, 1L, 2L, NA), c(1, 1, 1, 1, 2))");
+        assertEval("grouping(integer(0))");
+        assertEval(".Internal(radixsort(TRUE, c(FALSE, TRUE), TRUE, TRUE, c(1L, 2L, 1L, 2L), c(5, 5, 6, 6)))");
+        assertEval(".Internal(radixsort(NA, FALSE, TRUE, FALSE, c('y', NA, 'x', 'y')))");
+        assertEval(".Internal(radixsort(TRUE, c(FALSE, FALSE), FALSE, TRUE, 1:3, 1:2))");
+    }
 }
@@ -69,6 +69,17 @@ public class TestBuiltin_rowsum extends TestBase {
         assertEval("argv <- list(structure(c(1.33333333333333, -1.33333333333333, 1, 1.33333333333333, -2, 0.666666666666667, -0.666666666666667, 0.666666666666667, -0.666666666666667), .Dim = c(9L, 1L), .Dimnames = list(c('1', '2', '3', '4', '5', '6', '7', '8', '9'), 'x')), structure(c(1, 1, 2, 2, 2, 2, 3, 4, 5), .Names = c('1', '2', '3', '4', '5', '6', '7', '8', '9')), c(1, 2, 3, 4, 5), FALSE, c('1', '2', '3', '4', '5')); .Internal(rowsum_matrix(argv[[1]], argv[[2]], argv[[3]], argv[[4]], argv[[5]]))");
     }
 
+    @Test
+    public void testRowsumGroups() {
+        assertEval("{ x <- matrix(1:12, ncol=2); rowsum(x, c('b', NA, 'a', 'b', NA, 'a')) }");
+        assertEval("{ x <- matrix(c(1.5, NA, 3, 4, 5, NaN), ncol=2); rowsum(x, c(2L, 1L, 2L)) }");
+        assertEval("{ x <- matrix(c(1.5, NA, 3, 4, 5, NaN), ncol=2); rowsum(x, c(2L, 1L, 2L), na.rm=TRUE) }");
+        assertEval("{ rowsum(c(.Machine$integer.max, 1L, 2L), c(TRUE, TRUE, FALSE)) }");
+        assertEval("{ rowsum(1:6, factor(c('x', 'y', 'x', 'z', 'y', 'x')), reorder=FALSE) }");
+        assertEval("{ rowsum(c(1, 2, 3, 4), c(0.5, -0.5, 0.5, NaN)) }");
+        assertEval("{ g <- rep(1:1000, 10); s <- rowsum(as.double(seq_along(g)), g); c(dim(s), sum(s), s[1000]) }");
+    }
+
     @Test
     public void testRowsumArgCoverage() {
         assertEval("x <- matrix(1:10, ncol=2); g <- c(1,2,3,2,1); ug <-unique(g); .Internal(rowsum_matrix(x, g, ug, FALSE, as.character(ug)))");
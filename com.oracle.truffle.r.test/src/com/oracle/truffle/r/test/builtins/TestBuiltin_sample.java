@@ -14,7 +14,7 @@
  * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
  *
  * Copyright (c) 2012-2014, Purdue University
- * Copyright (c) 2013, 2019, Oracle and/or its affiliates
+ * Copyright (c) 2013, 2021, Oracle and/or its affiliates
  *
  * All rights reserved.
  */
@@ -105,6 +105,16 @@ public class TestBuiltin_sample extends TestBase {
         assertEval(Ignored.ImplementationError, "{ set.seed(9567, \"Marsaglia-Multicarry\"); x <- 5 ; sample(x, 6, FALSE, NULL) ;}");
     }
 
+    @Test
+    public void testLargePopulation() {
+        // more than 200 probabilities are large enough for the Walker alias method
+        assertEval("{ set.seed(42); p <- rep(c(1, 2, 5), length.out = 1000); x <- sample(1000, 20, replace = TRUE, prob = p); x }");
+        assertEval("{ set.seed(42); x <- sample(300, 1e5, replace = TRUE, prob = 1:300); c(min(x), max(x), sum(x)) }");
+        assertEval("{ set.seed(42); sample(500, 10, replace = TRUE, prob = c(0, rep(1, 499))) }");
+        assertEval("{ set.seed(42); sample(1000, 20, prob = rep(c(1, 2, 5), length.out = 1000)) }");
+        assertEval("{ set.seed(42); x <- sample(5000, 4000, prob = c(rep(0, 1000), 1:4000)); c(length(unique(x)), min(x), sum(x)) }");
+    }
+
     @Test
     public void testArgsCasts() {
         // x
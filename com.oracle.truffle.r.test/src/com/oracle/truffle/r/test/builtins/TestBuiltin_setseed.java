@@ -61,7 +61,7 @@ public class TestBuiltin_setseed extends TestBase {
 
     @Test
     public void testsetseed7() {
-        assertEval(Ignored.Unimplemented, "argv <- list(123, 7L, NULL); .Internal(set.seed(argv[[1]], argv[[2]], argv[[3]], NULL))");
+        assertEval("argv <- list(123, 7L, NULL); .Internal(set.seed(argv[[1]], argv[[2]], argv[[3]], NULL))");
     }
 
     @Test
@@ -69,6 +69,14 @@ public class TestBuiltin_setseed extends TestBase {
         assertEval("argv <- list(NULL, NULL, NULL); .Internal(set.seed(argv[[1]], argv[[2]], argv[[3]], NULL))");
     }
 
+    @Test
+    public void testLEcuyerCMRG() {
+        assertEval("set.seed(123, kind = \"L'Ecuyer-CMRG\"); .Random.seed; runif(5); .Random.seed");
+        assertEval("set.seed(1, kind = \"L'Ecuyer-CMRG\"); x <- rnorm(10); RNGkind(\"default\"); x");
+        assertEval("RNGkind(\"L'Ecuyer-CMRG\"); set.seed(42); s <- .Random.seed; a <- runif(3); .Random.seed <- s; identical(a, runif(3))");
+        assertEval("RNGkind(\"L'Ecuyer-CMRG\"); set.seed(42); s <- parallel::nextRNGStream(.Random.seed); .Random.seed <- s; x <- runif(3); .Random.seed <- parallel::nextRNGSubStream(s); c(x, runif(3))");
+    }
+
     @Test
     public void testArgCasts() {
         assertEval(Output.IgnoreErrorMessage, "set.seed('hello world')");
@@ -160,4 +160,16 @@ public class TestBuiltin_strsplit extends TestBase {
 
         assertEval("strsplit('/some/path/to/somewhere' , '^(?=/)(?!//)|(?<!^)(?<!^/)/', perl = TRUE)");
     }
+
+    @Test
+    public void testEmptyMatchesPerl() {
+        // empty matches after the start of the string take one character, like in GNU R
+        assertEval("strsplit('abc', '(?=b)', perl = TRUE)");
+        assertEval("strsplit('abcb', '(?=b)', perl = TRUE)");
+        assertEval("strsplit(c('a1b2', 'ab', ''), '(?<=[0-9])', perl = TRUE)");
+        assertEval("strsplit('hello big world', '\\\\b', perl = TRUE)");
+        assertEval("strsplit('abc', 'x*', perl = TRUE)");
+        assertEval("strsplit('a  b c', ' *', perl = TRUE)");
+        assertEval("strsplit('aXbXXc', '(?=X)|X', perl = TRUE)");
+    }
 }
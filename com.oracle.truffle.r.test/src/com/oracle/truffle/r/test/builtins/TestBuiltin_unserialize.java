@@ -95,6 +95,10 @@ public class TestBuiltin_unserialize extends TestBase {
         assertEval(template(
                         "f <- function() x; e <- new.env(); e$x <- 123; environment(f) <- e; expr <- substitute({ FUN() }, list(FUN=f)); eval(expr); expr <- unserialize(serialize(expr, NULL, version=%0)); eval(expr)",
                         VERSIONS));
+        // the AST of an unserialized closure is created on first use, which may be an inspection
+        assertEval(template("options(keep.source=FALSE); f <- function(x, y = 2) x + y; g <- unserialize(serialize(f, NULL, version=%0)); list(formals(g), body(g), g(1))", VERSIONS));
+        assertEval(template("options(keep.source=FALSE); f <- function() x; g <- unserialize(serialize(f, NULL, version=%0)); e <- new.env(); e$x <- 42; environment(g) <- e; g()", VERSIONS));
+        assertEval(template("options(keep.source=FALSE); f <- function(n) if (n > 1) n * f(n - 1) else 1; g <- unserialize(serialize(f, NULL, version=%0)); attr(g, 'a') <- 1; c(g(5), identical(deparse(f), deparse(g)))", VERSIONS));
     }
 
     @Test
@@ -117,6 +121,14 @@ public class TestBuiltin_unserialize extends TestBase {
         assertEvalFastR(Ignored.Unimplemented, "s <- unserialize(serialize(1:2147483648, connection=NULL, version=3)); .fastr.inspect(s)", "cat('com.oracle.truffle.r.runtime.data.RIntSequence\n')");
     }
 
+    @Test
+    public void testunserializeLarge() {
+        // vector payloads larger than the read buffer
+        assertEval(template("x <- list(c(1:50000, NA), c(seq(0.5, 25000, 0.5), NA), c(rep(c(TRUE, FALSE), 25000), NA), complex(real=1:30000, imaginary=NA), as.raw(rep(0:255, 300))); " +
+                        "y <- unserialize(serialize(x, connection=NULL, version=%0)); c(identical(x, y), sum(y[[1]], na.rm=TRUE), sum(is.na(y[[4]])))", VERSIONS));
+        assertEval("{ f <- tempfile(fileext='.rds'); x <- list(a=as.numeric(1:300000), b=as.raw(rep(1:255, 1000)), c=c(NA, 1:100000)); saveRDS(x, f); y <- readRDS(f); unlink(f); identical(x, y) }");
+    }
+
     @Test
     public void testunserializeDeferredString() {
         assertEval("e <- unserialize(file('" + DEFERED_STRING_PATH + "', open='rb')); e$is; e$iv; e$rs; e$rv; e$isa; e$iva; e$rsa; e$rva");
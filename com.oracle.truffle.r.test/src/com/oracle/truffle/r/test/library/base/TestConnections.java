@@ -87,6 +87,24 @@ public class TestConnections extends TestRBase {
         assertEval(TestBase.template("{ con <- file(\"%0\"); readLines(con, 2) }", testDir.subDir("wl2")));
     }
 
+    @Test
+    public void testFileReadLinesBlocks() {
+        // lines crossing the boundaries of the read buffer, different line terminators
+        assertEval("{ f <- tempfile(); x <- strrep(letters, 1000 * (1:26)); writeLines(x, f); y <- readLines(f); unlink(f); c(identical(x, y), sum(nchar(y))) }");
+        assertEval("{ f <- tempfile(); cat('a\\r\\nbb\\rccc\\n\\ndddd', file = f); y <- readLines(f); unlink(f); y }");
+        assertEval("{ f <- tempfile(); x <- as.character(1:20000); writeLines(x, f); con <- file(f, 'r'); y <- character(); while (length(l <- readLines(con, n = 3000)) > 0) y <- c(y, l); close(con); unlink(f); identical(x, y) }");
+        assertEval("{ f <- tempfile(fileext = '.gz'); x <- paste0('line', 1:5000); con <- gzfile(f, 'w'); writeLines(x, con); close(con); con <- gzfile(f, 'r'); y <- readLines(con); close(con); unlink(f); identical(x, y) }");
+        assertEval("{ f <- tempfile(); writeBin(as.raw(c(0x61, 0x00, 0x62, 0x0a, 0x63)), f); y <- readLines(f, skipNul = TRUE); unlink(f); y }");
+    }
+
+    @Test
+    public void testCompressedWriteLarge() {
+        // data spanning several compression blocks
+        assertEval(TestBase.template("{ f <- tempfile(); x <- list(a=as.numeric(1:1000000), b=rep(letters, 10000)); saveRDS(x, f, compress='%0'); y <- readRDS(f); unlink(f); identical(x, y) }",
+                        new String[]{"gzip", "xz"}));
+        assertEval("{ f <- tempfile(); con <- gzfile(f, 'w'); writeLines(as.character(1:300000), con); close(con); con <- gzfile(f, 'a'); writeLines('last', con); close(con); x <- readLines(f); unlink(f); c(length(x), x[300000:300001]) }");
+    }
+
     @Test
     public void testFileWriteReadChar() {
         assertEval(TestBase.template("{ writeChar(\"abc\", file(\"%0\")) }", testDir.subDir("wc1")));
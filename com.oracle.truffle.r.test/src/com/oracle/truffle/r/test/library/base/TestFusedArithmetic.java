@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2021, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.test.library.base;
+
+import static com.oracle.truffle.r.runtime.context.FastROptions.FusedArithmetic;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.graalvm.polyglot.Value;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.oracle.truffle.r.runtime.data.RDoubleDeferredVectorData;
+import com.oracle.truffle.r.runtime.data.RDoubleVector;
+import com.oracle.truffle.r.runtime.env.REnvironment;
+import com.oracle.truffle.r.test.TestOptionBase;
+
+/**
+ * Compares the results of arithmetic evaluated with {@code --R.FusedArithmetic} with the eager
+ * results.
+ */
+public class TestFusedArithmetic extends TestOptionBase {
+
+    private static final String SETUP = "a <- as.double(1:5000); b <- a / 7; n <- a; n[c(2, 2999)] <- c(NA, NaN); v <- c(a, a)";
+
+    @BeforeClass
+    public static void setupClass() {
+        createContext(SETUP);
+    }
+
+    @Test
+    public void testChains() {
+        assertFused("a * b + a / (b + 1) - 0.5", true);
+        assertFused("2 / a - b * b", true);
+        assertFused("(a + 1) * (v[1:5000] - 2)", true);
+        // deeper than RDoubleDeferredVectorData.MAX_DEPTH, the top of the chain is eager
+        assertFused("((((((((((a + 1) * 2) - 3) / 4) + 5) * 6) - 7) / 8) + 9) * 10)", false);
+        // shorter than the minimal length or recycled, computed eagerly
+        assertFused("a[1:100] * b[1:100] + 1", false);
+        assertFused("a + c(1, 2)", false);
+    }
+
+    @Test
+    public void testNA() {
+        assertFused("(n - 1) * 2 + 3 / n", true);
+        assertFused("n * NA_real_ + b", true);
+        assertFused("0 / (a - a) + n", true);
+        assertFused("{ r <- a * b + 1; c(anyNA(r), anyNA(r * n)) }", false);
+    }
+
+    @Test
+    public void testForcing() {
+        assertFused("{ r <- a * b; s1 <- sum(r); s2 <- sum(r); c(s1, s2, r[5000], length(r)) }", false);
+        assertFused("{ r <- a - b; r[c(1, 5000)] }", false);
+        assertFused("{ r <- (a + b) * 2; r[1] <- 0; r[1:3] }", false);
+        assertFused("{ r <- a / b; names(r) <- NULL; dim(r) <- c(100, 50); r[2, 3] }", false);
+    }
+
+    @Test
+    public void testOperandsNotUpdatedInPlace() {
+        // the deferred data keeps the operand arrays, the operands must be copied when modified
+        assertFused("{ x <- a * 2; y <- x + 1; x[1] <- -1; c(x[1:2], y[1:2]) }", false);
+        assertFused("{ x <- a + 0; y <- x * 2; x[2] <- 0; z <- y - x; c(y[1:3], z[1:3]) }", false);
+        assertFused("{ f <- function(x) { y <- x * 3; x[1] <- 100; y[1] }; f(a + 1) }", false);
+    }
+
+    @Test
+    public void testOperandsReleased() {
+        // the operands are shared only until the deferred result is evaluated
+        eval("x <- a[1:5000]");
+        assertFalse(isShared("x"));
+        setOption(FusedArithmetic, true);
+        try {
+            eval("y <- x * 2 + x");
+        } finally {
+            setOption(FusedArithmetic, false);
+        }
+        assertTrue(isDeferred("y"));
+        assertTrue(isShared("x"));
+        eval("s <- sum(y)");
+        assertFalse(isShared("x"));
+    }
+
+    private static void assertFused(String expression, boolean deferred) {
+        assertSameWithOption(FusedArithmetic, expression);
+        if (deferred) {
+            assertTrue(expression, isDeferred("actual"));
+        }
+        // the operands of the fused expression must be unchanged
+        assertEquals(expression, "TRUE", eval("{ e <- new.env(); eval(parse(text = '" + SETUP + "'), e); " +
+                        "as.character(identical(mget(c('a', 'b', 'n', 'v'), e), mget(c('a', 'b', 'n', 'v')))) }").asString());
+    }
+
+    private static boolean isShared(String name) {
+        return execInContext(() -> ((RDoubleVector) REnvironment.globalEnv().get(name)).isShared()).asBoolean();
+    }
+
+    private static boolean isDeferred(String name) {
+        Value result = execInContext(() -> {
+            Object value = REnvironment.globalEnv().get(name);
+            return value instanceof RDoubleVector && ((RDoubleVector) value).getData() instanceof RDoubleDeferredVectorData;
+        });
+        return result.asBoolean();
+    }
+}
@@ -789,6 +789,14 @@ public class TestSimpleArithmetic extends TestBase {
         assertEval("{ xor(0:2, 2:7) }");
     }
 
+    @Test
+    public void testLongVectorChains() {
+        assertEval("{ a <- as.double(1:5000); b <- a / 7; r <- a * b + a / (b + 1) - 0.5; c(length(r), sum(r), r[c(1, 2500, 5000)]) }");
+        assertEval("{ a <- as.double(1:3000); a[c(2, 2999)] <- c(NA, NaN); r <- (a - 1) * 2 + 3 / a; c(sum(is.na(r)), sum(is.nan(r)), r[c(1, 3000)]) }");
+        assertEval("{ a <- as.double(1:2000); b <- a * 2; a[1] <- 100; c(b[1], (b + a)[1]) }");
+        assertEval("{ a <- as.double(1:2000); b <- a + 1; b[2] <- 0; c(b[1:3], a[1:3]) }");
+    }
+
     @Test
     public void testArgSideEffect() {
         assertEval("{ a <- c(1, 2, 4); foo <- function() { a[[1]] <<- 42; 33; }; a + foo() }");
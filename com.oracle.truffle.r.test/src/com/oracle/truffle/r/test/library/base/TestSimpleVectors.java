@@ -2431,4 +2431,17 @@ public class TestSimpleVectors extends TestBase {
     public void testLargeNames() {
         assertEval("v <- runif(1000); names(v) <- paste0('a', 1:1000); v[paste0('a', 1:1000)] <- 42; length(v); sum(v)");
     }
+
+    @Test
+    public void testGrowByAppend() {
+        assertEval("{ x <- integer(); for (i in 1:1000) x[length(x) + 1] <- i; c(length(x), sum(x), x[c(1, 500, 1000)]) }");
+        assertEval("{ x <- numeric(); for (i in 1:100) x[[i]] <- i / 2; y <- x; x[101] <- 0; c(length(x), length(y), sum(y)) }");
+        assertEval("{ x <- c(TRUE, FALSE); for (i in 3:50) x[i] <- i %% 2 == 0; y <- x; x[60] <- TRUE; list(length(y), x[51:60], sum(x, na.rm = TRUE)) }");
+        assertEval("{ x <- c(a = 1, b = 2); for (i in 3:10) x[i] <- i; names(x) }");
+        assertEval("{ x <- 1:6; dim(x) <- c(2, 3); for (i in 7:9) x[i] <- i; list(x, dim(x)) }");
+        assertEval("{ x <- numeric(); for (i in 1:20) { x[i] <- i; if (i == 10) z <- x }; list(z, x) }");
+        // builtins reading the raw array of a vector with spare capacity, before and after more appends
+        assertEval("{ x <- numeric(); for (i in 1:10) { x[i] <- i; s <- sum(x); r <- rev(x) }; x[11] <- 11; list(s, r, sum(x), rev(x)) }");
+        assertEval("{ x <- integer(); for (i in 1:10) x[i] <- i; y <- sort(x, decreasing = TRUE); x[11] <- 0L; list(y, sort(x)) }");
+    }
 }
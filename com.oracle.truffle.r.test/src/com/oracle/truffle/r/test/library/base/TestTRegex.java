@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2021, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.test.library.base;
+
+import static com.oracle.truffle.r.runtime.context.FastROptions.TRegex;
+import static org.junit.Assert.assertTrue;
+
+import org.graalvm.polyglot.Value;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.oracle.truffle.r.runtime.TRegexPattern;
+import com.oracle.truffle.r.runtime.context.RContext;
+import com.oracle.truffle.r.test.TestOptionBase;
+
+/**
+ * Compares the results of the regex builtins evaluated with {@code --R.TRegex} with the results of
+ * the default engines, including the patterns and strings for which TRegex falls back to them.
+ */
+public class TestTRegex extends TestOptionBase {
+
+    @BeforeClass
+    public static void setupClass() {
+        createContext(null);
+    }
+
+    @Test
+    public void testSupported() {
+        assertSupported("(?<key>[a-z]+)=(?<val>[0-9]*)", TRegexPattern.PERL, true);
+        assertSupported("(\\w+)\\s+\\1", TRegexPattern.PERL, true);
+        assertSupported("(?=b)", TRegexPattern.PERL, true);
+        assertSupported("[0-9]+$", TRegexPattern.DOTALL, true);
+        assertSupported("ab", TRegexPattern.DOTALL | TRegexPattern.IGNORE_CASE, true);
+        assertSupported("(?i)ab", TRegexPattern.PERL, false);
+        assertSupported("a++b", TRegexPattern.PERL, false);
+    }
+
+    @Test
+    public void testGroups() {
+        assertTRegex("regexpr('(?<key>[a-z]+)=(?<val>[0-9]*)', c('a=1', 'xx bb=22', 'c=', 'none', NA), perl = TRUE)");
+        assertTRegex("regexpr('(a)|(b)', c('b', 'ab', ''), perl = TRUE)");
+        assertTRegex("gregexpr('(?<d>[0-9])(x)?', c('1x2 3', '', 'abc'), perl = TRUE)");
+        assertTRegex("gregexpr('[0-9]+', c('a1b22c333', '', 'x', NA))");
+        assertTRegex("regmatches('k1=v1, k2=v2', gregexpr('[a-z][0-9]', 'k1=v1, k2=v2'))");
+    }
+
+    @Test
+    public void testReplace() {
+        assertTRegex("sub('([a-z]+) ([a-z]+)', '\\\\2 \\\\1', c('hello world', 'x', NA))");
+        assertTRegex("gsub('(\\\\w+)', '\\\\U\\\\1', c('ab cd', ''), perl = TRUE)");
+        assertTRegex("gsub('(a)(b)?', '[\\\\1\\\\2]', 'abaab', perl = TRUE)");
+        assertTRegex("gsub('(\\\\w)\\\\1', '<\\\\1>', 'aabbcd', perl = TRUE)");
+        assertTRegex("gsub('A', 'x', c('abA', 'AAA'), ignore.case = TRUE)");
+    }
+
+    @Test
+    public void testEmptyMatches() {
+        assertTRegex("gsub('b*', '-', 'abc')");
+        assertTRegex("gsub('b*', '-', 'abc', perl = TRUE)");
+        assertTRegex("gsub('^', '>', c('a', ''))");
+        assertTRegex("gsub('(?=b)', '|', 'abcb', perl = TRUE)");
+        assertTRegex("gregexpr('x*', 'axxb', perl = TRUE)");
+    }
+
+    @Test
+    public void testGrep() {
+        assertTRegex("grepl('[[:digit:]]+$', c('ab1', '1ab', 'x\\n1', '1\\n'))");
+        assertTRegex("grepl('[0-9]+$', c('ab1', '1\\n', '1\\r\\n'), perl = TRUE)");
+        assertTRegex("grep('^a.c$', c('abc', 'a\\nc', 'ac'), value = TRUE)");
+        assertTRegex("grep('AB', c('ab', 'xAb', 'b'), ignore.case = TRUE)");
+        assertTRegex("grep('ab', c('ab', 'AB'), ignore.case = TRUE, perl = TRUE, invert = TRUE)");
+        // the call site specialized for a constant pattern
+        assertTRegex("lapply(1:3, function(i) grepl('[0-9]+', c('a1', 'b', NA)))");
+        assertTRegex("lapply(c('a', 'b', 'a'), function(p) grep(p, c(x = 'ab', y = 'b'), value = TRUE))");
+        assertTRegex("lapply(list(c('a', 'b'), c('\\u00e9a', 'b')), function(x) grepl('a', x, perl = TRUE))");
+    }
+
+    @Test
+    public void testFallback() {
+        // inline flags and possessive quantifiers are not supported by TRegex
+        assertTRegex("grepl('(?i)ab', c('AB', 'b'), perl = TRUE)");
+        assertTRegex("sub('a++b', 'X', c('aaab', 'aa'), perl = TRUE)");
+        // non-ASCII strings are matched by the other engines
+        assertTRegex("regexpr('\\u00e9+', c('caf\\u00e9\\u00e9', 'abc'), perl = TRUE)");
+        assertTRegex("gsub('.', '-', c('\\u00e9a', 'ab'), perl = TRUE)");
+        assertTRegex("gregexpr('[a-z]', c('\\u00e9a', 'ab'))");
+    }
+
+    @Test
+    public void testSplit() {
+        assertTRegex("strsplit(c('a1b22c', 'xyz', '', NA), '[0-9]+')");
+        assertTRegex("strsplit('a,b;c', '[,;]', perl = TRUE)");
+        assertTRegex("strsplit('abc', '(?=b)', perl = TRUE)");
+        assertTRegex("strsplit('hello big world', '\\\\b', perl = TRUE)");
+        assertTRegex("strsplit('abc', '')");
+    }
+
+    private static void assertTRegex(String expression) {
+        assertSameWithOption(TRegex, expression);
+    }
+
+    private static void assertSupported(String pattern, int flags, boolean supported) {
+        Value result = execInContext(() -> {
+            RContext ctx = RContext.getInstance();
+            return ctx.stateRegexCache.getTRegex(pattern, flags, ctx.getEnv()) != null;
+        });
+        assertTrue(pattern, result.asBoolean() == supported);
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2016, 2018, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2016, 2021, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -51,4 +51,17 @@ public class TestExternal_covcor extends TestBase {
         assertEval(template("cov(mtcars[,1:4], use='%0', method='%1')", useCov, methods));
         assertEval(template("cov(1:4, c(1,7,1,-4), use='%0', method='%1')", useCov, methods));
     }
+
+    @Test
+    public void testManyColumns() {
+        String[] use = new String[]{"e", "c", "p"};
+        String[] methods = new String[]{"p", "k", "s"};
+        // 200 columns of length 110 exceed CovcorParallelThreshold, the single column results in
+        // sapply do not and are computed sequentially; column 150 has zero standard deviation
+        String matrix = "set.seed(1); m <- matrix(rnorm(22000), 110, 200); m[c(3, 45, 200, 777)] <- NA; m[, 150] <- 1; ";
+        assertEval(template("{ " + matrix + "r <- cor(m, use='%0', method='%1'); s <- suppressWarnings(sapply(seq_len(ncol(m)), function(j) cor(m, m[, j], use='%0', method='%1'))); " +
+                        "c(dim(r), isTRUE(all.equal(r, s, check.attributes=FALSE)), identical(is.na(r), is.na(s)), round(sum(r, na.rm=TRUE), 6)) }", use, methods));
+        assertEval(template("{ " + matrix + "r <- cov(m[, 1:100], m, use='%0', method='%1'); s <- suppressWarnings(sapply(seq_len(ncol(m)), function(j) cov(m[, 1:100], m[, j], use='%0', method='%1'))); " +
+                        "c(dim(r), isTRUE(all.equal(r, s, check.attributes=FALSE)), identical(is.na(r), is.na(s)), round(sum(r, na.rm=TRUE), 6)) }", use, methods));
+    }
 }
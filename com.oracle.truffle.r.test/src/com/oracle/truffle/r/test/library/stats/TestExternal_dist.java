@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2021, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.test.library.stats;
+
+import org.junit.Test;
+
+import com.oracle.truffle.r.test.TestBase;
+
+public class TestExternal_dist extends TestBase {
+
+    private static final String[] METHODS = new String[]{"'euclidean'", "'maximum'", "'manhattan'", "'canberra'", "'binary'", "'minkowski', p = 3"};
+
+    @Test
+    public void testDist() {
+        assertEval(template("dist(matrix(c(1, 2, 0, 4, 5, 0, 7, 8, 9, 10, 0, 12), 4), method = %0)", METHODS));
+        assertEval(template("dist(matrix(c(1, NA, 0, 4, 5, 0, NaN, 8, 9, 10, 0, 12), 4), method = %0)", METHODS));
+        assertEval(template("dist(matrix(c(1, 2, 0, 4, 5, 0, 7, 8, 9), 3, dimnames = list(c('a', 'b', 'c'), NULL)), method = %0, diag = TRUE, upper = TRUE)", METHODS));
+        assertEval("dist(matrix(c(1, Inf, 0, 4, 0, 1), 3), method = 'binary')");
+        assertEval("dist(matrix(1:4, 2), method = 'minkowski', p = -1)");
+    }
+
+    @Test
+    public void testDistManyRows() {
+        // 700 rows of 10 columns exceed DistParallelThreshold, the distances of single pairs of rows
+        // are computed sequentially and compared with the parallel result
+        assertEval(template("{ set.seed(1); m <- matrix(rnorm(7000), 700); m[c(5, 700, 2999, 6999)] <- NA; d <- dist(m, method = %0); n <- nrow(m); " +
+                        "p <- rbind(c(1, 2), c(1, n), c(n - 1, n), cbind(sample(n - 1, 40), 0)); p[-(1:3), 2] <- p[-(1:3), 1] + sample(n, 40, replace = TRUE) %% (n - p[-(1:3), 1]) + 1; " +
+                        "s <- apply(p, 1, function(ij) dist(m[ij, ], method = %0)[1]); i <- n * (p[, 1] - 1) - p[, 1] * (p[, 1] - 1) / 2 + p[, 2] - p[, 1]; " +
+                        "c(length(d), sum(is.na(d)), round(sum(d, na.rm = TRUE), 6), identical(d[i], s)) }", METHODS));
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2018, 2021, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -46,4 +46,20 @@ public class TestReadTable extends TestBase {
         assertEval("read.table(header = TRUE, blank.lines.skip=FALSE, text = 'a b c\\n\\n1 2 3\\n4 5 6')");
     }
 
+    private static String readFile(String lines, String read) {
+        return "{ f <- tempfile(); writeBin(charToRaw(" + lines + "), f); res <- " + read + "; unlink(f); list(res, sapply(res, typeof)) }";
+    }
+
+    @Test
+    public void testFile() {
+        assertEval(readFile("'a,b,c,d\\n1,2.5,x,TRUE\\n-0,\"3\",\"y,\"\"z\"\"\",F\\nNA,,,T\\n'", "read.csv(f)"));
+        assertEval(readFile("'a,b\\r\\n1,\"multi\\nline\"\\r\\n\\r\\n2,\"\"\\r\\n'", "read.csv(f)"));
+        assertEval(readFile("'x;y\\n1e5;0x10\\n-1;Inf\\n'", "read.csv2(f, dec = '.')"));
+        assertEval(readFile("'a b,a b,1\\n1,NA,-\\n2,x,3\\n'", "read.csv(f, na.strings = c('NA', '-'))"));
+        assertEval(readFile("'a b,a b,1\\n1,NA,-\\n2,x,3\\n'", "read.csv(f, check.names = FALSE)"));
+        assertEval(readFile("'# comment\\nskip me\\n1\\t2 # c\\n3\\t4\\n'", "read.table(f, sep = '\\t', skip = 2)"));
+        assertEval(readFile("'a,b\\n1,2\\n3\\n'", "read.csv(f, fill = TRUE)"));
+        assertEval(readFile("'a,b\\n1,2,3\\n4,5,6\\n'", "read.csv(f)"));
+        assertEval(readFile("'a,b\\n1,2\\n'", "read.csv(f, colClasses = 'character')"));
+    }
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2014, 2019, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2014, 2021, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -44,6 +44,21 @@ public class TestUtils extends TestBase {
         assertEval("testUtilsTestMethod<-function(x) UseMethod('testUtilsTestMethod'); testUtilsTestMethod.default<-function(x) x+1; testUtilsTestMethod.dog<-function(x) x+2; testUtilsTestMethod.bar<-function(x) x+3; methods(testUtilsTestMethod)");
     }
 
+    @Test
+    public void testRprof() {
+        // g runs long enough for several samples, all of them with g on the stack
+        assertEval("{ f <- tempfile(); g <- function() { t0 <- proc.time()[[3]]; n <- 0; while (proc.time()[[3]] - t0 < 0.5) n <- n + 1; n > 0 }; " +
+                        "Rprof(f, interval = 0.01); r <- g(); Rprof(NULL); l <- readLines(f); unlink(f); s <- l[-1]; " +
+                        "c(r, l[[1]], length(s) > 1, all(grepl('^(\"[^\"]+\" )*$', s)), any(grepl('\"g\" ', s))) }");
+        assertEval("{ f <- tempfile(); Rprof(f, interval = 0.02, memory.profiling = TRUE, line.profiling = TRUE); Rprof(NULL); l <- readLines(f); unlink(f); l[[1]] }");
+        // the sample lines start with the memory quad and the frames of sourced code have file#line
+        assertEval("{ f <- tempfile(); src <- tempfile(fileext = '.R'); writeLines(c('g <- function() {', '    t0 <- proc.time()[[3]]; n <- 0', " +
+                        "'    while (proc.time()[[3]] - t0 < 0.5) n <- n + 1', '    n > 0', '}'), src); source(src, keep.source = TRUE); " +
+                        "Rprof(f, interval = 0.02, memory.profiling = TRUE, line.profiling = TRUE); r <- g(); Rprof(NULL); l <- readLines(f)[-1]; unlink(c(f, src)); " +
+                        "h <- grepl('^#File', l); s <- l[!h]; c(r, sum(h) == 1, grepl('^#File 1: ', l[h][1]), length(s) > 1, " +
+                        "all(grepl('^:[0-9]+:[0-9]+:[0-9]+:[0-9]+:', s)), any(grepl('1#[0-9]+ \"g\" ', s))) }");
+    }
+
     private static final String[] TEST_OCTSIZE_PARAMS = {"1L", "1.0", Integer.toString(Integer.MAX_VALUE), "NA", "NULL"};
 
     @Test
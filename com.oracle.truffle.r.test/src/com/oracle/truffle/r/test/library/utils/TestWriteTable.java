@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2016, 2018, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2016, 2021, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -38,4 +38,27 @@ public class TestWriteTable extends TestBase {
     public void testTable() {
         assertEval("write.table(data.frame(col=c(1,2,3,4), col2=c(T, F, T, F)))");
     }
+
+    @Test
+    public void testArguments() {
+        assertEval("write.table(data.frame(a=c(1.5, NaN, NA, -Inf), b=c('x\\"y', NA, 'z', '')), dec=',', na='-')");
+        assertEval("write.table(data.frame(a=c('x\\"y', 'z'), b=factor(c('u\\"v', NA))), qmethod='double')");
+        assertEval("write.table(data.frame(a=c('x', 'y'), b=1:2), quote=2, sep=';', eol='|\\n')");
+        assertEval("write.table(data.frame(a=c(1+2i, NaN), b=c(0.25, 1e-20)), dec=',')");
+        assertEval("write.table(data.frame(a='x', b=1.5, c=NA), row.names='r')");
+        assertEval("write.table(matrix(c(1.5, NaN, NA, 4), 2), dec=',', col.names=FALSE)");
+        assertEval("write.table(matrix(c('a', NA, 'c\\"d', 'e'), 2), qmethod='double', na='')");
+    }
+
+    @Test
+    public void testLargeTable() {
+        // 2M cells are above WriteTableParallelThreshold and are formatted in 31 blocks, i.e. in
+        // several waves unless there are more than 15 cores; the chunks of 40000 rows are below the
+        // threshold and are written sequentially
+        assertEval("{ f1 <- tempfile(); f2 <- tempfile(); n <- 400000; " +
+                        "df <- data.frame(a=1:n, b=(1:n) / 7, c=rep(c('x', NA), n / 2), d=factor(rep(c('u', 'v\\"w'), n / 2))); " +
+                        "write.csv(df, f1); write.csv(df[1:40000, ], f2); " +
+                        "for (i in seq(40001, n, 40000)) write.table(df[i:(i + 39999), ], f2, sep=',', qmethod='double', col.names=FALSE, append=TRUE); " +
+                        "r1 <- readLines(f1); r2 <- readLines(f2); unlink(c(f1, f2)); print(length(r1)); print(identical(r1, r2)); print(r1[c(1:3, 200000:200001, n:(n + 1))]) }");
+    }
 }
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2021, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.test.runtime;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.oracle.truffle.r.runtime.RRuntime;
+import com.oracle.truffle.r.runtime.conn.ParallelTableReader;
+import com.oracle.truffle.r.runtime.conn.ParallelTableReader.Format;
+import com.oracle.truffle.r.runtime.conn.ParallelTableReader.Table;
+
+public class TestParallelTableReader {
+
+    private static final Format CSV = Format.create(",", "\"", "", 0, true, new String[]{"NA"});
+
+    private static Table read(String content, Format format, int chunks) throws IOException {
+        return read(content.getBytes(StandardCharsets.UTF_8), format, chunks);
+    }
+
+    private static Table read(byte[] content, Format format, int chunks) throws IOException {
+        Path path = Files.createTempFile("fastr", ".csv");
+        try {
+            Files.write(path, content);
+            try (FileChannel channel = FileChannel.open(path)) {
+                return ParallelTableReader.read(channel, format, chunks);
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    private static String toString(Table table) {
+        if (table == null) {
+            return "NULL";
+        }
+        StringBuilder sb = new StringBuilder(Arrays.toString(table.names));
+        for (int i = 0; i < table.columns.length; i++) {
+            Object column = table.columns[i];
+            sb.append('\n').append(table.complete[i] ? "complete " : "");
+            if (column instanceof int[]) {
+                sb.append("int ").append(Arrays.toString((int[]) column));
+            } else if (column instanceof double[]) {
+                sb.append("double");
+                for (double value : (double[]) column) {
+                    sb.append(' ').append(RRuntime.isNA(value) ? "NA" : Double.toString(value));
+                }
+            } else if (column instanceof byte[]) {
+                sb.append("logical ").append(Arrays.toString((byte[]) column));
+            } else {
+                sb.append("character");
+                for (String value : (String[]) column) {
+                    sb.append(' ').append(RRuntime.isNA(value) ? "NA" : "'" + value + "'");
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testTypes() throws IOException {
+        Table table = read("a,b,c,d,e\n1,2.5,x,TRUE,\n-0,\"3\",\"y,\"\"z\"\"\",F,NA\nNA,-0.0,,T,\n", CSV, 1);
+        Assert.assertArrayEquals(new String[]{"a", "b", "c", "d", "e"}, table.names);
+        Assert.assertArrayEquals(new int[]{1, 0, RRuntime.INT_NA}, (int[]) table.columns[0]);
+        double[] doubles = (double[]) table.columns[1];
+        Assert.assertEquals(2.5, doubles[0], 0);
+        Assert.assertEquals(3, doubles[1], 0);
+        Assert.assertEquals(Double.doubleToRawLongBits(-0.0), Double.doubleToRawLongBits(doubles[2]));
+        Assert.assertTrue(table.complete[1]);
+        Assert.assertArrayEquals(new String[]{"x", "y,\"z\"", ""}, (String[]) table.columns[2]);
+        Assert.assertArrayEquals(new byte[]{RRuntime.LOGICAL_TRUE, RRuntime.LOGICAL_FALSE, RRuntime.LOGICAL_TRUE}, (byte[]) table.columns[3]);
+        Assert.assertArrayEquals(new byte[]{RRuntime.LOGICAL_NA, RRuntime.LOGICAL_NA, RRuntime.LOGICAL_NA}, (byte[]) table.columns[4]);
+        Assert.assertFalse(table.complete[4]);
+    }
+
+    @Test
+    public void testDeferredValues() throws IOException {
+        // values that type.convert may read as numbers are left to it
+        Table table = read("a,b,c,d\n1e5,0x10,-012, 1\n2,3,4,5\n", CSV, 1);
+        for (Object column : table.columns) {
+            Assert.assertTrue(column instanceof String[]);
+        }
+        Assert.assertTrue(RRuntime.isNA(((String[]) read("a\nNA\n\"\"\nx\n", CSV, 1).columns[0])[0]));
+    }
+
+    @Test
+    public void testFormat() throws IOException {
+        Format format = Format.create(";", "'\"", "#", 2, false, new String[]{"-"});
+        Table table = read("skipped\nskipped;'\n# comment\n\n1;'a;#b'\r\n2;\"c\nd\"# comment\r-;e", format, 1);
+        Assert.assertNull(table.names);
+        Assert.assertArrayEquals(new int[]{1, 2, RRuntime.INT_NA}, (int[]) table.columns[0]);
+        Assert.assertArrayEquals(new String[]{"a;#b", "c\nd", "e"}, (String[]) table.columns[1]);
+        Assert.assertNull(Format.create(",", ",", "", 0, true, new String[0]));
+        Assert.assertNull(Format.create("\n", "", "", 0, true, new String[0]));
+    }
+
+    @Test
+    public void testHighBytes() throws IOException {
+        // a 0xFF byte is not the missing comment character
+        byte[] content = "a,b\nx\u00ffy,1\n\u00ff,2\n".getBytes(StandardCharsets.ISO_8859_1);
+        Table table = read(content, CSV, 1);
+        Assert.assertArrayEquals(new String[]{"x\ufffdy", "\ufffd"}, (String[]) table.columns[0]);
+        Assert.assertArrayEquals(new int[]{1, 2}, (int[]) table.columns[1]);
+    }
+
+    @Test
+    public void testUnsupported() throws IOException {
+        Assert.assertNull(read("a,b\n1,2\n3\n", CSV, 1));
+        Assert.assertNull(read("a,b\n1,2,3\n", CSV, 1));
+        Assert.assertNull(read("a,b\n1,\"2\n", CSV, 1));
+        Assert.assertNull(read("a,b\n1,2\u0000\n", CSV, 1));
+        Assert.assertNull(read("a,b\n", CSV, 1));
+        Assert.assertNull(read("\ufeffa,b\n1,2\n", CSV, 1));
+    }
+
+    @Test
+    public void testChunks() throws IOException {
+        String[] values = {"1", "-0", "2147483648", "1.5", "NA", "", "TRUE", "F", "abc", "\"x,y\"", "\"q\"\"q\"", "\"multi\nline\"", "\"\"", "0.1"};
+        Random random = new Random(42);
+        for (int iteration = 0; iteration < 500; iteration++) {
+            StringBuilder sb = new StringBuilder("a,b,c\n");
+            int rows = 1 + random.nextInt(40);
+            for (int i = 0; i < rows; i++) {
+                for (int c = 0; c < 3; c++) {
+                    sb.append(c == 0 ? "" : ",").append(values[random.nextInt(values.length)]);
+                }
+                sb.append(random.nextInt(4) == 0 ? "\r\n" : "\n");
+            }
+            String content = sb.toString();
+            String expected = toString(read(content, CSV, 1));
+            for (int chunks : new int[]{2, 3, 7, 1000}) {
+                Assert.assertEquals(content, expected, toString(read(content, CSV, chunks)));
+            }
+        }
+    }
+}
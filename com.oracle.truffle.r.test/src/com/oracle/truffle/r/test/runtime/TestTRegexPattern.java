@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2021, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.test.runtime;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.oracle.truffle.r.runtime.TRegexPattern;
+import com.oracle.truffle.r.runtime.TRegexPattern.Translation;
+
+public class TestTRegexPattern {
+
+    private static String translate(String pattern, int flags) {
+        Translation translation = TRegexPattern.translate(pattern, flags);
+        return translation == null ? null : translation.source;
+    }
+
+    @Test
+    public void testTranslation() {
+        Assert.assertEquals("(?:)", translate("", 0));
+        Assert.assertEquals("a[\\s\\S]c", translate("a.c", TRegexPattern.DOTALL));
+        Assert.assertEquals("a[^\\n]c", translate("a.c", TRegexPattern.PERL));
+        Assert.assertEquals("b(?=\\n?$)", translate("b$", TRegexPattern.PERL));
+        Assert.assertEquals("[ \\t\\n\\x0B\\f\\r]+", translate("\\s+", 0));
+        Assert.assertEquals("[A-Za-z]+", translate("\\p{Alpha}+", 0));
+        Assert.assertEquals("[x0-9]", translate("[x\\p{Digit}]", 0));
+        Assert.assertEquals("[a0-9]", translate("[a[:digit:]]", TRegexPattern.PERL));
+        Assert.assertEquals("\\x2e\\x24\\/", translate("\\.\\$/", 0));
+        Assert.assertEquals("(?<year>\\d{4})-(?<month>\\d{2})", translate("(?P<year>\\d{4})-(?<month>\\d{2})", TRegexPattern.PERL));
+    }
+
+    @Test
+    public void testUnsupported() {
+        String[] patterns = {"a++", "(?i)a", "(?>a)", "\\Qa\\E", "\\Z", "\\A", "[]a]", "[\\S]", "\\1(a)", "(a)\\10", "(a*)*", "(?:(a)|b)+", "(a)?\\1", "(a|b)\\1", "\\p{L}", "a{,2}",
+                        "a{2", "*a", "a|*b", "^*", "\\b+", "(a", "a)", "\\u0041", "\\0", "\ud83d\ude00"};
+        for (String pattern : patterns) {
+            Assert.assertNull(pattern, TRegexPattern.translate(pattern, 0));
+            Assert.assertNull(pattern, TRegexPattern.translate(pattern, TRegexPattern.PERL));
+        }
+        // java.util.regex specific
+        Assert.assertNull(TRegexPattern.translate("[a&&b]", 0));
+        Assert.assertNull(TRegexPattern.translate("[a[b]]", 0));
+        Assert.assertNull(TRegexPattern.translate("\\p{Lower}", TRegexPattern.IGNORE_CASE));
+        // PCRE specific
+        Assert.assertNull(TRegexPattern.translate("\\p{Alpha}", TRegexPattern.PERL));
+        Assert.assertNull(TRegexPattern.translate("[[:foo:]]", TRegexPattern.PERL));
+    }
+
+    @Test
+    public void testGroups() {
+        Translation translation = TRegexPattern.translate("(a)(?:b)(?<name>c)(?=d)", 0);
+        Assert.assertEquals(2, translation.groupCount);
+        Assert.assertArrayEquals(new String[]{"", "name"}, translation.groupNames);
+        Assert.assertFalse(translation.asciiOnly);
+        Assert.assertTrue(TRegexPattern.translate("a", TRegexPattern.PERL).asciiOnly);
+        Assert.assertTrue(TRegexPattern.translate("a", TRegexPattern.IGNORE_CASE).asciiOnly);
+        Assert.assertTrue(TRegexPattern.translate("\\ba", 0).asciiOnly);
+    }
+
+    /**
+     * The translated patterns are also valid {@code java.util.regex} patterns, which must find the
+     * same matches as the original ones.
+     */
+    @Test
+    public void testAgainstJavaRegex() {
+        String[] patterns = {"a", "a.c", "^ab", "a|b", "(a)(b)?", "(a)|(b)", "(ab)+", "(\\w+)\\s(\\w+)", "\\d{2,3}", "x{2}", "a{1,}", "[a-c]+", "[^a-c]", "[\\d\\s]", "[\\w-]", "\\bfoo\\b",
+                        "\\Bo", "(a)\\1", "(?:a|b)*c", "(?<n>a+)b", "(?=a)a", "(?!a).", "(?<=a)b", "(?<!a)b", "\\.", "\\\\", "[\\]]", "a/b", "\\p{Alpha}+", "[\\p{Punct}x]",
+                        "\\P{Space}+", "\\x41", "a*?", "a+?b", "\\S+", "[\\p{XDigit}]+"};
+        String[] texts = {"", "a", "abc", "ab\nb", "b\r\n", "foo bar", "aab", "12 345 6789", "xxx", "a.b$c\\d", "a/b", "x]y}", "A-b_c", "été abc", "aaa", "ba ab", "Hello World!",
+                        "\t \u000b\f\r"};
+        int[] allFlags = {0, TRegexPattern.DOTALL, TRegexPattern.IGNORE_CASE};
+        for (String pattern : patterns) {
+            for (int flags : allFlags) {
+                int javaFlags = ((flags & TRegexPattern.DOTALL) != 0 ? Pattern.DOTALL : 0) | ((flags & TRegexPattern.IGNORE_CASE) != 0 ? Pattern.CASE_INSENSITIVE : 0);
+                Translation translation = TRegexPattern.translate(pattern, flags);
+                Assert.assertNotNull(pattern, translation);
+                Pattern original = Pattern.compile(pattern, javaFlags);
+                Pattern translated = Pattern.compile(translation.source, javaFlags & Pattern.CASE_INSENSITIVE);
+                for (String text : texts) {
+                    if (translation.asciiOnly && !text.chars().allMatch(c -> c < 128)) {
+                        continue;
+                    }
+                    Assert.assertEquals(pattern + " on " + text, matches(original.matcher(text)), matches(translated.matcher(text)));
+                }
+            }
+        }
+    }
+
+    private static String matches(Matcher m) {
+        StringBuilder sb = new StringBuilder();
+        while (m.find()) {
+            for (int i = 0; i <= m.groupCount(); i++) {
+                sb.append(m.start(i)).append(',').append(m.end(i)).append(';');
+            }
+            sb.append('|');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2021, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.test.runtime.ffi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import com.oracle.truffle.r.runtime.ffi.util.ConcurrentLongHashMap;
+import org.junit.Test;
+
+public class ConcurrentLongHashMapTests {
+
+    @Test
+    public void testBasic() {
+        ConcurrentLongHashMap<String> map = new ConcurrentLongHashMap<>(4);
+        assertNull(map.get(42));
+        assertNull(map.get(0));
+        assertNull(map.put(42, "a"));
+        assertEquals("a", map.get(42));
+        assertEquals("a", map.put(42, "b"));
+        assertEquals(1, map.size());
+        assertFalse(map.remove(42, "a"));
+        assertEquals("b", map.get(42));
+        assertTrue(map.remove(42, "b"));
+        assertNull(map.get(42));
+        assertEquals(0, map.size());
+        assertEquals(4, map.getLookups());
+    }
+
+    @Test
+    public void testAgainstHashMap() {
+        ConcurrentLongHashMap<Object> map = new ConcurrentLongHashMap<>(16);
+        HashMap<Long, Object> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200000; i++) {
+            // handles are odd numbers starting at a large offset
+            long key = 0xdef000000000001L + 2L * random.nextInt(20000);
+            switch (random.nextInt(3)) {
+                case 0:
+                    Object value = new Object();
+                    assertSame(expected.put(key, value), map.put(key, value));
+                    break;
+                case 1:
+                    Object current = expected.get(key);
+                    if (current != null) {
+                        assertTrue(map.remove(key, current));
+                        expected.remove(key);
+                    } else {
+                        assertFalse(map.remove(key, new Object()));
+                    }
+                    break;
+                default:
+                    assertSame(expected.get(key), map.get(key));
+                    break;
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (Long key : expected.keySet()) {
+            assertSame(expected.get(key), map.get(key));
+        }
+    }
+
+    @Test
+    public void testConcurrent() throws InterruptedException {
+        ConcurrentLongHashMap<Object> map = new ConcurrentLongHashMap<>(16);
+        int threadsCount = 4;
+        int keysPerThread = 5000;
+        Thread[] threads = new Thread[threadsCount];
+        Throwable[] failures = new Throwable[threadsCount];
+        for (int t = 0; t < threadsCount; t++) {
+            int id = t;
+            threads[t] = new Thread(() -> {
+                try {
+                    Random random = new Random(id);
+                    Object[] values = new Object[keysPerThread];
+                    for (int i = 0; i < 100000; i++) {
+                        int index = random.nextInt(keysPerThread);
+                        long key = 2L * (id * keysPerThread + index) + 1;
+                        if (random.nextBoolean()) {
+                            if (values[index] == null) {
+                                values[index] = new Object();
+                                map.put(key, values[index]);
+                            } else {
+                                assertTrue(map.remove(key, values[index]));
+                                values[index] = null;
+                            }
+                        } else {
+                            assertSame(values[index], map.get(key));
+                        }
+                    }
+                } catch (Throwable e) {
+                    failures[id] = e;
+                }
+            });
+            threads[t].start();
+        }
+        for (int t = 0; t < threadsCount; t++) {
+            threads[t].join();
+            assertNull(failures[t]);
+        }
+    }
+}
@@ -15,6 +15,19 @@ suite = {
                     {"url" : "https://curio.ssw.jku.at/nexus/content/repositories/snapshots", "kind" : "binary"},
                 ]
             },
+            {
+               "name" : "regex",
+               "subdir" : True,
+               # only needed by the unit tests, FastR uses TRegex if it is installed
+               # in the GraalVM, see TRegexPattern
+               # The version must be the same as the version of Truffle
+               # TRUFFLE REVISION (note: this is a marker for script that can update this)
+               "version" : "2a4c54139754b6216cdde79328f17356af02e384",
+               "urls" : [
+                    {"url" : "https://github.com/graalvm/graal", "kind" : "git"},
+                    {"url" : "https://curio.ssw.jku.at/nexus/content/repositories/snapshots", "kind" : "binary"},
+                ]
+            },
             {
                "name" : "sulong",
                "subdir" : True,
@@ -193,6 +206,21 @@ suite = {
       "workingSets" : "FastR",
     },
 
+    "com.oracle.truffle.r.benchmarks" : {
+      "sourceDirs" : ["src"],
+      "dependencies" : [
+        "com.oracle.truffle.r.library",
+        "mx:JMH_1_21",
+      ],
+      "annotationProcessors" : [
+        "mx:JMH_1_21",
+      ],
+      "checkstyle" : "com.oracle.truffle.r.runtime",
+      "javaCompliance" : "8+",
+      "workingSets" : "FastR,Test",
+      "spotbugsIgnoresGenerated" : True,
+    },
+
     "com.oracle.truffle.r.engine" : {
       "sourceDirs" : ["src"],
       "dependencies" : [
@@ -423,6 +451,8 @@ suite = {
         "FASTR",
         "truffle:TRUFFLE_API",
         "truffle:TRUFFLE_TCK",
+        # TRegex is optional at runtime, the tests of --R.TRegex need it
+        "regex:TREGEX",
       ],
 
 